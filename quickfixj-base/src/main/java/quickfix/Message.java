@@ -189,15 +189,64 @@ public class Message extends FieldMap {
             }
             return stringBuilder.toString();
         } finally {
-            if (stringBuilder.length() > Context.MAX_MESSAGE_BUFFER_SIZE) {
-                stringBuilder.setLength(Context.MAX_MESSAGE_BUFFER_SIZE);
-                stringBuilder.trimToSize();
-            }
+            releaseStringBuilder(stringBuilder);
+        }
+    }
 
-            stringBuilder.setLength(0);
+    /**
+     * Returns the body fields of the message without header and trailer. The result can be
+     * passed to {@link #toString(String)} to build the complete message after header fields
+     * like MsgSeqNum have been changed without serializing the body again.
+     *
+     * @return the body of the message as String
+     */
+    public String toBodyString() {
+        StringBuilder stringBuilder = STRING_CONTEXTS.get().stringBuilder;
+        try {
+            calculateString(stringBuilder, null, null);
+            return stringBuilder.toString();
+        } finally {
+            releaseStringBuilder(stringBuilder);
         }
     }
 
+    /**
+     * Same as {@link #toString()} but uses the passed body instead of serializing the body
+     * fields of the message. The body must have been obtained with {@link #toBodyString()}
+     * and the body fields must not have been changed since.
+     *
+     * @param body the body as returned by {@link #toBodyString()}
+     * @return Message as String with calculated body length and checksum.
+     */
+    public String toString(String body) {
+        if (!CharsetSupport.isStringEquivalent()) {
+            return toString();
+        }
+        Context context = STRING_CONTEXTS.get();
+        header.setField(context.bodyLength);
+        trailer.setField(context.checkSum);
+        StringBuilder stringBuilder = context.stringBuilder;
+        try {
+            header.calculateString(stringBuilder, null, null);
+            stringBuilder.append(body);
+            trailer.calculateString(stringBuilder, null, null);
+            setBodyLength(stringBuilder);
+            setChecksum(stringBuilder);
+            return stringBuilder.toString();
+        } finally {
+            releaseStringBuilder(stringBuilder);
+        }
+    }
+
+    private static void releaseStringBuilder(StringBuilder stringBuilder) {
+        if (stringBuilder.length() > Context.MAX_MESSAGE_BUFFER_SIZE) {
+            stringBuilder.setLength(Context.MAX_MESSAGE_BUFFER_SIZE);
+            stringBuilder.trimToSize();
+        }
+
+        stringBuilder.setLength(0);
+    }
+
     private static final String SOH = String.valueOf('\001');
     private static final String BODY_LENGTH_FIELD = SOH + String.valueOf(BodyLength.FIELD) + '=';
     private static final String CHECKSUM_FIELD = SOH + String.valueOf(CheckSum.FIELD) + '=';
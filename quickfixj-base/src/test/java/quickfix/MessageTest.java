@@ -91,6 +91,27 @@ public class MessageTest {
         assertTrue(myMessage.toString().contains("52=20120922-11:00:00\00134=22\00149=foo\00156=bar"));
     }
 
+    @Test
+    public void testToStringWithPrerenderedBody() throws Exception {
+        final Message message = new Message();
+        message.getHeader().setString(BeginString.FIELD, "FIX.4.4");
+        message.getHeader().setString(MsgType.FIELD, "D");
+        message.getHeader().setString(SenderCompID.FIELD, "SENDER");
+        message.getHeader().setString(TargetCompID.FIELD, "TARGET");
+        message.getHeader().setInt(MsgSeqNum.FIELD, 1);
+        message.setString(11, "ID");
+        message.setString(55, "INTC");
+
+        final String body = message.toBodyString();
+        assertEquals("11=ID\00155=INTC\001", body);
+
+        message.getHeader().setInt(MsgSeqNum.FIELD, 12345);
+        final String messageString = message.toString(body);
+        assertEquals(message.toString(), messageString);
+        assertTrue(messageString.contains("\00134=12345\001"));
+        assertTrue(new Message(messageString).hasValidStructure());
+    }
+
     @Test
     public void testHeaderFieldWithCustomTransportDictionaryConstructorReadsHeaderField() throws Exception {
         ValidationSettings validationSettings = new ValidationSettings();
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) quickfixj.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX/J FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixj.org
+ * license as defined by quickfixj.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixj.org/LICENSE for licensing information.
+ *
+ ******************************************************************************/
+
+
+package org.quickfixj.jmx.mbean.session;
+
+import quickfix.CachingMessageStore;
+
+public class MessageStoreCacheAdmin implements MessageStoreCacheAdminMBean {
+
+    private final CachingMessageStore store;
+
+    public MessageStoreCacheAdmin(CachingMessageStore store) {
+        this.store = store;
+    }
+
+    public long getHitCount() {
+        return store.getHitCount();
+    }
+
+    public long getMissCount() {
+        return store.getMissCount();
+    }
+
+    public double getHitRatio() {
+        final long hits = store.getHitCount();
+        final long total = hits + store.getMissCount();
+        return total > 0 ? 100.0 * hits / total : 0;
+    }
+
+    public int getCachedMessageCount() {
+        return store.getCachedMessageCount();
+    }
+
+    public long getEvictedCount() {
+        return store.getEvictedCount();
+    }
+}
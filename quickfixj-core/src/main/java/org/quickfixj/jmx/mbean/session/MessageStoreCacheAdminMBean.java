@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) quickfixj.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX/J FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixj.org
+ * license as defined by quickfixj.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixj.org/LICENSE for licensing information.
+ *
+ ******************************************************************************/
+
+
+package org.quickfixj.jmx.mbean.session;
+
+/**
+ * This MBean provides the statistics of the message cache of a session which
+ * uses a CachingMessageStore.
+ */
+public interface MessageStoreCacheAdminMBean {
+
+    /**
+     * @return the number of messages read from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of messages read from the cached store
+     */
+    long getMissCount();
+
+    /**
+     * @return the percentage of messages read from the cache
+     */
+    double getHitRatio();
+
+    /**
+     * @return the number of messages in the cache
+     */
+    int getCachedMessageCount();
+
+    /**
+     * @return the number of messages evicted from the cache
+     */
+    long getEvictedCount();
+}
@@ -19,10 +19,13 @@ package org.quickfixj.jmx.mbean.session;
 
 import org.quickfixj.jmx.JmxExporter;
 import org.quickfixj.jmx.mbean.ObjectNameFactory;
+import quickfix.CachingMessageStore;
 import quickfix.ConfigError;
+import quickfix.MessageStore;
 import quickfix.Session;
 import quickfix.SessionID;
 import quickfix.SessionSettings;
+import quickfix.WriteBehindMessageStore;
 
 import javax.management.JMException;
 import javax.management.MalformedObjectNameException;
@@ -49,9 +52,24 @@ public class SessionJmxExporter {
         SessionAdmin sessionAdmin = new SessionAdmin(session, connectorName, settingsName);
         session.addStateListener(sessionAdmin);
         jmxExporter.registerMBean(sessionAdmin, sessionName);
+
+        CachingMessageStore cachingStore = getCachingStore(session.getStore());
+        if (cachingStore != null) {
+            ObjectNameFactory cacheNameFactory = new ObjectNameFactory();
+            cacheNameFactory.addProperty("type", "MessageStoreCache");
+            addSessionIdProperties(session.getSessionID(), cacheNameFactory);
+            jmxExporter.registerMBean(new MessageStoreCacheAdmin(cachingStore), cacheNameFactory.createName());
+        }
         return sessionName;
     }
 
+    private CachingMessageStore getCachingStore(MessageStore store) {
+        if (store instanceof WriteBehindMessageStore) {
+            return getCachingStore(((WriteBehindMessageStore) store).getDelegate());
+        }
+        return store instanceof CachingMessageStore ? (CachingMessageStore) store : null;
+    }
+
     public ObjectName getSessionName(SessionID sessionID) {
         return sessionObjectNames.get(sessionID);
     }
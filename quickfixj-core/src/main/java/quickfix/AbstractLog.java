@@ -30,7 +30,7 @@ abstract class AbstractLog implements Log, Closeable {
     }
 
     public final void onIncoming(String message) {
-        if (!logHeartbeats && MessageUtils.isHeartbeat(message)) {
+        if (!isIncomingEnabled() || !logHeartbeats && MessageUtils.isHeartbeat(message)) {
             return;
         }
         logIncoming(message);
@@ -39,7 +39,7 @@ abstract class AbstractLog implements Log, Closeable {
     protected abstract void logIncoming(String message);
 
     public final void onOutgoing(String message) {
-        if (!logHeartbeats && MessageUtils.isHeartbeat(message)) {
+        if (!isOutgoingEnabled() || !logHeartbeats && MessageUtils.isHeartbeat(message)) {
             return;
         }
         logOutgoing(message);
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+
+import org.quickfixj.CharsetSupport;
+
+import quickfix.field.converter.UtcTimestampConverter;
+
+/**
+ * File log which passes the messages and events to the background writer of its
+ * factory instead of writing them on the calling thread. The files have the same names
+ * and format as the files of {@link FileLog}; the time stamps are the times at which the
+ * records were logged.
+ *
+ * @see quickfix.AsyncFileLogFactory
+ */
+public class AsyncFileLog extends AbstractLog {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] TIME_STAMP_DELIMITER = ": ".getBytes(CharsetSupport.getCharsetInstance());
+
+    private final AsyncFileLogWriter writer;
+    private final int id;
+    private final String messagesFileName;
+    private final String eventFileName;
+    private final boolean includeMillis;
+    private final boolean includeTimestampForMessages;
+    private volatile boolean closed;
+
+    // accessed by the writer thread only
+    private FileOutputStream messagesFile;
+    private FileOutputStream eventsFile;
+    private OutputStream messages;
+    private OutputStream events;
+
+    AsyncFileLog(AsyncFileLogWriter writer, String path, SessionID sessionID, boolean includeMillis,
+            boolean includeTimestampForMessages, boolean logHeartbeats) {
+        String sessionName = FileUtil.sessionIdFileName(sessionID);
+
+        setLogHeartbeats(logHeartbeats);
+
+        String prefix = FileUtil.fileAppendPath(path, sessionName + ".");
+        messagesFileName = prefix + "messages.log";
+        eventFileName = prefix + "event.log";
+
+        File directory = new File(messagesFileName).getParentFile();
+        directory.mkdirs();
+
+        this.includeMillis = includeMillis;
+        this.includeTimestampForMessages = includeTimestampForMessages;
+        this.writer = writer;
+        this.id = writer.register(this);
+    }
+
+    int getId() {
+        return id;
+    }
+
+    protected void logIncoming(String message) {
+        if (!closed) {
+            writer.log(this, AsyncFileLogWriter.MESSAGE, message);
+        }
+    }
+
+    protected void logOutgoing(String message) {
+        if (!closed) {
+            writer.log(this, AsyncFileLogWriter.MESSAGE, message);
+        }
+    }
+
+    public void onEvent(String message) {
+        if (!closed) {
+            writer.log(this, AsyncFileLogWriter.EVENT, message);
+        }
+    }
+
+    public void onErrorEvent(String message) {
+        if (!closed) {
+            writer.log(this, AsyncFileLogWriter.EVENT, message);
+        }
+    }
+
+    /**
+     * Blocks until the records logged so far are written to the files.
+     */
+    public void flush() {
+        writer.flush(this);
+    }
+
+    /**
+     * Writes the pending records and closes the files. Records logged after the log was
+     * closed are dropped.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            writer.close(this);
+        }
+    }
+
+    /**
+     * Truncates the log files after the pending records have been written.
+     */
+    public void clear() {
+        writer.clear(this);
+    }
+
+    String getEventFileName() {
+        return eventFileName;
+    }
+
+    String getMessagesFileName() {
+        return messagesFileName;
+    }
+
+    // called by the writer thread
+
+    void write(int type, long time, String text) throws IOException {
+        final OutputStream out;
+        if (type == AsyncFileLogWriter.EVENT) {
+            if (events == null) {
+                eventsFile = new FileOutputStream(eventFileName, true);
+                events = new BufferedOutputStream(eventsFile, BUFFER_SIZE);
+            }
+            out = events;
+        } else {
+            if (messages == null) {
+                messagesFile = new FileOutputStream(messagesFileName, true);
+                messages = new BufferedOutputStream(messagesFile, BUFFER_SIZE);
+            }
+            out = messages;
+        }
+        if (type == AsyncFileLogWriter.EVENT || includeTimestampForMessages) {
+            out.write(UtcTimestampConverter.convert(new Date(time), includeMillis)
+                    .getBytes(CharsetSupport.getCharsetInstance()));
+            out.write(TIME_STAMP_DELIMITER);
+        }
+        out.write(text.getBytes(CharsetSupport.getCharsetInstance()));
+        out.write('\n');
+    }
+
+    void flushFiles() throws IOException {
+        if (messages != null) {
+            messages.flush();
+        }
+        if (events != null) {
+            events.flush();
+        }
+    }
+
+    void syncFiles() throws IOException {
+        if (messagesFile != null) {
+            messagesFile.getFD().sync();
+        }
+        if (eventsFile != null) {
+            eventsFile.getFD().sync();
+        }
+    }
+
+    void closeFiles() throws IOException {
+        try {
+            if (messages != null) {
+                messages.close();
+            }
+        } finally {
+            messages = null;
+            messagesFile = null;
+            try {
+                if (events != null) {
+                    events.close();
+                }
+            } finally {
+                events = null;
+                eventsFile = null;
+            }
+        }
+    }
+
+    void clearFiles() throws IOException {
+        closeFiles();
+        new FileOutputStream(messagesFileName, false).close();
+        new FileOutputStream(eventFileName, false).close();
+    }
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Creates file logs which write on a background thread shared by the logs of the factory.
+ * The logs use the settings of the {@link FileLogFactory} and produce the same files.
+ * The settings of the background writer are read from the default section.
+ *
+ * @see quickfix.AsyncFileLog
+ */
+public class AsyncFileLogFactory implements LogFactory, Closeable {
+
+    /**
+     * Maximum number of records waiting to be written. Default is 65536.
+     */
+    public static final String SETTING_ASYNC_FILE_LOG_QUEUE_SIZE = "AsyncFileLogQueueSize";
+
+    /**
+     * Maximum time in milliseconds until written records are flushed to the files while
+     * records keep arriving. The records are flushed whenever the queue is empty.
+     * Default is 100.
+     */
+    public static final String SETTING_ASYNC_FILE_LOG_FLUSH_INTERVAL = "AsyncFileLogFlushInterval";
+
+    /**
+     * Interval in milliseconds between syncs of the written files to the hard drive.
+     * 0, the default, never syncs.
+     */
+    public static final String SETTING_ASYNC_FILE_LOG_SYNC_INTERVAL = "AsyncFileLogSyncInterval";
+
+    /**
+     * What happens when the queue is full, BLOCK (the default), DROP_HEARTBEATS or SPILL.
+     *
+     * @see OverflowPolicy
+     */
+    public static final String SETTING_ASYNC_FILE_LOG_OVERFLOW_POLICY = "AsyncFileLogOverflowPolicy";
+
+    public static final int DEFAULT_QUEUE_SIZE = 65536;
+    public static final long DEFAULT_FLUSH_INTERVAL = 100;
+
+    /**
+     * Handling of a record when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until the queue has room.
+         */
+        BLOCK,
+        /**
+         * Drop heartbeat messages, wait for other records.
+         */
+        DROP_HEARTBEATS,
+        /**
+         * Append the record, and the records after it until the writer has caught up, to
+         * a temporary file in the FileLogPath of the default section.
+         */
+        SPILL
+    }
+
+    private final SessionSettings settings;
+    private AsyncFileLogWriter writer;
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     */
+    public AsyncFileLogFactory(SessionSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Creates an asynchronous file-based logger.
+     *
+     * @param sessionID session ID for the logger
+     */
+    public Log create(SessionID sessionID) {
+        try {
+            boolean includeMillis = settings.getBoolOrDefault(sessionID,
+                    FileLogFactory.SETTING_INCLUDE_MILLIS_IN_TIMESTAMP, false);
+            boolean includeTimestampInMessages = settings.getBoolOrDefault(sessionID,
+                    FileLogFactory.SETTING_INCLUDE_TIMESTAMP_FOR_MESSAGES, false);
+            boolean logHeartbeats = settings.getBoolOrDefault(sessionID, FileLogFactory.SETTING_LOG_HEARTBEATS, true);
+
+            return new AsyncFileLog(getWriter(), settings.getString(sessionID, FileLogFactory.SETTING_FILE_LOG_PATH),
+                    sessionID, includeMillis, includeTimestampInMessages, logHeartbeats);
+        } catch (Exception e) {
+            throw new RuntimeError(e);
+        }
+    }
+
+    private synchronized AsyncFileLogWriter getWriter() throws ConfigError, FieldConvertError {
+        if (writer == null) {
+            OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+            if (settings.isSetting(SETTING_ASYNC_FILE_LOG_OVERFLOW_POLICY)) {
+                overflowPolicy = OverflowPolicy.valueOf(settings.getString(SETTING_ASYNC_FILE_LOG_OVERFLOW_POLICY)
+                        .trim().toUpperCase(Locale.ROOT));
+            }
+            File spillDirectory = null;
+            if (settings.isSetting(FileLogFactory.SETTING_FILE_LOG_PATH)) {
+                spillDirectory = new File(settings.getString(FileLogFactory.SETTING_FILE_LOG_PATH));
+                spillDirectory.mkdirs();
+            }
+            writer = new AsyncFileLogWriter(
+                    (int) settings.getLongOrDefault(SETTING_ASYNC_FILE_LOG_QUEUE_SIZE, DEFAULT_QUEUE_SIZE),
+                    overflowPolicy,
+                    settings.getLongOrDefault(SETTING_ASYNC_FILE_LOG_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL),
+                    settings.getLongOrDefault(SETTING_ASYNC_FILE_LOG_SYNC_INTERVAL, 0),
+                    spillDirectory);
+        }
+        return writer;
+    }
+
+    /**
+     * @return the number of records waiting to be written, not counting spilled records
+     */
+    public synchronized int getQueueDepth() {
+        return writer != null ? writer.getQueueDepth() : 0;
+    }
+
+    /**
+     * @return the number of records written to the files
+     */
+    public synchronized long getWrittenCount() {
+        return writer != null ? writer.getWrittenCount() : 0;
+    }
+
+    /**
+     * @return the number of logs which have not been closed yet
+     */
+    synchronized int getLogCount() {
+        return writer != null ? writer.getLogCount() : 0;
+    }
+
+    /**
+     * @return the number of records dropped because the queue was full
+     */
+    public synchronized long getDroppedCount() {
+        return writer != null ? writer.getDroppedCount() : 0;
+    }
+
+    /**
+     * @return the number of records written to the spill file because the queue was full
+     */
+    public synchronized long getSpilledCount() {
+        return writer != null ? writer.getSpilledCount() : 0;
+    }
+
+    /**
+     * Writes the pending records, closes the files of all logs and stops the writer thread.
+     * Records logged afterwards are written on the calling thread.
+     */
+    @Override
+    public synchronized void close() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+}
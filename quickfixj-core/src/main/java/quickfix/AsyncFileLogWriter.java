@@ -0,0 +1,491 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.quickfixj.CharsetSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background writer of the {@link AsyncFileLog}s of one {@link AsyncFileLogFactory}.
+ * Records are passed through a lock-free queue with a bounded number of records. The
+ * writer thread writes them into buffered streams, which are flushed when the queue is
+ * empty or after the flush interval, and syncs the files after the sync interval.
+ * <p>
+ * When the queue is full a record is handled according to the overflow policy. With
+ * {@link AsyncFileLogFactory.OverflowPolicy#SPILL} the record and all records after it
+ * are appended to a temporary file until the writer has caught up, which keeps the order
+ * of the records.
+ * <p>
+ * A closed log is removed from the writer. Records of it which are still queued after
+ * its files were closed are dropped.
+ */
+final class AsyncFileLogWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncFileLogWriter.class);
+
+    static final int MESSAGE = 0;
+    static final int EVENT = 1;
+    private static final int FLUSH = 2;
+    private static final int CLEAR = 3;
+    private static final int CLOSE = 4;
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long CONTROL_TIMEOUT_SECONDS = 10;
+    private static final int SPILL_RECORD_HEADER_SIZE = 17;
+    private static final int SPILL_READ_SIZE = 256 * 1024;
+
+    private static final class Record {
+        private final AsyncFileLog log;
+        private final int type;
+        private final long time;
+        private final String text;
+        private final CountDownLatch done;
+
+        Record(AsyncFileLog log, int type, long time, String text, CountDownLatch done) {
+            this.log = log;
+            this.type = type;
+            this.time = time;
+            this.text = text;
+            this.done = done;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final int capacity;
+    private final AsyncFileLogFactory.OverflowPolicy overflowPolicy;
+    private final long flushIntervalNanos;
+    private final long syncIntervalNanos;
+    private final File spillDirectory;
+    // the open logs by their ID, which identifies the log of a spilled record
+    private final Map<Integer, AsyncFileLog> logs = new ConcurrentHashMap<>();
+    private final AtomicInteger nextLogId = new AtomicInteger();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+
+    private final Object spillLock = new Object();
+    private volatile boolean spilling;
+    private File spillFileName;
+    private RandomAccessFile spillFile;
+    private long spillWritePosition;
+    private long spillReadPosition;
+    private ByteBuffer spillWriteBuffer = ByteBuffer.allocate(1024);
+    private ByteBuffer spillReadBuffer = ByteBuffer.allocate(SPILL_READ_SIZE);
+
+    // accessed by the writer thread only
+    private final Set<AsyncFileLog> unflushed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<AsyncFileLog> unsynced = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long lastFlush;
+    private long lastSync;
+
+    /**
+     * @param capacity maximum number of queued records
+     * @param flushIntervalMillis maximum time until written records are flushed while the
+     *                            queue is not empty
+     * @param syncIntervalMillis time between syncs of the files, 0 to never sync
+     * @param spillDirectory directory of the spill file, null for the temporary directory
+     */
+    AsyncFileLogWriter(int capacity, AsyncFileLogFactory.OverflowPolicy overflowPolicy, long flushIntervalMillis,
+            long syncIntervalMillis, File spillDirectory) {
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+        this.spillDirectory = spillDirectory;
+        lastFlush = lastSync = System.nanoTime();
+        thread = new Thread(this::run, "QFJ Async File Log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int register(AsyncFileLog log) {
+        final int id = nextLogId.getAndIncrement();
+        logs.put(id, log);
+        return id;
+    }
+
+    /**
+     * Queues a message or event record.
+     */
+    void log(AsyncFileLog log, int type, String text) {
+        final Record record = new Record(log, type, SystemTime.currentTimeMillis(), text, null);
+        if (!running) {
+            processStopped(record);
+            return;
+        }
+        if (!spilling && tryEnqueue(record)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case SPILL:
+                synchronized (spillLock) {
+                    if (spilling || !tryEnqueue(record)) {
+                        spill(record);
+                    }
+                }
+                break;
+            case DROP_HEARTBEATS:
+                if (type == MESSAGE && MessageUtils.isHeartbeat(text)) {
+                    droppedCount.incrementAndGet();
+                    break;
+                }
+                enqueueBlocking(record);
+                break;
+            default:
+                enqueueBlocking(record);
+                break;
+        }
+    }
+
+    private boolean tryEnqueue(Record record) {
+        int current;
+        do {
+            current = depth.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!depth.compareAndSet(current, current + 1));
+        enqueue(record, current);
+        return true;
+    }
+
+    private void enqueue(Record record, int previousDepth) {
+        queue.offer(record);
+        if (previousDepth == 0) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void enqueueBlocking(Record record) {
+        while (!tryEnqueue(record)) {
+            if (!running) {
+                processStopped(record);
+                return;
+            }
+            LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+        }
+    }
+
+    void flush(AsyncFileLog log) {
+        execute(log, FLUSH);
+    }
+
+    void clear(AsyncFileLog log) {
+        execute(log, CLEAR);
+    }
+
+    void close(AsyncFileLog log) {
+        execute(log, CLOSE);
+    }
+
+    /**
+     * Queues a control record regardless of the capacity and waits until it has been
+     * processed, after the records queued before it.
+     */
+    private void execute(AsyncFileLog log, int type) {
+        final Record record = new Record(log, type, 0, null, new CountDownLatch(1));
+        while (spilling && running) {
+            LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+        }
+        if (!running) {
+            processStopped(record);
+            return;
+        }
+        enqueue(record, depth.getAndIncrement());
+        try {
+            if (!record.done.await(CONTROL_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("Timeout waiting for async file log of {}", log);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running || depth.get() > 0 || spilling) {
+                final Record record = queue.poll();
+                if (record != null) {
+                    depth.decrementAndGet();
+                    process(record);
+                    if (System.nanoTime() - lastFlush >= flushIntervalNanos) {
+                        flushAll();
+                    }
+                } else if (spilling) {
+                    processSpilled();
+                } else {
+                    flushAll();
+                    LockSupport.parkNanos(this, syncIntervalNanos > 0 && !unsynced.isEmpty()
+                            ? Math.min(flushIntervalNanos, syncIntervalNanos) : flushIntervalNanos);
+                }
+            }
+        } finally {
+            flushAll();
+            for (AsyncFileLog log : logs.values()) {
+                closeQuietly(log);
+            }
+            releaseSpillFile();
+        }
+    }
+
+    private void process(Record record) {
+        final AsyncFileLog log = record.log;
+        try {
+            switch (record.type) {
+                case MESSAGE:
+                case EVENT:
+                    if (logs.get(log.getId()) != log) {
+                        // logged while the log was being closed
+                        break;
+                    }
+                    log.write(record.type, record.time, record.text);
+                    writtenCount.incrementAndGet();
+                    unflushed.add(log);
+                    break;
+                case FLUSH:
+                    flushAll();
+                    break;
+                case CLEAR:
+                    unflushed.remove(log);
+                    unsynced.remove(log);
+                    log.clearFiles();
+                    break;
+                case CLOSE:
+                    flushAll();
+                    unsynced.remove(log);
+                    logs.remove(log.getId(), log);
+                    log.closeFiles();
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException e) {
+            // QFJ-459: no point trying to log the error in the file
+            System.err.println("error writing to log : " + record.text);
+            e.printStackTrace(System.err);
+        } finally {
+            if (record.done != null) {
+                record.done.countDown();
+            }
+        }
+    }
+
+    private void flushAll() {
+        for (AsyncFileLog log : unflushed) {
+            try {
+                log.flushFiles();
+                unsynced.add(log);
+            } catch (IOException e) {
+                System.err.println("error flushing log");
+                e.printStackTrace(System.err);
+            }
+        }
+        unflushed.clear();
+        final long now = System.nanoTime();
+        lastFlush = now;
+        if (syncIntervalNanos > 0 && now - lastSync >= syncIntervalNanos) {
+            for (AsyncFileLog log : unsynced) {
+                try {
+                    log.syncFiles();
+                } catch (IOException e) {
+                    System.err.println("error syncing log");
+                    e.printStackTrace(System.err);
+                }
+            }
+            unsynced.clear();
+            lastSync = now;
+        }
+    }
+
+    private void closeQuietly(AsyncFileLog log) {
+        try {
+            log.closeFiles();
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * Processes a record on the calling thread once the writer thread has terminated. The
+     * files are closed again afterwards, as there is no thread left to close them.
+     */
+    private synchronized void processStopped(Record record) {
+        join();
+        process(record);
+        flushAll();
+        closeQuietly(record.log);
+    }
+
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        join();
+    }
+
+    private void join() {
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(CONTROL_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // spilling, the spill lock is held by the callers
+
+    private void spill(Record record) {
+        try {
+            if (spillFile == null) {
+                spillFileName = File.createTempFile("qfj-log-", ".spill", spillDirectory);
+                spillFileName.deleteOnExit();
+                spillFile = new RandomAccessFile(spillFileName, "rw");
+            }
+            final byte[] text = record.text.getBytes(CharsetSupport.getCharsetInstance());
+            final int size = SPILL_RECORD_HEADER_SIZE + text.length;
+            if (spillWriteBuffer.capacity() < size) {
+                spillWriteBuffer = ByteBuffer.allocate(size);
+            }
+            spillWriteBuffer.clear();
+            spillWriteBuffer.putInt(record.log.getId()).put((byte) record.type).putLong(record.time)
+                    .putInt(text.length).put(text);
+            spillFile.seek(spillWritePosition);
+            spillFile.write(spillWriteBuffer.array(), 0, size);
+            spillWritePosition += size;
+            spilling = true;
+            spilledCount.incrementAndGet();
+            LockSupport.unpark(thread);
+        } catch (IOException e) {
+            droppedCount.incrementAndGet();
+            System.err.println("error spilling log record : " + record.text);
+            e.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * Writes the next chunk of spilled records. The spill ends when all of them have been
+     * read.
+     */
+    private void processSpilled() {
+        final List<Record> records = new ArrayList<>();
+        synchronized (spillLock) {
+            try {
+                final ByteBuffer buffer = spillReadBuffer;
+                buffer.clear();
+                spillFile.seek(spillReadPosition);
+                final int read = spillFile.read(buffer.array(), 0,
+                        (int) Math.min(buffer.capacity(), spillWritePosition - spillReadPosition));
+                buffer.limit(Math.max(read, 0));
+                while (buffer.remaining() >= SPILL_RECORD_HEADER_SIZE) {
+                    final int start = buffer.position();
+                    final AsyncFileLog log = logs.get(buffer.getInt());
+                    final int type = buffer.get();
+                    final long time = buffer.getLong();
+                    final int length = buffer.getInt();
+                    if (buffer.remaining() < length) {
+                        buffer.position(start);
+                        if (start == 0) {
+                            // the record is larger than the buffer
+                            spillReadBuffer = ByteBuffer.allocate(SPILL_RECORD_HEADER_SIZE + length);
+                        }
+                        break;
+                    }
+                    if (log != null) {
+                        records.add(new Record(log, type, time, new String(buffer.array(), buffer.position(),
+                                length, CharsetSupport.getCharsetInstance()), null));
+                    }
+                    buffer.position(buffer.position() + length);
+                }
+                spillReadPosition += buffer.position();
+                if (spillReadPosition >= spillWritePosition) {
+                    spillFile.setLength(0);
+                    spillWritePosition = 0;
+                    spillReadPosition = 0;
+                    spilling = false;
+                }
+            } catch (IOException e) {
+                System.err.println("error reading spilled log records");
+                e.printStackTrace(System.err);
+                releaseSpillFile();
+            }
+        }
+        for (Record record : records) {
+            process(record);
+        }
+    }
+
+    private void releaseSpillFile() {
+        synchronized (spillLock) {
+            spilling = false;
+            spillWritePosition = 0;
+            spillReadPosition = 0;
+            if (spillFile != null) {
+                try {
+                    spillFile.close();
+                } catch (IOException e) {
+                    e.printStackTrace(System.err);
+                }
+                spillFileName.delete();
+                spillFile = null;
+            }
+        }
+    }
+
+    int getQueueDepth() {
+        return depth.get();
+    }
+
+    long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    int getLogCount() {
+        return logs.size();
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    long getSpilledCount() {
+        return spilledCount.get();
+    }
+}
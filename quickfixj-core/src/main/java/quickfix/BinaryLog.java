@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.IOException;
+
+/**
+ * Log which appends the raw messages and events of a session to the binary log of a
+ * {@link BinaryLogFactory}. Use {@link BinaryLogDecoder} to convert the binary log to
+ * the files written by {@link FileLog}.
+ *
+ * @see quickfix.BinaryLogFactory
+ */
+public class BinaryLog extends AbstractLog {
+
+    private final BinaryLogFile file;
+    private final int session;
+
+    BinaryLog(BinaryLogFile file, SessionID sessionID, boolean logHeartbeats) throws IOException {
+        this.file = file;
+        this.session = file.register(sessionID);
+        setLogHeartbeats(logHeartbeats);
+    }
+
+    protected void logIncoming(String message) {
+        write(BinaryLogFile.INCOMING, message);
+    }
+
+    protected void logOutgoing(String message) {
+        write(BinaryLogFile.OUTGOING, message);
+    }
+
+    public void onEvent(String text) {
+        write(BinaryLogFile.EVENT, text);
+    }
+
+    public void onErrorEvent(String text) {
+        write(BinaryLogFile.ERROR_EVENT, text);
+    }
+
+    /**
+     * Records that the log was cleared. The decoder truncates the files of the session
+     * at this point; the binary log itself is not changed.
+     */
+    public void clear() {
+        write(BinaryLogFile.CLEAR, "");
+    }
+
+    private void write(byte type, String text) {
+        try {
+            file.append(session, type, text);
+        } catch (IOException e) {
+            System.err.println("error writing to binary log : " + text);
+            e.printStackTrace(System.err);
+        }
+    }
+}
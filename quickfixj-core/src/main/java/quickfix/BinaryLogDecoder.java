@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+import quickfix.field.converter.UtcTimestampConverter;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line tool which converts the binary log of a {@link BinaryLogFactory} to the
+ * <code>messages.log</code> and <code>event.log</code> files of {@link FileLog}, one pair
+ * per session, in an output directory. Events are prefixed with their timestamp, messages
+ * only if <code>--timestamps</code> is given. The precision of the timestamps is
+ * milliseconds unless <code>--precision</code> is given.
+ *
+ * <pre>
+ * java -cp quickfixj-core.jar quickfix.BinaryLogDecoder [--timestamps]
+ *     [--precision SECONDS|MILLIS|MICROS|NANOS] &lt;binary log directory&gt; &lt;output directory&gt;
+ * </pre>
+ */
+public final class BinaryLogDecoder {
+
+    private BinaryLogDecoder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean includeTimestamps = false;
+        UtcTimestampPrecision precision = UtcTimestampPrecision.MILLIS;
+        String logDirectory = null;
+        String outputDirectory = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("--timestamps".equals(args[i])) {
+                    includeTimestamps = true;
+                } else if ("--precision".equals(args[i]) && i + 1 < args.length) {
+                    precision = UtcTimestampPrecision.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                } else if (logDirectory == null) {
+                    logDirectory = args[i];
+                } else {
+                    outputDirectory = args[i];
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            outputDirectory = null;
+        }
+        if (outputDirectory == null || !new File(logDirectory).isDirectory()) {
+            System.err.println("usage: " + BinaryLogDecoder.class.getName()
+                    + " [--timestamps] [--precision SECONDS|MILLIS|MICROS|NANOS]"
+                    + " <binary log directory> <output directory>");
+            System.exit(1);
+        }
+        run(new File(logDirectory), new File(outputDirectory), includeTimestamps, precision, System.out);
+    }
+
+    static void run(File logDirectory, File outputDirectory, boolean includeTimestamps,
+            UtcTimestampPrecision precision, PrintStream out) throws IOException {
+        outputDirectory.mkdirs();
+        final Map<SessionID, SessionFiles> files = new HashMap<>();
+        final long[] count = new long[1];
+        try {
+            BinaryLogFile.read(logDirectory, (timestamp, type, sessionID, data) -> {
+                SessionFiles sessionFiles = files.get(sessionID);
+                if (sessionFiles == null) {
+                    sessionFiles = new SessionFiles(outputDirectory, sessionID);
+                    files.put(sessionID, sessionFiles);
+                }
+                switch (type) {
+                case BinaryLogFile.INCOMING:
+                case BinaryLogFile.OUTGOING:
+                    write(sessionFiles.messages, includeTimestamps, timestamp, precision, data);
+                    break;
+                case BinaryLogFile.EVENT:
+                case BinaryLogFile.ERROR_EVENT:
+                    write(sessionFiles.events, true, timestamp, precision, data);
+                    break;
+                case BinaryLogFile.CLEAR:
+                    sessionFiles.clear();
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + type + " of session " + sessionID);
+                }
+                count[0]++;
+            });
+        } finally {
+            for (SessionFiles sessionFiles : files.values()) {
+                sessionFiles.close();
+            }
+        }
+        out.println("Decoded " + count[0] + " records of " + files.size() + " sessions");
+    }
+
+    private static void write(OutputStream out, boolean includeTimestamp, long timestamp,
+            UtcTimestampPrecision precision, byte[] data) throws IOException {
+        if (includeTimestamp) {
+            final LocalDateTime time = LocalDateTime.ofEpochSecond(Math.floorDiv(timestamp, 1000000000L),
+                    (int) Math.floorMod(timestamp, 1000000000L), ZoneOffset.UTC);
+            out.write(UtcTimestampConverter.convert(time, precision).getBytes(CharsetSupport.getCharsetInstance()));
+            out.write(':');
+            out.write(' ');
+        }
+        out.write(data);
+        out.write('\n');
+    }
+
+    private static final class SessionFiles implements Closeable {
+        private final String messagesFileName;
+        private final String eventFileName;
+        private OutputStream messages;
+        private OutputStream events;
+
+        private SessionFiles(File directory, SessionID sessionID) throws IOException {
+            final String prefix = FileUtil.fileAppendPath(directory.getPath(),
+                    FileUtil.sessionIdFileName(sessionID) + ".");
+            messagesFileName = prefix + "messages.log";
+            eventFileName = prefix + "event.log";
+            open();
+        }
+
+        private void open() throws IOException {
+            messages = new BufferedOutputStream(new FileOutputStream(messagesFileName));
+            events = new BufferedOutputStream(new FileOutputStream(eventFileName));
+        }
+
+        private void clear() throws IOException {
+            close();
+            open();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                messages.close();
+            } finally {
+                events.close();
+            }
+        }
+    }
+}
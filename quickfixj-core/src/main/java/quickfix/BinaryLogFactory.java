@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.File;
+
+/**
+ * Creates logs which append the raw messages and events of all sessions of the factory,
+ * with a timestamp in nanoseconds, to one memory-mapped binary log in the directory
+ * BinaryLogPath of the default section.
+ *
+ * @see quickfix.BinaryLog
+ * @see quickfix.BinaryLogDecoder
+ */
+public class BinaryLogFactory implements LogFactory, Closeable {
+
+    /**
+     * Directory of the binary log, read from the default section.
+     */
+    public static final String SETTING_BINARY_LOG_PATH = "BinaryLogPath";
+
+    /**
+     * Size in bytes of the segment files of the binary log, read from the default section.
+     * Default is 64 MiB.
+     */
+    public static final String SETTING_BINARY_LOG_SEGMENT_SIZE = "BinaryLogSegmentSize";
+
+    /**
+     * Specify whether heartbeats are logged. On, by default.
+     */
+    public static final String SETTING_BINARY_LOG_HEARTBEATS = "BinaryLogHeartbeats";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final SessionSettings settings;
+    private BinaryLogFile file;
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     */
+    public BinaryLogFactory(SessionSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Creates a binary logger.
+     *
+     * @param sessionID session ID for the logger
+     */
+    public Log create(SessionID sessionID) {
+        try {
+            boolean logHeartbeats = settings.getBoolOrDefault(sessionID, SETTING_BINARY_LOG_HEARTBEATS, true);
+            return new BinaryLog(getFile(), sessionID, logHeartbeats);
+        } catch (Exception e) {
+            throw new RuntimeError(e);
+        }
+    }
+
+    private synchronized BinaryLogFile getFile() throws Exception {
+        if (file == null) {
+            file = new BinaryLogFile(new File(settings.getString(SETTING_BINARY_LOG_PATH)),
+                    (int) settings.getLongOrDefault(SETTING_BINARY_LOG_SEGMENT_SIZE, DEFAULT_SEGMENT_SIZE));
+        }
+        return file;
+    }
+
+    /**
+     * Writes the mapped segment of the binary log back to the file. Records are written
+     * back by the operating system in any case, this only matters if the machine fails.
+     */
+    public synchronized void force() {
+        if (file != null) {
+            file.force();
+        }
+    }
+
+    /**
+     * Writes the binary log back to the file and closes it. Records logged afterwards
+     * are dropped.
+     */
+    @Override
+    public synchronized void close() {
+        if (file != null) {
+            file.close();
+        }
+    }
+}
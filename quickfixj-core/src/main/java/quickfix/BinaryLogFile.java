@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Binary message log shared by the sessions of a {@link BinaryLogFactory}. Records are
+ * appended to memory-mapped segment files of a fixed size, a new segment is started when
+ * the current one is full and every time the log is opened.
+ * <p>
+ * A segment starts with a magic number and a version. A record consists of its total
+ * length, a timestamp in nanoseconds since the epoch, the record type, the index of the
+ * session and the raw data. The length is written last, a length of 0 marks the end of
+ * the segment. The first record of a session in a segment declares its index with the
+ * session ID, so every segment can be read on its own.
+ * <p>
+ * Mapped regions are released when the log is garbage collected.
+ *
+ * @see BinaryLogDecoder
+ */
+final class BinaryLogFile implements Closeable {
+
+    static final String SEGMENT_SUFFIX = ".qfb";
+
+    private static final int SEGMENT_MAGIC = 0x51464a42; // "QFJB"
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 17;
+
+    // session ID of a session index
+    static final byte SESSION = 0;
+    static final byte INCOMING = 1;
+    static final byte OUTGOING = 2;
+    static final byte EVENT = 3;
+    static final byte ERROR_EVENT = 4;
+    // the log of the session was cleared
+    static final byte CLEAR = 5;
+
+    /**
+     * Receives the records of a binary log.
+     */
+    interface RecordHandler {
+        void onRecord(long timestamp, byte type, SessionID sessionID, byte[] data) throws IOException;
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final List<String> sessions = new ArrayList<>();
+    private long segmentNumber;
+    private MappedByteBuffer segment;
+    private boolean closed;
+
+    // wall clock time at which the nano time was taken
+    private long baseTimestamp;
+    private long baseNanoTime;
+
+    /**
+     * @param directory the directory of the segment files
+     * @param segmentSize the size of a segment file
+     */
+    BinaryLogFile(File directory, int segmentSize) throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        directory.mkdirs();
+        final NavigableMap<Long, File> segmentFiles = listSegments(directory);
+        segmentNumber = segmentFiles.isEmpty() ? 0 : segmentFiles.lastKey();
+        roll(0);
+    }
+
+    /**
+     * Assigns an index to a session.
+     *
+     * @return the index of the session
+     */
+    synchronized int register(SessionID sessionID) throws IOException {
+        final String session = sessionID.toString();
+        int index = sessions.indexOf(session);
+        if (index < 0) {
+            index = sessions.size();
+            sessions.add(session);
+            append(index, SESSION, session.getBytes(CharsetSupport.getCharsetInstance()));
+        }
+        return index;
+    }
+
+    /**
+     * Appends a record of a session. Records appended after the log was closed are dropped.
+     */
+    void append(int session, byte type, String text) throws IOException {
+        final byte[] data = text.getBytes(CharsetSupport.getCharsetInstance());
+        synchronized (this) {
+            if (!closed) {
+                append(session, type, data);
+            }
+        }
+    }
+
+    private void append(int session, byte type, byte[] data) throws IOException {
+        if (closed) {
+            throw new IOException("Binary log is closed");
+        }
+        final int length = RECORD_HEADER_SIZE + data.length;
+        if (segment.remaining() < length) {
+            roll(length);
+        }
+        final int position = segment.position();
+        segment.putLong(position + 4, baseTimestamp + (System.nanoTime() - baseNanoTime));
+        segment.put(position + 12, type);
+        segment.putInt(position + 13, session);
+        segment.position(position + RECORD_HEADER_SIZE);
+        segment.put(data);
+        segment.putInt(position, length);
+    }
+
+    private void roll(int recordLength) throws IOException {
+        segmentNumber++;
+        final File file = new File(directory, String.format("%020d", segmentNumber) + SEGMENT_SUFFIX);
+        int required = SEGMENT_HEADER_SIZE + recordLength;
+        for (String session : sessions) {
+            required += RECORD_HEADER_SIZE + session.getBytes(CharsetSupport.getCharsetInstance()).length;
+        }
+        final int size = Math.max(segmentSize, required);
+        final MappedByteBuffer previous = segment;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(size);
+            segment = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        // the written records stay in the file, the region only holds address space
+        MappedBuffers.unmap(previous);
+        segment.putInt(SEGMENT_MAGIC);
+        segment.putInt(SEGMENT_VERSION);
+        baseTimestamp = SystemTime.currentTimeMillis() * 1000000L;
+        baseNanoTime = System.nanoTime();
+        for (int i = 0; i < sessions.size(); i++) {
+            append(i, SESSION, sessions.get(i).getBytes(CharsetSupport.getCharsetInstance()));
+        }
+    }
+
+    /**
+     * Writes the mapped segment back to the file.
+     */
+    synchronized void force() {
+        if (!closed) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Writes the mapped segment back to the file and releases it.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            segment.force();
+            MappedBuffers.unmap(segment);
+            segment = null;
+        }
+    }
+
+    private static NavigableMap<Long, File> listSegments(File directory) {
+        final NavigableMap<Long, File> segmentFiles = new TreeMap<>();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                final String name = file.getName();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        segmentFiles.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())),
+                                file);
+                    } catch (NumberFormatException e) {
+                        // not a segment
+                    }
+                }
+            }
+        }
+        return segmentFiles;
+    }
+
+    /**
+     * Reads the records of all segments in a directory in the order they were written.
+     * A record which was not written completely ends its segment.
+     */
+    static void read(File directory, RecordHandler handler) throws IOException {
+        for (File file : listSegments(directory).values()) {
+            final MappedByteBuffer data;
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+                data = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            }
+            try {
+                readSegment(file, data, handler);
+            } finally {
+                MappedBuffers.unmap(data);
+            }
+        }
+    }
+
+    private static void readSegment(File file, ByteBuffer data, RecordHandler handler) throws IOException {
+        if (data.remaining() < SEGMENT_HEADER_SIZE || data.getInt() != SEGMENT_MAGIC) {
+            throw new IOException("Not a binary log segment: " + file);
+        }
+        final int version = data.getInt();
+        if (version != SEGMENT_VERSION) {
+            throw new IOException("Unsupported binary log version " + version + ": " + file);
+        }
+        final Map<Integer, SessionID> sessionIDs = new HashMap<>();
+        while (data.remaining() >= RECORD_HEADER_SIZE) {
+            final int length = data.getInt();
+            if (length < RECORD_HEADER_SIZE || length - 4 > data.remaining()) {
+                break;
+            }
+            final long timestamp = data.getLong();
+            final byte type = data.get();
+            final int session = data.getInt();
+            final byte[] bytes = new byte[length - RECORD_HEADER_SIZE];
+            data.get(bytes);
+            if (type == SESSION) {
+                sessionIDs.put(session, new SessionID(new String(bytes, CharsetSupport.getCharsetInstance())));
+            } else {
+                final SessionID sessionID = sessionIDs.get(session);
+                if (sessionID == null) {
+                    throw new IOException("Undeclared session index " + session + " in " + file);
+                }
+                handler.onRecord(timestamp, type, sessionID, bytes);
+            }
+        }
+    }
+}
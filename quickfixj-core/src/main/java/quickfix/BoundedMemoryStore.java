@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * In-memory message store which keeps only the most recent messages. The encoded messages
+ * are written one after the other into a circular byte arena, on the heap or off-heap in a
+ * direct buffer. When the maximum number of messages is reached or the arena is full the
+ * oldest messages are evicted. Requests for evicted messages are answered with a gap fill,
+ * just like with <code>PersistMessages=N</code>.
+ * <p>
+ * No object is kept per message: the sequence number, offset and length of the stored
+ * messages are held in int arrays and found by an open addressing hash table.
+ *
+ * @see quickfix.BoundedMemoryStoreFactory
+ */
+public class BoundedMemoryStore implements MessageStore {
+
+    private static final int NO_SLOT = -1;
+
+    private final ByteBuffer arena;
+    private final int maxMessages;
+    // stored messages in the order they were set, the oldest at position first
+    private final int[] slotSequences;
+    private final int[] slotOffsets;
+    private final int[] slotLengths;
+    private int first;
+    private int count;
+    private int writePosition;
+    // sequence number to slot
+    private final int[] tableSequences;
+    private final int[] tableSlots;
+    private final int tableMask;
+    private final int tableShift;
+    private long evictedCount;
+
+    private int nextSenderMsgSeqNum;
+    private int nextTargetMsgSeqNum;
+    private SessionID sessionID;
+    private Calendar creationTime = SystemTime.getUtcCalendar();
+
+    /**
+     * @param maxMessages maximum number of messages kept
+     * @param maxBytes size of the arena holding the encoded messages
+     * @param offHeap whether the arena is a direct buffer
+     */
+    public BoundedMemoryStore(int maxMessages, int maxBytes, boolean offHeap) throws IOException {
+        this(null, maxMessages, maxBytes, offHeap);
+    }
+
+    public BoundedMemoryStore(SessionID sessionID, int maxMessages, int maxBytes, boolean offHeap)
+            throws IOException {
+        if (maxMessages <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("maxMessages and maxBytes must be positive");
+        }
+        this.sessionID = sessionID;
+        this.maxMessages = maxMessages;
+        arena = offHeap ? ByteBuffer.allocateDirect(maxBytes) : ByteBuffer.allocate(maxBytes);
+        slotSequences = new int[maxMessages];
+        slotOffsets = new int[maxMessages];
+        slotLengths = new int[maxMessages];
+        // at most half full
+        final int tableSize = Integer.highestOneBit(Math.max(maxMessages, 2) * 2 - 1) << 1;
+        tableSequences = new int[tableSize];
+        tableSlots = new int[tableSize];
+        tableMask = tableSize - 1;
+        tableShift = Integer.numberOfLeadingZeros(tableSize) + 1;
+        reset();
+    }
+
+    public void get(int startSequence, int endSequence, Collection<String> messages) throws IOException {
+        get(startSequence, endSequence, (sequence, message) -> messages.add(message));
+    }
+
+    interface SequencedMessageConsumer {
+        void accept(int sequence, String message);
+    }
+
+    /**
+     * Passes the stored messages of the range with their sequence numbers to the consumer,
+     * in sequence number order.
+     */
+    synchronized void get(int startSequence, int endSequence, SequencedMessageConsumer consumer) {
+        if (startSequence > endSequence || count == 0) {
+            return;
+        }
+        final Charset charset = CharsetSupport.getCharsetInstance();
+        if ((long) endSequence - startSequence < count) {
+            for (int sequence = startSequence; sequence <= endSequence; sequence++) {
+                final int slot = lookup(sequence);
+                if (slot != NO_SLOT) {
+                    consumer.accept(sequence, read(slot, charset));
+                }
+            }
+        } else {
+            // fewer stored messages than sequence numbers in the range
+            final long[] found = new long[count];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                final int slot = (first + i) % maxMessages;
+                final int sequence = slotSequences[slot];
+                if (sequence >= startSequence && sequence <= endSequence && lookup(sequence) == slot) {
+                    found[n++] = ((long) sequence << 32) | slot;
+                }
+            }
+            Arrays.sort(found, 0, n);
+            for (int i = 0; i < n; i++) {
+                consumer.accept((int) (found[i] >> 32), read((int) found[i], charset));
+            }
+        }
+    }
+
+    /**
+     * This method is here for JNI API consistency but it's not
+     * implemented. Use get(int, int, Collection) with the same
+     * start and end sequence.
+     */
+    public boolean get(int sequence, String message) throws IOException {
+        throw new UnsupportedOperationException("not supported");
+    }
+
+    public synchronized boolean set(int sequence, String message) throws IOException {
+        final byte[] bytes = message.getBytes(CharsetSupport.getCharsetInstance());
+        final int previous = lookup(sequence);
+        if (previous != NO_SLOT) {
+            remove(sequence);
+        }
+        if (bytes.length > arena.capacity()) {
+            // evicted right away
+            evictedCount++;
+            return false;
+        }
+        if (count == maxMessages) {
+            evictOldest();
+        }
+        int offset = writePosition;
+        if (offset + bytes.length > arena.capacity()) {
+            // the messages at the end of the arena are the oldest ones
+            while (count > 0 && slotOffsets[first] >= offset) {
+                evictOldest();
+            }
+            offset = 0;
+        }
+        while (count > 0 && slotOffsets[first] < offset + bytes.length
+                && offset < slotOffsets[first] + slotLengths[first]) {
+            evictOldest();
+        }
+        arena.position(offset);
+        arena.put(bytes);
+        writePosition = offset + bytes.length;
+
+        final int slot = (first + count) % maxMessages;
+        slotSequences[slot] = sequence;
+        slotOffsets[slot] = offset;
+        slotLengths[slot] = bytes.length;
+        count++;
+        insert(sequence, slot);
+        return previous == NO_SLOT;
+    }
+
+    private String read(int slot, Charset charset) {
+        final byte[] bytes = new byte[slotLengths[slot]];
+        arena.position(slotOffsets[slot]);
+        arena.get(bytes);
+        return new String(bytes, charset);
+    }
+
+    private void evictOldest() {
+        final int sequence = slotSequences[first];
+        // a message which was set again is only in the table with its newer slot
+        if (lookup(sequence) == first) {
+            remove(sequence);
+            evictedCount++;
+        }
+        first = (first + 1) % maxMessages;
+        count--;
+    }
+
+    private int lookup(int sequence) {
+        for (int i = hash(sequence); ; i = (i + 1) & tableMask) {
+            final int slot = tableSlots[i];
+            if (slot == NO_SLOT) {
+                return NO_SLOT;
+            }
+            if (tableSequences[i] == sequence) {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(int sequence, int slot) {
+        int i = hash(sequence);
+        while (tableSlots[i] != NO_SLOT && tableSequences[i] != sequence) {
+            i = (i + 1) & tableMask;
+        }
+        tableSequences[i] = sequence;
+        tableSlots[i] = slot;
+    }
+
+    private void remove(int sequence) {
+        int i = hash(sequence);
+        while (tableSlots[i] != NO_SLOT && tableSequences[i] != sequence) {
+            i = (i + 1) & tableMask;
+        }
+        if (tableSlots[i] == NO_SLOT) {
+            return;
+        }
+        // move following entries up so that lookups do not stop at the gap
+        for (int j = (i + 1) & tableMask; tableSlots[j] != NO_SLOT; j = (j + 1) & tableMask) {
+            final int home = hash(tableSequences[j]);
+            if (((j - home) & tableMask) >= ((j - i) & tableMask)) {
+                tableSequences[i] = tableSequences[j];
+                tableSlots[i] = tableSlots[j];
+                i = j;
+            }
+        }
+        tableSlots[i] = NO_SLOT;
+    }
+
+    private int hash(int sequence) {
+        return (sequence * 0x9E3779B9) >>> tableShift;
+    }
+
+    /**
+     * @return the number of messages which are available
+     */
+    public synchronized int getMessageCount() {
+        int available = 0;
+        for (int i = 0; i < count; i++) {
+            final int slot = (first + i) % maxMessages;
+            if (lookup(slotSequences[slot]) == slot) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * @return the number of messages evicted since the store was created
+     */
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    public Date getCreationTime() throws IOException {
+        return creationTime.getTime();
+    }
+
+    public Calendar getCreationTimeCalendar() throws IOException {
+        return creationTime;
+    }
+
+    public int getNextSenderMsgSeqNum() {
+        return nextSenderMsgSeqNum;
+    }
+
+    public int getNextTargetMsgSeqNum() {
+        return nextTargetMsgSeqNum;
+    }
+
+    public void incrNextSenderMsgSeqNum() throws IOException {
+        setNextSenderMsgSeqNum(getNextSenderMsgSeqNum() + 1);
+    }
+
+    public void incrNextTargetMsgSeqNum() throws IOException {
+        setNextTargetMsgSeqNum(getNextTargetMsgSeqNum() + 1);
+    }
+
+    public synchronized void reset() throws IOException {
+        setNextSenderMsgSeqNum(1);
+        setNextTargetMsgSeqNum(1);
+        Arrays.fill(tableSlots, NO_SLOT);
+        first = 0;
+        count = 0;
+        writePosition = 0;
+        creationTime = SystemTime.getUtcCalendar();
+    }
+
+    public void setNextSenderMsgSeqNum(int next) throws IOException {
+        nextSenderMsgSeqNum = next;
+    }
+
+    public void setNextTargetMsgSeqNum(int next) throws IOException {
+        nextTargetMsgSeqNum = next;
+    }
+
+    public void refresh() throws IOException {
+        // IOException is declared to maintain strict compatibility with QF JNI
+        final String text = "memory store does not support refresh!";
+        final Session session = sessionID != null ? Session.lookupSession(sessionID) : null;
+        if (session != null) {
+            session.getLog().onErrorEvent("ERROR: " + text);
+        } else {
+            LoggerFactory.getLogger(BoundedMemoryStore.class).error(text);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+/**
+ * Creates message stores which keep only the most recent messages in memory.
+ *
+ * @see quickfix.BoundedMemoryStore
+ */
+public class BoundedMemoryStoreFactory implements MessageStoreFactory {
+
+    /**
+     * Maximum number of messages kept per session. Default is 100000.
+     */
+    public static final String SETTING_BOUNDED_MEMORY_STORE_MAX_MESSAGES = "BoundedMemoryStoreMaxMessages";
+
+    /**
+     * Maximum number of bytes of the encoded messages kept per session. Default is 64 MiB.
+     */
+    public static final String SETTING_BOUNDED_MEMORY_STORE_MAX_BYTES = "BoundedMemoryStoreMaxBytes";
+
+    /**
+     * Whether the messages are kept off-heap in a direct buffer. Default is N.
+     */
+    public static final String SETTING_BOUNDED_MEMORY_STORE_OFF_HEAP = "BoundedMemoryStoreOffHeap";
+
+    public static final int DEFAULT_MAX_MESSAGES = 100000;
+    public static final int DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+    protected final SessionSettings settings;
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     */
+    public BoundedMemoryStoreFactory(SessionSettings settings) {
+        this.settings = settings;
+    }
+
+    public MessageStore create(SessionID sessionID) {
+        try {
+            int maxMessages = DEFAULT_MAX_MESSAGES;
+            if (settings.isSetting(sessionID, SETTING_BOUNDED_MEMORY_STORE_MAX_MESSAGES)) {
+                maxMessages = (int) settings.getLong(sessionID, SETTING_BOUNDED_MEMORY_STORE_MAX_MESSAGES);
+            }
+            int maxBytes = DEFAULT_MAX_BYTES;
+            if (settings.isSetting(sessionID, SETTING_BOUNDED_MEMORY_STORE_MAX_BYTES)) {
+                maxBytes = (int) settings.getLong(sessionID, SETTING_BOUNDED_MEMORY_STORE_MAX_BYTES);
+            }
+            boolean offHeap = false;
+            if (settings.isSetting(sessionID, SETTING_BOUNDED_MEMORY_STORE_OFF_HEAP)) {
+                offHeap = settings.getBool(sessionID, SETTING_BOUNDED_MEMORY_STORE_OFF_HEAP);
+            }
+            return new BoundedMemoryStore(sessionID, maxMessages, maxBytes, offHeap);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
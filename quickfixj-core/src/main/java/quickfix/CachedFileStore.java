@@ -68,9 +68,12 @@ public class CachedFileStore implements MessageStore {
     private final String msgFileName;
 
     private final String headerFileName;
+    private final MessageIndexCheckpoint indexCheckpoint;
 
     private final String seqNumFileName;
 
+    private final String mappedSeqNumFileName;
+
     private final String sessionFileName;
 
     private RandomAccessFile messageFileReader;
@@ -81,14 +84,36 @@ public class CachedFileStore implements MessageStore {
 
     private RandomAccessFile sequenceNumberFile;
 
+    private MappedSequenceNumbers sequenceNumbers;
+
     private final boolean syncWrites;
 
+    private final FileSyncGroupCommitter groupCommitter;
+
+    private final boolean mappedSequenceNumbers;
+
+    private volatile long lastCommitTicket;
+
     private final CachedHashMap messageIndex = new CachedHashMap(100);
 
     private FileOutputStream headerFileOutputStream;
 
     CachedFileStore(String path, SessionID sessionID, boolean syncWrites) throws IOException {
-        this.syncWrites = syncWrites;
+        this(path, sessionID, syncWrites, null, false, 0);
+    }
+
+    /**
+     * @param groupCommitter if not null, writes are not synced individually but in groups
+     *                       by the given committer and syncWrites is ignored
+     * @param mappedSequenceNumbers whether the sequence numbers are kept in a memory-mapped file
+     * @param indexCheckpointInterval number of messages between checkpoints of the message
+     *                                index, 0 disables them
+     */
+    CachedFileStore(String path, SessionID sessionID, boolean syncWrites, FileSyncGroupCommitter groupCommitter,
+            boolean mappedSequenceNumbers, int indexCheckpointInterval) throws IOException {
+        this.syncWrites = syncWrites && groupCommitter == null;
+        this.groupCommitter = groupCommitter;
+        this.mappedSequenceNumbers = mappedSequenceNumbers;
 
         final String fullPath = new File(path == null ? "." : path).getAbsolutePath();
         final String sessionName = FileUtil.sessionIdFileName(sessionID);
@@ -96,7 +121,9 @@ public class CachedFileStore implements MessageStore {
 
         msgFileName = prefix + "body";
         headerFileName = prefix + "header";
+        indexCheckpoint = new MessageIndexCheckpoint(prefix + "headercheckpoint", indexCheckpointInterval);
         seqNumFileName = prefix + "seqnums";
+        mappedSeqNumFileName = prefix + "mappedseqnums";
         sessionFileName = prefix + "session";
 
         final File directory = new File(msgFileName).getParentFile();
@@ -114,7 +141,11 @@ public class CachedFileStore implements MessageStore {
 
         messageFileWriter = new RandomAccessFile(msgFileName, getRandomAccessFileOptions());
         messageFileReader = new RandomAccessFile(msgFileName, READ_OPTION);
-        sequenceNumberFile = new RandomAccessFile(seqNumFileName, getRandomAccessFileOptions());
+        if (mappedSequenceNumbers) {
+            sequenceNumbers = new MappedSequenceNumbers(mappedSeqNumFileName);
+        } else {
+            sequenceNumberFile = new RandomAccessFile(seqNumFileName, getRandomAccessFileOptions());
+        }
 
         initializeCache();
     }
@@ -169,6 +200,26 @@ public class CachedFileStore implements MessageStore {
     }
 
     private void initializeSequenceNumbers() throws IOException {
+        if (sequenceNumbers != null) {
+            if (sequenceNumbers.isInitialized()) {
+                cache.setNextSenderMsgSeqNum(sequenceNumbers.getNextSenderMsgSeqNum());
+                cache.setNextTargetMsgSeqNum(sequenceNumbers.getNextTargetMsgSeqNum());
+            } else {
+                // take over the sequence numbers of the file used without FileStoreMappedSeqNums
+                final File file = new File(seqNumFileName);
+                if (file.exists()) {
+                    try (RandomAccessFile legacySequenceNumberFile = new RandomAccessFile(file, READ_OPTION)) {
+                        readSequenceNumbers(legacySequenceNumberFile);
+                    }
+                }
+                storeSequenceNumbers();
+            }
+        } else {
+            readSequenceNumbers(sequenceNumberFile);
+        }
+    }
+
+    private void readSequenceNumbers(RandomAccessFile sequenceNumberFile) throws IOException {
         sequenceNumberFile.seek(0);
         if (sequenceNumberFile.length() > 0) {
             final String s = sequenceNumberFile.readUTF();
@@ -183,18 +234,9 @@ public class CachedFileStore implements MessageStore {
     }
 
     private void initializeMessageIndex() throws IOException {
-        final File headerFile = new File(headerFileName);
-        if (headerFile.exists()) {
-            try (DataInputStream headerDataInputStream = new DataInputStream(
-                    new BufferedInputStream(new FileInputStream(headerFile)))) {
-                while (headerDataInputStream.available() > 0) {
-                    final int sequenceNumber = headerDataInputStream.readInt();
-                    final long offset = headerDataInputStream.readLong();
-                    final int size = headerDataInputStream.readInt();
-                    messageIndex.put((long) sequenceNumber, new long[]{offset, size});
-                }
-            }
-        }
+        messageIndex.clear();
+        indexCheckpoint.recover(new File(headerFileName),
+                (sequence, offset, size) -> messageIndex.put((long) sequence, new long[]{offset, size}));
         headerFileOutputStream = new FileOutputStream(headerFileName, true);
         headerDataOutputStream = new DataOutputStream(new BufferedOutputStream(
                 headerFileOutputStream));
@@ -210,10 +252,16 @@ public class CachedFileStore implements MessageStore {
      * @throws IOException
      */
     public void closeFiles() throws IOException {
+        if (headerDataOutputStream != null && indexCheckpoint.isDirty()) {
+            writeIndexCheckpoint();
+        }
         closeOutputStream(headerDataOutputStream);
         closeFile(messageFileWriter);
         closeFile(messageFileReader);
         closeFile(sequenceNumberFile);
+        if (sequenceNumbers != null) {
+            sequenceNumbers.close();
+        }
     }
 
     private void closeFile(RandomAccessFile file) throws IOException {
@@ -230,9 +278,11 @@ public class CachedFileStore implements MessageStore {
 
     public void deleteFiles() throws IOException {
         closeFiles();
+        indexCheckpoint.delete();
         deleteFile(headerFileName);
         deleteFile(msgFileName);
         deleteFile(seqNumFileName);
+        deleteFile(mappedSeqNumFileName);
         deleteFile(sessionFileName);
     }
 
@@ -305,6 +355,25 @@ public class CachedFileStore implements MessageStore {
         messages.addAll(readedMsg);
     }
 
+    /**
+     * Reads the messages one by one after looking up their offsets with a single pass over
+     * the header file.
+     */
+    @Override
+    public void get(int startSequence, int endSequence, int chunkSize, MessageHandler handler)
+            throws IOException {
+        try (HeaderFileReader headerFileReader = new HeaderFileReader(new File(headerFileName))) {
+            for (long record : headerFileReader.findRecords(startSequence, endSequence, sequence -> false, true)) {
+                final long[] offsetAndSize = headerFileReader.readOffsetAndSize(record);
+                if (!handler.onMessage(read(offsetAndSize[0], (int) offsetAndSize[1]))) {
+                    break;
+                }
+            }
+        } finally {
+            messageFileReader.seek(messageFileReader.length());
+        }
+    }
+
     /**
      * This method is here for JNI API consistency but it's not implemented. Use get(int, int, Collection) with the same
      * start and end sequence.
@@ -356,10 +425,33 @@ public class CachedFileStore implements MessageStore {
             headerFileOutputStream.getFD().sync();
         }
         messageFileWriter.write(messageBytes);
+        if (indexCheckpoint.recordWritten()) {
+            writeIndexCheckpoint();
+        }
+        if (groupCommitter != null) {
+            lastCommitTicket = groupCommitter.commit(headerFileOutputStream.getFD(), messageFileWriter.getFD());
+        }
         return true;
     }
 
+    private void writeIndexCheckpoint() throws IOException {
+        indexCheckpoint.write(headerFileOutputStream.getChannel().position(), messageIndex);
+    }
+
+    MessageIndexCheckpoint getIndexCheckpoint() {
+        return indexCheckpoint;
+    }
+
     private void storeSequenceNumbers() throws IOException {
+        if (sequenceNumbers != null) {
+            sequenceNumbers.set(cache.getNextSenderMsgSeqNum(), cache.getNextTargetMsgSeqNum());
+            if (syncWrites) {
+                sequenceNumbers.force();
+            } else if (groupCommitter != null) {
+                lastCommitTicket = groupCommitter.commit(sequenceNumbers.getFD());
+            }
+            return;
+        }
         sequenceNumberFile.seek(0);
         // I changed this from explicitly using a StringBuffer because of
         // recommendations from Sun. The performance also appears higher
@@ -367,6 +459,46 @@ public class CachedFileStore implements MessageStore {
         // http://bugs.sun.com/bugdatabase/view_bug.do;:WuuT?bug_id=4259569
         sequenceNumberFile.writeUTF("" + cache.getNextSenderMsgSeqNum() + ':'
                 + cache.getNextTargetMsgSeqNum());
+        if (groupCommitter != null) {
+            lastCommitTicket = groupCommitter.commit(sequenceNumberFile.getFD());
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see quickfix.MessageStore#awaitDurable()
+     */
+    @Override
+    public void awaitDurable() throws IOException {
+        if (groupCommitter != null) {
+            groupCommitter.await(lastCommitTicket);
+        } else if (!syncWrites) {
+            headerFileOutputStream.getFD().sync();
+            messageFileWriter.getFD().sync();
+            if (sequenceNumbers != null) {
+                sequenceNumbers.force();
+            } else {
+                sequenceNumberFile.getFD().sync();
+            }
+        }
+    }
+
+    @Override
+    public long getDurableTicket() {
+        return groupCommitter != null ? lastCommitTicket : 0;
+    }
+
+    /**
+     * Waits for the group commit of the given ticket if group commit is enabled, otherwise
+     * like {@link #awaitDurable()}.
+     */
+    @Override
+    public void awaitDurable(long ticket) throws IOException {
+        if (groupCommitter != null) {
+            groupCommitter.await(ticket);
+        } else {
+            awaitDurable();
+        }
     }
 
     String getHeaderFileName() {
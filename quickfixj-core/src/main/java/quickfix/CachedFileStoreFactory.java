@@ -45,7 +45,8 @@ public class CachedFileStoreFactory extends FileStoreFactory {
             if (settings.isSetting(sessionID, SETTING_FILE_STORE_SYNC)) {
                 syncWrites = settings.getBool(sessionID, SETTING_FILE_STORE_SYNC);
             }
-            return new CachedFileStore(settings.getString(sessionID, SETTING_FILE_STORE_PATH), sessionID, syncWrites);
+            return new CachedFileStore(settings.getString(sessionID, SETTING_FILE_STORE_PATH), sessionID, syncWrites,
+                    getGroupCommitter(), isMappedSequenceNumbers(sessionID), getIndexCheckpointInterval(sessionID));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
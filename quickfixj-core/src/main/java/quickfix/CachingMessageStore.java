@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Message store decorator which keeps the most recent messages off-heap, in a
+ * {@link BoundedMemoryStore}, in front of another store. Messages are written to both
+ * stores. Reads are served from memory, only the sequence numbers which are not in memory,
+ * e.g. messages stored before the cache was created or evicted from it, are read from the
+ * underlying store.
+ * <p>
+ * The number of messages read from memory and from the underlying store is counted and
+ * exported over JMX together with the session.
+ *
+ * @see CachingMessageStoreFactory
+ */
+public class CachingMessageStore implements MessageStore, Closeable {
+
+    private final MessageStore delegate;
+    private final BoundedMemoryStore cache;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param delegate the store which is cached
+     * @param maxMessages maximum number of messages kept in memory
+     * @param maxBytes maximum number of bytes of the messages kept in memory
+     */
+    public CachingMessageStore(MessageStore delegate, int maxMessages, int maxBytes) throws IOException {
+        this.delegate = delegate;
+        this.cache = new BoundedMemoryStore(maxMessages, maxBytes, true);
+    }
+
+    public MessageStore getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean set(int sequence, String message) throws IOException {
+        final boolean result = delegate.set(sequence, message);
+        cache.set(sequence, message);
+        return result;
+    }
+
+    @Override
+    public void get(int startSequence, int endSequence, Collection<String> messages) throws IOException {
+        final List<String> cached = new ArrayList<>();
+        final List<Integer> cachedSequences = new ArrayList<>();
+        cache.get(startSequence, endSequence, (sequence, message) -> {
+            cachedSequences.add(sequence);
+            cached.add(message);
+        });
+        long next = startSequence;
+        for (int i = 0; i < cached.size(); i++) {
+            final int sequence = cachedSequences.get(i);
+            if (sequence > next) {
+                readFromStore((int) next, sequence - 1, messages);
+            }
+            messages.add(cached.get(i));
+            next = sequence + 1L;
+        }
+        if (next <= endSequence) {
+            readFromStore((int) next, endSequence, messages);
+        }
+        hitCount.addAndGet(cached.size());
+    }
+
+    private void readFromStore(int startSequence, int endSequence, Collection<String> messages)
+            throws IOException {
+        final int size = messages.size();
+        delegate.get(startSequence, endSequence, messages);
+        missCount.addAndGet(messages.size() - size);
+    }
+
+    @Override
+    public int getNextSenderMsgSeqNum() throws IOException {
+        return delegate.getNextSenderMsgSeqNum();
+    }
+
+    @Override
+    public int getNextTargetMsgSeqNum() throws IOException {
+        return delegate.getNextTargetMsgSeqNum();
+    }
+
+    @Override
+    public void setNextSenderMsgSeqNum(int next) throws IOException {
+        delegate.setNextSenderMsgSeqNum(next);
+    }
+
+    @Override
+    public void setNextTargetMsgSeqNum(int next) throws IOException {
+        delegate.setNextTargetMsgSeqNum(next);
+    }
+
+    @Override
+    public void incrNextSenderMsgSeqNum() throws IOException {
+        delegate.incrNextSenderMsgSeqNum();
+    }
+
+    @Override
+    public void incrNextTargetMsgSeqNum() throws IOException {
+        delegate.incrNextTargetMsgSeqNum();
+    }
+
+    @Override
+    public Date getCreationTime() throws IOException {
+        return delegate.getCreationTime();
+    }
+
+    @Override
+    public Calendar getCreationTimeCalendar() throws IOException {
+        return delegate.getCreationTimeCalendar();
+    }
+
+    @Override
+    public void reset() throws IOException {
+        delegate.reset();
+        cache.reset();
+    }
+
+    /**
+     * Refreshes the underlying store. The cache is cleared since the underlying store may
+     * have been changed by another process.
+     */
+    @Override
+    public void refresh() throws IOException {
+        delegate.refresh();
+        cache.reset();
+    }
+
+    @Override
+    public void awaitDurable() throws IOException {
+        delegate.awaitDurable();
+    }
+
+    @Override
+    public long getDurableTicket() {
+        return delegate.getDurableTicket();
+    }
+
+    @Override
+    public void awaitDurable(long ticket) throws IOException {
+        delegate.awaitDurable(ticket);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    /**
+     * @return the number of messages read from memory
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of messages read from the underlying store
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the number of messages in memory
+     */
+    public int getCachedMessageCount() {
+        return cache.getMessageCount();
+    }
+
+    /**
+     * @return the number of messages evicted from memory
+     */
+    public long getEvictedCount() {
+        return cache.getEvictedCount();
+    }
+
+    /**
+     * Closes the underlying store if it is closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Creates message stores which keep the most recent messages of the stores of another
+ * factory off-heap, for example
+ * <code>new CachingMessageStoreFactory(settings, new FileStoreFactory(settings))</code>.
+ *
+ * @see quickfix.CachingMessageStore
+ */
+public class CachingMessageStoreFactory implements MessageStoreFactory, Closeable {
+
+    /**
+     * Maximum number of messages kept in memory per session. Default is 100000.
+     */
+    public static final String SETTING_MESSAGE_STORE_CACHE_MAX_MESSAGES = "MessageStoreCacheMaxMessages";
+
+    /**
+     * Maximum number of bytes of the messages kept in memory per session. Default is 16 MiB.
+     */
+    public static final String SETTING_MESSAGE_STORE_CACHE_MAX_BYTES = "MessageStoreCacheMaxBytes";
+
+    public static final int DEFAULT_MAX_MESSAGES = 100000;
+    public static final int DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    protected final SessionSettings settings;
+    private final MessageStoreFactory delegate;
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     * @param delegate the factory of the stores that are cached
+     */
+    public CachingMessageStoreFactory(SessionSettings settings, MessageStoreFactory delegate) {
+        this.settings = settings;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates a caching store for the store created by the delegate factory.
+     *
+     * @param sessionID session ID for the message store.
+     */
+    public MessageStore create(SessionID sessionID) {
+        try {
+            int maxMessages = DEFAULT_MAX_MESSAGES;
+            if (settings.isSetting(sessionID, SETTING_MESSAGE_STORE_CACHE_MAX_MESSAGES)) {
+                maxMessages = (int) settings.getLong(sessionID, SETTING_MESSAGE_STORE_CACHE_MAX_MESSAGES);
+            }
+            int maxBytes = DEFAULT_MAX_BYTES;
+            if (settings.isSetting(sessionID, SETTING_MESSAGE_STORE_CACHE_MAX_BYTES)) {
+                maxBytes = (int) settings.getLong(sessionID, SETTING_MESSAGE_STORE_CACHE_MAX_BYTES);
+            }
+            return new CachingMessageStore(delegate.create(sessionID), maxMessages, maxBytes);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Closes the underlying factory if it is closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
@@ -93,6 +93,33 @@ class CompositeLog implements Log {
         }
     }
 
+    public boolean isIncomingEnabled() {
+        for (Log log : logs) {
+            if (log.isIncomingEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isOutgoingEnabled() {
+        for (Log log : logs) {
+            if (log.isOutgoingEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEventEnabled() {
+        for (Log log : logs) {
+            if (log.isEventEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // Test Support
     void setRethrowExceptions(boolean flag) {
         rethrowException = flag;
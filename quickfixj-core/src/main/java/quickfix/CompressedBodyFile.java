@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Message body file of {@link FileStore} with compressed blocks. Messages are appended to
+ * an open block which is kept in memory and also written uncompressed to a tail file, so
+ * no message is lost on a crash. When the open block is full it is compressed with
+ * {@link Deflater}, appended to the body file and the tail file is truncated.
+ * <p>
+ * A block in the body file consists of the compressed length, the uncompressed length and
+ * the compressed data. The tail file starts with the offset in the body file at which the
+ * open block will be written. The position of a message, which is stored in the header
+ * file like the offset of an uncompressed message, is the offset of its block shifted by
+ * {@link #BLOCK_OFFSET_SHIFT} bits plus its offset in the block. Reading a message only
+ * decompresses its block; the last decompressed block is kept for sequential reads.
+ */
+final class CompressedBodyFile implements Closeable {
+
+    static final int BLOCK_OFFSET_SHIFT = 20;
+    static final int MAX_BLOCK_SIZE = 1 << BLOCK_OFFSET_SHIFT;
+
+    private static final int BLOCK_HEADER_SIZE = 8;
+    private static final int TAIL_HEADER_SIZE = 8;
+
+    private final RandomAccessFile bodyFile;
+    private final RandomAccessFile tailFile;
+    private final int blockSize;
+    private final boolean forceOnSeal;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+
+    // the open block
+    private long blockOffset;
+    private byte[] block;
+    private int blockLength;
+
+    private long cachedBlockOffset = -1;
+    private byte[] cachedBlock;
+    private byte[] compressBuffer = new byte[0];
+    private boolean closed;
+
+    /**
+     * @param blockSize uncompressed size after which a block is compressed
+     * @param forceOnSeal whether the body file is synced before the tail file is truncated
+     */
+    CompressedBodyFile(String bodyFileName, String tailFileName, String mode, int blockSize, boolean forceOnSeal)
+            throws IOException {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE);
+        }
+        this.blockSize = blockSize;
+        this.forceOnSeal = forceOnSeal;
+        this.block = new byte[blockSize];
+        bodyFile = new RandomAccessFile(bodyFileName, mode);
+        try {
+            tailFile = new RandomAccessFile(tailFileName, mode);
+            recover();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void recover() throws IOException {
+        final long bodyLength = bodyFile.length();
+        if (tailFile.length() < TAIL_HEADER_SIZE) {
+            startBlock(bodyLength);
+            return;
+        }
+        tailFile.seek(0);
+        final long tailBlockOffset = tailFile.readLong();
+        if (tailBlockOffset > bodyLength) {
+            throw new IOException("Compressed body file is shorter than expected: " + bodyLength
+                    + " < " + tailBlockOffset);
+        }
+        if (tailBlockOffset < bodyLength) {
+            final long sealedEnd = getSealedBlockEnd(tailBlockOffset, bodyLength);
+            if (sealedEnd > 0) {
+                // the open block was sealed before the crash
+                bodyFile.setLength(sealedEnd);
+                startBlock(sealedEnd);
+                return;
+            }
+            // the block was not written completely
+            bodyFile.setLength(tailBlockOffset);
+        }
+        blockOffset = tailBlockOffset;
+        blockLength = (int) (tailFile.length() - TAIL_HEADER_SIZE);
+        ensureBlockCapacity(blockLength);
+        tailFile.readFully(block, 0, blockLength);
+    }
+
+    private long getSealedBlockEnd(long offset, long bodyLength) throws IOException {
+        if (bodyLength - offset < BLOCK_HEADER_SIZE) {
+            return -1;
+        }
+        bodyFile.seek(offset);
+        final long end = offset + BLOCK_HEADER_SIZE + bodyFile.readInt();
+        return end <= bodyLength ? end : -1;
+    }
+
+    private void startBlock(long offset) throws IOException {
+        blockOffset = offset;
+        blockLength = 0;
+        tailFile.setLength(0);
+        tailFile.seek(0);
+        tailFile.writeLong(offset);
+    }
+
+    /**
+     * Appends a message to the open block.
+     *
+     * @return the position of the message
+     */
+    long append(byte[] data) throws IOException {
+        ensureOpen();
+        if (blockLength > 0 && blockLength + data.length > blockSize) {
+            seal();
+        }
+        ensureBlockCapacity(blockLength + data.length);
+        final long position = (blockOffset << BLOCK_OFFSET_SHIFT) | blockLength;
+        tailFile.seek(TAIL_HEADER_SIZE + blockLength);
+        tailFile.write(data);
+        System.arraycopy(data, 0, block, blockLength, data.length);
+        blockLength += data.length;
+        return position;
+    }
+
+    private void ensureBlockCapacity(int capacity) {
+        if (block.length < capacity) {
+            block = Arrays.copyOf(block, Math.max(capacity, block.length * 2));
+        }
+    }
+
+    private void seal() throws IOException {
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressBuffer.length) {
+                compressBuffer = Arrays.copyOf(compressBuffer, Math.max(1024, compressBuffer.length * 2));
+            }
+            compressedLength += deflater.deflate(compressBuffer, compressedLength,
+                    compressBuffer.length - compressedLength);
+        }
+        bodyFile.seek(blockOffset);
+        bodyFile.writeInt(compressedLength);
+        bodyFile.writeInt(blockLength);
+        bodyFile.write(compressBuffer, 0, compressedLength);
+        if (forceOnSeal) {
+            bodyFile.getFD().sync();
+        }
+        startBlock(blockOffset + BLOCK_HEADER_SIZE + compressedLength);
+        if (block.length > blockSize) {
+            block = new byte[blockSize];
+        }
+    }
+
+    /**
+     * Reads a message, decompressing its block if it is not the open block.
+     */
+    byte[] read(long position, int size) throws IOException {
+        ensureOpen();
+        final long offset = position >>> BLOCK_OFFSET_SHIFT;
+        final int offsetInBlock = (int) (position & (MAX_BLOCK_SIZE - 1));
+        final byte[] data;
+        final int length;
+        if (offset == blockOffset) {
+            data = block;
+            length = blockLength;
+        } else {
+            data = readBlock(offset);
+            length = data.length;
+        }
+        if (offsetInBlock + size > length) {
+            throw new EOFException("Message at " + offsetInBlock + " with size " + size
+                    + " exceeds the block at offset " + offset);
+        }
+        return Arrays.copyOfRange(data, offsetInBlock, offsetInBlock + size);
+    }
+
+    private byte[] readBlock(long offset) throws IOException {
+        if (offset == cachedBlockOffset) {
+            return cachedBlock;
+        }
+        bodyFile.seek(offset);
+        final int compressedLength = bodyFile.readInt();
+        final int uncompressedLength = bodyFile.readInt();
+        final byte[] compressed = new byte[compressedLength];
+        bodyFile.readFully(compressed);
+        final byte[] uncompressed = new byte[uncompressedLength];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < uncompressedLength && !inflater.finished()) {
+                final int n = inflater.inflate(uncompressed, length, uncompressedLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != uncompressedLength) {
+                throw new EOFException("Truncated block at offset " + offset);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at offset " + offset, e);
+        }
+        cachedBlockOffset = offset;
+        cachedBlock = uncompressed;
+        return uncompressed;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Compressed body file is closed");
+        }
+    }
+
+    /**
+     * @return the files which have to be synced to make the appended messages durable
+     */
+    FileDescriptor[] getFDs() throws IOException {
+        return new FileDescriptor[]{bodyFile.getFD(), tailFile.getFD()};
+    }
+
+    void sync() throws IOException {
+        bodyFile.getFD().sync();
+        tailFile.getFD().sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        deflater.end();
+        inflater.end();
+        try {
+            bodyFile.close();
+        } finally {
+            if (tailFile != null) {
+                tailFile.close();
+            }
+        }
+    }
+}
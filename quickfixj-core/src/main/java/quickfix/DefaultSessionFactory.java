@@ -259,6 +259,13 @@ public class DefaultSessionFactory implements SessionFactory {
             final int maxScheduledWriteRequests = getSetting(settings, sessionID, Session.SETTING_MAX_SCHEDULED_WRITE_REQUESTS, 0);
             session.setMaxScheduledWriteRequests(maxScheduledWriteRequests);
 
+            session.setConcurrentSend(getSetting(settings, sessionID, Session.SETTING_CONCURRENT_SEND, false));
+            session.setSendSequencer(getSetting(settings, sessionID, Session.SETTING_SEND_SEQUENCER, false));
+            session.setDurableBeforeSend(getSetting(settings, sessionID, Session.SETTING_DURABLE_BEFORE_SEND, false));
+            session.setResendReadChunkSize(getSetting(settings, sessionID, Session.SETTING_RESEND_READ_CHUNK_SIZE,
+                    Session.DEFAULT_RESEND_READ_CHUNK_SIZE));
+            session.setToAppOnResend(getSetting(settings, sessionID, Session.SETTING_TO_APP_ON_RESEND, true));
+
             //
             // Session registration and creation callback is done here instead of in
             // session constructor to eliminate the possibility of other threads
@@ -29,14 +29,19 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
 
@@ -57,23 +62,51 @@ public class FileStore implements MessageStore, Closeable {
     private final MemoryStore cache = new MemoryStore();
 
     private final String msgFileName;
+    private final String msgTailFileName;
     private final String headerFileName;
+    private final MessageIndexCheckpoint indexCheckpoint;
     private final String senderSeqNumFileName;
     private final String targetSeqNumFileName;
+    private final String mappedSeqNumFileName;
     private final String sessionFileName;
     private final boolean syncWrites;
     private final int maxCachedMsgs;
+    private final FileSyncGroupCommitter groupCommitter;
+    private final boolean mappedSequenceNumbers;
+    private final int compressionBlockSize;
+    private volatile long lastCommitTicket;
     private RandomAccessFile messageFileReader;
     private RandomAccessFile messageFileWriter;
+    private CompressedBodyFile compressedMessageFile;
     private DataOutputStream headerDataOutputStream;
     private FileOutputStream headerFileOutputStream;
     private RandomAccessFile senderSequenceNumberFile;
     private RandomAccessFile targetSequenceNumberFile;
+    private MappedSequenceNumbers sequenceNumbers;
 
     FileStore(String path, SessionID sessionID, boolean syncWrites, int maxCachedMsgs)
             throws IOException {
-        this.syncWrites = syncWrites;
+        this(path, sessionID, syncWrites, maxCachedMsgs, null, false, 0, 0);
+    }
+
+    /**
+     * @param groupCommitter if not null, writes are not synced individually but in groups
+     *                       by the given committer and syncWrites is ignored
+     * @param mappedSequenceNumbers whether the sequence numbers are kept in a memory-mapped file
+     * @param indexCheckpointInterval number of messages between checkpoints of the message
+     *                                index, 0 disables them
+     * @param compressionBlockSize if greater than 0 the message bodies are stored in
+     *                             compressed blocks of this uncompressed size, in files
+     *                             separate from the uncompressed ones
+     */
+    FileStore(String path, SessionID sessionID, boolean syncWrites, int maxCachedMsgs,
+            FileSyncGroupCommitter groupCommitter, boolean mappedSequenceNumbers,
+            int indexCheckpointInterval, int compressionBlockSize) throws IOException {
+        this.syncWrites = syncWrites && groupCommitter == null;
         this.maxCachedMsgs = maxCachedMsgs;
+        this.groupCommitter = groupCommitter;
+        this.mappedSequenceNumbers = mappedSequenceNumbers;
+        this.compressionBlockSize = compressionBlockSize;
 
         messageIndex = maxCachedMsgs > 0 ? new TreeMap<>() : null;
 
@@ -81,10 +114,17 @@ public class FileStore implements MessageStore, Closeable {
         final String sessionName = FileUtil.sessionIdFileName(sessionID);
         final String prefix = FileUtil.fileAppendPath(fullPath, sessionName + ".");
 
-        msgFileName = prefix + "body";
-        headerFileName = prefix + "header";
+        // the positions in the header file of compressed bodies differ from offsets
+        final String bodyPrefix = compressionBlockSize > 0 ? prefix + "z" : prefix;
+        msgFileName = bodyPrefix + "body";
+        msgTailFileName = bodyPrefix + "bodytail";
+        headerFileName = bodyPrefix + "header";
+        // without an index there is nothing to checkpoint
+        indexCheckpoint = new MessageIndexCheckpoint(bodyPrefix + "headercheckpoint",
+                messageIndex != null ? indexCheckpointInterval : 0);
         senderSeqNumFileName = prefix + "senderseqnums";
         targetSeqNumFileName = prefix + "targetseqnums";
+        mappedSeqNumFileName = prefix + "mappedseqnums";
         sessionFileName = prefix + "session";
 
         final File directory = new File(msgFileName).getParentFile();
@@ -101,10 +141,19 @@ public class FileStore implements MessageStore, Closeable {
         }
 
         String mode = READ_OPTION + WRITE_OPTION + (syncWrites ? SYNC_OPTION : NOSYNC_OPTION);
-        messageFileWriter = new RandomAccessFile(msgFileName, mode); // also creates file
-        messageFileReader = new RandomAccessFile(msgFileName, READ_OPTION);
-        senderSequenceNumberFile = new RandomAccessFile(senderSeqNumFileName, mode);
-        targetSequenceNumberFile = new RandomAccessFile(targetSeqNumFileName, mode);
+        if (compressionBlockSize > 0) {
+            compressedMessageFile = new CompressedBodyFile(msgFileName, msgTailFileName, mode,
+                    compressionBlockSize, syncWrites || groupCommitter != null);
+        } else {
+            messageFileWriter = new RandomAccessFile(msgFileName, mode); // also creates file
+            messageFileReader = new RandomAccessFile(msgFileName, READ_OPTION);
+        }
+        if (mappedSequenceNumbers) {
+            sequenceNumbers = new MappedSequenceNumbers(mappedSeqNumFileName);
+        } else {
+            senderSequenceNumberFile = new RandomAccessFile(senderSeqNumFileName, mode);
+            targetSequenceNumberFile = new RandomAccessFile(targetSeqNumFileName, mode);
+        }
 
         initializeCache();
     }
@@ -114,7 +163,9 @@ public class FileStore implements MessageStore, Closeable {
         initializeMessageIndex();
         initializeSequenceNumbers();
         initializeSessionCreateTime();
-        messageFileWriter.seek(messageFileWriter.length());
+        if (messageFileWriter != null) {
+            messageFileWriter.seek(messageFileWriter.length());
+        }
     }
 
     private void initializeSessionCreateTime() throws IOException {
@@ -159,6 +210,19 @@ public class FileStore implements MessageStore, Closeable {
     }
 
     private void initializeSequenceNumbers() throws IOException {
+        if (sequenceNumbers != null) {
+            if (sequenceNumbers.isInitialized()) {
+                cache.setNextSenderMsgSeqNum(sequenceNumbers.getNextSenderMsgSeqNum());
+                cache.setNextTargetMsgSeqNum(sequenceNumbers.getNextTargetMsgSeqNum());
+            } else {
+                // take over the sequence numbers of the files used without FileStoreMappedSeqNums
+                cache.setNextSenderMsgSeqNum(readSequenceNumber(senderSeqNumFileName));
+                cache.setNextTargetMsgSeqNum(readSequenceNumber(targetSeqNumFileName));
+                storeMappedSequenceNumbers();
+            }
+            return;
+        }
+
         senderSequenceNumberFile.seek(0);
         if (senderSequenceNumberFile.length() > 0) {
             final String s = senderSequenceNumberFile.readUTF();
@@ -172,22 +236,21 @@ public class FileStore implements MessageStore, Closeable {
         }
     }
 
+    private static int readSequenceNumber(String fileName) throws IOException {
+        final File file = new File(fileName);
+        if (!file.exists() || file.length() == 0) {
+            return 1;
+        }
+        try (RandomAccessFile sequenceNumberFile = new RandomAccessFile(file, READ_OPTION)) {
+            return Integer.parseInt(sequenceNumberFile.readUTF());
+        }
+    }
+
     private void initializeMessageIndex() throws IOException {
         // this part is unnecessary if no offsets are being stored in memory
         if (messageIndex != null) {
             messageIndex.clear();
-            final File headerFile = new File(headerFileName);
-            if (headerFile.exists()) {
-                try (DataInputStream headerDataInputStream = new DataInputStream(
-                        new BufferedInputStream(new FileInputStream(headerFile)))) {
-                    while (headerDataInputStream.available() > 0) {
-                        final int sequenceNumber = headerDataInputStream.readInt();
-                        final long offset = headerDataInputStream.readLong();
-                        final int size = headerDataInputStream.readInt();
-                        updateMessageIndex(sequenceNumber, offset, size);
-                    }
-                }
-            }
+            indexCheckpoint.recover(new File(headerFileName), this::updateMessageIndex);
         }
         headerFileOutputStream = new FileOutputStream(headerFileName, true);
         headerDataOutputStream = new DataOutputStream(new BufferedOutputStream(
@@ -211,11 +274,20 @@ public class FileStore implements MessageStore, Closeable {
      */
     @Override
     public void close() throws IOException {
+        if (headerDataOutputStream != null && indexCheckpoint.isDirty()) {
+            writeIndexCheckpoint();
+        }
+        closeFiles();
+    }
+
+    private void closeFiles() throws IOException {
         close(headerDataOutputStream);
         close(messageFileWriter);
         close(messageFileReader);
+        close(compressedMessageFile);
         close(senderSequenceNumberFile);
         close(targetSequenceNumberFile);
+        close(sequenceNumbers);
     }
 
     private static void close(Closeable closeable) throws IOException {
@@ -225,11 +297,14 @@ public class FileStore implements MessageStore, Closeable {
     }
 
     public void closeAndDeleteFiles() throws IOException {
-        close();
+        closeFiles();
+        indexCheckpoint.delete();
         deleteFile(headerFileName);
         deleteFile(msgFileName);
+        deleteFile(msgTailFileName);
         deleteFile(senderSeqNumFileName);
         deleteFile(targetSeqNumFileName);
+        deleteFile(mappedSeqNumFileName);
         deleteFile(sessionFileName);
     }
 
@@ -330,6 +405,52 @@ public class FileStore implements MessageStore, Closeable {
         messages.addAll(messagesFound.values());
     }
 
+    /**
+     * Reads the messages one by one. The offsets of the messages which are not in the
+     * message index are looked up with a single pass over the header file.
+     */
+    @Override
+    public void get(int startSequence, int endSequence, int chunkSize, MessageHandler handler)
+            throws IOException {
+        // the index entries are copied because the index changes when messages are stored
+        // while the handler is called
+        final NavigableMap<Long, long[]> cachedRange = messageIndex != null
+                ? messageIndex.subMap((long) startSequence, true, (long) endSequence, true)
+                : Collections.emptyNavigableMap();
+        final int cachedCount = cachedRange.size();
+        final int[] cachedSequences = new int[cachedCount];
+        final long[][] cachedOffsetsAndSizes = new long[cachedCount][];
+        int i = 0;
+        for (Map.Entry<Long, long[]> entry : cachedRange.entrySet()) {
+            cachedSequences[i] = entry.getKey().intValue();
+            cachedOffsetsAndSizes[i++] = entry.getValue();
+        }
+
+        try (HeaderFileReader headerFileReader = new HeaderFileReader(new File(headerFileName))) {
+            final long[] uncachedRecords = cachedCount > endSequence - (long) startSequence
+                    ? new long[0]
+                    : headerFileReader.findRecords(startSequence, endSequence,
+                            sequence -> Arrays.binarySearch(cachedSequences, sequence) >= 0, false);
+            int cached = 0;
+            int uncached = 0;
+            while (cached < cachedCount || uncached < uncachedRecords.length) {
+                final String message;
+                if (uncached == uncachedRecords.length || (cached < cachedCount
+                        && cachedSequences[cached] < HeaderFileReader.sequence(uncachedRecords[uncached]))) {
+                    final long[] offsetAndSize = cachedOffsetsAndSizes[cached];
+                    message = getMessage(offsetAndSize[0], (int) offsetAndSize[1], cachedSequences[cached++]);
+                } else {
+                    final long record = uncachedRecords[uncached++];
+                    final long[] offsetAndSize = headerFileReader.readOffsetAndSize(record);
+                    message = getMessage(offsetAndSize[0], (int) offsetAndSize[1], HeaderFileReader.sequence(record));
+                }
+                if (!handler.onMessage(message)) {
+                    return;
+                }
+            }
+        }
+    }
+
     /**
      * This method is here for JNI API consistency but it's not
      * implemented. Use get(int, int, Collection) with the same
@@ -352,9 +473,14 @@ public class FileStore implements MessageStore, Closeable {
 
     private String getMessage(long offset, int size, int i) throws IOException {
         try {
-            final byte[] data = new byte[size];
-            messageFileReader.seek(offset);
-            messageFileReader.readFully(data);
+            final byte[] data;
+            if (compressedMessageFile != null) {
+                data = compressedMessageFile.read(offset, size);
+            } else {
+                data = new byte[size];
+                messageFileReader.seek(offset);
+                messageFileReader.readFully(data);
+            }
             return new String(data, CharsetSupport.getCharset());
         } catch (EOFException eofe) { // can't read fully
             throw new IOException("Truncated input while reading message: messageIndex=" + i
@@ -367,9 +493,28 @@ public class FileStore implements MessageStore, Closeable {
      */
     @Override
     public boolean set(int sequence, String message) throws IOException {
-        final long offset = messageFileWriter.getFilePointer();
         final byte[] messageBytes = message.getBytes(CharsetSupport.getCharset());
         final int size = messageBytes.length;
+        if (compressedMessageFile != null) {
+            // the position is known once the message is written
+            writeHeader(sequence, compressedMessageFile.append(messageBytes), size);
+        } else {
+            writeHeader(sequence, messageFileWriter.getFilePointer(), size);
+            messageFileWriter.write(messageBytes);
+        }
+        if (indexCheckpoint.recordWritten()) {
+            writeIndexCheckpoint();
+        }
+        if (groupCommitter != null && compressedMessageFile != null) {
+            final FileDescriptor[] bodyFDs = compressedMessageFile.getFDs();
+            lastCommitTicket = groupCommitter.commit(headerFileOutputStream.getFD(), bodyFDs[0], bodyFDs[1]);
+        } else if (groupCommitter != null) {
+            lastCommitTicket = groupCommitter.commit(headerFileOutputStream.getFD(), messageFileWriter.getFD());
+        }
+        return true;
+    }
+
+    private void writeHeader(int sequence, long offset, int size) throws IOException {
         if (messageIndex != null) {
             updateMessageIndex(sequence, offset, size);
         }
@@ -380,18 +525,89 @@ public class FileStore implements MessageStore, Closeable {
         if (syncWrites) {
             headerFileOutputStream.getFD().sync();
         }
-        messageFileWriter.write(messageBytes);
-        return true;
+    }
+
+    private void writeIndexCheckpoint() throws IOException {
+        indexCheckpoint.write(headerFileOutputStream.getChannel().position(), messageIndex);
+    }
+
+    MessageIndexCheckpoint getIndexCheckpoint() {
+        return indexCheckpoint;
     }
 
     private void storeSenderSequenceNumber() throws IOException {
+        if (sequenceNumbers != null) {
+            storeMappedSequenceNumbers();
+            return;
+        }
         senderSequenceNumberFile.seek(0);
         senderSequenceNumberFile.writeUTF("" + cache.getNextSenderMsgSeqNum());
+        if (groupCommitter != null) {
+            lastCommitTicket = groupCommitter.commit(senderSequenceNumberFile.getFD());
+        }
     }
 
     private void storeTargetSequenceNumber() throws IOException {
+        if (sequenceNumbers != null) {
+            storeMappedSequenceNumbers();
+            return;
+        }
         targetSequenceNumberFile.seek(0);
         targetSequenceNumberFile.writeUTF("" + cache.getNextTargetMsgSeqNum());
+        if (groupCommitter != null) {
+            lastCommitTicket = groupCommitter.commit(targetSequenceNumberFile.getFD());
+        }
+    }
+
+    private void storeMappedSequenceNumbers() throws IOException {
+        sequenceNumbers.set(cache.getNextSenderMsgSeqNum(), cache.getNextTargetMsgSeqNum());
+        if (syncWrites) {
+            sequenceNumbers.force();
+        } else if (groupCommitter != null) {
+            lastCommitTicket = groupCommitter.commit(sequenceNumbers.getFD());
+        }
+    }
+
+    /**
+     * Waits for the group commit of the last write if group commit is enabled. Otherwise the
+     * files are synced now unless every write is synced anyway.
+     */
+    @Override
+    public void awaitDurable() throws IOException {
+        if (groupCommitter != null) {
+            groupCommitter.await(lastCommitTicket);
+        } else if (!syncWrites) {
+            headerFileOutputStream.getFD().sync();
+            if (compressedMessageFile != null) {
+                compressedMessageFile.sync();
+            } else {
+                messageFileWriter.getFD().sync();
+            }
+            if (sequenceNumbers != null) {
+                sequenceNumbers.force();
+            } else {
+                senderSequenceNumberFile.getFD().sync();
+                targetSequenceNumberFile.getFD().sync();
+            }
+        }
+    }
+
+    @Override
+    public long getDurableTicket() {
+        return groupCommitter != null ? lastCommitTicket : 0;
+    }
+
+    /**
+     * Waits for the group commit of the given ticket if group commit is enabled, otherwise
+     * like {@link #awaitDurable()}.
+     */
+    @Override
+    public void awaitDurable(long ticket) throws IOException {
+        if (groupCommitter != null) {
+            groupCommitter.await(ticket);
+        } else {
+            awaitDurable();
+        }
     }
 
     /*
@@ -19,6 +19,8 @@
 
 package quickfix;
 
+import java.io.Closeable;
+
 /**
  * Creates a message store that stores messages in a file.
  *
@@ -26,7 +28,7 @@ package quickfix;
  * If you upgrading from the QuickFIX JNI, you must delete your old session
  * state files.)
  */
-public class FileStoreFactory implements MessageStoreFactory {
+public class FileStoreFactory implements MessageStoreFactory, Closeable {
 
     /**
      * File path for writing the message store.
@@ -48,8 +50,64 @@ public class FileStoreFactory implements MessageStoreFactory {
      */
     public static final String SETTING_FILE_STORE_MAX_CACHED_MSGS = "FileStoreMaxCachedMsgs";
 
+    /**
+     * Boolean option for syncing the files of all stores created by the factory
+     * in groups instead of syncing on every write. Takes precedence over FileStoreSync.
+     * Must be set in the default section.
+     */
+    public static final String SETTING_FILE_STORE_GROUP_COMMIT = "FileStoreGroupCommit";
+
+    /**
+     * Maximum time in milliseconds a write waits for other writes before the group is
+     * synced. Default is 2.
+     */
+    public static final String SETTING_FILE_STORE_GROUP_COMMIT_INTERVAL = "FileStoreGroupCommitInterval";
+
+    /**
+     * Number of pending writes which triggers a group sync before the interval has
+     * elapsed. Default is 64.
+     */
+    public static final String SETTING_FILE_STORE_GROUP_COMMIT_BATCH_SIZE = "FileStoreGroupCommitBatchSize";
+
+    /**
+     * Boolean option for keeping the sequence numbers in a memory-mapped file which is
+     * updated without a system call. The file is written back by the operating system and
+     * forced to the disk on every write with FileStoreSync, with the group commit with
+     * FileStoreGroupCommit or when the session waits for durability with DurableBeforeSend.
+     * On first use the sequence numbers of the existing sequence number files are taken over.
+     */
+    public static final String SETTING_FILE_STORE_MAPPED_SEQ_NUMS = "FileStoreMappedSeqNums";
+
+    /**
+     * Number of stored messages after which the in-memory message index is written to a
+     * checkpoint file next to the header file. On startup the index is loaded from the
+     * checkpoint and only the header records written after it are read. 0 disables the
+     * checkpoints. Default is 10000.
+     */
+    public static final String SETTING_FILE_STORE_INDEX_CHECKPOINT_INTERVAL = "FileStoreIndexCheckpointInterval";
+
+    public static final int DEFAULT_INDEX_CHECKPOINT_INTERVAL = 10000;
+
+    /**
+     * Store the message bodies of the FileStore in compressed blocks. The compressed files
+     * are separate from the uncompressed ones, so messages stored before this setting was
+     * changed are not found anymore.
+     * Valid values are "Y" or "N". Default is "N".
+     */
+    public static final String SETTING_FILE_STORE_COMPRESSION = "FileStoreCompression";
+
+    /**
+     * Uncompressed size in bytes of the blocks when FileStoreCompression is enabled.
+     * Default is 65536, the maximum is 1048576.
+     */
+    public static final String SETTING_FILE_STORE_COMPRESSION_BLOCK_SIZE = "FileStoreCompressionBlockSize";
+
+    public static final int DEFAULT_COMPRESSION_BLOCK_SIZE = 64 * 1024;
+
     protected final SessionSettings settings;
 
+    private FileSyncGroupCommitter groupCommitter;
+
     /**
      * Create the factory with configuration in session settings.
      *
@@ -77,9 +135,55 @@ public class FileStoreFactory implements MessageStoreFactory {
                     maxCachedMsgs = (int) maxCachedMsgsSetting;
                 }
             }
-            return new FileStore(settings.getString(sessionID, FileStoreFactory.SETTING_FILE_STORE_PATH), sessionID, syncWrites, maxCachedMsgs);
+            return new FileStore(settings.getString(sessionID, FileStoreFactory.SETTING_FILE_STORE_PATH), sessionID,
+                    syncWrites, maxCachedMsgs, getGroupCommitter(), isMappedSequenceNumbers(sessionID),
+                    getIndexCheckpointInterval(sessionID), getCompressionBlockSize(sessionID));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
+
+    boolean isMappedSequenceNumbers(SessionID sessionID) throws ConfigError, FieldConvertError {
+        return settings.getBoolOrDefault(sessionID, SETTING_FILE_STORE_MAPPED_SEQ_NUMS, false);
+    }
+
+    int getIndexCheckpointInterval(SessionID sessionID) throws ConfigError, FieldConvertError {
+        return (int) settings.getLongOrDefault(sessionID, SETTING_FILE_STORE_INDEX_CHECKPOINT_INTERVAL,
+                DEFAULT_INDEX_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * @return the uncompressed block size or 0 if compression is disabled
+     */
+    int getCompressionBlockSize(SessionID sessionID) throws ConfigError, FieldConvertError {
+        if (!settings.getBoolOrDefault(sessionID, SETTING_FILE_STORE_COMPRESSION, false)) {
+            return 0;
+        }
+        return (int) settings.getLongOrDefault(sessionID, SETTING_FILE_STORE_COMPRESSION_BLOCK_SIZE,
+                DEFAULT_COMPRESSION_BLOCK_SIZE);
+    }
+
+    /**
+     * @return the group committer shared by the stores of this factory or null if group
+     * commit is not enabled
+     */
+    synchronized FileSyncGroupCommitter getGroupCommitter() throws ConfigError, FieldConvertError {
+        if (groupCommitter == null && settings.getBoolOrDefault(SETTING_FILE_STORE_GROUP_COMMIT, false)) {
+            groupCommitter = new FileSyncGroupCommitter(
+                    settings.getLongOrDefault(SETTING_FILE_STORE_GROUP_COMMIT_INTERVAL, 2),
+                    (int) settings.getLongOrDefault(SETTING_FILE_STORE_GROUP_COMMIT_BATCH_SIZE, 64));
+        }
+        return groupCommitter;
+    }
+
+    /**
+     * Stops the group commit thread after syncing the pending writes. A later write of a store
+     * created by this factory starts it again.
+     */
+    @Override
+    public synchronized void close() {
+        if (groupCommitter != null) {
+            groupCommitter.close();
+        }
+    }
 }
@@ -0,0 +1,316 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Syncs the files written by file based message stores in groups. Stores register the files
+ * they have written to with {@link #commit(FileDescriptor...)} instead of syncing them on every
+ * write. A background thread syncs all registered files once the configured number of commits
+ * has accumulated or the configured interval has elapsed after the first pending commit.
+ * <p>
+ * One instance is shared by all stores created by a factory, so the writes of many sessions
+ * are made durable with a single sync per file and group. The background thread is started
+ * by the first commit and stopped by {@link #close()}, which the factory calls when it is
+ * closed.
+ * <p>
+ * A commit fails if one of its files could not be synced, including files which were closed
+ * before the group was synced, or if the background thread stopped before syncing it.
+ *
+ * @see FileStoreFactory#SETTING_FILE_STORE_GROUP_COMMIT
+ */
+final class FileSyncGroupCommitter implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileSyncGroupCommitter.class);
+
+    // older failed groups are merged, so a ticket is never reported as durable by mistake
+    private static final int MAX_FAILED_GROUPS = 1024;
+
+    private final long intervalNanos;
+    private final int batchSize;
+
+    private final Object lock = new Object();
+    // @GuardedBy(lock)
+    private List<Commit> pendingCommits = new ArrayList<>();
+    // @GuardedBy(lock)
+    private long requestedTicket;
+    // @GuardedBy(lock)
+    private long durableTicket;
+    // the failed groups by the ticket preceding them
+    // @GuardedBy(lock)
+    private final NavigableMap<Long, FailedGroup> failedGroups = new TreeMap<>();
+    // @GuardedBy(lock)
+    private Thread syncThread;
+    // @GuardedBy(lock)
+    private boolean closing;
+    // @GuardedBy(lock)
+    private long groupCount;
+
+    /**
+     * @param intervalMillis the maximum time a commit waits for other commits to join its group
+     * @param batchSize the number of commits which triggers a sync without waiting for the interval
+     */
+    FileSyncGroupCommitter(long intervalMillis, int batchSize) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervalMillis));
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Registers files which have been written to and need to be synced.
+     *
+     * @return the ticket to pass to {@link #await(long)}
+     */
+    long commit(FileDescriptor... files) {
+        synchronized (lock) {
+            final long ticket = ++requestedTicket;
+            pendingCommits.add(new Commit(ticket, files));
+            if (syncThread == null) {
+                closing = false;
+                syncThread = new Thread(this::syncLoop, "QFJ Store Group Commit");
+                syncThread.setDaemon(true);
+                syncThread.start();
+            }
+            lock.notifyAll();
+            return ticket;
+        }
+    }
+
+    /**
+     * Blocks until the group containing the given commit has been synced.
+     *
+     * @param ticket the ticket returned by {@link #commit(FileDescriptor...)}
+     * @throws IOException if the files of the commit could not be synced
+     */
+    void await(long ticket) throws IOException {
+        synchronized (lock) {
+            while (durableTicket < ticket) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for group commit");
+                }
+            }
+            final Map.Entry<Long, FailedGroup> failedGroup = failedGroups.lowerEntry(ticket);
+            if (failedGroup != null && failedGroup.getValue().contains(ticket)) {
+                throw new IOException("Group commit failed", failedGroup.getValue().failure);
+            }
+        }
+    }
+
+    /**
+     * @return the number of syncs done so far
+     */
+    long getGroupCount() {
+        synchronized (lock) {
+            return groupCount;
+        }
+    }
+
+    /**
+     * @return whether the background thread is running
+     */
+    boolean isRunning() {
+        synchronized (lock) {
+            return syncThread != null;
+        }
+    }
+
+    /**
+     * Syncs the pending commits and stops the background thread. A later commit starts a new
+     * thread.
+     */
+    @Override
+    public void close() {
+        final Thread thread;
+        synchronized (lock) {
+            thread = syncThread;
+            if (thread == null) {
+                return;
+            }
+            closing = true;
+            lock.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void syncLoop() {
+        IOException exitFailure = null;
+        try {
+            while (true) {
+                final List<Commit> commits;
+                final long fromTicket;
+                final long toTicket;
+                synchronized (lock) {
+                    while (requestedTicket == durableTicket) {
+                        if (closing) {
+                            syncThread = null;
+                            return;
+                        }
+                        lock.wait();
+                    }
+                    final long deadline = System.nanoTime() + intervalNanos;
+                    long remaining = intervalNanos;
+                    while (requestedTicket - durableTicket < batchSize && remaining > 0 && !closing) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                        remaining = deadline - System.nanoTime();
+                    }
+                    commits = pendingCommits;
+                    pendingCommits = new ArrayList<>();
+                    fromTicket = durableTicket;
+                    toTicket = requestedTicket;
+                }
+
+                final Map<FileDescriptor, IOException> failedFiles = syncFiles(commits);
+                final Set<Long> failedTickets = new HashSet<>();
+                IOException error = null;
+                for (Commit commit : commits) {
+                    for (FileDescriptor file : commit.files) {
+                        final IOException e = failedFiles.get(file);
+                        if (e != null) {
+                            failedTickets.add(commit.ticket);
+                            if (error == null) {
+                                error = e;
+                            }
+                            break;
+                        }
+                    }
+                }
+
+                synchronized (lock) {
+                    durableTicket = toTicket;
+                    groupCount++;
+                    if (error != null) {
+                        addFailedGroup(fromTicket, new FailedGroup(toTicket, error,
+                                failedTickets.size() == commits.size() ? null : failedTickets));
+                    }
+                    lock.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exitFailure = new InterruptedIOException("Group commit thread was interrupted");
+        } catch (RuntimeException | Error e) {
+            LOG.error("Group commit thread failed", e);
+            exitFailure = new IOException("Group commit thread failed", e);
+            throw e;
+        } finally {
+            synchronized (lock) {
+                if (syncThread == Thread.currentThread()) {
+                    // the waiters of the commits which were not synced are woken with an error
+                    if (requestedTicket != durableTicket) {
+                        addFailedGroup(durableTicket, new FailedGroup(requestedTicket, exitFailure, null));
+                        durableTicket = requestedTicket;
+                        pendingCommits = new ArrayList<>();
+                    }
+                    syncThread = null;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Syncs each file of the commits once.
+     *
+     * @return the files which could not be synced
+     */
+    private static Map<FileDescriptor, IOException> syncFiles(List<Commit> commits) {
+        final Set<FileDescriptor> files = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Commit commit : commits) {
+            Collections.addAll(files, commit.files);
+        }
+        final Map<FileDescriptor, IOException> failedFiles = new IdentityHashMap<>();
+        for (FileDescriptor file : files) {
+            if (!file.valid()) {
+                // the file of a store which was closed or reset in the meantime
+                failedFiles.put(file, new IOException("File was closed before it was synced"));
+                continue;
+            }
+            try {
+                file.sync();
+            } catch (IOException e) {
+                LOG.error("Group commit failed", e);
+                failedFiles.put(file, e);
+            }
+        }
+        return failedFiles;
+    }
+
+    // @GuardedBy(lock)
+    private void addFailedGroup(long fromTicket, FailedGroup failedGroup) {
+        failedGroups.put(fromTicket, failedGroup);
+        if (failedGroups.size() > MAX_FAILED_GROUPS) {
+            // the two oldest groups are merged, all tickets from the first to the second fail
+            final Map.Entry<Long, FailedGroup> oldest = failedGroups.pollFirstEntry();
+            final Map.Entry<Long, FailedGroup> next = failedGroups.pollFirstEntry();
+            failedGroups.put(oldest.getKey(), new FailedGroup(next.getValue().toTicket,
+                    next.getValue().failure, null));
+        }
+    }
+
+    private static final class Commit {
+        private final long ticket;
+        private final FileDescriptor[] files;
+
+        private Commit(long ticket, FileDescriptor[] files) {
+            this.ticket = ticket;
+            this.files = files;
+        }
+    }
+
+    private static final class FailedGroup {
+        private final long toTicket;
+        private final IOException failure;
+        // the failed tickets of the group, null if all of them failed
+        private final Set<Long> tickets;
+
+        private FailedGroup(long toTicket, IOException failure, Set<Long> tickets) {
+            this.toTicket = toTicket;
+            this.failure = failure;
+            this.tickets = tickets;
+        }
+
+        private boolean contains(long ticket) {
+            return ticket <= toTicket && (tickets == null || tickets.contains(ticket));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Reads the header file of {@link FileStore} and {@link CachedFileStore} for streaming
+ * reads of large sequence number ranges. Instead of the offsets and sizes of all messages
+ * in the range only a long per message is held in memory: the sequence number in the upper
+ * and the number of its header record in the lower 32 bits. The offset and size are read
+ * again when the message is read.
+ */
+final class HeaderFileReader implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long[] NO_RECORDS = new long[0];
+
+    private final FileChannel channel;
+    private final long length;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(MessageIndexCheckpoint.HEADER_RECORD_SIZE);
+
+    HeaderFileReader(File headerFile) throws IOException {
+        if (headerFile.exists()) {
+            channel = FileChannel.open(headerFile.toPath(), StandardOpenOption.READ);
+            // records appended from now on are not read
+            length = channel.size() - channel.size() % MessageIndexCheckpoint.HEADER_RECORD_SIZE;
+        } else {
+            channel = null;
+            length = 0;
+        }
+    }
+
+    /**
+     * Finds the header records of the sequence numbers in the range.
+     *
+     * @param skip sequence numbers which are not needed
+     * @param lastWins whether the last or the first record of a sequence number stored
+     *                 more than once is returned
+     * @return one record per sequence number, in sequence number order
+     */
+    long[] findRecords(int startSequence, int endSequence, IntPredicate skip, boolean lastWins)
+            throws IOException {
+        if (channel == null) {
+            return NO_RECORDS;
+        }
+        long[] records = new long[64];
+        int count = 0;
+        long recordNumber = 0;
+        final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        for (long position = 0; position < length; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - position));
+            readFully(buffer, position);
+            position += buffer.limit();
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                final int sequence = buffer.getInt();
+                buffer.position(buffer.position() + 12);
+                if (sequence >= startSequence && sequence <= endSequence && !skip.test(sequence)) {
+                    if (count == records.length) {
+                        records = Arrays.copyOf(records, count * 2);
+                    }
+                    records[count++] = ((long) sequence << 32) | recordNumber;
+                }
+                recordNumber++;
+            }
+        }
+        Arrays.sort(records, 0, count);
+        // keep one record per sequence number
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique > 0 && sequence(records[unique - 1]) == sequence(records[i])) {
+                if (lastWins) {
+                    records[unique - 1] = records[i];
+                }
+            } else {
+                records[unique++] = records[i];
+            }
+        }
+        return Arrays.copyOf(records, unique);
+    }
+
+    static int sequence(long record) {
+        return (int) (record >> 32);
+    }
+
+    /**
+     * @return the offset and size of the message of a record returned by findRecords
+     */
+    long[] readOffsetAndSize(long record) throws IOException {
+        recordBuffer.clear();
+        readFully(recordBuffer, (record & 0xffffffffL) * MessageIndexCheckpoint.HEADER_RECORD_SIZE);
+        return new long[]{recordBuffer.getLong(4), recordBuffer.getInt(12)};
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Header file truncated while reading");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -23,11 +23,24 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static quickfix.JdbcSetting.SETTING_JDBC_LOG_BATCH_MODE;
+import static quickfix.JdbcSetting.SETTING_JDBC_LOG_BATCH_SIZE;
 import static quickfix.JdbcSetting.SETTING_JDBC_LOG_HEARTBEATS;
+import static quickfix.JdbcSetting.SETTING_JDBC_LOG_MAX_PENDING_RECORDS;
 import static quickfix.JdbcSetting.SETTING_JDBC_SESSION_ID_DEFAULT_PROPERTY_VALUE;
 import static quickfix.JdbcSetting.SETTING_LOG_EVENT_TABLE;
 import static quickfix.JdbcSetting.SETTING_LOG_INCOMING_TABLE;
@@ -40,6 +53,10 @@ import static quickfix.JdbcUtil.getIDWhereClause;
 class JdbcLog extends AbstractLog {
     private static final String DEFAULT_MESSAGES_LOG_TABLE = "messages_log";
     private static final String DEFAULT_EVENT_LOG_TABLE = "event_log";
+    static final int DEFAULT_BATCH_SIZE = 100;
+    static final int DEFAULT_MAX_PENDING_RECORDS = 100000;
+    // time after a failed batch until the database is tried again
+    private static final long RETRY_INTERVAL = 1000L;
     private final String outgoingMessagesTableName;
     private final String incomingMessagesTableName;
     private final String eventTableName;
@@ -54,8 +71,47 @@ class JdbcLog extends AbstractLog {
     private final Map<String, String> insertItemSqlCache = new HashMap<>();
     private final Map<String, String> deleteItemsSqlCache = new HashMap<>();
 
+    private static final class Record {
+        private final String tableName;
+        private final long time;
+        private final String text;
+
+        private Record(String tableName, long time, String text) {
+            this.tableName = tableName;
+            this.time = time;
+            this.text = text;
+        }
+    }
+
+    // batch mode, null if records are inserted on the logging thread
+    private final JdbcLogBatchWriter batchWriter;
+    private final int batchSize;
+    private final int maxPendingRecords;
+    private final Queue<Record> pendingRecords = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedBatchCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private volatile boolean closed;
+    private final Object batchLock = new Object();
+    // @GuardedBy(batchLock)
+    private long retryTime;
+    // @GuardedBy(batchLock)
+    private boolean failing;
+    // @GuardedBy(batchLock)
+    private boolean rejecting;
+
     public JdbcLog(SessionSettings settings, SessionID sessionID, DataSource ds)
             throws SQLException, ConfigError, FieldConvertError {
+        this(settings, sessionID, ds, null);
+    }
+
+    /**
+     * @param batchWriter the writer of the factory which inserts the records in batch mode
+     */
+    JdbcLog(SessionSettings settings, SessionID sessionID, DataSource ds, JdbcLogBatchWriter batchWriter)
+            throws SQLException, ConfigError, FieldConvertError {
         this.sessionID = sessionID;
         dataSource = ds == null
                 ? JdbcUtil.getDataSource(settings, sessionID)
@@ -96,6 +152,19 @@ class JdbcLog extends AbstractLog {
                 outgoingMessagesTableName);
 
         createCachedSql();
+
+        final boolean batchMode = batchWriter != null && settings.isSetting(sessionID, SETTING_JDBC_LOG_BATCH_MODE)
+                && settings.getBool(sessionID, SETTING_JDBC_LOG_BATCH_MODE);
+        this.batchWriter = batchMode ? batchWriter : null;
+        batchSize = settings.isSetting(sessionID, SETTING_JDBC_LOG_BATCH_SIZE)
+                ? (int) settings.getLong(sessionID, SETTING_JDBC_LOG_BATCH_SIZE)
+                : DEFAULT_BATCH_SIZE;
+        maxPendingRecords = settings.isSetting(sessionID, SETTING_JDBC_LOG_MAX_PENDING_RECORDS)
+                ? (int) settings.getLong(sessionID, SETTING_JDBC_LOG_MAX_PENDING_RECORDS)
+                : DEFAULT_MAX_PENDING_RECORDS;
+        if (batchMode) {
+            batchWriter.register(this);
+        }
     }
 
     private void createCachedSql() {
@@ -148,6 +217,10 @@ class JdbcLog extends AbstractLog {
      * @param value
      */
     private void insert(String tableName, String value) {
+        if (batchWriter != null && batchWriter.isRunning() && !closed) {
+            enqueue(tableName, value);
+            return;
+        }
         Connection connection = null;
         PreparedStatement insert = null;
         if (recursiveException != null) {
@@ -173,10 +246,257 @@ class JdbcLog extends AbstractLog {
         }
     }
 
+    private void enqueue(String tableName, String value) {
+        int pending;
+        do {
+            pending = pendingCount.get();
+            if (pending >= maxPendingRecords) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+        } while (!pendingCount.compareAndSet(pending, pending + 1));
+        pendingRecords.add(new Record(tableName, SystemTime.currentTimeMillis(), value));
+        if (!batchWriter.isRunning() || closed) {
+            // the writer stopped or the log was closed after the record was accepted
+            writeBatches(true);
+        } else if (pending + 1 == batchSize) {
+            batchWriter.signal();
+        }
+    }
+
+    /**
+     * Inserts the pending records in batches. When a batch fails because the database is
+     * unavailable, the records stay pending and the database is not tried again for a
+     * second unless <code>retryNow</code> is set. When the database rejects a batch for
+     * another reason, its records are inserted one by one and the rejected records are
+     * dropped.
+     */
+    void writeBatches(boolean retryNow) {
+        synchronized (batchLock) {
+            if (!retryNow && retryTime > System.currentTimeMillis()) {
+                return;
+            }
+            while (!pendingRecords.isEmpty()) {
+                final List<Record> batch = new ArrayList<>(batchSize);
+                final Iterator<Record> records = pendingRecords.iterator();
+                while (records.hasNext() && batch.size() < batchSize) {
+                    batch.add(records.next());
+                }
+                try {
+                    if (executeBatch(batch)) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            pendingRecords.poll();
+                        }
+                        pendingCount.addAndGet(-batch.size());
+                        writtenCount.addAndGet(batch.size());
+                        rejecting = false;
+                    } else {
+                        insertRecords(batch);
+                    }
+                } catch (SQLException e) {
+                    failedBatchCount.incrementAndGet();
+                    retryTime = System.currentTimeMillis() + RETRY_INTERVAL;
+                    if (!failing) {
+                        // logged once per failure, the event is buffered as well
+                        failing = true;
+                        LogUtil.logThrowable(sessionID, "JdbcLog could not insert " + batch.size()
+                                + " records, they are kept until the database is available: " + e.getMessage(), e);
+                    }
+                    return;
+                }
+                failing = false;
+            }
+        }
+    }
+
+    /**
+     * @return false if the database rejected the batch, e.g. because of a record which
+     * does not fit its table
+     * @throws SQLException if the database is unavailable
+     */
+    private boolean executeBatch(List<Record> batch) throws SQLException {
+        final Connection connection = dataSource.getConnection();
+        final Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+        try {
+            connection.setAutoCommit(false);
+            for (Record record : batch) {
+                prepareInsert(connection, statements, record).addBatch();
+            }
+            for (PreparedStatement insert : statements.values()) {
+                insert.executeBatch();
+            }
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            if (isTransient(e)) {
+                throw e;
+            }
+            return false;
+        } finally {
+            closeStatements(statements);
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                // the connection is closed anyway
+            }
+            JdbcUtil.close(sessionID, connection);
+        }
+    }
+
+    /**
+     * Inserts the records of a rejected batch one by one. The records are removed from the
+     * pending records as they are inserted or rejected.
+     *
+     * @throws SQLException if the database is unavailable
+     */
+    private void insertRecords(List<Record> batch) throws SQLException {
+        final Connection connection = dataSource.getConnection();
+        final Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+        try {
+            for (Record record : batch) {
+                try {
+                    prepareInsert(connection, statements, record).executeUpdate();
+                    writtenCount.incrementAndGet();
+                } catch (SQLException e) {
+                    if (isTransient(e)) {
+                        throw e;
+                    }
+                    rejectedCount.incrementAndGet();
+                    if (!rejecting) {
+                        // logged once until a batch is inserted, the event may be rejected as well
+                        rejecting = true;
+                        LogUtil.logThrowable(sessionID, "JdbcLog dropped a record of " + record.tableName
+                                + " which the database rejected: " + e.getMessage(), e);
+                    }
+                }
+                pendingRecords.poll();
+                pendingCount.decrementAndGet();
+            }
+        } finally {
+            closeStatements(statements);
+            JdbcUtil.close(sessionID, connection);
+        }
+    }
+
+    private PreparedStatement prepareInsert(Connection connection, Map<String, PreparedStatement> statements,
+            Record record) throws SQLException {
+        PreparedStatement insert = statements.get(record.tableName);
+        if (insert == null) {
+            insert = connection.prepareStatement(getInsertItemSql(record.tableName));
+            statements.put(record.tableName, insert);
+        }
+        insert.setTimestamp(1, new Timestamp(record.time));
+        int offset = setSessionIdParameters(insert, 2);
+        insert.setString(offset, record.text);
+        return insert;
+    }
+
+    private void closeStatements(Map<String, PreparedStatement> statements) {
+        for (PreparedStatement insert : statements.values()) {
+            JdbcUtil.close(sessionID, insert);
+        }
+    }
+
+    /**
+     * @return whether the error is expected to go away when the insert is retried, i.e.
+     * the connection to the database failed
+     */
+    private static boolean isTransient(SQLException e) {
+        final String sqlState = e.getSQLState();
+        return e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || sqlState != null && sqlState.startsWith("08");
+    }
+
+    /**
+     * Inserts the pending records of batch mode now.
+     */
+    public void flush() {
+        writeBatches(true);
+    }
+
     /**
-     * Deletes all rows from the log tables.
+     * Inserts the pending records of batch mode and unregisters the log from the writer of
+     * its factory. Records which can not be inserted because the database is unavailable
+     * are dropped. Records logged afterwards are inserted on the logging thread.
+     */
+    @Override
+    public void close() {
+        if (batchWriter == null || closed) {
+            return;
+        }
+        closed = true;
+        synchronized (batchLock) {
+            writeBatches(true);
+            int discarded = 0;
+            while (pendingRecords.poll() != null) {
+                discarded++;
+            }
+            pendingCount.addAndGet(-discarded);
+            droppedCount.addAndGet(discarded);
+        }
+        batchWriter.unregister(this);
+    }
+
+    /**
+     * @return the number of records of batch mode which have not been inserted yet
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return the number of records inserted in batch mode
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return the number of records dropped in batch mode because too many were pending
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the number of batches which failed, e.g. because the database was unavailable
+     */
+    public long getFailedBatchCount() {
+        return failedBatchCount.get();
+    }
+
+    /**
+     * @return the number of records of batch mode which were dropped because the database
+     * rejected them
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Deletes all rows from the log tables. Pending records of batch mode are discarded.
      */
     public void clear() {
+        if (batchWriter != null) {
+            synchronized (batchLock) {
+                int discarded = 0;
+                while (pendingRecords.poll() != null) {
+                    discarded++;
+                }
+                pendingCount.addAndGet(-discarded);
+                clearTables();
+            }
+        } else {
+            clearTables();
+        }
+    }
+
+    private void clearTables() {
         clearTable(eventTableName);
         clearTable(incomingMessagesTableName);
         if (!incomingMessagesTableName.equals(outgoingMessagesTableName)) {
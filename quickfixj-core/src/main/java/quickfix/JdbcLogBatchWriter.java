@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background thread of a {@link JdbcLogFactory} which inserts the pending records of the
+ * batched {@link JdbcLog}s. It wakes up when a log has a full batch, or after the linger
+ * time, and then writes all pending records.
+ */
+final class JdbcLogBatchWriter {
+
+    private final List<JdbcLog> logs = new CopyOnWriteArrayList<>();
+    private final long lingerNanos;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * @param lingerMillis the maximum time a record waits for its batch to fill
+     */
+    JdbcLogBatchWriter(long lingerMillis) {
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, lingerMillis));
+        thread = new Thread(this::run, "QFJ JdbcLog Writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void register(JdbcLog log) {
+        logs.add(log);
+    }
+
+    void unregister(JdbcLog log) {
+        logs.remove(log);
+    }
+
+    /**
+     * Wakes up the writer because a batch is full.
+     */
+    void signal() {
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(this, lingerNanos);
+            for (JdbcLog log : logs) {
+                log.writeBatches(false);
+            }
+        }
+        for (JdbcLog log : logs) {
+            log.writeBatches(true);
+        }
+    }
+
+    List<JdbcLog> getLogs() {
+        return logs;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Writes the pending records and stops the thread. Records logged afterwards are
+     * inserted on the logging thread.
+     */
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -20,13 +20,20 @@
 package quickfix;
 
 import javax.sql.DataSource;
+import java.io.Closeable;
+
+import static quickfix.JdbcSetting.SETTING_JDBC_LOG_BATCH_LINGER;
+import static quickfix.JdbcSetting.SETTING_JDBC_LOG_BATCH_MODE;
 
 /**
  * Creates a generic JDBC logger.
  */
-public class JdbcLogFactory implements LogFactory {
+public class JdbcLogFactory implements LogFactory, Closeable {
+    static final long DEFAULT_BATCH_LINGER = 100;
+
     private final SessionSettings settings;
     private DataSource dataSource;
+    private JdbcLogBatchWriter batchWriter;
 
     /**
      * Create a JDBC logger.
@@ -35,12 +42,25 @@ public class JdbcLogFactory implements LogFactory {
      */
     public Log create(SessionID sessionID) {
         try {
-            return new JdbcLog(settings, sessionID, dataSource);
+            return new JdbcLog(settings, sessionID, dataSource, getBatchWriter(sessionID));
         } catch (Exception e) {
             throw new RuntimeError(e);
         }
     }
 
+    private synchronized JdbcLogBatchWriter getBatchWriter(SessionID sessionID)
+            throws ConfigError, FieldConvertError {
+        if (batchWriter == null && settings.isSetting(sessionID, SETTING_JDBC_LOG_BATCH_MODE)
+                && settings.getBool(sessionID, SETTING_JDBC_LOG_BATCH_MODE)) {
+            long linger = DEFAULT_BATCH_LINGER;
+            if (settings.isSetting(SETTING_JDBC_LOG_BATCH_LINGER)) {
+                linger = settings.getLong(SETTING_JDBC_LOG_BATCH_LINGER);
+            }
+            batchWriter = new JdbcLogBatchWriter(linger);
+        }
+        return batchWriter;
+    }
+
     /**
      * Create a factory using session settings.
      */
@@ -66,4 +86,77 @@ public class JdbcLogFactory implements LogFactory {
     public void setDataSource(DataSource dataSource) {
         this.dataSource = dataSource;
     }
+
+    /**
+     * @return the number of records of the open logs in batch mode which have not been
+     * inserted yet
+     */
+    public synchronized long getPendingCount() {
+        long count = 0;
+        if (batchWriter != null) {
+            for (JdbcLog log : batchWriter.getLogs()) {
+                count += log.getPendingCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of records inserted by the open logs in batch mode
+     */
+    public synchronized long getWrittenCount() {
+        long count = 0;
+        if (batchWriter != null) {
+            for (JdbcLog log : batchWriter.getLogs()) {
+                count += log.getWrittenCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of records dropped by the open logs in batch mode because too many
+     * were pending
+     */
+    public synchronized long getDroppedCount() {
+        long count = 0;
+        if (batchWriter != null) {
+            for (JdbcLog log : batchWriter.getLogs()) {
+                count += log.getDroppedCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of records dropped by the open logs in batch mode because the database
+     * rejected them
+     */
+    public synchronized long getRejectedCount() {
+        long count = 0;
+        if (batchWriter != null) {
+            for (JdbcLog log : batchWriter.getLogs()) {
+                count += log.getRejectedCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of logs in batch mode which have not been closed yet
+     */
+    synchronized int getLogCount() {
+        return batchWriter != null ? batchWriter.getLogs().size() : 0;
+    }
+
+    /**
+     * Inserts the pending records of batch mode and stops the background thread. Records
+     * logged afterwards are inserted on the logging thread.
+     */
+    @Override
+    public synchronized void close() {
+        if (batchWriter != null) {
+            batchWriter.stop();
+        }
+    }
 }
@@ -63,6 +63,29 @@ public class JdbcSetting {
      */
     public static final String SETTING_JDBC_STORE_SESSIONS_TABLE_NAME = "JdbcStoreSessionsTableName";
 
+    /**
+     * Keeps a dedicated connection with cached prepared statements per message store.
+     * Messages are inserted in JDBC batches. Sequence number updates are deferred to the
+     * same transaction, which is committed when the batch is full, on flush and when the
+     * session waits for the store to be durable (see {@link Session#SETTING_DURABLE_BEFORE_SEND}).
+     * On a crash the changes of the last batch can be lost. Default is "N".
+     */
+    public static final String SETTING_JDBC_STORE_BATCH_MODE = "JdbcStoreBatchMode";
+
+    /**
+     * Maximum number of messages and sequence number updates collected in a batch before
+     * it is committed. Default is 100.
+     */
+    public static final String SETTING_JDBC_STORE_BATCH_SIZE = "JdbcStoreBatchSize";
+
+    /**
+     * Statement used to insert or replace a message in a single round trip instead of
+     * an INSERT followed by an UPDATE when the INSERT fails. One of "MERGE" (SQL standard,
+     * e.g. HSQLDB, DB2, SQL Server), "ON_CONFLICT" (PostgreSQL, SQLite) or
+     * "ON_DUPLICATE_KEY" (MySQL, MariaDB). Not set by default.
+     */
+    public static final String SETTING_JDBC_STORE_UPSERT_DIALECT = "JdbcStoreUpsertDialect";
+
     /**
      * The JNDI name used to lookup a DataSource for the JDBC plugins.
      */
@@ -98,6 +121,31 @@ public class JdbcSetting {
      */
     public static final String SETTING_LOG_EVENT_TABLE = "JdbcLogEventTable";
 
+    /**
+     * Inserts the log records on a background thread of the log factory in JDBC batches
+     * instead of one INSERT per record on the session thread. Records are kept while the
+     * database is unavailable. A batch which the database rejects for another reason is
+     * inserted record by record, and the rejected records are dropped. Default is "N".
+     */
+    public static final String SETTING_JDBC_LOG_BATCH_MODE = "JdbcLogBatchMode";
+
+    /**
+     * Maximum number of log records inserted in one batch. Default is 100.
+     */
+    public static final String SETTING_JDBC_LOG_BATCH_SIZE = "JdbcLogBatchSize";
+
+    /**
+     * Maximum time in milliseconds a log record waits for its batch to fill. Read from the
+     * default section. Default is 100.
+     */
+    public static final String SETTING_JDBC_LOG_BATCH_LINGER = "JdbcLogBatchLinger";
+
+    /**
+     * Maximum number of log records of a session buffered in batch mode, e.g. while the
+     * database is unavailable. Further records are dropped. Default is 100000.
+     */
+    public static final String SETTING_JDBC_LOG_MAX_PENDING_RECORDS = "JdbcLogMaxPendingRecords";
+
     /**
      * Specified the default value for session ID properties that have not been set. This
      * is primarily for Oracle which treats empty strings as SQL NULLs.
@@ -21,18 +21,34 @@ package quickfix;
 
 import static quickfix.JdbcSetting.*;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
 
 import javax.sql.DataSource;
 
-class JdbcStore implements MessageStore {
+class JdbcStore implements MessageStore, Closeable {
     private final static String DEFAULT_SESSION_TABLE_NAME = "sessions";
     private final static String DEFAULT_MESSAGE_TABLE_NAME = "messages";
+    private final static int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * Statement used to insert or replace a message.
+     *
+     * @see JdbcSetting#SETTING_JDBC_STORE_UPSERT_DIALECT
+     */
+    enum UpsertDialect {
+        NONE, MERGE, ON_CONFLICT, ON_DUPLICATE_KEY
+    }
 
     private final MemoryStore cache = new MemoryStore();
     private final boolean extendedSessionIdSupported;
@@ -42,6 +58,29 @@ class JdbcStore implements MessageStore {
     private final String messageTableName;
     private final String defaultSessionIdPropertyValue;
     private final boolean persistMessages;
+    private final boolean batchMode;
+    private final int batchSize;
+    private final UpsertDialect upsertDialect;
+
+    // dedicated connection and statements of the batch mode, the pending messages and
+    // sequence numbers are kept until they are committed
+    private final Object batchLock = new Object();
+    // @GuardedBy(batchLock)
+    private Connection batchConnection;
+    // @GuardedBy(batchLock)
+    private final Map<String, PreparedStatement> batchStatements = new HashMap<>();
+    // @GuardedBy(batchLock)
+    private final List<Integer> batchSequences = new ArrayList<>();
+    // @GuardedBy(batchLock)
+    private final List<String> batchMessages = new ArrayList<>();
+    // sequence numbers written with the next batch, 0 if unchanged
+    // @GuardedBy(batchLock)
+    private int batchSenderMsgSeqNum;
+    // @GuardedBy(batchLock)
+    private int batchTargetMsgSeqNum;
+    // messages and sequence number updates in the batch
+    // @GuardedBy(batchLock)
+    private int batchUpdateCount;
 
     private String SQL_UPDATE_INCOMING_SEQNUM;
     private String SQL_UPDATE_OUTGOING_SEQNUM;
@@ -49,6 +88,7 @@ class JdbcStore implements MessageStore {
     private String SQL_GET_SEQNUMS;
     private String SQL_UPDATE_MESSAGE;
     private String SQL_INSERT_MESSAGE;
+    private String SQL_UPSERT_MESSAGE;
     private String SQL_GET_MESSAGES;
     private String SQL_UPDATE_SESSION;
     private String SQL_DELETE_MESSAGES;
@@ -69,6 +109,13 @@ class JdbcStore implements MessageStore {
         persistMessages = !settings.isSetting(sessionID, Session.SETTING_PERSIST_MESSAGES) ||
             settings.getBool(sessionID, Session.SETTING_PERSIST_MESSAGES);
 
+        batchMode = settings.isSetting(sessionID, SETTING_JDBC_STORE_BATCH_MODE)
+                && settings.getBool(sessionID, SETTING_JDBC_STORE_BATCH_MODE);
+        batchSize = settings.isSetting(sessionID, SETTING_JDBC_STORE_BATCH_SIZE)
+                ? (int) settings.getLong(sessionID, SETTING_JDBC_STORE_BATCH_SIZE)
+                : DEFAULT_BATCH_SIZE;
+        upsertDialect = getUpsertDialect(settings, sessionID);
+
         dataSource = ds == null ? JdbcUtil.getDataSource(settings, sessionID) : ds;
 
         // One table is sampled for the extended session ID columns. Be sure
@@ -97,6 +144,18 @@ class JdbcStore implements MessageStore {
         }
     }
 
+    private static UpsertDialect getUpsertDialect(SessionSettings settings, SessionID sessionID) throws ConfigError {
+        if (!settings.isSetting(sessionID, SETTING_JDBC_STORE_UPSERT_DIALECT)) {
+            return UpsertDialect.NONE;
+        }
+        final String dialect = settings.getString(sessionID, SETTING_JDBC_STORE_UPSERT_DIALECT);
+        try {
+            return UpsertDialect.valueOf(dialect.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ConfigError("Invalid " + SETTING_JDBC_STORE_UPSERT_DIALECT + ": " + dialect);
+        }
+    }
+
     public static String getUpdateIncomingSequenceNumberSql(String sessionTableName, String idWhereClause) {
         return "UPDATE " + sessionTableName + " SET incoming_seqnum=? WHERE " + idWhereClause;
     }
@@ -121,6 +180,32 @@ class JdbcStore implements MessageStore {
         return "INSERT INTO " + messageTableName + " (" + idColumns + ", msgseqnum,message) VALUES (" + idPlaceholders + ",?,?)";
     }
 
+    public static String getUpsertMessageSql(UpsertDialect dialect, String messageTableName, String idColumns,
+            String idPlaceholders) {
+        switch (dialect) {
+            case MERGE:
+                StringBuilder condition = new StringBuilder();
+                StringBuilder values = new StringBuilder();
+                for (String column : (idColumns + ",msgseqnum").split(",")) {
+                    condition.append("m.").append(column).append("=v.").append(column).append(" and ");
+                    values.append("v.").append(column).append(',');
+                }
+                condition.setLength(condition.length() - " and ".length());
+                return "MERGE INTO " + messageTableName + " m USING (VALUES (" + idPlaceholders + ",?,?)) AS v ("
+                        + idColumns + ",msgseqnum,message) ON (" + condition + ") "
+                        + "WHEN MATCHED THEN UPDATE SET message=v.message "
+                        + "WHEN NOT MATCHED THEN INSERT (" + idColumns + ",msgseqnum,message) VALUES (" + values + "v.message)";
+            case ON_CONFLICT:
+                return getInsertMessageSql(messageTableName, idColumns, idPlaceholders)
+                        + " ON CONFLICT (" + idColumns + ",msgseqnum) DO UPDATE SET message=EXCLUDED.message";
+            case ON_DUPLICATE_KEY:
+                return getInsertMessageSql(messageTableName, idColumns, idPlaceholders)
+                        + " ON DUPLICATE KEY UPDATE message=VALUES(message)";
+            default:
+                return getInsertMessageSql(messageTableName, idColumns, idPlaceholders);
+        }
+    }
+
     public static String getMessagesSql(String messageTableName, String idWhereClause) {
         return "SELECT message FROM " + messageTableName + " WHERE " + idWhereClause + " and msgseqnum>=? and msgseqnum<=? " + "ORDER BY msgseqnum";
     }
@@ -144,6 +229,7 @@ class JdbcStore implements MessageStore {
         SQL_GET_SEQNUMS = getSequenceNumsSql(sessionTableName, idWhereClause);
         SQL_UPDATE_MESSAGE = getUpdateMessageSql(messageTableName, idWhereClause);
         SQL_INSERT_MESSAGE = getInsertMessageSql(messageTableName, idColumns, idPlaceholders);
+        SQL_UPSERT_MESSAGE = getUpsertMessageSql(upsertDialect, messageTableName, idColumns, idPlaceholders);
         SQL_GET_MESSAGES = getMessagesSql(messageTableName, idWhereClause);
         SQL_UPDATE_SESSION = getUpdateSessionSql(sessionTableName, idWhereClause);
         SQL_DELETE_MESSAGES = getDeleteMessagesSql(messageTableName, idWhereClause);
@@ -211,6 +297,13 @@ class JdbcStore implements MessageStore {
     }
 
     public void reset() throws IOException {
+        if (batchMode) {
+            synchronized (batchLock) {
+                // the pending batch is discarded
+                discardBatch();
+                closeBatchConnection(true);
+            }
+        }
         cache.reset();
         Connection connection = null;
         PreparedStatement deleteMessages = null;
@@ -241,6 +334,7 @@ class JdbcStore implements MessageStore {
 
     public void get(int startSequence, int endSequence, Collection<String> messages)
             throws IOException {
+        flush();
         Connection connection = null;
         PreparedStatement query = null;
         ResultSet rs = null;
@@ -265,10 +359,22 @@ class JdbcStore implements MessageStore {
     }
 
     public boolean set(int sequence, String message) throws IOException {
+        if (batchMode) {
+            addToBatch(sequence, message);
+            return true;
+        }
         Connection connection = null;
         PreparedStatement insert = null;
         try {
             connection = dataSource.getConnection();
+            if (upsertDialect != UpsertDialect.NONE) {
+                insert = connection.prepareStatement(SQL_UPSERT_MESSAGE);
+                int offset = setSessionIdParameters(insert, 1);
+                insert.setInt(offset++, sequence);
+                insert.setString(offset, message);
+                insert.execute();
+                return true;
+            }
             insert = connection.prepareStatement(SQL_INSERT_MESSAGE);
             int offset = setSessionIdParameters(insert, 1);
             insert.setInt(offset++, sequence);
@@ -299,11 +405,25 @@ class JdbcStore implements MessageStore {
 
     public void setNextSenderMsgSeqNum(int next) throws IOException {
         cache.setNextSenderMsgSeqNum(next);
+        if (batchMode) {
+            synchronized (batchLock) {
+                batchSenderMsgSeqNum = next;
+                sequenceNumberAddedToBatch();
+            }
+            return;
+        }
         storeSequenceNumber(SQL_UPDATE_OUTGOING_SEQNUM, next);
     }
 
     public void setNextTargetMsgSeqNum(int next) throws IOException {
         cache.setNextTargetMsgSeqNum(next);
+        if (batchMode) {
+            synchronized (batchLock) {
+                batchTargetMsgSeqNum = next;
+                sequenceNumberAddedToBatch();
+            }
+            return;
+        }
         storeSequenceNumber(SQL_UPDATE_INCOMING_SEQNUM, next);
     }
 
@@ -325,6 +445,7 @@ class JdbcStore implements MessageStore {
     }
 
     public void refresh() throws IOException {
+        flush();
         try {
             loadCache();
         } catch (SQLException e) {
@@ -332,6 +453,200 @@ class JdbcStore implements MessageStore {
         }
     }
 
+    /**
+     * Executes the pending batch of messages and sequence numbers in batch mode. If the
+     * batch can not be committed, it is kept and committed again by the next call.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (batchMode) {
+            synchronized (batchLock) {
+                try {
+                    commitBatch();
+                } catch (SQLException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes the pending batch in batch mode, so the messages and sequence numbers stored
+     * so far are committed.
+     */
+    @Override
+    public void awaitDurable() throws IOException {
+        flush();
+    }
+
+    /**
+     * Executes the pending batch and releases the dedicated connection of the batch mode.
+     */
+    @Override
+    public void close() throws IOException {
+        if (batchMode) {
+            synchronized (batchLock) {
+                try {
+                    flush();
+                } finally {
+                    closeBatchConnection(false);
+                }
+            }
+        }
+    }
+
+    private void addToBatch(int sequence, String message) throws IOException {
+        synchronized (batchLock) {
+            batchSequences.add(sequence);
+            batchMessages.add(message);
+            if (++batchUpdateCount >= batchSize) {
+                flush();
+            }
+        }
+    }
+
+    // @GuardedBy(batchLock)
+    private void sequenceNumberAddedToBatch() throws IOException {
+        if (++batchUpdateCount >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Commits the pending batch. If it fails, the batch is written again on a new
+     * connection. The batch is kept until it was committed.
+     */
+    // @GuardedBy(batchLock)
+    private void commitBatch() throws SQLException {
+        if (batchUpdateCount == 0) {
+            return;
+        }
+        try {
+            writeBatch();
+        } catch (SQLException e) {
+            closeBatchConnection(true);
+            try {
+                writeBatch();
+            } catch (SQLException retryException) {
+                closeBatchConnection(true);
+                retryException.addSuppressed(e);
+                throw retryException;
+            }
+        }
+        discardBatch();
+    }
+
+    // @GuardedBy(batchLock)
+    private void writeBatch() throws SQLException {
+        executeBatch();
+        // the sequence numbers are written after the messages in the same transaction
+        if (batchSenderMsgSeqNum != 0) {
+            updateSequenceNumber(SQL_UPDATE_OUTGOING_SEQNUM, batchSenderMsgSeqNum);
+        }
+        if (batchTargetMsgSeqNum != 0) {
+            updateSequenceNumber(SQL_UPDATE_INCOMING_SEQNUM, batchTargetMsgSeqNum);
+        }
+        batchConnection.commit();
+    }
+
+    // @GuardedBy(batchLock)
+    private void updateSequenceNumber(String sequenceUpdateSql, int sequence) throws SQLException {
+        final PreparedStatement update = getBatchStatement(sequenceUpdateSql);
+        update.setInt(1, sequence);
+        setSessionIdParameters(update, 2);
+        update.execute();
+    }
+
+    // @GuardedBy(batchLock)
+    private void executeBatch() throws SQLException {
+        if (batchSequences.isEmpty()) {
+            return;
+        }
+        final PreparedStatement insert = getBatchStatement(SQL_UPSERT_MESSAGE);
+        for (int i = 0; i < batchSequences.size(); i++) {
+            int offset = setSessionIdParameters(insert, 1);
+            insert.setInt(offset++, batchSequences.get(i));
+            insert.setString(offset, batchMessages.get(i));
+            insert.addBatch();
+        }
+        try {
+            insert.executeBatch();
+        } catch (BatchUpdateException e) {
+            if (upsertDialect != UpsertDialect.NONE) {
+                throw e;
+            }
+            // some messages were stored before (e.g. resent messages), store them one by one
+            batchConnection.rollback();
+            insert.clearBatch();
+            for (int i = 0; i < batchSequences.size(); i++) {
+                updateOrInsertMessage(batchSequences.get(i), batchMessages.get(i));
+            }
+        }
+    }
+
+    // @GuardedBy(batchLock)
+    private void updateOrInsertMessage(int sequence, String message) throws SQLException {
+        // update first so that no failed statement aborts the transaction
+        final PreparedStatement update = getBatchStatement(SQL_UPDATE_MESSAGE);
+        update.setString(1, message);
+        int offset = setSessionIdParameters(update, 2);
+        update.setInt(offset, sequence);
+        if (update.executeUpdate() == 0) {
+            final PreparedStatement insert = getBatchStatement(SQL_INSERT_MESSAGE);
+            offset = setSessionIdParameters(insert, 1);
+            insert.setInt(offset++, sequence);
+            insert.setString(offset, message);
+            insert.executeUpdate();
+        }
+    }
+
+    // @GuardedBy(batchLock)
+    private PreparedStatement getBatchStatement(String sql) throws SQLException {
+        if (batchConnection == null) {
+            batchConnection = dataSource.getConnection();
+            batchConnection.setAutoCommit(false);
+        }
+        PreparedStatement statement = batchStatements.get(sql);
+        if (statement == null) {
+            statement = batchConnection.prepareStatement(sql);
+            batchStatements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    // @GuardedBy(batchLock)
+    private void discardBatch() {
+        batchSequences.clear();
+        batchMessages.clear();
+        batchSenderMsgSeqNum = 0;
+        batchTargetMsgSeqNum = 0;
+        batchUpdateCount = 0;
+    }
+
+    // @GuardedBy(batchLock)
+    private void closeBatchConnection(boolean rollback) {
+        for (PreparedStatement statement : batchStatements.values()) {
+            JdbcUtil.close(sessionID, statement);
+        }
+        batchStatements.clear();
+        if (batchConnection != null) {
+            if (rollback) {
+                try {
+                    batchConnection.rollback();
+                } catch (SQLException e) {
+                    LogUtil.logThrowable(sessionID, "Rollback failed", e);
+                }
+            }
+            try {
+                batchConnection.setAutoCommit(true);
+            } catch (SQLException e) {
+                LogUtil.logThrowable(sessionID, e.getMessage(), e);
+            }
+            JdbcUtil.close(sessionID, batchConnection);
+            batchConnection = null;
+        }
+    }
+
     DataSource getDataSource() {
         return dataSource;
     }
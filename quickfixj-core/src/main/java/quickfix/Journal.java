@@ -0,0 +1,743 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the messages and sequence numbers of one or more sessions,
+ * split into segment files of a maximum size. Each record carries the index of the
+ * session it belongs to. The state of the sessions and the positions of their messages
+ * are kept in memory and rebuilt from the segments when the journal is opened.
+ * <p>
+ * Every segment starts with a checkpoint of all sessions, so the oldest segments can be
+ * deleted once none of their messages is referenced anymore, either because the
+ * sessions were reset or because the segments are older than the retention period.
+ * <p>
+ * A record consists of the length and CRC32 of its body, followed by the body: the
+ * record type, the session index and the type specific data. A torn record at the end
+ * of the last segment is truncated on open.
+ */
+final class Journal implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Journal.class);
+
+    private static final int SEGMENT_MAGIC = 0x51464a4a; // "QFJJ"
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int BODY_HEADER_SIZE = 5;
+
+    private static final int REPLAY_BUFFER_SIZE = 64 * 1024;
+
+    // sequence number, message
+    private static final byte MESSAGE = 1;
+    // next sender and target sequence numbers
+    private static final byte SEQUENCE_NUMBERS = 2;
+    // creation time, removes all messages of the session
+    private static final byte RESET = 3;
+    // creation time, next sender and target sequence numbers, session ID
+    private static final byte SESSION = 4;
+
+    private static final class Segment {
+        private final long number;
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final FileChannel channel;
+        private int liveMessages;
+
+        private Segment(long number, File file) throws IOException {
+            this.number = number;
+            this.file = file;
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            this.channel = randomAccessFile.getChannel();
+        }
+    }
+
+    /**
+     * Reads a segment front to back through a heap buffer which is refilled from the channel.
+     */
+    private static final class SegmentReader {
+        private final FileChannel channel;
+        private ByteBuffer buffer = (ByteBuffer) ByteBuffer.allocate(REPLAY_BUFFER_SIZE).limit(0);
+        // position in the segment of the first byte in the buffer
+        private long bufferPosition;
+
+        private SegmentReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * @return a buffer holding the bytes from position to position + length, valid until
+         * the next read
+         */
+        private ByteBuffer read(long position, int length) throws IOException {
+            int offset = (int) (position - bufferPosition);
+            if (position < bufferPosition || offset + (long) length > buffer.limit()) {
+                final ByteBuffer target = length > buffer.capacity()
+                        ? ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2))
+                        : buffer;
+                // the bytes already read from position on are kept
+                if (position >= bufferPosition && offset < buffer.limit()) {
+                    buffer.position(offset);
+                    if (target == buffer) {
+                        buffer.compact();
+                    } else {
+                        target.put(buffer);
+                    }
+                } else {
+                    target.clear();
+                }
+                buffer = target;
+                bufferPosition = position;
+                while (buffer.position() < length) {
+                    if (channel.read(buffer, bufferPosition + buffer.position()) < 0) {
+                        throw new EOFException("Unexpected end of journal segment at " + position);
+                    }
+                }
+                buffer.flip();
+                offset = 0;
+            }
+            return (ByteBuffer) buffer.duplicate().limit(offset + length).position(offset);
+        }
+    }
+
+    private static final class SessionEntry {
+        private final String sessionKey;
+        private long creationTime;
+        private int nextSenderMsgSeqNum = 1;
+        private int nextTargetMsgSeqNum = 1;
+        // sequence number -> segment number (high 32 bits) and offset of the record
+        private final NavigableMap<Integer, Long> index = new TreeMap<>();
+
+        private SessionEntry(String sessionKey, long creationTime) {
+            this.sessionKey = sessionKey;
+            this.creationTime = creationTime;
+        }
+    }
+
+    private final File directory;
+    private final long segmentSize;
+    private final boolean syncWrites;
+    private final FileSyncGroupCommitter groupCommitter;
+    private final boolean rollOnReset;
+
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    private final List<SessionEntry> sessions = new ArrayList<>();
+    private final Map<String, Integer> sessionIndexes = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+    private ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+    private Segment activeSegment;
+    private long writePosition;
+    private long checkpointEnd;
+    private long lastCommitTicket;
+    private long recoveryCount;
+
+    /**
+     * @param directory the directory of the segment files
+     * @param segmentSize the size after which a new segment is started
+     * @param syncWrites whether every record is synced to the disk
+     * @param groupCommitter syncs the segments in groups, or null
+     * @param rollOnReset whether a reset starts a new segment, so the previous ones can be deleted
+     */
+    Journal(File directory, long segmentSize, boolean syncWrites, FileSyncGroupCommitter groupCommitter,
+            boolean rollOnReset) throws IOException {
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncWrites = syncWrites && groupCommitter == null;
+        this.groupCommitter = groupCommitter;
+        this.rollOnReset = rollOnReset;
+        directory.mkdirs();
+        recover();
+    }
+
+    /**
+     * Closes the segments and rebuilds the state of the sessions from the segment files.
+     */
+    synchronized void recover() throws IOException {
+        closeSegments();
+        sessions.clear();
+        sessionIndexes.clear();
+        recoveryCount++;
+
+        for (Map.Entry<Long, File> entry : listSegmentFiles().entrySet()) {
+            final Segment segment = new Segment(entry.getKey(), entry.getValue());
+            segments.put(segment.number, segment);
+            final long end = replay(segment);
+            activeSegment = segment;
+            writePosition = end;
+        }
+        if (activeSegment == null) {
+            startSegment(1);
+        } else {
+            if (activeSegment.channel.size() > writePosition) {
+                LOG.warn("Truncating torn record at {} of {}", writePosition, activeSegment.file);
+                activeSegment.channel.truncate(writePosition);
+            }
+            checkpointEnd = SEGMENT_HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Rebuilds the state of the sessions if the segment files were changed by another journal
+     * instance, e.g. of a process which has taken over the sessions. Otherwise the state in
+     * memory is current and nothing is read.
+     */
+    synchronized void refresh() throws IOException {
+        if (activeSegment == null || !segments.keySet().equals(listSegmentFiles().keySet())
+                || activeSegment.channel.size() != writePosition) {
+            recover();
+        }
+    }
+
+    private NavigableMap<Long, File> listSegmentFiles() {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        final NavigableMap<Long, File> segmentFiles = new TreeMap<>();
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    final String name = file.getName();
+                    segmentFiles.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    LOG.warn("Ignoring unexpected file in journal directory: {}", file);
+                }
+            }
+        }
+        return segmentFiles;
+    }
+
+    private long replay(Segment segment) throws IOException {
+        final long size = segment.channel.size();
+        if (size < SEGMENT_HEADER_SIZE) {
+            writeSegmentHeader(segment);
+            return SEGMENT_HEADER_SIZE;
+        }
+        // the segment is read through a heap buffer instead of being mapped, so no mapping
+        // outlives the replay
+        final SegmentReader reader = new SegmentReader(segment.channel);
+        final ByteBuffer header = reader.read(0, SEGMENT_HEADER_SIZE);
+        if (header.getInt() != SEGMENT_MAGIC) {
+            throw new IOException("Invalid journal segment: " + segment.file);
+        }
+        final int version = header.getInt();
+        if (version != SEGMENT_VERSION) {
+            throw new IOException("Unsupported journal segment version " + version + ": " + segment.file);
+        }
+        int position = SEGMENT_HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= size) {
+            final ByteBuffer recordHeader = reader.read(position, RECORD_HEADER_SIZE);
+            final int length = recordHeader.getInt();
+            final int checksum = recordHeader.getInt();
+            if (length < BODY_HEADER_SIZE || position + RECORD_HEADER_SIZE + (long) length > size) {
+                break;
+            }
+            final ByteBuffer body = reader.read(position + RECORD_HEADER_SIZE, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            apply(body, toPosition(segment.number, position));
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private void apply(ByteBuffer body, long recordPosition) throws IOException {
+        final byte type = body.get();
+        final int sessionIndex = body.getInt();
+        if (type == SESSION) {
+            final long creationTime = body.getLong();
+            final int sender = body.getInt();
+            final int target = body.getInt();
+            final byte[] key = new byte[body.remaining()];
+            body.get(key);
+            SessionEntry session = sessionIndex < sessions.size() ? sessions.get(sessionIndex) : null;
+            if (session == null) {
+                session = new SessionEntry(new String(key, StandardCharsets.UTF_8), creationTime);
+                while (sessions.size() <= sessionIndex) {
+                    sessions.add(null);
+                }
+                sessions.set(sessionIndex, session);
+                sessionIndexes.put(session.sessionKey, sessionIndex);
+            }
+            session.creationTime = creationTime;
+            session.nextSenderMsgSeqNum = sender;
+            session.nextTargetMsgSeqNum = target;
+            return;
+        }
+        final SessionEntry session = sessionIndex < sessions.size() ? sessions.get(sessionIndex) : null;
+        if (session == null) {
+            throw new IOException("Journal record of unknown session " + sessionIndex + " in " + directory);
+        }
+        switch (type) {
+            case MESSAGE:
+                index(session, body.getInt(), recordPosition);
+                break;
+            case SEQUENCE_NUMBERS:
+                session.nextSenderMsgSeqNum = body.getInt();
+                session.nextTargetMsgSeqNum = body.getInt();
+                break;
+            case RESET:
+                clear(session);
+                session.creationTime = body.getLong();
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type + " in " + directory);
+        }
+    }
+
+    private static long toPosition(long segmentNumber, long offset) {
+        return segmentNumber << 32 | offset;
+    }
+
+    private void index(SessionEntry session, int sequence, long recordPosition) {
+        final Long previous = session.index.put(sequence, recordPosition);
+        if (previous != null) {
+            releaseMessage(previous);
+        }
+        segments.get(recordPosition >>> 32).liveMessages++;
+    }
+
+    private void clear(SessionEntry session) {
+        for (Long recordPosition : session.index.values()) {
+            releaseMessage(recordPosition);
+        }
+        session.index.clear();
+    }
+
+    private void releaseMessage(long recordPosition) {
+        final Segment segment = segments.get(recordPosition >>> 32);
+        if (segment != null) {
+            segment.liveMessages--;
+        }
+    }
+
+    /**
+     * Returns the index of the session, adding the session to the journal if it is not known yet.
+     */
+    synchronized int register(SessionID sessionID) throws IOException {
+        final String key = sessionID.toString();
+        final Integer existing = sessionIndexes.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final int sessionIndex = sessions.size();
+        final SessionEntry session = new SessionEntry(key, SystemTime.currentTimeMillis());
+        sessions.add(session);
+        sessionIndexes.put(key, sessionIndex);
+        writeSessionRecord(sessionIndex);
+        return sessionIndex;
+    }
+
+    synchronized void appendMessage(int sessionIndex, int sequence, String message) throws IOException {
+        final byte[] data = message.getBytes(CharsetSupport.getCharset());
+        final long recordPosition = append(startRecord(MESSAGE, sessionIndex, 4 + data.length).putInt(sequence)
+                .put(data));
+        index(sessions.get(sessionIndex), sequence, recordPosition);
+    }
+
+    synchronized void readMessages(int sessionIndex, int startSequence, int endSequence,
+            Collection<String> messages) throws IOException {
+        readMessages(sessionIndex, startSequence, endSequence, Integer.MAX_VALUE, messages);
+    }
+
+    /**
+     * Reads at most maxCount messages of the range.
+     *
+     * @return the sequence number of the last message read or 0 if there are no messages
+     * in the range
+     */
+    synchronized int readMessages(int sessionIndex, int startSequence, int endSequence, int maxCount,
+            Collection<String> messages) throws IOException {
+        int lastSequence = 0;
+        int count = 0;
+        for (Map.Entry<Integer, Long> entry : sessions.get(sessionIndex).index.subMap(startSequence, true,
+                endSequence, true).entrySet()) {
+            if (count++ == maxCount) {
+                break;
+            }
+            final ByteBuffer body = readRecordBody(entry.getValue());
+            final int messageOffset = BODY_HEADER_SIZE + 4;
+            messages.add(new String(body.array(), messageOffset, body.limit() - messageOffset,
+                    CharsetSupport.getCharset()));
+            lastSequence = entry.getKey();
+        }
+        return lastSequence;
+    }
+
+    private ByteBuffer readRecordBody(long recordPosition) throws IOException {
+        final FileChannel channel = segments.get(recordPosition >>> 32).channel;
+        final long offset = recordPosition & 0xffffffffL;
+        final int length = readFully(channel, offset, RECORD_HEADER_SIZE).getInt(0);
+        return readFully(channel, offset + RECORD_HEADER_SIZE, length);
+    }
+
+    private ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        if (readBuffer.capacity() < length) {
+            readBuffer = ByteBuffer.allocate(Math.max(length, readBuffer.capacity() * 2));
+        }
+        final ByteBuffer target = (ByteBuffer) readBuffer.clear().limit(length);
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new EOFException("Unexpected end of journal segment at " + position);
+            }
+        }
+        target.flip();
+        return target;
+    }
+
+    synchronized int getNextSenderMsgSeqNum(int sessionIndex) {
+        return sessions.get(sessionIndex).nextSenderMsgSeqNum;
+    }
+
+    synchronized int getNextTargetMsgSeqNum(int sessionIndex) {
+        return sessions.get(sessionIndex).nextTargetMsgSeqNum;
+    }
+
+    synchronized long getCreationTime(int sessionIndex) {
+        return sessions.get(sessionIndex).creationTime;
+    }
+
+    synchronized void setSequenceNumbers(int sessionIndex, int nextSenderMsgSeqNum, int nextTargetMsgSeqNum)
+            throws IOException {
+        final SessionEntry session = sessions.get(sessionIndex);
+        append(startRecord(SEQUENCE_NUMBERS, sessionIndex, 8).putInt(nextSenderMsgSeqNum)
+                .putInt(nextTargetMsgSeqNum));
+        session.nextSenderMsgSeqNum = nextSenderMsgSeqNum;
+        session.nextTargetMsgSeqNum = nextTargetMsgSeqNum;
+    }
+
+    synchronized void incrNextSenderMsgSeqNum(int sessionIndex) throws IOException {
+        final SessionEntry session = sessions.get(sessionIndex);
+        setSequenceNumbers(sessionIndex, session.nextSenderMsgSeqNum + 1, session.nextTargetMsgSeqNum);
+    }
+
+    synchronized void incrNextTargetMsgSeqNum(int sessionIndex) throws IOException {
+        final SessionEntry session = sessions.get(sessionIndex);
+        setSequenceNumbers(sessionIndex, session.nextSenderMsgSeqNum, session.nextTargetMsgSeqNum + 1);
+    }
+
+    /**
+     * Removes the messages of the session and sets its sequence numbers back to 1.
+     */
+    synchronized void reset(int sessionIndex) throws IOException {
+        final SessionEntry session = sessions.get(sessionIndex);
+        final long creationTime = SystemTime.currentTimeMillis();
+        append(startRecord(RESET, sessionIndex, 8).putLong(creationTime));
+        clear(session);
+        session.creationTime = creationTime;
+        session.nextSenderMsgSeqNum = 1;
+        session.nextTargetMsgSeqNum = 1;
+        if (rollOnReset) {
+            roll();
+        }
+    }
+
+    /**
+     * Deletes the oldest segments which contain no referenced messages or which were last
+     * written before the retention period. Messages of deleted segments are removed from the
+     * indexes. The active segment is never deleted.
+     *
+     * @param retentionMillis the retention period, or 0 to keep segments with referenced messages
+     * @return the number of deleted segments
+     */
+    synchronized int deleteObsoleteSegments(long retentionMillis) {
+        final long expiry = SystemTime.currentTimeMillis() - retentionMillis;
+        int deleted = 0;
+        final Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            final Segment segment = iterator.next();
+            if (segment == activeSegment) {
+                break;
+            }
+            if (segment.liveMessages > 0) {
+                if (retentionMillis <= 0 || segment.file.lastModified() >= expiry) {
+                    break;
+                }
+                for (SessionEntry session : sessions) {
+                    if (session != null) {
+                        session.index.values().removeIf(position -> position >>> 32 == segment.number);
+                    }
+                }
+            }
+            iterator.remove();
+            closeQuietly(segment);
+            if (!segment.file.delete()) {
+                LOG.warn("Could not delete journal segment {}", segment.file);
+            }
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Copies the messages still referenced by the sessions to new segments and deletes all
+     * previous segments. If the compaction is interrupted by a crash, the copies are replayed
+     * after the originals, so no message is lost.
+     *
+     * @return the number of copied messages
+     */
+    synchronized int compact() throws IOException {
+        final long lastOldSegment = activeSegment.number;
+        roll();
+        int copied = 0;
+        for (int i = 0; i < sessions.size(); i++) {
+            final SessionEntry session = sessions.get(i);
+            if (session == null) {
+                continue;
+            }
+            for (Map.Entry<Integer, Long> entry : session.index.entrySet()) {
+                final ByteBuffer body = readRecordBody(entry.getValue());
+                body.position(BODY_HEADER_SIZE);
+                final ByteBuffer record = startRecord(MESSAGE, i, body.remaining()).put(body);
+                final long recordPosition = append(record);
+                releaseMessage(entry.getValue());
+                entry.setValue(recordPosition);
+                segments.get(recordPosition >>> 32).liveMessages++;
+                copied++;
+            }
+        }
+        // the copies must be on the disk before the originals are deleted
+        activeSegment.channel.force(false);
+        final Iterator<Segment> iterator = segments.headMap(lastOldSegment, true).values().iterator();
+        while (iterator.hasNext()) {
+            final Segment segment = iterator.next();
+            iterator.remove();
+            closeQuietly(segment);
+            if (!segment.file.delete()) {
+                LOG.warn("Could not delete journal segment {}", segment.file);
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * @return the number of sessions in the journal
+     */
+    synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return the session ID of the session with the given index as string
+     */
+    synchronized String getSessionKey(int sessionIndex) {
+        return sessions.get(sessionIndex).sessionKey;
+    }
+
+    /**
+     * @return the number of messages of the session
+     */
+    synchronized int getMessageCount(int sessionIndex) {
+        return sessions.get(sessionIndex).index.size();
+    }
+
+    /**
+     * @return the number of times the state was rebuilt from the segment files
+     */
+    synchronized long getRecoveryCount() {
+        return recoveryCount;
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Blocks until the records written so far are on stable storage.
+     */
+    void awaitDurable() throws IOException {
+        final long ticket;
+        synchronized (this) {
+            if (groupCommitter == null) {
+                activeSegment.channel.force(false);
+                return;
+            }
+            ticket = lastCommitTicket;
+        }
+        groupCommitter.await(ticket);
+    }
+
+    /**
+     * @return the group commit ticket of the last write, 0 without group commit
+     */
+    synchronized long getDurableTicket() {
+        return groupCommitter != null ? lastCommitTicket : 0;
+    }
+
+    /**
+     * Blocks until the records written before the ticket was taken are on stable storage.
+     */
+    void awaitDurable(long ticket) throws IOException {
+        if (groupCommitter != null) {
+            groupCommitter.await(ticket);
+        } else {
+            awaitDurable();
+        }
+    }
+
+    private ByteBuffer prepareBuffer(int capacity) {
+        if (buffer.capacity() < capacity) {
+            buffer = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+        }
+        buffer.clear().limit(capacity);
+        return buffer;
+    }
+
+    private ByteBuffer startRecord(byte type, int sessionIndex, int dataSize) throws IOException {
+        final int recordSize = RECORD_HEADER_SIZE + BODY_HEADER_SIZE + dataSize;
+        if (writePosition + recordSize > segmentSize && writePosition > checkpointEnd) {
+            roll();
+        }
+        final ByteBuffer record = prepareBuffer(recordSize);
+        record.position(RECORD_HEADER_SIZE);
+        return record.put(type).putInt(sessionIndex);
+    }
+
+    private long append(ByteBuffer record) throws IOException {
+        final int length = record.position() - RECORD_HEADER_SIZE;
+        crc.reset();
+        crc.update(record.array(), RECORD_HEADER_SIZE, length);
+        record.putInt(0, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        final long recordPosition = toPosition(activeSegment.number, writePosition);
+        write(activeSegment, record, writePosition);
+        writePosition += record.limit();
+        if (syncWrites) {
+            activeSegment.channel.force(false);
+        } else if (groupCommitter != null) {
+            lastCommitTicket = groupCommitter.commit(activeSegment.randomAccessFile.getFD());
+        }
+        return recordPosition;
+    }
+
+    private static void write(Segment segment, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += segment.channel.write(data, position);
+        }
+    }
+
+    private void roll() throws IOException {
+        if (syncWrites || groupCommitter != null) {
+            // the checkpoint of the new segment must not be durable before the records of the previous one
+            activeSegment.channel.force(false);
+        }
+        startSegment(activeSegment.number + 1);
+        // no roll while the checkpoint is written, even if it exceeds the segment size
+        checkpointEnd = Long.MAX_VALUE;
+        for (int i = 0; i < sessions.size(); i++) {
+            if (sessions.get(i) != null) {
+                writeSessionRecord(i);
+            }
+        }
+        checkpointEnd = writePosition;
+    }
+
+    private void startSegment(long number) throws IOException {
+        final File file = new File(directory, String.format("%020d", number) + SEGMENT_SUFFIX);
+        final Segment segment = new Segment(number, file);
+        segment.channel.truncate(0);
+        segments.put(number, segment);
+        writeSegmentHeader(segment);
+        activeSegment = segment;
+        writePosition = SEGMENT_HEADER_SIZE;
+        checkpointEnd = SEGMENT_HEADER_SIZE;
+    }
+
+    private void writeSegmentHeader(Segment segment) throws IOException {
+        final ByteBuffer header = prepareBuffer(SEGMENT_HEADER_SIZE);
+        header.putInt(SEGMENT_MAGIC).putInt(SEGMENT_VERSION).flip();
+        segment.channel.truncate(0);
+        write(segment, header, 0);
+    }
+
+    private void writeSessionRecord(int sessionIndex) throws IOException {
+        final SessionEntry session = sessions.get(sessionIndex);
+        final byte[] key = session.sessionKey.getBytes(StandardCharsets.UTF_8);
+        append(startRecord(SESSION, sessionIndex, 16 + key.length).putLong(session.creationTime)
+                .putInt(session.nextSenderMsgSeqNum).putInt(session.nextTargetMsgSeqNum).put(key));
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.randomAccessFile.close();
+        } catch (IOException e) {
+            LOG.warn("Could not close journal segment {}", segment.file, e);
+        }
+    }
+
+    private void closeSegments() {
+        for (Segment segment : segments.values()) {
+            closeQuietly(segment);
+        }
+        segments.clear();
+        activeSegment = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeSegments();
+    }
+
+    /**
+     * Closes the journal and deletes the segment files and the directory.
+     */
+    synchronized void closeAndDeleteFiles() {
+        closeSegments();
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
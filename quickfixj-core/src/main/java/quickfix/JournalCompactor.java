@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Command line tool for the journal of a {@link JournalStore} or {@link SharedJournalStoreFactory}.
+ * The journal must not be in use while the tool runs.
+ * <p>
+ * Opening the journal rebuilds the session state and the message indexes from the segments
+ * and truncates a torn record at the end. The tool then lists the sessions and, unless
+ * <code>--list</code> is given, copies the referenced messages to new segments and deletes
+ * the previous ones.
+ *
+ * <pre>
+ * java -cp quickfixj-core.jar quickfix.JournalCompactor [--list] &lt;journal directory&gt;
+ * </pre>
+ */
+public final class JournalCompactor {
+
+    private JournalCompactor() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean listOnly = false;
+        String directory = null;
+        for (String arg : args) {
+            if ("--list".equals(arg)) {
+                listOnly = true;
+            } else {
+                directory = arg;
+            }
+        }
+        if (directory == null || !new File(directory).isDirectory()) {
+            System.err.println("usage: " + JournalCompactor.class.getName() + " [--list] <journal directory>");
+            System.exit(1);
+        }
+        run(new File(directory), listOnly, System.out);
+    }
+
+    static void run(File directory, boolean listOnly, PrintStream out) throws IOException {
+        try (Journal journal = new Journal(directory, JournalStoreFactory.DEFAULT_SEGMENT_SIZE, false, null,
+                false)) {
+            out.println("Segments: " + journal.getSegmentCount());
+            for (int i = 0; i < journal.getSessionCount(); i++) {
+                out.println(journal.getSessionKey(i) + ": next sender " + journal.getNextSenderMsgSeqNum(i)
+                        + ", next target " + journal.getNextTargetMsgSeqNum(i) + ", messages "
+                        + journal.getMessageCount(i));
+            }
+            if (!listOnly) {
+                final int copied = journal.compact();
+                journal.awaitDurable();
+                out.println("Copied " + copied + " messages, segments: " + journal.getSegmentCount());
+            }
+        }
+    }
+}
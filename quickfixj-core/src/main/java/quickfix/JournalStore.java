@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message store which appends messages and sequence number changes to a segmented
+ * journal instead of maintaining separate body, header, sequence number and session
+ * files. All writes are sequential. A reset starts a new segment and the segments
+ * before it are deleted in the background, as are segments older than the retention
+ * period.
+ *
+ * @see JournalStoreFactory
+ */
+public class JournalStore implements MessageStore, Closeable {
+
+    private final Journal journal;
+    private final int sessionIndex;
+    private final boolean ownsJournal;
+    private final ScheduledFuture<?> cleanupTask;
+
+    /**
+     * Creates a store with its own journal in a directory named after the session.
+     *
+     * @param cleanupExecutor runs the background deletion of obsolete segments, or null
+     * @param retentionMillis the retention period of segments, or 0 to keep segments with referenced messages
+     */
+    JournalStore(String path, SessionID sessionID, boolean syncWrites, long segmentSize,
+            FileSyncGroupCommitter groupCommitter, ScheduledExecutorService cleanupExecutor,
+            long retentionMillis) throws IOException {
+        this.journal = new Journal(getJournalDirectory(path, sessionID), segmentSize, syncWrites,
+                groupCommitter, true);
+        this.sessionIndex = journal.register(sessionID);
+        this.ownsJournal = true;
+        this.cleanupTask = cleanupExecutor == null ? null : cleanupExecutor.scheduleWithFixedDelay(
+                () -> journal.deleteObsoleteSegments(retentionMillis),
+                JournalStoreFactory.CLEANUP_INTERVAL_SECONDS, JournalStoreFactory.CLEANUP_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a store for a session in a journal shared with other sessions.
+     */
+    JournalStore(Journal journal, SessionID sessionID) throws IOException {
+        this.journal = journal;
+        this.sessionIndex = journal.register(sessionID);
+        this.ownsJournal = false;
+        this.cleanupTask = null;
+    }
+
+    private static File getJournalDirectory(String path, SessionID sessionID) {
+        final String fullPath = new File(path == null ? "." : path).getAbsolutePath();
+        return new File(FileUtil.fileAppendPath(fullPath, FileUtil.sessionIdFileName(sessionID) + ".journal"));
+    }
+
+    Journal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public boolean set(int sequence, String message) throws IOException {
+        journal.appendMessage(sessionIndex, sequence, message);
+        return true;
+    }
+
+    @Override
+    public void get(int startSequence, int endSequence, Collection<String> messages) throws IOException {
+        journal.readMessages(sessionIndex, startSequence, endSequence, messages);
+    }
+
+    /**
+     * Reads chunkSize messages at a time. The journal is not locked while the handler is
+     * called.
+     */
+    @Override
+    public void get(int startSequence, int endSequence, int chunkSize, MessageHandler handler)
+            throws IOException {
+        final int size = Math.max(chunkSize, 1);
+        final List<String> chunk = new ArrayList<>();
+        int nextSequence = startSequence;
+        while (nextSequence <= endSequence) {
+            chunk.clear();
+            final int lastSequence = journal.readMessages(sessionIndex, nextSequence, endSequence, size, chunk);
+            for (String message : chunk) {
+                if (!handler.onMessage(message)) {
+                    return;
+                }
+            }
+            if (chunk.size() < size || lastSequence == Integer.MAX_VALUE) {
+                return;
+            }
+            nextSequence = lastSequence + 1;
+        }
+    }
+
+    @Override
+    public int getNextSenderMsgSeqNum() {
+        return journal.getNextSenderMsgSeqNum(sessionIndex);
+    }
+
+    @Override
+    public int getNextTargetMsgSeqNum() {
+        return journal.getNextTargetMsgSeqNum(sessionIndex);
+    }
+
+    @Override
+    public void setNextSenderMsgSeqNum(int next) throws IOException {
+        synchronized (journal) {
+            journal.setSequenceNumbers(sessionIndex, next, journal.getNextTargetMsgSeqNum(sessionIndex));
+        }
+    }
+
+    @Override
+    public void setNextTargetMsgSeqNum(int next) throws IOException {
+        synchronized (journal) {
+            journal.setSequenceNumbers(sessionIndex, journal.getNextSenderMsgSeqNum(sessionIndex), next);
+        }
+    }
+
+    @Override
+    public void incrNextSenderMsgSeqNum() throws IOException {
+        journal.incrNextSenderMsgSeqNum(sessionIndex);
+    }
+
+    @Override
+    public void incrNextTargetMsgSeqNum() throws IOException {
+        journal.incrNextTargetMsgSeqNum(sessionIndex);
+    }
+
+    @Override
+    public Date getCreationTime() {
+        return new Date(journal.getCreationTime(sessionIndex));
+    }
+
+    @Override
+    public Calendar getCreationTimeCalendar() {
+        return SystemTime.getUtcCalendar(journal.getCreationTime(sessionIndex));
+    }
+
+    @Override
+    public void reset() throws IOException {
+        journal.reset(sessionIndex);
+    }
+
+    /**
+     * Rebuilds the state from the journal files if the journal is not shared. The state of a
+     * shared journal is kept current by the stores writing to it, so it is only rebuilt if
+     * the files were changed by another process, which would otherwise replay all sessions
+     * while holding the journal lock on every refresh.
+     */
+    @Override
+    public void refresh() throws IOException {
+        if (ownsJournal) {
+            journal.recover();
+        } else {
+            journal.refresh();
+        }
+    }
+
+    @Override
+    public void awaitDurable() throws IOException {
+        journal.awaitDurable();
+    }
+
+    @Override
+    public long getDurableTicket() {
+        return journal.getDurableTicket();
+    }
+
+    @Override
+    public void awaitDurable(long ticket) throws IOException {
+        journal.awaitDurable(ticket);
+    }
+
+    /**
+     * Stops the background deletion of segments and closes the journal if it is not shared.
+     */
+    @Override
+    public void close() throws IOException {
+        if (cleanupTask != null) {
+            cleanupTask.cancel(false);
+        }
+        if (ownsJournal) {
+            journal.close();
+        }
+    }
+
+    void closeAndDeleteFiles() {
+        if (cleanupTask != null) {
+            cleanupTask.cancel(false);
+        }
+        journal.closeAndDeleteFiles();
+    }
+}
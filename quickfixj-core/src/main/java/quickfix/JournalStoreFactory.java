@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates a message store that appends to a segmented journal per session. Uses the
+ * FileStorePath, FileStoreSync and FileStoreGroupCommit settings of the {@link FileStoreFactory}.
+ * Obsolete segments of all stores are deleted by a single daemon thread, which is stopped
+ * by {@link #close()}.
+ *
+ * @see quickfix.JournalStore
+ */
+public class JournalStoreFactory extends FileStoreFactory {
+
+    /**
+     * Size in bytes after which a new journal segment is started. Default is 64 MiB.
+     */
+    public static final String SETTING_JOURNAL_STORE_SEGMENT_SIZE = "JournalStoreSegmentSize";
+
+    /**
+     * Time in seconds after which a journal segment is deleted even if it contains messages
+     * which could be requested for resend. Default is 0, segments are only deleted when all
+     * of their messages were removed by a reset.
+     */
+    public static final String SETTING_JOURNAL_STORE_RETENTION_PERIOD = "JournalStoreRetentionPeriod";
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    static final long CLEANUP_INTERVAL_SECONDS = 10;
+
+    private ScheduledExecutorService cleanupExecutor;
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     */
+    public JournalStoreFactory(SessionSettings settings) {
+        super(settings);
+    }
+
+    /**
+     * Creates a journal message store.
+     *
+     * @param sessionID session ID for the message store.
+     */
+    public MessageStore create(SessionID sessionID) {
+        try {
+            boolean syncWrites = false;
+            if (settings.isSetting(sessionID, SETTING_FILE_STORE_SYNC)) {
+                syncWrites = settings.getBool(sessionID, SETTING_FILE_STORE_SYNC);
+            }
+            return new JournalStore(settings.getString(sessionID, SETTING_FILE_STORE_PATH), sessionID,
+                    syncWrites, getSegmentSize(sessionID), getGroupCommitter(), getCleanupExecutor(),
+                    getRetentionMillis(sessionID));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    long getSegmentSize(SessionID sessionID) throws ConfigError, FieldConvertError {
+        return settings.getLongOrDefault(sessionID, SETTING_JOURNAL_STORE_SEGMENT_SIZE, DEFAULT_SEGMENT_SIZE);
+    }
+
+    long getRetentionMillis(SessionID sessionID) throws ConfigError, FieldConvertError {
+        return TimeUnit.SECONDS.toMillis(settings.getLongOrDefault(sessionID, SETTING_JOURNAL_STORE_RETENTION_PERIOD, 0));
+    }
+
+    synchronized ScheduledExecutorService getCleanupExecutor() {
+        if (cleanupExecutor == null) {
+            cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "QFJ Journal Cleanup");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return cleanupExecutor;
+    }
+
+    /**
+     * Cancels the deletion of obsolete segments, stops its thread and then closes the
+     * factory like {@link FileStoreFactory#close()}. Stores created afterwards start a new
+     * cleanup thread.
+     */
+    @Override
+    public synchronized void close() {
+        if (cleanupExecutor != null) {
+            // the periodic cleanup tasks of the stores are cancelled by the shutdown
+            cleanupExecutor.shutdown();
+            cleanupExecutor = null;
+        }
+        super.close();
+    }
+}
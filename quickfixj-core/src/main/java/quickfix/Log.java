@@ -21,6 +21,10 @@ package quickfix;
 
 /**
  * Session log for messages and events.
+ * <p>
+ * Callers check the <code>is...Enabled()</code> methods before building a message or
+ * event text, so a log which discards them costs nothing. The methods return true by
+ * default.
  */
 public interface Log {
 
@@ -67,4 +71,26 @@ public interface Log {
         onErrorEvent(text);
     }
 
+    /**
+     * @return whether {@link #onIncoming(String)} may log messages
+     */
+    default boolean isIncomingEnabled() {
+        return true;
+    }
+
+    /**
+     * @return whether {@link #onOutgoing(String)} may log messages
+     */
+    default boolean isOutgoingEnabled() {
+        return true;
+    }
+
+    /**
+     * @return whether {@link #onEvent(String)} logs events. Error and warning events
+     * are always logged.
+     */
+    default boolean isEventEnabled() {
+        return true;
+    }
+
 }
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Releases memory-mapped regions before they are garbage collected. A file with a mapped
+ * region can not be truncated, renamed or deleted on Windows, and every region holds address
+ * space until it is released.
+ * <p>
+ * Also forces parts of a mapped region to the storage device where the JVM supports it.
+ * <p>
+ * A released buffer must not be accessed anymore, the JVM would crash. Callers drop all
+ * references to the buffer, including duplicates, before releasing it.
+ */
+final class MappedBuffers {
+
+    private static final Unmapper UNMAPPER = createUnmapper();
+    private static final Method FORCE_RANGE = findForceRange();
+
+    private MappedBuffers() {
+    }
+
+    /**
+     * Releases the mapped region of the buffer. If the JVM does not allow it, the region is
+     * released when the buffer is garbage collected.
+     *
+     * @param buffer the buffer to release, may be null
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null || UNMAPPER == null) {
+            return;
+        }
+        try {
+            UNMAPPER.unmap(buffer);
+        } catch (Exception e) {
+            LoggerFactory.getLogger(MappedBuffers.class).debug("Could not unmap buffer", e);
+        }
+    }
+
+    /**
+     * Forces the changes to a range of the buffer to the storage device. Before Java 13 the
+     * whole buffer is forced.
+     *
+     * @param buffer the buffer to force
+     * @param index the index of the first byte to force
+     * @param length the number of bytes to force
+     */
+    static void force(MappedByteBuffer buffer, int index, int length) {
+        if (FORCE_RANGE != null) {
+            try {
+                FORCE_RANGE.invoke(buffer, index, length);
+                return;
+            } catch (IllegalAccessException e) {
+                // fall back to forcing the whole buffer
+            } catch (InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+            }
+        }
+        buffer.force();
+    }
+
+    private static Method findForceRange() {
+        try {
+            // Java 13 and later
+            return MappedByteBuffer.class.getMethod("force", int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Unmapper createUnmapper() {
+        try {
+            // Java 9 and later
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (NoSuchMethodException e) {
+            return createJava8Unmapper();
+        } catch (Exception e) {
+            logUnsupported(e);
+            return null;
+        }
+    }
+
+    private static Unmapper createJava8Unmapper() {
+        try {
+            final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                final Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    clean.invoke(bufferCleaner);
+                }
+            };
+        } catch (Exception e) {
+            logUnsupported(e);
+            return null;
+        }
+    }
+
+    private static void logUnsupported(Exception e) {
+        LoggerFactory.getLogger(MappedBuffers.class).info(
+                "Mapped buffers are released by the garbage collector: {}", e.toString());
+    }
+
+    private interface Unmapper {
+        void unmap(ByteBuffer buffer) throws Exception;
+    }
+}
@@ -0,0 +1,655 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+import quickfix.field.converter.UtcTimestampConverter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * File store implementation which keeps the message index and the message bodies in
+ * memory-mapped files.
+ * <p>
+ * The index file starts with a 32 byte header followed by fixed-width 16 byte slots. The slot
+ * of a message is addressed by its sequence number minus the first sequence number stored since
+ * the last reset, so a message is found without searching. A slot contains the offset and the
+ * size of the message in the body file and the sequence number as a check. The body file is
+ * append-only and mapped in segments of a configurable size.
+ * <p>
+ * The files only grow: after a reset the index is cleared and the body is overwritten from the
+ * beginning, but the files are not truncated. Mapped regions are released when the store is
+ * closed, the body segments also on reset. A refresh keeps the mappings and only maps the
+ * regions which were added by another process.
+ *
+ * @see quickfix.MappedFileStoreFactory
+ */
+public class MappedFileStore implements MessageStore, Closeable {
+    private static final String READ_WRITE_OPTION = "rw";
+    private static final String SYNC_OPTION = "d";
+
+    private static final int INDEX_MAGIC = 0x51464a49; // "QFJI"
+    private static final int INDEX_VERSION = 1;
+    private static final int MAGIC_POSITION = 0;
+    private static final int VERSION_POSITION = 4;
+    private static final int BASE_POSITION = 8;
+    private static final int SLOT_COUNT_POSITION = 12;
+    private static final int BODY_END_POSITION = 16;
+    private static final int INDEX_HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 16;
+    private static final int INITIAL_INDEX_SLOTS = 64 * 1024;
+
+    private final MemoryStore cache = new MemoryStore();
+
+    private final String bodyFileName;
+    private final String indexFileName;
+    private final String senderSeqNumFileName;
+    private final String targetSeqNumFileName;
+    private final String mappedSeqNumFileName;
+    private final String sessionFileName;
+    private final boolean syncWrites;
+    private final int segmentSize;
+    private final boolean mappedSequenceNumbers;
+
+    private RandomAccessFile indexFile;
+    private RandomAccessFile bodyFile;
+    private RandomAccessFile senderSequenceNumberFile;
+    private RandomAccessFile targetSequenceNumberFile;
+    private MappedSequenceNumbers sequenceNumbers;
+    private MappedByteBuffer index;
+    private final List<MappedByteBuffer> bodySegments = new ArrayList<>();
+
+    // cached copies of the index header
+    private int base;
+    private int slotCount;
+    private long bodyEnd;
+
+    MappedFileStore(String path, SessionID sessionID, boolean syncWrites, int segmentSize)
+            throws IOException {
+        this(path, sessionID, syncWrites, segmentSize, false);
+    }
+
+    /**
+     * @param mappedSequenceNumbers whether the sequence numbers are kept in a memory-mapped file
+     */
+    MappedFileStore(String path, SessionID sessionID, boolean syncWrites, int segmentSize,
+            boolean mappedSequenceNumbers) throws IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentSize);
+        }
+        this.syncWrites = syncWrites;
+        this.segmentSize = segmentSize;
+        this.mappedSequenceNumbers = mappedSequenceNumbers;
+
+        final String fullPath = new File(path == null ? "." : path).getAbsolutePath();
+        final String sessionName = FileUtil.sessionIdFileName(sessionID);
+        final String prefix = FileUtil.fileAppendPath(fullPath, sessionName + ".");
+
+        bodyFileName = prefix + "mappedbody";
+        indexFileName = prefix + "mappedindex";
+        senderSeqNumFileName = prefix + "senderseqnums";
+        targetSeqNumFileName = prefix + "targetseqnums";
+        mappedSeqNumFileName = prefix + "mappedseqnums";
+        sessionFileName = prefix + "session";
+
+        final File directory = new File(bodyFileName).getParentFile();
+        directory.mkdirs();
+
+        initialize();
+    }
+
+    synchronized void initialize() throws IOException {
+        close();
+
+        final String mode = READ_WRITE_OPTION + (syncWrites ? SYNC_OPTION : "");
+        indexFile = new RandomAccessFile(indexFileName, READ_WRITE_OPTION);
+        bodyFile = new RandomAccessFile(bodyFileName, READ_WRITE_OPTION);
+        if (mappedSequenceNumbers) {
+            sequenceNumbers = new MappedSequenceNumbers(mappedSeqNumFileName);
+        } else {
+            senderSequenceNumberFile = new RandomAccessFile(senderSeqNumFileName, mode);
+            targetSequenceNumberFile = new RandomAccessFile(targetSeqNumFileName, mode);
+        }
+
+        cache.reset();
+        initializeIndex();
+        initializeSequenceNumbers();
+        initializeSessionCreateTime();
+    }
+
+    private void initializeIndex() throws IOException {
+        final boolean newIndex = indexFile.length() < INDEX_HEADER_SIZE;
+        final long size = Math.max(indexFile.length(), INDEX_HEADER_SIZE + (long) INITIAL_INDEX_SLOTS * SLOT_SIZE);
+        mapIndex(size);
+        if (newIndex) {
+            index.putInt(MAGIC_POSITION, INDEX_MAGIC);
+            index.putInt(VERSION_POSITION, INDEX_VERSION);
+            writeIndexHeader(0, 0, 0);
+        } else if (index.getInt(MAGIC_POSITION) != INDEX_MAGIC) {
+            throw new IOException("Invalid message index file: " + indexFileName);
+        } else if (index.getInt(VERSION_POSITION) != INDEX_VERSION) {
+            throw new IOException("Unsupported message index version " + index.getInt(VERSION_POSITION)
+                    + ": " + indexFileName);
+        }
+        readIndexHeader();
+    }
+
+    private void readIndexHeader() throws IOException {
+        base = index.getInt(BASE_POSITION);
+        slotCount = index.getInt(SLOT_COUNT_POSITION);
+        bodyEnd = index.getLong(BODY_END_POSITION);
+        ensureBodyCapacity(bodyEnd);
+    }
+
+    /**
+     * Maps the index with the given size and releases the previous mapping.
+     */
+    private void mapIndex(long size) throws IOException {
+        final MappedByteBuffer previous = index;
+        index = indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        MappedBuffers.unmap(previous);
+    }
+
+    private void unmapBody() {
+        for (MappedByteBuffer segment : bodySegments) {
+            MappedBuffers.unmap(segment);
+        }
+        bodySegments.clear();
+    }
+
+    private void initializeSessionCreateTime() throws IOException {
+        final File sessionTimeFile = new File(sessionFileName);
+        if (sessionTimeFile.exists() && sessionTimeFile.length() > 0) {
+            try (DataInputStream sessionTimeInput = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(sessionTimeFile)))) {
+                final Calendar c = SystemTime.getUtcCalendar(UtcTimestampConverter
+                        .convert(sessionTimeInput.readUTF()));
+                cache.setCreationTime(c);
+            } catch (final Exception e) {
+                throw new IOException(e.getMessage());
+            }
+        } else {
+            storeSessionTimeStamp();
+        }
+    }
+
+    private void storeSessionTimeStamp() throws IOException {
+        try (DataOutputStream sessionTimeOutput = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(sessionFileName, false)))) {
+            final Date date = SystemTime.getDate();
+            cache.setCreationTime(SystemTime.getUtcCalendar(date));
+            sessionTimeOutput.writeUTF(UtcTimestampConverter.convert(date, true));
+        }
+    }
+
+    private void initializeSequenceNumbers() throws IOException {
+        if (sequenceNumbers != null) {
+            if (sequenceNumbers.isInitialized()) {
+                cache.setNextSenderMsgSeqNum(sequenceNumbers.getNextSenderMsgSeqNum());
+                cache.setNextTargetMsgSeqNum(sequenceNumbers.getNextTargetMsgSeqNum());
+            } else {
+                // take over the sequence numbers of the files used without FileStoreMappedSeqNums
+                cache.setNextSenderMsgSeqNum(readSequenceNumber(senderSeqNumFileName));
+                cache.setNextTargetMsgSeqNum(readSequenceNumber(targetSeqNumFileName));
+                storeMappedSequenceNumbers();
+            }
+            return;
+        }
+
+        senderSequenceNumberFile.seek(0);
+        if (senderSequenceNumberFile.length() > 0) {
+            final String s = senderSequenceNumberFile.readUTF();
+            cache.setNextSenderMsgSeqNum(Integer.parseInt(s));
+        }
+
+        targetSequenceNumberFile.seek(0);
+        if (targetSequenceNumberFile.length() > 0) {
+            final String s = targetSequenceNumberFile.readUTF();
+            cache.setNextTargetMsgSeqNum(Integer.parseInt(s));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#getCreationTime()
+     */
+    @Override
+    public Date getCreationTime() throws IOException {
+        return cache.getCreationTime();
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#getCreationTimeCalendar()
+     */
+    @Override
+    public Calendar getCreationTimeCalendar() throws IOException {
+        return cache.getCreationTimeCalendar();
+    }
+
+    /**
+     * Close the store's files.
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (syncWrites) {
+            force();
+        }
+        MappedBuffers.unmap(index);
+        index = null;
+        unmapBody();
+        close(indexFile);
+        close(bodyFile);
+        close(senderSequenceNumberFile);
+        close(targetSequenceNumberFile);
+        close(sequenceNumbers);
+    }
+
+    private static void close(Closeable closeable) throws IOException {
+        if (closeable != null) {
+            closeable.close();
+        }
+    }
+
+    public synchronized void closeAndDeleteFiles() throws IOException {
+        close();
+        deleteFile(indexFileName);
+        deleteFile(bodyFileName);
+        deleteFile(senderSeqNumFileName);
+        deleteFile(targetSeqNumFileName);
+        deleteFile(mappedSeqNumFileName);
+        deleteFile(sessionFileName);
+    }
+
+    private void deleteFile(String fileName) throws IOException {
+        final File file = new File(fileName);
+        if (file.exists() && !file.delete()) {
+            System.err.println("File delete failed: " + fileName);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#getNextSenderMsgSeqNum()
+     */
+    @Override
+    public int getNextSenderMsgSeqNum() throws IOException {
+        return cache.getNextSenderMsgSeqNum();
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#getNextTargetMsgSeqNum()
+     */
+    @Override
+    public int getNextTargetMsgSeqNum() throws IOException {
+        return cache.getNextTargetMsgSeqNum();
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#setNextSenderMsgSeqNum(int)
+     */
+    @Override
+    public synchronized void setNextSenderMsgSeqNum(int next) throws IOException {
+        cache.setNextSenderMsgSeqNum(next);
+        storeSenderSequenceNumber();
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#setNextTargetMsgSeqNum(int)
+     */
+    @Override
+    public synchronized void setNextTargetMsgSeqNum(int next) throws IOException {
+        cache.setNextTargetMsgSeqNum(next);
+        storeTargetSequenceNumber();
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#incrNextSenderMsgSeqNum()
+     */
+    @Override
+    public synchronized void incrNextSenderMsgSeqNum() throws IOException {
+        cache.incrNextSenderMsgSeqNum();
+        storeSenderSequenceNumber();
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#incrNextTargetMsgSeqNum()
+     */
+    @Override
+    public synchronized void incrNextTargetMsgSeqNum() throws IOException {
+        cache.incrNextTargetMsgSeqNum();
+        storeTargetSequenceNumber();
+    }
+
+    private static int readSequenceNumber(String fileName) throws IOException {
+        final File file = new File(fileName);
+        if (!file.exists() || file.length() == 0) {
+            return 1;
+        }
+        try (RandomAccessFile sequenceNumberFile = new RandomAccessFile(file, "r")) {
+            return Integer.parseInt(sequenceNumberFile.readUTF());
+        }
+    }
+
+    private void storeMappedSequenceNumbers() {
+        sequenceNumbers.set(cache.getNextSenderMsgSeqNum(), cache.getNextTargetMsgSeqNum());
+        if (syncWrites) {
+            sequenceNumbers.force();
+        }
+    }
+
+    private void storeSenderSequenceNumber() throws IOException {
+        if (sequenceNumbers != null) {
+            storeMappedSequenceNumbers();
+            return;
+        }
+        senderSequenceNumberFile.seek(0);
+        senderSequenceNumberFile.writeUTF("" + cache.getNextSenderMsgSeqNum());
+    }
+
+    private void storeTargetSequenceNumber() throws IOException {
+        if (sequenceNumbers != null) {
+            storeMappedSequenceNumbers();
+            return;
+        }
+        targetSequenceNumberFile.seek(0);
+        targetSequenceNumberFile.writeUTF("" + cache.getNextTargetMsgSeqNum());
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#get(int, int, java.util.Collection)
+     */
+    @Override
+    public synchronized void get(int startSequence, int endSequence, Collection<String> messages)
+            throws IOException {
+        if (base == 0) {
+            return;
+        }
+        final int first = Math.max(startSequence, base);
+        final long last = Math.min(endSequence, (long) base + slotCount - 1);
+        for (long sequence = first; sequence <= last; sequence++) {
+            final String message = getMessage((int) sequence);
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+    }
+
+    private String getMessage(int sequence) throws IOException {
+        final int slotPosition = slotPosition(sequence - base);
+        final long offset = index.getLong(slotPosition);
+        final int size = index.getInt(slotPosition + 8);
+        final int slotSequence = index.getInt(slotPosition + 12);
+        if (slotSequence != sequence) {
+            return null;
+        }
+        if (offset + size > bodyEnd) {
+            throw new IOException("Truncated input while reading message: messageIndex=" + sequence
+                    + ", offset=" + offset + ", expected size=" + size);
+        }
+        final byte[] data = new byte[size];
+        readBody(offset, data);
+        return new String(data, CharsetSupport.getCharset());
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#set(int, java.lang.String)
+     */
+    @Override
+    public synchronized boolean set(int sequence, String message) throws IOException {
+        if (sequence < 1) {
+            return false;
+        }
+        boolean rebased = false;
+        if (base == 0) {
+            base = sequence;
+            index.putInt(BASE_POSITION, base);
+        } else if (sequence < base) {
+            rebase(sequence);
+            rebased = true;
+        }
+        final int slot = sequence - base;
+        ensureIndexCapacity((long) slot + 1);
+
+        final byte[] messageBytes = message.getBytes(CharsetSupport.getCharset());
+        final long offset = bodyEnd;
+        ensureBodyCapacity(offset + messageBytes.length);
+        writeBody(offset, messageBytes);
+        bodyEnd = offset + messageBytes.length;
+        index.putLong(BODY_END_POSITION, bodyEnd);
+
+        final int slotPosition = slotPosition(slot);
+        index.putLong(slotPosition, offset);
+        index.putInt(slotPosition + 8, messageBytes.length);
+        index.putInt(slotPosition + 12, sequence);
+        if (slot >= slotCount) {
+            slotCount = slot + 1;
+            index.putInt(SLOT_COUNT_POSITION, slotCount);
+        }
+
+        if (syncWrites) {
+            forceBody(offset, messageBytes.length);
+            if (rebased) {
+                // the slots were moved
+                index.force();
+            } else {
+                MappedBuffers.force(index, 0, INDEX_HEADER_SIZE);
+                MappedBuffers.force(index, slotPosition, SLOT_SIZE);
+            }
+        }
+        return true;
+    }
+
+    private static int slotPosition(int slot) {
+        return INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * Moves the slots so that a sequence number lower than the current base can be stored.
+     */
+    private void rebase(int newBase) throws IOException {
+        final int shift = base - newBase;
+        ensureIndexCapacity((long) slotCount + shift);
+        for (int slot = slotCount - 1; slot >= 0; slot--) {
+            final int from = slotPosition(slot);
+            final int to = slotPosition(slot + shift);
+            index.putLong(to, index.getLong(from));
+            index.putLong(to + 8, index.getLong(from + 8));
+        }
+        for (int slot = 0; slot < Math.min(shift, slotCount); slot++) {
+            clearSlot(slot);
+        }
+        base = newBase;
+        slotCount += shift;
+        index.putInt(BASE_POSITION, base);
+        index.putInt(SLOT_COUNT_POSITION, slotCount);
+    }
+
+    private void clearSlot(int slot) {
+        final int position = slotPosition(slot);
+        index.putLong(position, 0);
+        index.putLong(position + 8, 0);
+    }
+
+    private void ensureIndexCapacity(long slots) throws IOException {
+        final long required = INDEX_HEADER_SIZE + slots * SLOT_SIZE;
+        if (required <= index.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IOException("Message index capacity exceeded: base=" + base + ", slots=" + slots);
+        }
+        final long size = Math.min(Math.max(required, 2L * index.capacity()), Integer.MAX_VALUE);
+        mapIndex(size);
+    }
+
+    private void ensureBodyCapacity(long size) throws IOException {
+        final FileChannel channel = bodyFile.getChannel();
+        while ((long) bodySegments.size() * segmentSize < size || bodySegments.isEmpty()) {
+            final long position = (long) bodySegments.size() * segmentSize;
+            bodySegments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, segmentSize));
+        }
+    }
+
+    private void writeBody(long offset, byte[] data) {
+        int written = 0;
+        while (written < data.length) {
+            final long position = offset + written;
+            final ByteBuffer segment = bodySegments.get((int) (position / segmentSize)).duplicate();
+            segment.position((int) (position % segmentSize));
+            final int length = Math.min(data.length - written, segment.remaining());
+            segment.put(data, written, length);
+            written += length;
+        }
+    }
+
+    private void readBody(long offset, byte[] data) {
+        int read = 0;
+        while (read < data.length) {
+            final long position = offset + read;
+            final ByteBuffer segment = bodySegments.get((int) (position / segmentSize)).duplicate();
+            segment.position((int) (position % segmentSize));
+            final int length = Math.min(data.length - read, segment.remaining());
+            segment.get(data, read, length);
+            read += length;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see quickfix.MessageStore#awaitDurable()
+     */
+    @Override
+    public synchronized void awaitDurable() throws IOException {
+        if (!syncWrites) {
+            force();
+            if (sequenceNumbers != null) {
+                sequenceNumbers.force();
+            } else {
+                senderSequenceNumberFile.getFD().sync();
+                targetSequenceNumberFile.getFD().sync();
+            }
+        }
+    }
+
+    private void forceBody(long offset, int length) {
+        int forced = 0;
+        while (forced < length) {
+            final long position = offset + forced;
+            final MappedByteBuffer segment = bodySegments.get((int) (position / segmentSize));
+            final int segmentPosition = (int) (position % segmentSize);
+            final int segmentLength = Math.min(length - forced, segmentSize - segmentPosition);
+            MappedBuffers.force(segment, segmentPosition, segmentLength);
+            forced += segmentLength;
+        }
+    }
+
+    private void force() {
+        for (MappedByteBuffer segment : bodySegments) {
+            segment.force();
+        }
+        if (index != null) {
+            index.force();
+        }
+    }
+
+    /**
+     * This method is here for JNI API consistency but it's not
+     * implemented. Use get(int, int, Collection) with the same
+     * start and end sequence.
+     */
+    public boolean get(int sequence, String message) throws IOException {
+        throw new UnsupportedOperationException("not supported");
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see quickfix.MessageStore#refresh()
+     */
+    @Override
+    public synchronized void refresh() throws IOException {
+        if (index == null) {
+            initialize();
+            return;
+        }
+        // the index may have been grown by another process
+        final long indexLength = Math.min(indexFile.length(), Integer.MAX_VALUE);
+        if (indexLength > index.capacity()) {
+            mapIndex(indexLength);
+        }
+        cache.reset();
+        readIndexHeader();
+        if (sequenceNumbers != null) {
+            sequenceNumbers.reload();
+        }
+        initializeSequenceNumbers();
+        initializeSessionCreateTime();
+    }
+
+    /* (non-Javadoc)
+     * @see quickfix.MessageStore#reset()
+     */
+    @Override
+    public synchronized void reset() throws IOException {
+        for (int slot = 0; slot < slotCount; slot++) {
+            clearSlot(slot);
+        }
+        writeIndexHeader(0, 0, 0);
+        base = 0;
+        slotCount = 0;
+        bodyEnd = 0;
+        if (syncWrites) {
+            force();
+        }
+        unmapBody();
+        ensureBodyCapacity(0);
+        cache.reset();
+        storeSenderSequenceNumber();
+        storeTargetSequenceNumber();
+        storeSessionTimeStamp();
+    }
+
+    // visible for testing
+    synchronized int getMappedRegionCount() {
+        return (index != null ? 1 : 0) + bodySegments.size();
+    }
+
+    private void writeIndexHeader(int base, int slotCount, long bodyEnd) {
+        index.putInt(BASE_POSITION, base);
+        index.putInt(SLOT_COUNT_POSITION, slotCount);
+        index.putLong(BODY_END_POSITION, bodyEnd);
+    }
+}
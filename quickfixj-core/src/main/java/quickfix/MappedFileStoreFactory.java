@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+/**
+ * Creates a message store that stores messages in memory-mapped files. Uses the
+ * FileStorePath and FileStoreSync settings of the {@link FileStoreFactory}.
+ * The message files are not compatible with the FileStore but the sequence number
+ * and session files are shared.
+ *
+ * @see quickfix.MappedFileStore
+ */
+public class MappedFileStoreFactory extends FileStoreFactory {
+
+    /**
+     * Size in bytes of the regions in which the message body file is mapped into memory.
+     * Default is 16 MiB.
+     */
+    public static final String SETTING_MAPPED_FILE_STORE_SEGMENT_SIZE = "MappedFileStoreSegmentSize";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     */
+    public MappedFileStoreFactory(SessionSettings settings) {
+        super(settings);
+    }
+
+    /**
+     * Creates a memory-mapped file message store.
+     *
+     * @param sessionID session ID for the message store.
+     */
+    public MessageStore create(SessionID sessionID) {
+        try {
+            boolean syncWrites = false;
+            if (settings.isSetting(sessionID, SETTING_FILE_STORE_SYNC)) {
+                syncWrites = settings.getBool(sessionID, SETTING_FILE_STORE_SYNC);
+            }
+            int segmentSize = DEFAULT_SEGMENT_SIZE;
+            if (settings.isSetting(sessionID, SETTING_MAPPED_FILE_STORE_SEGMENT_SIZE)) {
+                segmentSize = (int) settings.getLong(sessionID, SETTING_MAPPED_FILE_STORE_SEGMENT_SIZE);
+            }
+            return new MappedFileStore(settings.getString(sessionID, SETTING_FILE_STORE_PATH), sessionID,
+                    syncWrites, segmentSize, isMappedSequenceNumbers(sessionID));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
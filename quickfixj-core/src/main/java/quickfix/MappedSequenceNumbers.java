@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sender and target sequence numbers kept in a small memory-mapped file. An update is a
+ * few plain stores into the mapping instead of a write system call.
+ * <p>
+ * The file contains two records of four 8-byte slots: generation, next sender sequence
+ * number, next target sequence number and a checksum. Updates alternate between the
+ * records, so a torn write leaves the record of the previous generation intact. On open
+ * the valid record with the highest generation is used.
+ * <p>
+ * The mapping is written back by the operating system. Call {@link #force()} at the
+ * points where the sequence numbers must be on stable storage.
+ */
+final class MappedSequenceNumbers implements Closeable {
+
+    private static final int RECORD_SIZE = 32;
+    private static final int FILE_SIZE = 2 * RECORD_SIZE;
+    private static final int GENERATION_OFFSET = 0;
+    private static final int SENDER_OFFSET = 8;
+    private static final int TARGET_OFFSET = 16;
+    private static final int CHECKSUM_OFFSET = 24;
+
+    private static final long CHECKSUM_SEED = 0xcbf29ce484222325L;
+    private static final long CHECKSUM_PRIME = 0x100000001b3L;
+
+    private final RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private long generation;
+    private int nextSenderMsgSeqNum;
+    private int nextTargetMsgSeqNum;
+
+    MappedSequenceNumbers(String fileName) throws IOException {
+        file = new RandomAccessFile(fileName, "rw");
+        try {
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        reload();
+    }
+
+    /**
+     * Reads the sequence numbers from the mapping again, e.g. after they were written by
+     * another process.
+     */
+    void reload() {
+        generation = 0;
+        nextSenderMsgSeqNum = 0;
+        nextTargetMsgSeqNum = 0;
+        readRecord(0);
+        readRecord(RECORD_SIZE);
+    }
+
+    private void readRecord(int offset) {
+        final long recordGeneration = buffer.getLong(offset + GENERATION_OFFSET);
+        final long sender = buffer.getLong(offset + SENDER_OFFSET);
+        final long target = buffer.getLong(offset + TARGET_OFFSET);
+        if (recordGeneration > generation
+                && buffer.getLong(offset + CHECKSUM_OFFSET) == checksum(recordGeneration, sender, target)) {
+            generation = recordGeneration;
+            nextSenderMsgSeqNum = (int) sender;
+            nextTargetMsgSeqNum = (int) target;
+        }
+    }
+
+    private static long checksum(long generation, long sender, long target) {
+        long checksum = CHECKSUM_SEED;
+        checksum = (checksum ^ generation) * CHECKSUM_PRIME;
+        checksum = (checksum ^ sender) * CHECKSUM_PRIME;
+        checksum = (checksum ^ target) * CHECKSUM_PRIME;
+        return checksum;
+    }
+
+    /**
+     * @return true if the file contains sequence numbers, false if it was just created
+     */
+    boolean isInitialized() {
+        return generation > 0;
+    }
+
+    int getNextSenderMsgSeqNum() {
+        return nextSenderMsgSeqNum;
+    }
+
+    int getNextTargetMsgSeqNum() {
+        return nextTargetMsgSeqNum;
+    }
+
+    void set(int nextSenderMsgSeqNum, int nextTargetMsgSeqNum) {
+        this.nextSenderMsgSeqNum = nextSenderMsgSeqNum;
+        this.nextTargetMsgSeqNum = nextTargetMsgSeqNum;
+        generation++;
+        final int offset = (int) (generation & 1) * RECORD_SIZE;
+        buffer.putLong(offset + GENERATION_OFFSET, generation);
+        buffer.putLong(offset + SENDER_OFFSET, nextSenderMsgSeqNum);
+        buffer.putLong(offset + TARGET_OFFSET, nextTargetMsgSeqNum);
+        buffer.putLong(offset + CHECKSUM_OFFSET, checksum(generation, nextSenderMsgSeqNum, nextTargetMsgSeqNum));
+    }
+
+    /**
+     * Writes the mapping to stable storage.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    FileDescriptor getFD() throws IOException {
+        return file.getFD();
+    }
+
+    @Override
+    public void close() throws IOException {
+        final MappedByteBuffer mapped = buffer;
+        buffer = null;
+        MappedBuffers.unmap(mapped);
+        file.close();
+    }
+}
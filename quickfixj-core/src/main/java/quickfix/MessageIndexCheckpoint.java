@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot of the in-memory message index of a file store, written next to the header
+ * file every few messages. On recovery the index is loaded from the snapshot and only the
+ * header records appended after it are replayed.
+ * <p>
+ * The file contains a magic number, the length of the header file covered by the
+ * snapshot, the number of entries, the entries (sequence number, offset and size like
+ * the header records) and a CRC32 of everything before it. It is written to a temporary
+ * file which is then renamed, so a crash leaves either the previous or the new snapshot.
+ * A snapshot which is corrupt or covers more than the existing header file is ignored.
+ */
+final class MessageIndexCheckpoint {
+
+    /**
+     * Size of a header record: int sequence number, long offset and int size.
+     */
+    static final int HEADER_RECORD_SIZE = 16;
+
+    private static final int MAGIC = 0x51464a43;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    interface IndexConsumer {
+        void accept(int sequence, long offset, int size);
+    }
+
+    private final File file;
+    private final File tempFile;
+    private final int interval;
+    private int recordsSinceCheckpoint;
+
+    /**
+     * @param fileName the checkpoint file
+     * @param interval number of header records between checkpoints, 0 disables them
+     */
+    MessageIndexCheckpoint(String fileName, int interval) {
+        this.file = new File(fileName);
+        this.tempFile = new File(fileName + ".tmp");
+        this.interval = interval;
+    }
+
+    /**
+     * Loads the checkpoint, if there is a valid one, and replays the header records
+     * after it.
+     *
+     * @return the number of header records replayed
+     */
+    long recover(File headerFile, IndexConsumer consumer) throws IOException {
+        recordsSinceCheckpoint = 0;
+        if (!headerFile.exists()) {
+            return 0;
+        }
+        // a torn record at the end is ignored
+        final long headerLength = headerFile.length() - headerFile.length() % HEADER_RECORD_SIZE;
+        long position = load(headerLength, consumer);
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(headerFile.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            while (position < headerLength) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), headerLength - position));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new EOFException("Header file truncated while reading");
+                    }
+                }
+                position += buffer.position();
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    consumer.accept(buffer.getInt(), buffer.getLong(), buffer.getInt());
+                    records++;
+                }
+            }
+        }
+        recordsSinceCheckpoint = (int) Math.min(records, Integer.MAX_VALUE);
+        return records;
+    }
+
+    private long load(long headerLength, IndexConsumer consumer) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (buffer.remaining() < 24 || buffer.getInt(0) != MAGIC) {
+            return 0;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit() - 8);
+        if (buffer.getLong(buffer.limit() - 8) != crc.getValue()) {
+            return 0;
+        }
+        buffer.getInt();
+        final long coveredLength = buffer.getLong();
+        final int count = buffer.getInt();
+        if (coveredLength > headerLength || coveredLength % HEADER_RECORD_SIZE != 0
+                || buffer.remaining() != (long) count * HEADER_RECORD_SIZE + 8) {
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            consumer.accept(buffer.getInt(), buffer.getLong(), buffer.getInt());
+        }
+        return coveredLength;
+    }
+
+    /**
+     * Counts a header record written by the store.
+     *
+     * @return true if a checkpoint is due
+     */
+    boolean recordWritten() {
+        return interval > 0 && ++recordsSinceCheckpoint >= interval;
+    }
+
+    /**
+     * @return true if header records were written since the last checkpoint
+     */
+    boolean isDirty() {
+        return interval > 0 && recordsSinceCheckpoint > 0;
+    }
+
+    /**
+     * Writes a checkpoint of the index. The header records up to the given length must
+     * have been written to the header file.
+     */
+    void write(long headerLength, Map<Long, long[]> index) throws IOException {
+        final CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(new FileOutputStream(tempFile), crc)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(headerLength);
+            out.writeInt(index.size());
+            for (Map.Entry<Long, long[]> entry : index.entrySet()) {
+                out.writeInt(entry.getKey().intValue());
+                out.writeLong(entry.getValue()[0]);
+                out.writeInt((int) entry.getValue()[1]);
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+        }
+        final Path source = tempFile.toPath();
+        try {
+            Files.move(source, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        recordsSinceCheckpoint = 0;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    void delete() throws IOException {
+        recordsSinceCheckpoint = 0;
+        Files.deleteIfExists(tempFile.toPath());
+        Files.deleteIfExists(file.toPath());
+    }
+}
@@ -19,9 +19,11 @@
 
 package quickfix;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.io.IOException;
 
 /**
@@ -54,6 +56,50 @@ public interface MessageStore {
      */
     void get(int startSequence, int endSequence, Collection<String> messages) throws IOException;
 
+    /**
+     * Receives the messages read by {@link MessageStore#get(int, int, int, MessageHandler)}.
+     */
+    @FunctionalInterface
+    interface MessageHandler {
+
+        /**
+         * @param message the raw FIX message string
+         * @return true to continue reading, false to stop
+         * @throws IOException IO error
+         */
+        boolean onMessage(String message) throws IOException;
+    }
+
+    /**
+     * Passes the messages within sequence number range (inclusive) to the handler in
+     * sequence number order as they are read, instead of collecting the whole range first.
+     * Used for large resends.
+     * <p>
+     * The default implementation reads the range in chunks of chunkSize sequence numbers
+     * with {@link #get(int, int, Collection)}, so at most chunkSize messages are held in
+     * memory. Stores which can read their messages one by one override it.
+     *
+     * @param startSequence the starting message sequence number.
+     * @param endSequence the ending message sequence number.
+     * @param chunkSize the maximum number of messages read at once
+     * @param handler receives the messages
+     * @throws IOException IO error
+     */
+    default void get(int startSequence, int endSequence, int chunkSize, MessageHandler handler)
+            throws IOException {
+        final int size = Math.max(chunkSize, 1);
+        final List<String> chunk = new ArrayList<>(Math.min(size, 1024));
+        for (long chunkStart = startSequence; chunkStart <= endSequence; chunkStart += size) {
+            chunk.clear();
+            get((int) chunkStart, (int) Math.min(endSequence, chunkStart + size - 1), chunk);
+            for (String message : chunk) {
+                if (!handler.onMessage(message)) {
+                    return;
+                }
+            }
+        }
+    }
+
     int getNextSenderMsgSeqNum() throws IOException;
 
     int getNextTargetMsgSeqNum() throws IOException;
@@ -98,4 +144,45 @@ public interface MessageStore {
      * or throw an exception.
      */
     void refresh() throws IOException;
+
+    /**
+     * Blocks until the messages and sequence numbers stored so far have been written to
+     * stable storage. Stores which write synchronously or which do not persist their
+     * state return immediately.
+     *
+     * @throws IOException IO error
+     */
+    default void awaitDurable() throws IOException {
+    }
+
+    /**
+     * Returns a ticket for the messages and sequence numbers stored so far. Passing it to
+     * {@link #awaitDurable(long)} waits for these writes only, not for writes done after the
+     * ticket was taken.
+     *
+     * @return the ticket, 0 for stores which do not commit in groups
+     */
+    default long getDurableTicket() {
+        return 0;
+    }
+
+    /**
+     * Blocks until the writes done before the ticket was taken have been written to stable
+     * storage. Stores which do not commit in groups wait for all writes done so far.
+     *
+     * @param ticket the ticket returned by {@link #getDurableTicket()}
+     * @throws IOException IO error
+     */
+    default void awaitDurable(long ticket) throws IOException {
+        awaitDurable();
+    }
+
+    /**
+     * Writes changes buffered in memory to the underlying storage. Called by the session
+     * on disconnect. Stores which do not buffer writes return immediately.
+     *
+     * @throws IOException IO error
+     */
+    default void flush() throws IOException {
+    }
 }
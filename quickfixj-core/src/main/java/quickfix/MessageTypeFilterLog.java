@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Log decorator which only passes the messages of selected message types to another log.
+ * Messages without a readable message type are always passed.
+ *
+ * @see MessageTypeFilterLogFactory
+ */
+class MessageTypeFilterLog implements Log, Closeable {
+
+    private final Log delegate;
+    private final Set<String> includedTypes;
+    private final Set<String> excludedTypes;
+
+    /**
+     * @param includedTypes the message types which are logged, or null for all types
+     * @param excludedTypes the message types which are not logged
+     */
+    MessageTypeFilterLog(Log delegate, Set<String> includedTypes, Set<String> excludedTypes) {
+        this.delegate = delegate;
+        this.includedTypes = includedTypes;
+        this.excludedTypes = excludedTypes;
+    }
+
+    Log getDelegate() {
+        return delegate;
+    }
+
+    public void clear() {
+        delegate.clear();
+    }
+
+    public void onIncoming(String message) {
+        if (delegate.isIncomingEnabled() && isLogged(message)) {
+            delegate.onIncoming(message);
+        }
+    }
+
+    public void onOutgoing(String message) {
+        if (delegate.isOutgoingEnabled() && isLogged(message)) {
+            delegate.onOutgoing(message);
+        }
+    }
+
+    private boolean isLogged(String message) {
+        final String msgType;
+        try {
+            msgType = MessageUtils.getMessageType(message);
+        } catch (InvalidMessage e) {
+            return true;
+        }
+        return (includedTypes == null || includedTypes.contains(msgType)) && !excludedTypes.contains(msgType);
+    }
+
+    public void onEvent(String text) {
+        delegate.onEvent(text);
+    }
+
+    public void onErrorEvent(String text) {
+        delegate.onErrorEvent(text);
+    }
+
+    public void onWarnEvent(String text) {
+        delegate.onWarnEvent(text);
+    }
+
+    public boolean isIncomingEnabled() {
+        return delegate.isIncomingEnabled();
+    }
+
+    public boolean isOutgoingEnabled() {
+        return delegate.isOutgoingEnabled();
+    }
+
+    public boolean isEventEnabled() {
+        return delegate.isEventEnabled();
+    }
+
+    /**
+     * Closes the underlying log if it is closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Creates logs which only pass the messages of selected message types to the logs of
+ * another factory, for example
+ * <code>new MessageTypeFilterLogFactory(settings, new FileLogFactory(settings))</code>.
+ * Events are always passed.
+ *
+ * @see quickfix.MessageTypeFilterLog
+ */
+public class MessageTypeFilterLogFactory implements LogFactory, Closeable {
+
+    /**
+     * Comma separated message types (tag 35) which are logged, e.g. "D,8". All message
+     * types are logged if not set.
+     */
+    public static final String SETTING_LOG_MESSAGE_TYPES = "LogMessageTypes";
+
+    /**
+     * Comma separated message types (tag 35) which are not logged, e.g. "0,1" to skip
+     * heartbeats and test requests. Not set by default.
+     */
+    public static final String SETTING_LOG_EXCLUDED_MESSAGE_TYPES = "LogExcludedMessageTypes";
+
+    private final SessionSettings settings;
+    private final LogFactory delegate;
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     * @param delegate the factory of the logs which are filtered
+     */
+    public MessageTypeFilterLogFactory(SessionSettings settings, LogFactory delegate) {
+        this.settings = settings;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates a filtering log for the log created by the delegate factory.
+     *
+     * @param sessionID session ID for the log
+     */
+    public Log create(SessionID sessionID) {
+        try {
+            Set<String> includedTypes = null;
+            if (settings.isSetting(sessionID, SETTING_LOG_MESSAGE_TYPES)) {
+                includedTypes = getMessageTypes(settings.getString(sessionID, SETTING_LOG_MESSAGE_TYPES));
+            }
+            Set<String> excludedTypes = Collections.emptySet();
+            if (settings.isSetting(sessionID, SETTING_LOG_EXCLUDED_MESSAGE_TYPES)) {
+                excludedTypes = getMessageTypes(settings.getString(sessionID, SETTING_LOG_EXCLUDED_MESSAGE_TYPES));
+            }
+            final Log log = delegate instanceof LocationAwareLogFactory
+                    ? ((LocationAwareLogFactory) delegate).create(sessionID, MessageTypeFilterLog.class.getName())
+                    : delegate.create(sessionID);
+            return new MessageTypeFilterLog(log, includedTypes, excludedTypes);
+        } catch (Exception e) {
+            throw new RuntimeError(e);
+        }
+    }
+
+    private static Set<String> getMessageTypes(String value) {
+        final Set<String> messageTypes = new HashSet<>();
+        for (String messageType : value.split(",")) {
+            if (!messageType.trim().isEmpty()) {
+                messageTypes.add(messageType.trim());
+            }
+        }
+        return messageTypes;
+    }
+
+    /**
+     * Closes the underlying factory if it is closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
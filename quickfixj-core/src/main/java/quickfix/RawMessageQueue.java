@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+/**
+ * A MessageQueue which keeps the raw data of the queued messages instead of the parsed
+ * messages. The session parses a message only when it is dequeued for processing.
+ *
+ * @see SpillingMessageQueue
+ */
+public interface RawMessageQueue extends MessageQueue {
+
+    /**
+     * Enqueue the data of a message.
+     *
+     * @param sequence    the sequence number
+     * @param messageData the raw FIX message
+     */
+    void enqueue(int sequence, String messageData);
+
+    /**
+     * Dequeue the data of a message with given sequence number.
+     *
+     * @param sequence the sequence number
+     * @return the raw FIX message or null if there is none
+     */
+    String dequeueMessageData(int sequence);
+
+    /**
+     * Enqueue the data the message was parsed from.
+     */
+    @Override
+    default void enqueue(int sequence, Message message) {
+        final String messageData = message.toRawString();
+        enqueue(sequence, messageData != null ? messageData : message.toString());
+    }
+
+    /**
+     * Dequeue a message parsed without data dictionary. The session parses the data of
+     * {@link #dequeueMessageData(int)} with its data dictionaries instead.
+     */
+    @Override
+    default Message dequeue(int sequence) {
+        final String messageData = dequeueMessageData(sequence);
+        if (messageData == null) {
+            return null;
+        }
+        try {
+            return new Message(messageData, false);
+        } catch (InvalidMessage e) {
+            throw new IllegalStateException("Queued message " + sequence + " cannot be parsed", e);
+        }
+    }
+}
@@ -19,6 +19,9 @@
 
 package quickfix;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Used by a Session to send raw FIX message data and to disconnect a
  * connection. This interface is used by Acceptor or Initiator implementations.
@@ -37,6 +40,18 @@ public interface Responder {
      */
     boolean send(String data);
 
+    /**
+     * Send a raw FIX message without waiting for the write to complete.
+     * The default implementation delegates to {@link #send(String)}.
+     *
+     * @param data the raw FIX message data
+     * @return a stage completed with true once the data has been written, or with false
+     * if the send operation failed
+     */
+    default CompletionStage<Boolean> sendAsync(String data) {
+        return CompletableFuture.completedFuture(send(data));
+    }
+
     /**
      * Disconnect the underlying connection.
      */
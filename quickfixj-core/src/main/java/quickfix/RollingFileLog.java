@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.quickfixj.CharsetSupport;
+
+import quickfix.field.converter.UtcTimestampConverter;
+
+/**
+ * File log which writes the same lines as {@link FileLog} to memory-mapped files that are
+ * rolled by size and time. The active files have the names of the {@link FileLog} files.
+ *
+ * @see quickfix.RollingFileLogFactory
+ */
+public class RollingFileLog extends AbstractLog {
+
+    private static final byte[] TIME_STAMP_DELIMITER = ": ".getBytes(CharsetSupport.getCharsetInstance());
+
+    private final RollingLogFile messages;
+    private final RollingLogFile events;
+    private final String messagesFileName;
+    private final String eventFileName;
+    private final boolean includeMillis;
+    private final boolean includeTimestampForMessages;
+
+    RollingFileLog(String path, SessionID sessionID, boolean includeMillis, boolean includeTimestampForMessages,
+            boolean logHeartbeats, RollingLogFileFactory fileFactory) throws IOException {
+        String prefix = FileUtil.fileAppendPath(path, FileUtil.sessionIdFileName(sessionID) + ".");
+        messagesFileName = prefix + "messages.log";
+        eventFileName = prefix + "event.log";
+        new File(messagesFileName).getParentFile().mkdirs();
+
+        setLogHeartbeats(logHeartbeats);
+        this.includeMillis = includeMillis;
+        this.includeTimestampForMessages = includeTimestampForMessages;
+
+        messages = fileFactory.create(messagesFileName);
+        try {
+            events = fileFactory.create(eventFileName);
+        } catch (IOException e) {
+            messages.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the files of a log.
+     */
+    interface RollingLogFileFactory {
+        RollingLogFile create(String fileName) throws IOException;
+    }
+
+    protected void logIncoming(String message) {
+        write(messages, message, includeTimestampForMessages);
+    }
+
+    protected void logOutgoing(String message) {
+        write(messages, message, includeTimestampForMessages);
+    }
+
+    public void onEvent(String text) {
+        write(events, text, true);
+    }
+
+    public void onErrorEvent(String text) {
+        write(events, text, true);
+    }
+
+    private void write(RollingLogFile file, String text, boolean includeTimestamp) {
+        try {
+            final byte[] data = text.getBytes(CharsetSupport.getCharsetInstance());
+            final byte[] line;
+            if (includeTimestamp) {
+                final byte[] timestamp = UtcTimestampConverter.convert(SystemTime.getDate(), includeMillis)
+                        .getBytes(CharsetSupport.getCharsetInstance());
+                line = new byte[timestamp.length + TIME_STAMP_DELIMITER.length + data.length + 1];
+                System.arraycopy(timestamp, 0, line, 0, timestamp.length);
+                System.arraycopy(TIME_STAMP_DELIMITER, 0, line, timestamp.length, TIME_STAMP_DELIMITER.length);
+                System.arraycopy(data, 0, line, timestamp.length + TIME_STAMP_DELIMITER.length, data.length);
+            } else {
+                line = new byte[data.length + 1];
+                System.arraycopy(data, 0, line, 0, data.length);
+            }
+            line[line.length - 1] = '\n';
+            file.write(line);
+        } catch (IOException e) {
+            // QFJ-459: no point trying to log the error in the file if we had an IOException
+            System.err.println("error writing message to log : " + text);
+            e.printStackTrace(System.err);
+        }
+    }
+
+    String getMessagesFileName() {
+        return messagesFileName;
+    }
+
+    String getEventFileName() {
+        return eventFileName;
+    }
+
+    RollingLogFile getMessagesFile() {
+        return messages;
+    }
+
+    RollingLogFile getEventFile() {
+        return events;
+    }
+
+    /**
+     * Truncates and closes the active files. They are opened again when a record is logged.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            messages.close();
+        } finally {
+            events.close();
+        }
+    }
+
+    /**
+     * Truncates the active files. Rolled files are kept.
+     */
+    public void clear() {
+        try {
+            messages.clear();
+            events.clear();
+        } catch (IOException e) {
+            System.err.println("Could not clear log: " + getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates file logs which write through memory-mapped files and roll them by size and
+ * time. The logs use the settings of the {@link FileLogFactory} and write the same lines.
+ * Rolled files are compressed and deleted on a background thread shared by the logs of
+ * the factory.
+ *
+ * @see quickfix.RollingFileLog
+ */
+public class RollingFileLogFactory implements LogFactory, Closeable {
+
+    /**
+     * Size in bytes after which a log file is rolled. Default is 64 MiB.
+     */
+    public static final String SETTING_ROLLING_FILE_LOG_MAX_SIZE = "RollingFileLogMaxSize";
+
+    /**
+     * When log files are rolled in addition to the size, NONE, DAILY (the default) or SESSION.
+     *
+     * @see TimeRotation
+     */
+    public static final String SETTING_ROLLING_FILE_LOG_TIME_ROTATION = "RollingFileLogTimeRotation";
+
+    /**
+     * Specify whether rolled files are compressed with gzip. Off, by default.
+     */
+    public static final String SETTING_ROLLING_FILE_LOG_COMPRESS = "RollingFileLogCompress";
+
+    /**
+     * Number of rolled files kept per log file, older files are deleted. 0, the default,
+     * keeps all files.
+     */
+    public static final String SETTING_ROLLING_FILE_LOG_MAX_BACKUPS = "RollingFileLogMaxBackups";
+
+    public static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Rolling of log files by time. The files are rolled when the first record of a new
+     * period is logged.
+     */
+    public enum TimeRotation {
+        /**
+         * Roll by size only.
+         */
+        NONE,
+        /**
+         * Roll at midnight UTC.
+         */
+        DAILY,
+        /**
+         * Roll when a new session period of the session schedule starts, at most one
+         * second late. Non-stop sessions roll at midnight UTC.
+         */
+        SESSION
+    }
+
+    private final SessionSettings settings;
+    private ExecutorService executor;
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     */
+    public RollingFileLogFactory(SessionSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Creates a rolling file-based logger.
+     *
+     * @param sessionID session ID for the logger
+     */
+    public Log create(SessionID sessionID) {
+        try {
+            boolean includeMillis = settings.getBoolOrDefault(sessionID,
+                    FileLogFactory.SETTING_INCLUDE_MILLIS_IN_TIMESTAMP, false);
+            boolean includeTimestampInMessages = settings.getBoolOrDefault(sessionID,
+                    FileLogFactory.SETTING_INCLUDE_TIMESTAMP_FOR_MESSAGES, false);
+            boolean logHeartbeats = settings.getBoolOrDefault(sessionID, FileLogFactory.SETTING_LOG_HEARTBEATS, true);
+
+            long maxSize = settings.getLongOrDefault(sessionID, SETTING_ROLLING_FILE_LOG_MAX_SIZE, DEFAULT_MAX_SIZE);
+            TimeRotation timeRotation = getTimeRotation(sessionID);
+            SessionSchedule schedule = timeRotation == TimeRotation.SESSION
+                    ? new DefaultSessionScheduleFactory().create(sessionID, settings)
+                    : null;
+            boolean compress = settings.getBoolOrDefault(sessionID, SETTING_ROLLING_FILE_LOG_COMPRESS, false);
+            int maxBackups = (int) settings.getLongOrDefault(sessionID, SETTING_ROLLING_FILE_LOG_MAX_BACKUPS, 0);
+            ExecutorService rolledFilesExecutor = compress || maxBackups > 0 ? getExecutor() : null;
+
+            return new RollingFileLog(settings.getString(sessionID, FileLogFactory.SETTING_FILE_LOG_PATH),
+                    sessionID, includeMillis, includeTimestampInMessages, logHeartbeats,
+                    fileName -> new RollingLogFile(fileName, maxSize, timeRotation, schedule, compress, maxBackups,
+                            rolledFilesExecutor));
+        } catch (Exception e) {
+            throw new RuntimeError(e);
+        }
+    }
+
+    private TimeRotation getTimeRotation(SessionID sessionID) throws ConfigError {
+        if (settings.isSetting(sessionID, SETTING_ROLLING_FILE_LOG_TIME_ROTATION)) {
+            return TimeRotation.valueOf(settings.getString(sessionID, SETTING_ROLLING_FILE_LOG_TIME_ROTATION)
+                    .trim().toUpperCase(Locale.ROOT));
+        }
+        return TimeRotation.DAILY;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "QFJ Rolled Log Processor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Waits until the rolled files are compressed and deleted and stops the background
+     * thread. Files rolled afterwards are not processed.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
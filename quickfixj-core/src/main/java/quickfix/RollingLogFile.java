@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Log file of {@link RollingFileLog} which is written through memory-mapped regions. The
+ * file is rolled, i.e. renamed with the UTC time at which it was started inserted before
+ * its extension, when it would exceed its maximum size or when the first record of a new
+ * UTC day or session period is written. Rolled files are optionally compressed and the oldest rolled files
+ * are deleted on a background thread.
+ * <p>
+ * The mapped region is larger than the written data, so the end of the active file is
+ * filled with zero bytes. The file is truncated when it is rolled or closed and when it is
+ * opened after a crash. The mapped regions are released before, as a file with a mapped
+ * region can not be truncated or renamed on Windows.
+ */
+final class RollingLogFile implements Closeable {
+
+    static final String COMPRESSED_SUFFIX = ".gz";
+
+    private static final int REGION_SIZE = 1024 * 1024;
+    // the session schedule is checked at most once per second
+    private static final long SESSION_CHECK_INTERVAL = 1000L;
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private final File file;
+    private final String baseName;
+    private final String extension;
+    private final long maxSize;
+    private final RollingFileLogFactory.TimeRotation timeRotation;
+    private final SessionSchedule schedule;
+    private final boolean compress;
+    private final int maxBackups;
+    private final Executor executor;
+
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer region;
+    private long regionOffset;
+    private long size;
+    private long segmentStartTime;
+    private long nextTimeCheck;
+    private final Calendar segmentStart = SystemTime.getUtcCalendar();
+    private final Calendar now = SystemTime.getUtcCalendar();
+
+    /**
+     * @param fileName the name of the active file, rolled files are named
+     * <code>&lt;name&gt;.&lt;time&gt;.&lt;extension&gt;</code>
+     * @param maxSize the size after which the file is rolled
+     * @param schedule the schedule of the session for {@link RollingFileLogFactory.TimeRotation#SESSION}
+     * @param compress whether rolled files are compressed with gzip
+     * @param maxBackups the number of rolled files which are kept, 0 keeps all files
+     * @param executor runs the compression and deletion of rolled files, may be null if
+     * neither is required
+     */
+    RollingLogFile(String fileName, long maxSize, RollingFileLogFactory.TimeRotation timeRotation,
+            SessionSchedule schedule, boolean compress, int maxBackups, Executor executor) throws IOException {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid maximum size: " + maxSize);
+        }
+        this.file = new File(fileName);
+        final String name = file.getName();
+        final int dot = name.lastIndexOf('.');
+        this.baseName = dot > 0 ? name.substring(0, dot) : name;
+        this.extension = dot > 0 ? name.substring(dot) : "";
+        this.maxSize = maxSize;
+        this.timeRotation = timeRotation == RollingFileLogFactory.TimeRotation.SESSION
+                && (schedule == null || schedule.isNonStopSession())
+                ? RollingFileLogFactory.TimeRotation.DAILY
+                : timeRotation;
+        this.schedule = schedule;
+        this.compress = compress;
+        this.maxBackups = maxBackups;
+        this.executor = executor;
+        open(false);
+    }
+
+    private void open(boolean truncate) throws IOException {
+        final boolean existing = file.length() > 0 && !truncate;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        size = truncate ? 0 : getWrittenSize(randomAccessFile);
+        randomAccessFile.setLength(size);
+        region = null;
+        regionOffset = size;
+        startSegment(existing ? file.lastModified() : SystemTime.currentTimeMillis());
+    }
+
+    /**
+     * @return the size of the file without the zero bytes at its end
+     */
+    private static long getWrittenSize(RandomAccessFile randomAccessFile) throws IOException {
+        final byte[] buffer = new byte[8192];
+        long end = randomAccessFile.length();
+        while (end > 0) {
+            final int length = (int) Math.min(buffer.length, end);
+            randomAccessFile.seek(end - length);
+            randomAccessFile.readFully(buffer, 0, length);
+            for (int i = length - 1; i >= 0; i--) {
+                if (buffer[i] != 0) {
+                    return end - length + i + 1;
+                }
+            }
+            end -= length;
+        }
+        return 0;
+    }
+
+    private void startSegment(long time) {
+        segmentStartTime = time;
+        segmentStart.setTimeInMillis(time);
+        switch (timeRotation) {
+        case DAILY:
+            nextTimeCheck = Math.floorDiv(time, DAY) * DAY + DAY;
+            break;
+        case SESSION:
+            nextTimeCheck = 0;
+            break;
+        default:
+            nextTimeCheck = Long.MAX_VALUE;
+        }
+    }
+
+    synchronized void write(byte[] data) throws IOException {
+        if (randomAccessFile == null) {
+            open(false);
+        }
+        final long time = SystemTime.currentTimeMillis();
+        if (time >= nextTimeCheck) {
+            checkTime(time);
+        }
+        if (size > 0 && size + data.length > maxSize) {
+            roll(time);
+        }
+        if (region == null || region.remaining() < data.length) {
+            releaseRegion();
+            regionOffset = size;
+            region = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, regionOffset,
+                    Math.max(Math.min(REGION_SIZE, maxSize), data.length));
+        }
+        region.put(data);
+        size += data.length;
+    }
+
+    private void checkTime(long time) throws IOException {
+        if (timeRotation == RollingFileLogFactory.TimeRotation.DAILY) {
+            roll(time);
+            return;
+        }
+        now.setTimeInMillis(time);
+        if (size > 0 && schedule.isSessionTime() && !schedule.isSameSession(segmentStart, now)) {
+            roll(time);
+        } else if (size == 0) {
+            startSegment(time);
+        }
+        nextTimeCheck = time + SESSION_CHECK_INTERVAL;
+    }
+
+    private void roll(long time) throws IOException {
+        if (size > 0) {
+            closeFile();
+            final File rolled = getRolledFile();
+            if (!file.renameTo(rolled)) {
+                throw new IOException("Could not rename " + file + " to " + rolled);
+            }
+            if (compress || maxBackups > 0) {
+                try {
+                    executor.execute(() -> processRolled(rolled));
+                } catch (RejectedExecutionException e) {
+                    // the factory was closed, the file is kept as it is
+                }
+            }
+            open(true);
+        }
+        startSegment(time);
+    }
+
+    private File getRolledFile() {
+        final SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS");
+        format.setTimeZone(SystemTime.UTC_TIMEZONE);
+        final String prefix = baseName + "." + format.format(new Date(segmentStartTime));
+        File rolled = new File(file.getParentFile(), prefix + extension);
+        for (int i = 1; rolled.exists() || new File(rolled.getPath() + COMPRESSED_SUFFIX).exists(); i++) {
+            rolled = new File(file.getParentFile(), prefix + String.format("-%04d", i) + extension);
+        }
+        return rolled;
+    }
+
+    private void processRolled(File rolled) {
+        try {
+            if (compress) {
+                compress(rolled);
+            }
+            if (maxBackups > 0) {
+                deleteOldest();
+            }
+        } catch (IOException e) {
+            System.err.println("error processing rolled log : " + rolled);
+            e.printStackTrace(System.err);
+        }
+    }
+
+    private static void compress(File rolled) throws IOException {
+        final File compressed = new File(rolled.getPath() + COMPRESSED_SUFFIX);
+        try (InputStream in = new FileInputStream(rolled);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed), 65536)) {
+            final byte[] buffer = new byte[65536];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                out.write(buffer, 0, length);
+            }
+        }
+        if (!rolled.delete()) {
+            throw new IOException("Could not delete " + rolled);
+        }
+    }
+
+    private void deleteOldest() {
+        final List<File> rolled = getRolledFiles();
+        for (int i = 0; i < rolled.size() - maxBackups; i++) {
+            rolled.get(i).delete();
+        }
+    }
+
+    /**
+     * @return the rolled files, oldest first
+     */
+    List<File> getRolledFiles() {
+        final String prefix = baseName + ".";
+        final File[] files = file.getAbsoluteFile().getParentFile().listFiles((directory, name) ->
+                name.startsWith(prefix) && (name.endsWith(extension) || name.endsWith(extension + COMPRESSED_SUFFIX))
+                        && !name.equals(file.getName()) && name.length() > prefix.length()
+                        && Character.isDigit(name.charAt(prefix.length())));
+        final List<File> rolled = new ArrayList<>();
+        if (files != null) {
+            rolled.addAll(Arrays.asList(files));
+            // a name without a collision index sorts before the names with one
+            rolled.sort(Comparator.comparing(rolledFile -> getRolledName(rolledFile.getName())));
+        }
+        return rolled;
+    }
+
+    private String getRolledName(String name) {
+        if (name.endsWith(COMPRESSED_SUFFIX)) {
+            name = name.substring(0, name.length() - COMPRESSED_SUFFIX.length());
+        }
+        return name.substring(0, name.length() - extension.length());
+    }
+
+    /**
+     * Truncates the active file.
+     */
+    synchronized void clear() throws IOException {
+        closeFile();
+        open(true);
+    }
+
+    private void releaseRegion() {
+        final MappedByteBuffer released = region;
+        region = null;
+        MappedBuffers.unmap(released);
+    }
+
+    private void closeFile() throws IOException {
+        if (randomAccessFile != null) {
+            releaseRegion();
+            try {
+                randomAccessFile.setLength(size);
+            } finally {
+                randomAccessFile.close();
+                randomAccessFile = null;
+            }
+        }
+    }
+
+    /**
+     * Truncates and closes the active file. It is opened again by the next write.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closeFile();
+    }
+}
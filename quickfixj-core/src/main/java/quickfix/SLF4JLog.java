@@ -153,4 +153,19 @@ public class SLF4JLog extends AbstractLog {
         onEvent("Log clear operation is not supported: " + getClass().getName());
     }
 
+    @Override
+    public boolean isIncomingEnabled() {
+        return incomingMsgLog.isInfoEnabled();
+    }
+
+    @Override
+    public boolean isOutgoingEnabled() {
+        return outgoingMsgLog.isInfoEnabled();
+    }
+
+    @Override
+    public boolean isEventEnabled() {
+        return eventLog.isInfoEnabled();
+    }
+
 }
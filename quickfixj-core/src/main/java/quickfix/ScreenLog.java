@@ -88,6 +88,21 @@ public class ScreenLog extends AbstractLog {
         log(message, ERROR_EVENT_CATEGORY);
     }
 
+    @Override
+    public boolean isIncomingEnabled() {
+        return incoming;
+    }
+
+    @Override
+    public boolean isOutgoingEnabled() {
+        return outgoing;
+    }
+
+    @Override
+    public boolean isEventEnabled() {
+        return events;
+    }
+
     private void log(String message, String type) {
         out.println("<" + UtcTimestampConverter.convert(SystemTime.getDate(), includeMillis) + ", " + sessionID + ", "
                 + type + "> (" + message + ")");
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+/**
+ * The outcome of {@link Session#sendAsync(Message)}.
+ */
+public final class SendResult {
+
+    private final int msgSeqNum;
+    private final boolean persisted;
+    private final boolean written;
+
+    public SendResult(int msgSeqNum, boolean persisted, boolean written) {
+        this.msgSeqNum = msgSeqNum;
+        this.persisted = persisted;
+        this.written = written;
+    }
+
+    /**
+     * @return the MsgSeqNum assigned to the message or 0 if the message was not sent,
+     * e.g. because the application threw DoNotSend
+     */
+    public int getMsgSeqNum() {
+        return msgSeqNum;
+    }
+
+    /**
+     * @return true if the message was stored in the message store and can be resent
+     */
+    public boolean isPersisted() {
+        return persisted;
+    }
+
+    /**
+     * @return true if the message was written to the socket
+     */
+    public boolean isWritten() {
+        return written;
+    }
+
+    @Override
+    public String toString() {
+        return "SendResult[msgSeqNum=" + msgSeqNum + ", persisted=" + persisted + ", written=" + written + "]";
+    }
+}
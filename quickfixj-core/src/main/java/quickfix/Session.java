@@ -54,6 +54,7 @@ import quickfix.field.TargetLocationID;
 import quickfix.field.TargetSubID;
 import quickfix.field.TestReqID;
 import quickfix.field.Text;
+import quickfix.field.converter.UtcTimestampConverter;
 import quickfix.mina.EventHandlingStrategy;
 
 import java.io.Closeable;
@@ -66,8 +67,13 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -400,6 +406,78 @@ public class Session implements Closeable {
      */
     public static final String SETTING_ALLOW_POS_DUP_MESSAGES = "AllowPosDup";
 
+    /**
+     * If set to Y, incoming messages of an established connection are only framed on the
+     * IO processor thread. Parsing, validation and logging of the message are done by the
+     * thread of the EventHandlingStrategy that dispatches the message to the session.
+     * Logon messages are always parsed on the IO processor thread.
+     * Valid values are "Y" or "N". Default is "N".
+     */
+    public static final String SETTING_DEFER_MESSAGE_PARSING = "DeferMessageParsing";
+
+    /**
+     * If set to Y, the session timer of the connector only processes sessions whose next
+     * heartbeat, test request or timeout is due, instead of processing all sessions once per
+     * second. Sessions which are not logged on are still processed once per second.
+     * Valid values are "Y" or "N". Default is "N".
+     */
+    public static final String SETTING_SESSION_TIMER_WHEEL = "SessionTimerWheel";
+
+    /**
+     * Resolution of the session timer in milliseconds when SessionTimerWheel is enabled.
+     * Default is 100.
+     */
+    public static final String SETTING_SESSION_TIMER_TICK = "SessionTimerTick";
+
+    /**
+     * If set to Y, application messages sent with a new sequence number are serialized
+     * before the sender sequence number is locked. Only the assignment of MsgSeqNum, the
+     * header and the ordered persist and write of the message are done under the lock,
+     * so threads sending concurrently on the same session block each other for a shorter time.
+     * Note that Application.toApp() is called before MsgSeqNum is assigned and that the
+     * body of the message must not be modified by toApp() after it has returned.
+     * Valid values are "Y" or "N". Default is "N".
+     */
+    public static final String SETTING_CONCURRENT_SEND = "ConcurrentSend";
+
+    /**
+     * If set to Y, the sequenced part of sending application messages (see ConcurrentSend)
+     * is handed off to a dedicated thread of the session so that sending threads never wait
+     * for the sender sequence number lock, the MessageStore or the network layer. send()
+     * then returns true as soon as the message has been queued; use sendAsync() to learn the
+     * outcome. Messages must not be modified after they have been passed to the session.
+     * Implies ConcurrentSend. Valid values are "Y" or "N". Default is "N".
+     */
+    public static final String SETTING_SEND_SEQUENCER = "SendSequencer";
+
+    /**
+     * If set to Y, a message sent with a new sequence number is only written to the
+     * network after the MessageStore has confirmed that the message and the sequence
+     * number are on stable storage (see MessageStore.awaitDurable(long)). The sender
+     * sequence number is not locked while waiting, so the next message can be stored
+     * in the same group commit. Messages are written in sequence number order.
+     * Valid values are "Y" or "N". Default is "N".
+     */
+    public static final String SETTING_DURABLE_BEFORE_SEND = "DurableBeforeSend";
+
+    /**
+     * Maximum number of messages read from the MessageStore at once when messages are
+     * resent. The messages are sent as they are read, so a large resend range does not
+     * have to fit in memory. Default is 1000.
+     */
+    public static final String SETTING_RESEND_READ_CHUNK_SIZE = "ResendReadChunkSize";
+
+    public static final int DEFAULT_RESEND_READ_CHUNK_SIZE = 1000;
+
+    /**
+     * Whether resent application messages are passed to Application.toApp(). If set to "N"
+     * the stored messages are resent without being parsed, only PossDupFlag, SendingTime and
+     * OrigSendingTime are replaced in the stored header. Admin messages are skipped without
+     * parsing either way.
+     * Valid values are "Y" or "N". Default is "Y".
+     */
+    public static final String SETTING_TO_APP_ON_RESEND = "ToAppOnResend";
+
     private static final ConcurrentMap<SessionID, Session> sessions = new ConcurrentHashMap<>();
 
     private final Application application;
@@ -417,12 +495,21 @@ public class Session implements Closeable {
     private volatile boolean enabled;
 
     private final Object responderLock = new Object(); // unique instance
+
+    // orders the writes of messages which wait for stable storage after the sender
+    // sequence number was unlocked, see SETTING_DURABLE_BEFORE_SEND
+    private final Object durableSendLock = new Object();
+    // @GuardedBy(senderMsgSeqNumLock)
+    private long lastDurableSendTurn;
+    // @GuardedBy(durableSendLock)
+    private long nextDurableSendTurn = 1;
     // @GuardedBy(responderLock)
     private Responder responder;
 
     // The session time checks were causing performance problems
     // so we are checking only once per second.
     private long lastSessionTimeCheck = 0;
+    private volatile Runnable timerWakeUp;
     private int logonAttempts = 0;
     private long lastSessionLogon = 0;
 
@@ -454,6 +541,13 @@ public class Session implements Closeable {
     private boolean allowPosDup = false;
 
     private int maxScheduledWriteRequests = 0;
+    private volatile boolean concurrentSend = false;
+    private boolean durableBeforeSend = false;
+    private int resendReadChunkSize = DEFAULT_RESEND_READ_CHUNK_SIZE;
+    private boolean toAppOnResend = true;
+    private volatile ExecutorService sendSequencer;
+    // time at which the message being processed was received, 0 if unknown
+    private long messageReceivedTime;
 
     private final AtomicBoolean isResetting = new AtomicBoolean();
     private final AtomicBoolean isResettingState = new AtomicBoolean();
@@ -633,6 +727,7 @@ public class Session implements Closeable {
                 stateListener.onDisconnect(sessionID);
             }
         }
+        wakeUpTimer();
     }
 
     public Responder getResponder() {
@@ -813,6 +908,7 @@ public class Session implements Closeable {
 
     private void setEnabled(boolean enabled) {
         this.enabled = enabled;
+        wakeUpTimer();
     }
 
     private void initializeHeader(Message.Header header) {
@@ -1292,6 +1388,23 @@ public class Session implements Closeable {
         next(message, false);
     }
 
+    /**
+     * (Internal use only)
+     *
+     * @param receivedTime the time in milliseconds at which the message was read from the
+     * connection, the last received time of the session is taken from it instead of the
+     * time at which the message is processed
+     */
+    public void next(Message message, long receivedTime) throws FieldNotFound, RejectLogon,
+            IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType, IOException, InvalidMessage {
+        messageReceivedTime = receivedTime;
+        try {
+            next(message);
+        } finally {
+            messageReceivedTime = 0;
+        }
+    }
+
     private boolean resetOrDisconnectIfRequired(Message msg) {
         if (!resetOnError && !disconnectOnError) {
             return false;
@@ -1434,7 +1547,9 @@ public class Session implements Closeable {
             }
         }
         sendRaw(sequenceReset, beginSeqNo);
-        getLog().onEvent("Sent SequenceReset TO: " + endSeqNo);
+        if (getLog().isEventEnabled()) {
+            getLog().onEvent("Sent SequenceReset TO: " + endSeqNo);
+        }
     }
 
     private boolean resendApproved(Message message) throws FieldNotFound {
@@ -1542,6 +1657,7 @@ public class Session implements Closeable {
         }
         sendRaw(logout, 0);
         state.setLogoutSent(true);
+        wakeUpTimer();
     }
 
     private void nextSequenceReset(Message sequenceReset) throws IOException, RejectLogon,
@@ -1809,8 +1925,16 @@ public class Session implements Closeable {
             throws RejectLogon, FieldNotFound, IncorrectDataFormat, IncorrectTagValue,
             UnsupportedMessageType, IOException {
 
-        state.setLastReceivedTime(SystemTime.currentTimeMillis());
-        state.clearTestRequestCounter();
+        if (messageReceivedTime != 0) {
+            state.setLastReceivedTime(Math.max(state.getLastReceivedTime(), messageReceivedTime));
+        } else {
+            state.setLastReceivedTime(SystemTime.currentTimeMillis());
+        }
+        if (state.getTestRequestCounter() > 0) {
+            state.clearTestRequestCounter();
+            // heartbeats are due again
+            wakeUpTimer();
+        }
 
         String msgType;
         try {
@@ -2055,6 +2179,44 @@ public class Session implements Closeable {
         }
     }
 
+    /**
+     * Computes the earliest time at which a call to {@link #next()} may have work to do, i.e. when
+     * a heartbeat or test request is to be sent or a timeout is to be checked. This is used by timer
+     * implementations which do not poll every session once per second. Sessions which are not
+     * logged on are polled once per second.
+     *
+     * @return the deadline in milliseconds
+     */
+    public long getNextTimerDeadline() {
+        final long now = SystemTime.currentTimeMillis();
+        if (!isEnabled() || !hasResponder() || !isLoggedOn() || state.getHeartBeatInterval() == 0) {
+            return now + 1000L;
+        }
+        long deadline = state.getNextTimerDeadline(!disableHeartBeatCheck);
+        if (sessionSchedule != null && !sessionSchedule.isNonStopSession()) {
+            deadline = Math.min(deadline, lastSessionTimeCheck + 1000L);
+        }
+        return deadline;
+    }
+
+    /**
+     * Sets a callback which is run whenever the state of the session changes in a way that
+     * affects {@link #getNextTimerDeadline()}. Internal use by the timer code of the
+     * acceptor/initiator implementations.
+     *
+     * @param timerWakeUp the callback or null
+     */
+    public void setTimerWakeUp(Runnable timerWakeUp) {
+        this.timerWakeUp = timerWakeUp;
+    }
+
+    private void wakeUpTimer() {
+        final Runnable wakeUp = timerWakeUp;
+        if (wakeUp != null) {
+            wakeUp.run();
+        }
+    }
+
     private long computeNextLogonDelayMillis() {
         int index = logonAttempts - 1;
         if (index < 0) {
@@ -2174,6 +2336,12 @@ public class Session implements Closeable {
             state.clearLogoutReason();
             state.setResendRange(0, 0);
 
+            try {
+                getStore().flush();
+            } catch (final IOException e) {
+                getLog().onErrorEvent("Error flushing message store on disconnect: " + e.getMessage());
+            }
+
             if (resetOnDisconnect || state.isResetStatePending()) {
                 resetState();
             }
@@ -2293,6 +2461,7 @@ public class Session implements Closeable {
             }
             generateLogon(logon, nextExpectedTargetNum);
         }
+        wakeUpTimer();
 
         // Check for proper sequence reset response
         if (state.isResetSent() && !state.isResetReceived()) {
@@ -2366,66 +2535,154 @@ public class Session implements Closeable {
     private void resendMessages(Message receivedMessage, int beginSeqNo, int endSeqNo)
             throws IOException, InvalidMessage, FieldNotFound {
 
-        final ArrayList<String> messages = new ArrayList<>();
+        final ResendHandler resendHandler = new ResendHandler(receivedMessage, beginSeqNo);
         try {
-            state.get(beginSeqNo, endSeqNo, messages);
+            state.get(beginSeqNo, endSeqNo, resendReadChunkSize, resendHandler);
         } catch (final IOException e) {
             if (forceResendWhenCorruptedStore) {
                 LOG.error("Cannot read messages from stores, resend HeartBeats", e);
-                for (int i = beginSeqNo; i < endSeqNo; i++) {
+                // the messages read so far have been resent
+                for (int i = resendHandler.current; i < endSeqNo; i++) {
                     final Message heartbeat = messageFactory.create(sessionID.getBeginString(),
                             MsgType.HEARTBEAT);
                     initializeHeader(heartbeat.getHeader());
                     heartbeat.getHeader().setInt(MsgSeqNum.FIELD, i);
-                    messages.add(heartbeat.toString());
+                    if (!resendHandler.onMessage(heartbeat.toString())) {
+                        break;
+                    }
                 }
             } else {
                 throw e;
             }
         }
+        resendHandler.rethrowFailure();
+        if (resendHandler.aborted) {
+            return;
+        }
 
-        int msgSeqNum = 0;
-        int begin = 0;
-        int current = beginSeqNo;
-        boolean appMessageJustSent = false;
+        final int msgSeqNum = resendHandler.msgSeqNum;
+        final int begin = resendHandler.begin;
+        int newBegin = beginSeqNo;
+        if (resendHandler.appMessageJustSent) {
+            newBegin = msgSeqNum + 1;
+        }
+        if (enableNextExpectedMsgSeqNum) {
+            if (begin != 0) {
+                generateSequenceReset(receivedMessage, begin, msgSeqNum + 1);
+            } else {
+                /*
+                 * I've added an else here as I managed to fail this without it in a unit test, however the unit test data
+                 * may not have been realistic to production on the other hand.
+                 * Apart from the else
+                 */
+            generateSequenceResetIfNeeded(receivedMessage, newBegin, endSeqNo, msgSeqNum);
+            }
+        } else {
+            if (begin != 0) {
+                generateSequenceReset(receivedMessage, begin, msgSeqNum + 1);
+            }
+            generateSequenceResetIfNeeded(receivedMessage, newBegin, endSeqNo, msgSeqNum);
+        }
+    }
 
-        for (final String message : messages) {
-            appMessageJustSent = false;
-            final Message msg;
+    /**
+     * Resends the messages of a resend range as they are read from the MessageStore and
+     * keeps track of the gaps to be filled with SequenceReset messages.
+     */
+    private final class ResendHandler implements MessageStore.MessageHandler {
+
+        private final Message receivedMessage;
+        private int msgSeqNum = 0;
+        private int begin = 0;
+        private int current;
+        private boolean appMessageJustSent = false;
+        private boolean aborted = false;
+        // exceptions of the resend are passed through the MessageStore this way to tell
+        // them apart from errors reading the store
+        private IOException ioException;
+        private FieldNotFound fieldNotFound;
+
+        private ResendHandler(Message receivedMessage, int beginSeqNo) {
+            this.receivedMessage = receivedMessage;
+            this.current = beginSeqNo;
+        }
+
+        @Override
+        public boolean onMessage(String message) {
             try {
-                // QFJ-626
-                msg = parseMessage(message);
-                msgSeqNum = msg.getHeader().getInt(MsgSeqNum.FIELD);
-            } catch (final Exception e) {
-                getLog().onErrorEvent(
-                        "Error handling ResendRequest: failed to parse message (" + e.getMessage()
-                        + "): " + message);
-                // Note: a SequenceReset message will be generated to fill the gap
-                continue;
+                return resend(message);
+            } catch (final IOException e) {
+                ioException = e;
+            } catch (final FieldNotFound e) {
+                fieldNotFound = e;
+            }
+            return false;
+        }
+
+        private void rethrowFailure() throws IOException, FieldNotFound {
+            if (ioException != null) {
+                throw ioException;
+            } else if (fieldNotFound != null) {
+                throw fieldNotFound;
+            }
+        }
+
+        private boolean resend(String message) throws IOException, FieldNotFound {
+            appMessageJustSent = false;
+            // the header is enough to skip admin messages and, without toApp, to resend
+            // application messages
+            final StoredMessageHeader header = forceResendWhenCorruptedStore ? null
+                    : StoredMessageHeader.scan(message);
+            Message msg = null;
+            if (header != null) {
+                msgSeqNum = header.getMsgSeqNum();
+            } else {
+                msg = parse(message);
+                if (msg == null) {
+                    // Note: a SequenceReset message will be generated to fill the gap
+                    return true;
+                }
             }
 
             if ((current != msgSeqNum) && begin == 0) {
                 begin = current;
             }
 
-            final String msgType = msg.getHeader().getString(MsgType.FIELD);
+            final boolean admin = header != null ? header.isAdmin()
+                    : MessageUtils.isAdminMessage(msg.getHeader().getString(MsgType.FIELD));
 
-            if (MessageUtils.isAdminMessage(msgType) && !forceResendWhenCorruptedStore) {
+            if (admin && !forceResendWhenCorruptedStore) {
                 if (begin == 0) {
                     begin = msgSeqNum;
                 }
             } else {
-                initializeResendFields(msg);
-                if (resendApproved(msg)) {
+                final String resendData;
+                if (msg == null && !toAppOnResend) {
+                    resendData = header.toResendMessage(
+                            UtcTimestampConverter.convert(SystemTime.getLocalDateTime(), getTimestampPrecision()));
+                } else {
+                    if (msg == null) {
+                        msg = parse(message);
+                        if (msg == null) {
+                            return true;
+                        }
+                    }
+                    initializeResendFields(msg);
+                    resendData = resendApproved(msg) ? msg.toString() : null;
+                }
+                if (resendData != null) {
                     if (begin != 0) {
                         generateSequenceReset(receivedMessage, begin, msgSeqNum);
                     }
-                    getLog().onEvent("Resending message: " + msgSeqNum);
-                    boolean sent = send(msg.toString());
+                    if (getLog().isEventEnabled()) {
+                        getLog().onEvent("Resending message: " + msgSeqNum);
+                    }
+                    boolean sent = send(resendData);
                     if (!sent) {
                         // Abort resend operation immediately - don't send any more messages
                         getLog().onWarnEvent("Resending messages aborted.");
-                        return;
+                        aborted = true;
+                        return false;
                     }
                     begin = 0;
                     appMessageJustSent = true;
@@ -2436,28 +2693,21 @@ public class Session implements Closeable {
                 }
             }
             current = msgSeqNum + 1;
+            return true;
         }
 
-        int newBegin = beginSeqNo;
-        if (appMessageJustSent) {
-            newBegin = msgSeqNum + 1;
-        }
-        if (enableNextExpectedMsgSeqNum) {
-            if (begin != 0) {
-                generateSequenceReset(receivedMessage, begin, msgSeqNum + 1);
-            } else {
-                /*
-                 * I've added an else here as I managed to fail this without it in a unit test, however the unit test data
-                 * may not have been realistic to production on the other hand.
-                 * Apart from the else
-                 */
-            generateSequenceResetIfNeeded(receivedMessage, newBegin, endSeqNo, msgSeqNum);
-            }
-        } else {
-            if (begin != 0) {
-                generateSequenceReset(receivedMessage, begin, msgSeqNum + 1);
+        private Message parse(String message) {
+            try {
+                // QFJ-626
+                final Message msg = parseMessage(message);
+                msgSeqNum = msg.getHeader().getInt(MsgSeqNum.FIELD);
+                return msg;
+            } catch (final Exception e) {
+                getLog().onErrorEvent(
+                        "Error handling ResendRequest: failed to parse message (" + e.getMessage()
+                        + "): " + message);
+                return null;
             }
-            generateSequenceResetIfNeeded(receivedMessage, newBegin, endSeqNo, msgSeqNum);
         }
     }
 
@@ -2482,9 +2732,11 @@ public class Session implements Closeable {
 
     private boolean nextQueued(int num) throws FieldNotFound, RejectLogon, IncorrectDataFormat,
             IncorrectTagValue, UnsupportedMessageType, IOException, InvalidMessage {
-        final Message msg = state.getMessageQueue().dequeue(num);
+        final Message msg = dequeueMessage(num);
         if (msg != null) {
-            getLog().onEvent("Processing queued message: " + num);
+            if (getLog().isEventEnabled()) {
+                getLog().onEvent("Processing queued message: " + num);
+            }
 
             final String msgType = msg.getHeader().getString(MsgType.FIELD);
             if (MsgType.LOGON.equals(msgType) || MsgType.RESEND_REQUEST.equals(msgType)) {
@@ -2498,6 +2750,15 @@ public class Session implements Closeable {
         return false;
     }
 
+    private Message dequeueMessage(int num) throws InvalidMessage {
+        final MessageQueue messageQueue = state.getMessageQueue();
+        if (messageQueue instanceof RawMessageQueue) {
+            final String messageData = ((RawMessageQueue) messageQueue).dequeueMessageData(num);
+            return messageData != null ? parseMessage(messageData) : null;
+        }
+        return messageQueue.dequeue(num);
+    }
+
     private void nextQueued(Message msg, String msgType) throws InvalidMessage, FieldNotFound, RejectLogon,
             IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType, IOException {
         try {
@@ -2520,9 +2781,11 @@ public class Session implements Closeable {
         final Message.Header header = msg.getHeader();
         final String beginString = header.getString(BeginString.FIELD);
         final int msgSeqNum = header.getInt(MsgSeqNum.FIELD);
-        getLog().onEvent(
-                "MsgSeqNum too high, expecting " + getExpectedTargetNum() + " but received "
-                        + msgSeqNum + ": " + msg);
+        if (getLog().isEventEnabled()) {
+            getLog().onEvent(
+                    "MsgSeqNum too high, expecting " + getExpectedTargetNum() + " but received "
+                            + msgSeqNum + ": " + msg);
+        }
         enqueueMessage(msg, msgSeqNum);
 
         if (state.isResendRequested()) {
@@ -2581,7 +2844,9 @@ public class Session implements Closeable {
         resendRequest.setInt(EndSeqNo.FIELD, endSeqNo);
         initializeHeader(resendRequest.getHeader());
         sendRaw(resendRequest, 0);
-        getLog().onEvent("Sent ResendRequest FROM: " + beginSeqNo + " TO: " + (endSeqNo == 0 ? "infinity" : endSeqNo));
+        if (getLog().isEventEnabled()) {
+            getLog().onEvent("Sent ResendRequest FROM: " + beginSeqNo + " TO: " + (endSeqNo == 0 ? "infinity" : endSeqNo));
+        }
         int resendRangeEndSeqNum = msgSeqNum - 1;
         int resendRangeCurrentSeqNum = resendRequestChunkSize == 0 ? 0 : lastEndSeqNoSent;
         state.setResendRange(beginSeqNo, resendRangeEndSeqNum, resendRangeCurrentSeqNum);
@@ -2664,6 +2929,79 @@ public class Session implements Closeable {
       }
     }
 
+    /**
+     * Prepares a message for {@link #sendDurable} while the sender sequence number is locked.
+     * Takes the store's durable ticket if the message was sent with a new sequence number
+     * and its turn for the write.
+     */
+    private DurableSend newDurableSend(String messageString, int msgSeqNum, int num, boolean persisted) {
+        final long durableTicket = num == 0 ? state.getMessageStore().getDurableTicket() : -1;
+        return new DurableSend(messageString, msgSeqNum, persisted, durableTicket, ++lastDurableSendTurn);
+    }
+
+    /**
+     * Waits until the message and the sequence number are on stable storage, then writes the
+     * message after the messages which were sequenced before it. Called after the sender
+     * sequence number was unlocked.
+     */
+    private boolean sendDurable(DurableSend durableSend, CompletableFuture<SendResult> sendResult) {
+        boolean durable = true;
+        if (durableSend.durableTicket >= 0) {
+            try {
+                state.getMessageStore().awaitDurable(durableSend.durableTicket);
+            } catch (final IOException e) {
+                logThrowable(getLog(), "Error reading/writing in MessageStore", e);
+                durable = false;
+            }
+        }
+        boolean result = false;
+        boolean interrupted = false;
+        synchronized (durableSendLock) {
+            // the turn must be taken even if interrupted, later messages wait for it
+            while (nextDurableSendTurn != durableSend.turn) {
+                try {
+                    durableSendLock.wait();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            try {
+                if (durable) {
+                    result = send(durableSend.messageString, durableSend.msgSeqNum, durableSend.persisted,
+                            sendResult);
+                }
+            } finally {
+                nextDurableSendTurn++;
+                durableSendLock.notifyAll();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (sendResult != null && !result) {
+            sendResult.complete(new SendResult(durableSend.msgSeqNum, durableSend.persisted, false));
+        }
+        return result;
+    }
+
+    private static final class DurableSend {
+        private final String messageString;
+        private final int msgSeqNum;
+        private final boolean persisted;
+        // -1 if the message does not have to wait for stable storage
+        private final long durableTicket;
+        private final long turn;
+
+        private DurableSend(String messageString, int msgSeqNum, boolean persisted, long durableTicket,
+                long turn) {
+            this.messageString = messageString;
+            this.msgSeqNum = msgSeqNum;
+            this.persisted = persisted;
+            this.durableTicket = durableTicket;
+            this.turn = turn;
+        }
+    }
+
     /**
      * Send the message
      *
@@ -2672,12 +3010,31 @@ public class Session implements Closeable {
      * @return
      */
     private boolean sendRaw(Message message, int num) {
+        return sendRaw(message, num, null);
+    }
+
+    /**
+     * Send the message
+     *
+     * @param message is the message to send
+     * @param num is the seq num of the message to send, if 0, the next expected sender seqnum is used.
+     * @param sendResult if not null, the message is written asynchronously and sendResult is completed
+     *                   once the write has finished or the message was not sent
+     * @return
+     */
+    private boolean sendRaw(Message message, int num, CompletableFuture<SendResult> sendResult) {
+        if (num == 0 && (concurrentSend || sendSequencer != null) && !message.isAdmin()) {
+            return sendApplicationMessage(message, sendResult);
+        }
+        boolean result = false;
+        int msgSeqNum = 0;
+        boolean persisted = false;
+        DurableSend durableSend = null;
         // sequence number must be locked until application
         // callback returns since it may be effectively rolled
         // back if the callback fails.
         state.lockSenderMsgSeqNum();
         try {
-            boolean result = false;
             final Message.Header header = message.getHeader();
             final String msgType = header.getString(MsgType.FIELD);
 
@@ -2718,10 +3075,16 @@ public class Session implements Closeable {
 
                 messageString = message.toString();
                 persist(message.getHeader(), messageString, num);
+                msgSeqNum = header.getInt(MsgSeqNum.FIELD);
+                persisted = persistMessages && num == 0;
                 if (MsgType.LOGON.equals(msgType) || MsgType.LOGOUT.equals(msgType)
                         || MsgType.RESEND_REQUEST.equals(msgType)
                         || MsgType.SEQUENCE_RESET.equals(msgType) || isLoggedOn()) {
-                    result = send(messageString);
+                    if (durableBeforeSend) {
+                        durableSend = newDurableSend(messageString, msgSeqNum, num, persisted);
+                    } else {
+                        result = send(messageString, msgSeqNum, persisted, sendResult);
+                    }
                 }
             } else {
                 try {
@@ -2733,12 +3096,99 @@ public class Session implements Closeable {
                 }
                 messageString = message.toString();
                 persist(message.getHeader(), messageString, num);
+                msgSeqNum = header.getInt(MsgSeqNum.FIELD);
+                persisted = persistMessages && num == 0;
                 if (isLoggedOn()) {
-                    result = send(messageString);
+                    if (durableBeforeSend) {
+                        durableSend = newDurableSend(messageString, msgSeqNum, num, persisted);
+                    } else {
+                        result = send(messageString, msgSeqNum, persisted, sendResult);
+                    }
                 }
             }
+        } catch (final IOException e) {
+            logThrowable(getLog(), "Error reading/writing in MessageStore", e);
+            return false;
+        } catch (final FieldNotFound e) {
+            logThrowable(state.getLog(), "Error accessing message fields", e);
+            return false;
+        } finally {
+            state.unlockSenderMsgSeqNum();
+            // if the write was started sendResult is completed by the responder
+            if (sendResult != null && !result && durableSend == null) {
+                sendResult.complete(new SendResult(msgSeqNum, persisted, false));
+            }
+        }
+        return durableSend != null ? sendDurable(durableSend, sendResult) : result;
+    }
 
-            return result;
+    /**
+     * Sends an application message with the next sender sequence number. The message is
+     * prepared and its body is serialized before the sender sequence number is locked.
+     *
+     * @see #SETTING_CONCURRENT_SEND
+     */
+    private boolean sendApplicationMessage(Message message, CompletableFuture<SendResult> sendResult) {
+        final Message.Header header = message.getHeader();
+        initializeHeader(header);
+        if (enableLastMsgSeqNumProcessed) {
+            if (!header.isSetField(LastMsgSeqNumProcessed.FIELD)) {
+                header.setInt(LastMsgSeqNumProcessed.FIELD, getExpectedTargetNum() - 1);
+            }
+        }
+        try {
+            application.toApp(message, sessionID);
+        } catch (final DoNotSend e) {
+            if (sendResult != null) {
+                sendResult.complete(new SendResult(0, false, false));
+            }
+            return false;
+        } catch (final Throwable t) {
+            logApplicationException("toApp()", t);
+        }
+        final String body = message.toBodyString();
+
+        final ExecutorService sequencer = sendSequencer;
+        if (sequencer == null) {
+            return sendSequenced(message, body, sendResult);
+        }
+        try {
+            sequencer.execute(() -> sendSequenced(message, body, sendResult));
+            return true;
+        } catch (final RejectedExecutionException e) {
+            getLog().onErrorEvent("Send sequencer is shut down, not sending message: " + message);
+            if (sendResult != null) {
+                sendResult.complete(new SendResult(0, false, false));
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Assigns the next sender sequence number to a message whose body was already
+     * serialized, then persists and sends it.
+     */
+    private boolean sendSequenced(Message message, String body, CompletableFuture<SendResult> sendResult) {
+        boolean result = false;
+        int msgSeqNum = 0;
+        boolean persisted = false;
+        DurableSend durableSend = null;
+        state.lockSenderMsgSeqNum();
+        try {
+            final Message.Header header = message.getHeader();
+            msgSeqNum = getExpectedSenderNum();
+            header.setInt(MsgSeqNum.FIELD, msgSeqNum);
+            insertSendingTime(header);
+            final String messageString = message.toString(body);
+            persist(header, messageString, 0);
+            persisted = persistMessages;
+            if (isLoggedOn()) {
+                if (durableBeforeSend) {
+                    durableSend = newDurableSend(messageString, msgSeqNum, 0, persisted);
+                } else {
+                    result = send(messageString, msgSeqNum, persisted, sendResult);
+                }
+            }
         } catch (final IOException e) {
             logThrowable(getLog(), "Error reading/writing in MessageStore", e);
             return false;
@@ -2747,12 +3197,18 @@ public class Session implements Closeable {
             return false;
         } finally {
             state.unlockSenderMsgSeqNum();
+            if (sendResult != null && !result && durableSend == null) {
+                sendResult.complete(new SendResult(msgSeqNum, persisted, false));
+            }
         }
+        return durableSend != null ? sendDurable(durableSend, sendResult) : result;
     }
 
     private void enqueueMessage(final Message msg, final int msgSeqNum) {
         state.getMessageQueue().enqueue(msgSeqNum, msg);
-        getLog().onEvent("Enqueued at pos " + msgSeqNum + ": " + msg);
+        if (getLog().isEventEnabled()) {
+            getLog().onEvent("Enqueued at pos " + msgSeqNum + ": " + msg);
+        }
     }
 
     private void resetState() {
@@ -2812,8 +3268,66 @@ public class Session implements Closeable {
         return sendRaw(message, 0);
     }
 
+    /**
+     * Send a message to a counterparty without blocking until the message data has been
+     * written. Sequence numbers and information about the sender and target identification
+     * will be added automatically (or overwritten if that information already is present).
+     *
+     * The returned stage is completed once the message data has been written to the
+     * network, or as soon as it is known that the message will not be written, e.g. because
+     * the session is not logged on, the application threw DoNotSend or the write failed.
+     * The {@link SendResult} tells the assigned MsgSeqNum and whether the message was persisted
+     * before it was handed to the network layer. The stage is completed by a network thread, so
+     * dependent actions should not block.
+     *
+     * @param message the message to send
+     * @return a stage completed with the outcome of the send operation
+     */
+    public CompletionStage<SendResult> sendAsync(Message message) {
+        return sendAsync(message, this.allowPosDup);
+    }
+
+    /**
+     * Send a message to a counterparty without blocking until the message data has been
+     * written.
+     *
+     * @param message       the message to send
+     * @param allowPosDup   whether to allow PossDupFlag and OrigSendingTime in the message
+     * @return a stage completed with the outcome of the send operation
+     * @see #sendAsync(Message)
+     */
+    public CompletionStage<SendResult> sendAsync(Message message, boolean allowPosDup) {
+        if (!allowPosDup) {
+            message.getHeader().removeField(PossDupFlag.FIELD);
+            message.getHeader().removeField(OrigSendingTime.FIELD);
+        }
+        final CompletableFuture<SendResult> sendResult = new CompletableFuture<>();
+        sendRaw(message, 0, sendResult);
+        return sendResult;
+    }
+
+    private boolean send(String messageString, int msgSeqNum, boolean persisted,
+            CompletableFuture<SendResult> sendResult) {
+        if (sendResult == null) {
+            return send(messageString);
+        }
+        if (getLog().isOutgoingEnabled()) {
+            getLog().onOutgoing(messageString);
+        }
+        final Responder responder = getResponder();
+        if (responder == null) {
+            getLog().onEvent("No responder, not sending message: " + messageString);
+            return false;
+        }
+        responder.sendAsync(messageString).whenComplete((written, e) -> sendResult
+                .complete(new SendResult(msgSeqNum, persisted, e == null && Boolean.TRUE.equals(written))));
+        return true;
+    }
+
     private boolean send(String messageString) {
-        getLog().onOutgoing(messageString);
+        if (getLog().isOutgoingEnabled()) {
+            getLog().onOutgoing(messageString);
+        }
         Responder responder;
         synchronized (responderLock) {
             responder = this.responder;
@@ -2911,6 +3425,7 @@ public class Session implements Closeable {
      */
     public void setHeartBeatInterval(int heartbeatInterval) {
         state.setHeartBeatInterval(heartbeatInterval);
+        wakeUpTimer();
     }
 
     public boolean getCheckCompID() {
@@ -3090,6 +3605,58 @@ public class Session implements Closeable {
         this.maxScheduledWriteRequests = maxScheduledWriteRequests;
     }
 
+    /**
+     * @see #SETTING_CONCURRENT_SEND
+     */
+    public void setConcurrentSend(boolean concurrentSend) {
+        this.concurrentSend = concurrentSend;
+    }
+
+    public boolean isConcurrentSend() {
+        return concurrentSend;
+    }
+
+    /**
+     * @see #SETTING_DURABLE_BEFORE_SEND
+     */
+    public void setDurableBeforeSend(boolean durableBeforeSend) {
+        this.durableBeforeSend = durableBeforeSend;
+    }
+
+    /**
+     * @see #SETTING_RESEND_READ_CHUNK_SIZE
+     */
+    public void setResendReadChunkSize(int resendReadChunkSize) {
+        this.resendReadChunkSize = resendReadChunkSize;
+    }
+
+    /**
+     * @see #SETTING_TO_APP_ON_RESEND
+     */
+    public void setToAppOnResend(boolean toAppOnResend) {
+        this.toAppOnResend = toAppOnResend;
+    }
+
+    /**
+     * @see #SETTING_SEND_SEQUENCER
+     */
+    public synchronized void setSendSequencer(boolean enabled) {
+        if (enabled && sendSequencer == null) {
+            sendSequencer = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "QFJ Send Sequencer " + sessionID);
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else if (!enabled && sendSequencer != null) {
+            sendSequencer.shutdown();
+            sendSequencer = null;
+        }
+    }
+
+    public boolean isSendSequencer() {
+        return sendSequencer != null;
+    }
+
     public void setIgnoreHeartBeatFailure(boolean ignoreHeartBeatFailure) {
         disableHeartBeatCheck = ignoreHeartBeatFailure;
     }
@@ -3134,6 +3701,7 @@ public class Session implements Closeable {
      */
     @Override
     public void close() throws IOException {
+        setSendSequencer(false);
         closeIfCloseable(getLog());
         closeIfCloseable(getStore());
         // clean up session just in case close() was not called from Session.unregisterSession()
@@ -37,6 +37,13 @@ public interface SessionFactory {
      */
     String SETTING_CONTINUE_INIT_ON_ERROR = "ContinueInitializationOnError";
 
+    /**
+     * Number of threads the connector uses to create its sessions on startup. Creating
+     * a session includes loading its message store, so sessions with large stores are
+     * recovered concurrently. The default of 1 creates the sessions one by one.
+     */
+    String SETTING_SESSION_INIT_THREADS = "SessionInitializationThreads";
+
     String ACCEPTOR_CONNECTION_TYPE = "acceptor";
     String INITIATOR_CONNECTION_TYPE = "initiator";
 
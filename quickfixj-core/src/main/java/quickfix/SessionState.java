@@ -264,7 +264,7 @@ public final class SessionState {
         return messageQueue;
     }
 
-    private int getTestRequestCounter() {
+    int getTestRequestCounter() {
         synchronized (lock) {
             return testRequestCounter;
         }
@@ -301,6 +301,32 @@ public final class SessionState {
         return millisSinceLastReceivedTime >= (1 + heartBeatTimeoutMultiplier) * getHeartBeatMillis();
     }
 
+    /**
+     * Computes the earliest time at which one of the checks isHeartBeatNeeded(), isTestRequestNeeded(),
+     * isTimedOut() or isLogoutTimedOut() can become true.
+     *
+     * @param includeHeartBeatTimeout whether the heartbeat timeout should be taken into account
+     * @return the deadline in milliseconds
+     */
+    long getNextTimerDeadline(boolean includeHeartBeatTimeout) {
+        synchronized (lock) {
+            long deadline = lastReceivedTime
+                    + (long) Math.ceil((1 + testRequestDelayMultiplier) * (testRequestCounter + 1) * heartBeatMillis);
+            if (testRequestCounter == 0) {
+                // see isHeartBeatNeeded() for the 10 ms leeway
+                deadline = Math.min(deadline, lastSentTime + heartBeatMillis - 9);
+            }
+            if (includeHeartBeatTimeout) {
+                deadline = Math.min(deadline,
+                        lastReceivedTime + (long) Math.ceil((1 + heartBeatTimeoutMultiplier) * heartBeatMillis));
+            }
+            if (logoutSent) {
+                deadline = Math.min(deadline, lastSentTime + logoutTimeoutMs);
+            }
+            return deadline;
+        }
+    }
+
     public boolean set(int sequence, String message) throws IOException {
         return messageStore.set(sequence, message);
     }
@@ -309,6 +335,10 @@ public final class SessionState {
         messageStore.get(first, last, messages);
     }
 
+    public void get(int first, int last, int chunkSize, MessageStore.MessageHandler handler) throws IOException {
+        messageStore.get(first, last, chunkSize, handler);
+    }
+
     public void lockSenderMsgSeqNum() {
         senderMsgSeqNumLock.lock();
     }
@@ -510,6 +540,18 @@ public final class SessionState {
 
         public void clear() {
         }
+
+        public boolean isIncomingEnabled() {
+            return false;
+        }
+
+        public boolean isOutgoingEnabled() {
+            return false;
+        }
+
+        public boolean isEventEnabled() {
+            return false;
+        }
     }
 
     /**
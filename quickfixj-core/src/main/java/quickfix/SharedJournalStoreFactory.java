@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates message stores which share a single journal for all sessions, instead of a set
+ * of files per session. The records are tagged with a session index and every store keeps
+ * the index of its own messages in memory. This keeps the number of open files independent
+ * of the number of sessions and turns the writes of all sessions into sequential appends.
+ * <p>
+ * The journal is created in the directory <code>shared.journal</code> below the FileStorePath
+ * of the default section. FileStoreSync, FileStoreGroupCommit, JournalStoreSegmentSize and
+ * JournalStoreRetentionPeriod are read from the default section as well. A reset of a session
+ * does not start a new segment, the segments are deleted once no session references any of
+ * their messages. Use {@link #compact()} or {@link JournalCompactor} to copy the remaining
+ * messages to new segments.
+ *
+ * @see quickfix.JournalStore
+ */
+public class SharedJournalStoreFactory extends JournalStoreFactory implements Closeable {
+
+    static final String SHARED_JOURNAL_DIRECTORY = "shared.journal";
+
+    private Journal journal;
+    private ScheduledFuture<?> cleanupTask;
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     */
+    public SharedJournalStoreFactory(SessionSettings settings) {
+        super(settings);
+    }
+
+    /**
+     * Creates a message store in the shared journal.
+     *
+     * @param sessionID session ID for the message store.
+     */
+    @Override
+    public MessageStore create(SessionID sessionID) {
+        try {
+            return new JournalStore(getJournal(), sessionID);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    synchronized Journal getJournal() throws ConfigError, FieldConvertError, IOException {
+        if (journal == null) {
+            final String path = settings.isSetting(SETTING_FILE_STORE_PATH)
+                    ? settings.getString(SETTING_FILE_STORE_PATH)
+                    : ".";
+            journal = new Journal(new File(new File(path).getAbsoluteFile(), SHARED_JOURNAL_DIRECTORY),
+                    settings.getLongOrDefault(SETTING_JOURNAL_STORE_SEGMENT_SIZE, DEFAULT_SEGMENT_SIZE),
+                    settings.getBoolOrDefault(SETTING_FILE_STORE_SYNC, false), getGroupCommitter(), false);
+            final long retentionMillis = TimeUnit.SECONDS.toMillis(
+                    settings.getLongOrDefault(SETTING_JOURNAL_STORE_RETENTION_PERIOD, 0));
+            final Journal cleanedJournal = journal;
+            cleanupTask = getCleanupExecutor().scheduleWithFixedDelay(
+                    () -> cleanedJournal.deleteObsoleteSegments(retentionMillis),
+                    CLEANUP_INTERVAL_SECONDS, CLEANUP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        return journal;
+    }
+
+    /**
+     * Copies the messages still referenced by the sessions to new segments and deletes the
+     * previous segments. The stores are blocked while the messages are copied.
+     *
+     * @return the number of copied messages
+     */
+    public int compact() throws IOException {
+        try {
+            return getJournal().compact();
+        } catch (ConfigError | FieldConvertError e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes the shared journal. The stores created by this factory must not be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (journal != null) {
+            cleanupTask.cancel(false);
+            journal.close();
+            journal = null;
+        }
+        super.close();
+    }
+}
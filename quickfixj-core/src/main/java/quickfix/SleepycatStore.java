@@ -19,11 +19,15 @@
 
 package quickfix;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.quickfixj.CharsetSupport;
 import org.slf4j.Logger;
@@ -42,14 +46,22 @@ import com.sleepycat.je.Environment;
 import com.sleepycat.je.EnvironmentConfig;
 import com.sleepycat.je.LockMode;
 import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
 
 /**
  * Sleepycat message and session state storage. This could be creating
  * using the Sleepycat store factory.
+ * <p>
+ * By default the databases are neither transactional nor deferred-write, every write is
+ * passed to the JE log which is synced by JE in the background. With deferred-write
+ * databases the writes are kept in the JE cache until the store is flushed or closed.
+ * With a commit batch size the environment is transactional and the writes are grouped
+ * in transactions which are committed, and synced, after the given number of writes,
+ * after the commit interval or when the store is flushed.
  *
  * @see SleepycatStoreFactory
  */
-public class SleepycatStore implements MessageStore {
+public class SleepycatStore implements MessageStore, Closeable {
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final SessionID sessionID; // session key
     private SessionInfo info;
@@ -68,6 +80,15 @@ public class SleepycatStore implements MessageStore {
     private final DatabaseEntry sessionInfoBytes = new DatabaseEntry();
     private final String charsetEncoding = CharsetSupport.getCharset();
 
+    private final long cacheSize;
+    private final boolean deferredWrite;
+    private final int commitBatchSize;
+    private final long commitIntervalMillis;
+    private final ScheduledExecutorService commitExecutor;
+    private ScheduledFuture<?> commitTask;
+    private Transaction transaction;
+    private int transactionWrites;
+
     private static class SessionIDTupleBinding extends TupleBinding {
 
         /*
@@ -169,35 +190,83 @@ public class SleepycatStore implements MessageStore {
 
     public SleepycatStore(SessionID sessionID, String databaseDir, String sequenceDbName,
             String messageDbName) throws IOException {
+        this(sessionID, databaseDir, sequenceDbName, messageDbName, 0, false, 0, 0, null);
+    }
+
+    /**
+     * @param cacheSize size of the JE cache in bytes, 0 for the JE default. The cache is
+     *                  shared by the stores using the same database directory.
+     * @param deferredWrite whether the databases are deferred-write databases
+     * @param commitBatchSize number of writes after which the transaction of the writes
+     *                        is committed, 0 if the databases are not transactional
+     * @param commitIntervalMillis maximum time in milliseconds until a transaction is
+     *                             committed, 0 if it is only committed by batch size
+     * @param commitExecutor runs the commits by interval, may be shared by several stores
+     */
+    public SleepycatStore(SessionID sessionID, String databaseDir, String sequenceDbName,
+            String messageDbName, long cacheSize, boolean deferredWrite, int commitBatchSize,
+            long commitIntervalMillis, ScheduledExecutorService commitExecutor) throws IOException {
+        if (deferredWrite && commitBatchSize > 0) {
+            throw new IllegalArgumentException("Deferred-write databases cannot be transactional");
+        }
+        if (commitBatchSize > 0 && commitIntervalMillis > 0 && commitExecutor == null) {
+            throw new IllegalArgumentException("A commit interval requires an executor");
+        }
         this.sessionID = sessionID;
         dbDir = databaseDir;
         seqDbName = sequenceDbName;
         msgDbName = messageDbName;
+        this.cacheSize = cacheSize;
+        this.deferredWrite = deferredWrite;
+        this.commitBatchSize = commitBatchSize;
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.commitExecutor = commitExecutor;
         open();
     }
 
-    void open() throws IOException {
+    synchronized void open() throws IOException {
         try {
             // Open the environment. Create it if it does not already exist.
             EnvironmentConfig envConfig = new EnvironmentConfig();
             envConfig.setAllowCreate(true);
+            envConfig.setTransactional(isTransactional());
+            if (cacheSize > 0) {
+                envConfig.setCacheSize(cacheSize);
+            }
             environment = new Environment(new File(dbDir), envConfig);
 
             DatabaseConfig dbConfig = new DatabaseConfig();
             dbConfig.setAllowCreate(true);
+            dbConfig.setTransactional(isTransactional());
+            dbConfig.setDeferredWrite(deferredWrite);
 
             // Open the database. Create it if it does not already exist.
             messageDatabase = environment.openDatabase(null, msgDbName, dbConfig);
             sequenceDatabase = environment.openDatabase(null, seqDbName, dbConfig);
 
             loadSessionInfo();
+            commit();
         } catch (DatabaseException dbe) {
             convertToIOExceptionAndRethrow(dbe);
         }
+        if (isTransactional() && commitIntervalMillis > 0) {
+            commitTask = commitExecutor.scheduleWithFixedDelay(this::commitQuietly, commitIntervalMillis,
+                    commitIntervalMillis, TimeUnit.MILLISECONDS);
+        }
     }
 
-    void close() throws IOException {
+    /**
+     * Commits the pending transaction, syncs deferred-write databases and closes the
+     * databases. The store can be opened again.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (commitTask != null) {
+            commitTask.cancel(false);
+            commitTask = null;
+        }
         try {
+            commit();
             messageDatabase.close();
             sequenceDatabase.close();
             environment.close();
@@ -206,6 +275,54 @@ public class SleepycatStore implements MessageStore {
         }
     }
 
+    private boolean isTransactional() {
+        return commitBatchSize > 0;
+    }
+
+    /**
+     * @return the transaction of the current batch of writes, null if the databases are
+     * not transactional
+     */
+    private Transaction getTransaction() throws DatabaseException {
+        if (isTransactional() && transaction == null) {
+            transaction = environment.beginTransaction(null, null);
+            transactionWrites = 0;
+        }
+        return transaction;
+    }
+
+    private void written() throws IOException {
+        if (transaction != null && ++transactionWrites >= commitBatchSize) {
+            commit();
+        }
+    }
+
+    private synchronized void commit() throws IOException {
+        if (transaction == null) {
+            return;
+        }
+        final Transaction committed = transaction;
+        transaction = null;
+        try {
+            committed.commit();
+        } catch (DatabaseException e) {
+            try {
+                committed.abort();
+            } catch (DatabaseException abortException) {
+                e.addSuppressed(abortException);
+            }
+            convertToIOExceptionAndRethrow(e);
+        }
+    }
+
+    private void commitQuietly() {
+        try {
+            commit();
+        } catch (Exception e) {
+            log.error("Commit of {} failed", sessionID, e);
+        }
+    }
+
     public synchronized void get(int startSequence, int endSequence, Collection<String> messages)
             throws IOException {
         Cursor cursor = null;
@@ -215,7 +332,8 @@ public class SleepycatStore implements MessageStore {
             // Must start at start-1 because db will look for next record larger
             sequenceBinding.objectToEntry(startSequence - 1, sequenceKey);
 
-            cursor = messageDatabase.openCursor(null, null);
+            // reads in the pending transaction, which holds the locks of its writes
+            cursor = messageDatabase.openCursor(transaction, null);
             DatabaseEntry messageBytes = new DatabaseEntry();
             OperationStatus retVal = cursor.getSearchKeyRange(sequenceKey, messageBytes,
                     LockMode.DEFAULT);
@@ -281,60 +399,66 @@ public class SleepycatStore implements MessageStore {
         return info.getNextTargetMsgSeqNum();
     }
 
-    public void incrNextSenderMsgSeqNum() throws IOException {
+    public synchronized void incrNextSenderMsgSeqNum() throws IOException {
         info.setNextSenderMsgSeqNum(info.getNextSenderMsgSeqNum() + 1);
         storeSessionInfo();
     }
 
-    public void incrNextTargetMsgSeqNum() throws IOException {
+    public synchronized void incrNextTargetMsgSeqNum() throws IOException {
         info.setNextTargetMsgSeqNum(info.getNextTargetMsgSeqNum() + 1);
         storeSessionInfo();
     }
 
-    public void reset() throws IOException {
+    public synchronized void reset() throws IOException {
         try {
             info = new SessionInfo();
             storeSessionInfo();
+            commit();
             sequenceDatabase.close();
             messageDatabase.close();
             environment.truncateDatabase(null, seqDbName, false);
             environment.truncateDatabase(null, msgDbName, false);
             environment.close();
+            if (commitTask != null) {
+                commitTask.cancel(false);
+                commitTask = null;
+            }
             open();
         } catch (DatabaseException e) {
             convertToIOExceptionAndRethrow(e);
         }
     }
 
-    public boolean set(int sequence, String message) throws IOException {
+    public synchronized boolean set(int sequence, String message) throws IOException {
         try {
             DatabaseEntry sequenceKey = new DatabaseEntry();
             EntryBinding<Integer> sequenceBinding = TupleBinding.getPrimitiveBinding(Integer.class);
             sequenceBinding.objectToEntry(sequence, sequenceKey);
             DatabaseEntry messageBytes = new DatabaseEntry(message.getBytes(CharsetSupport.getCharset()));
-            messageDatabase.put(null, sequenceKey, messageBytes);
+            messageDatabase.put(getTransaction(), sequenceKey, messageBytes);
         } catch (Exception e) {
             convertToIOExceptionAndRethrow(e);
         }
+        written();
         return true;
     }
 
-    public void setNextSenderMsgSeqNum(int next) throws IOException {
+    public synchronized void setNextSenderMsgSeqNum(int next) throws IOException {
         info.setNextSenderMsgSeqNum(next);
         storeSessionInfo();
     }
 
-    public void setNextTargetMsgSeqNum(int next) throws IOException {
+    public synchronized void setNextTargetMsgSeqNum(int next) throws IOException {
         info.setNextTargetMsgSeqNum(next);
         storeSessionInfo();
     }
 
-    private void loadSessionInfo() throws IOException {
+    private synchronized void loadSessionInfo() throws IOException {
         synchronized (sessionIDKey) {
             sessionIDBinding.objectToEntry(sessionID, sessionIDKey);
 
             try {
-                sequenceDatabase.get(null, sessionIDKey, sessionInfoBytes, LockMode.DEFAULT);
+                sequenceDatabase.get(transaction, sessionIDKey, sessionInfoBytes, LockMode.DEFAULT);
                 if (sessionInfoBytes.getSize() > 0) {
                     info = (SessionInfo) sessionInfoBinding.entryToObject(sessionInfoBytes);
                 } else {
@@ -347,20 +471,52 @@ public class SleepycatStore implements MessageStore {
         }
     }
 
-    private void storeSessionInfo() throws IOException {
+    private synchronized void storeSessionInfo() throws IOException {
         synchronized (sessionIDKey) {
             sessionIDBinding.objectToEntry(sessionID, sessionIDKey);
             sessionInfoBinding.objectToEntry(info, sessionInfoBytes);
 
             try {
-                sequenceDatabase.put(null, sessionIDKey, sessionInfoBytes);
+                sequenceDatabase.put(getTransaction(), sessionIDKey, sessionInfoBytes);
             } catch (DatabaseException e) {
                 convertToIOExceptionAndRethrow(e);
             }
         }
+        written();
     }
 
     public void refresh() throws IOException {
         loadSessionInfo();
     }
+
+    /**
+     * Commits the pending transaction or writes the deferred-write databases to the log.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        try {
+            commit();
+            if (deferredWrite) {
+                messageDatabase.sync();
+                sequenceDatabase.sync();
+            }
+        } catch (DatabaseException e) {
+            convertToIOExceptionAndRethrow(e);
+        }
+    }
+
+    /**
+     * Commits the pending transaction and syncs the JE log.
+     */
+    @Override
+    public synchronized void awaitDurable() throws IOException {
+        flush();
+        if (!isTransactional()) {
+            try {
+                environment.flushLog(true);
+            } catch (DatabaseException e) {
+                convertToIOExceptionAndRethrow(e);
+            }
+        }
+    }
 }
@@ -19,6 +19,9 @@
 
 package quickfix;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 /**
  * Message store using the Sleepycat Java Edition database for message and
  * sequence number storage.
@@ -41,7 +44,35 @@ public class SleepycatStoreFactory implements MessageStoreFactory {
      */
     public static final String SETTING_SLEEPYCAT_MESSAGE_DB_NAME = "SleepycatMessageDbName";
 
+    /**
+     * Size of the JE cache in bytes. The cache is shared by the sessions using the same
+     * database directory. Optional, the JE default is used if it is not set.
+     */
+    public static final String SETTING_SLEEPYCAT_CACHE_SIZE = "SleepycatCacheSize";
+
+    /**
+     * Open the databases as deferred-write databases. Writes are only written to the JE
+     * log when the store is flushed or closed or when the JE cache is full.
+     * Valid values are "Y" or "N". Default is "N".
+     */
+    public static final String SETTING_SLEEPYCAT_DEFERRED_WRITE = "SleepycatDeferredWrite";
+
+    /**
+     * Number of writes, messages and sequence number updates, which are committed in one
+     * transaction. 0, the default, disables transactions.
+     */
+    public static final String SETTING_SLEEPYCAT_COMMIT_BATCH_SIZE = "SleepycatCommitBatchSize";
+
+    /**
+     * Maximum time in milliseconds until the writes of a transaction are committed when
+     * SleepycatCommitBatchSize is set. 0 only commits by batch size. Default is 100.
+     */
+    public static final String SETTING_SLEEPYCAT_COMMIT_INTERVAL = "SleepycatCommitInterval";
+
+    public static final long DEFAULT_COMMIT_INTERVAL = 100;
+
     private SessionSettings settings = new SessionSettings();
+    private ScheduledExecutorService commitExecutor;
 
     public SleepycatStoreFactory(SessionSettings settings) {
         this.settings = settings;
@@ -58,9 +89,36 @@ public class SleepycatStoreFactory implements MessageStoreFactory {
             if (settings.isSetting(sessionID, SETTING_SLEEPYCAT_MESSAGE_DB_NAME)) {
                 msgDbName = settings.getString(sessionID, SETTING_SLEEPYCAT_MESSAGE_DB_NAME);
             }
-            return new SleepycatStore(sessionID, dbDir, seqDbName, msgDbName);
+            long cacheSize = 0;
+            if (settings.isSetting(sessionID, SETTING_SLEEPYCAT_CACHE_SIZE)) {
+                cacheSize = settings.getLong(sessionID, SETTING_SLEEPYCAT_CACHE_SIZE);
+            }
+            boolean deferredWrite = settings.getBoolOrDefault(sessionID, SETTING_SLEEPYCAT_DEFERRED_WRITE, false);
+            int commitBatchSize = 0;
+            if (settings.isSetting(sessionID, SETTING_SLEEPYCAT_COMMIT_BATCH_SIZE)) {
+                commitBatchSize = (int) settings.getLong(sessionID, SETTING_SLEEPYCAT_COMMIT_BATCH_SIZE);
+            }
+            long commitInterval = DEFAULT_COMMIT_INTERVAL;
+            if (settings.isSetting(sessionID, SETTING_SLEEPYCAT_COMMIT_INTERVAL)) {
+                commitInterval = settings.getLong(sessionID, SETTING_SLEEPYCAT_COMMIT_INTERVAL);
+            }
+            ScheduledExecutorService executor = commitBatchSize > 0 && commitInterval > 0
+                    ? getCommitExecutor() : null;
+            return new SleepycatStore(sessionID, dbDir, seqDbName, msgDbName, cacheSize, deferredWrite,
+                    commitBatchSize, commitInterval, executor);
         } catch (Exception e) {
             throw new RuntimeError(e);
         }
     }
+
+    private synchronized ScheduledExecutorService getCommitExecutor() {
+        if (commitExecutor == null) {
+            commitExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "QFJ Sleepycat Commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return commitExecutor;
+    }
 }
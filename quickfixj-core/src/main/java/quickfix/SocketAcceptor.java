@@ -125,6 +125,7 @@ public class SocketAcceptor extends AbstractSocketAcceptor {
                     try {
                         eventHandlingStrategy.stopHandlingMessages(true);
                     } finally {
+                        stopWriteFlushExecutor();
                         Session.unregisterSessions(getSessions(), true);
                         clearConnectorSessions();
                     }
@@ -142,6 +142,7 @@ public class SocketInitiator extends AbstractSocketInitiator {
                     try {
                         eventHandlingStrategy.stopHandlingMessages(true);
                     } finally {
+                        stopWriteFlushExecutor();
                         Session.unregisterSessions(getSessions(), true);
                         clearConnectorSessions();
                     }
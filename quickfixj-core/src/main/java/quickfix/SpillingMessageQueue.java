@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.quickfixj.CharsetSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A MessageQueue which keeps the raw data of the queued messages up to a number of bytes
+ * in memory and writes the data of further messages to a temporary file. No message is
+ * dropped, unlike {@link BoundInMemoryMessageQueue}, so a large resend does not have to be
+ * requested again. The file is deleted when the messages in it have been dequeued.
+ * <p>
+ * If a message cannot be written to the file it is kept in memory. If it cannot be read
+ * back the error is logged and it is not returned, so the session requests it again.
+ *
+ * @see SpillingMessageQueueFactory
+ */
+public class SpillingMessageQueue implements RawMessageQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillingMessageQueue.class);
+
+    private final long maxMemoryBytes;
+    private final File spillDirectory;
+    private final Map<Integer, byte[]> memory = new HashMap<>();
+    private final Map<Integer, SpilledMessage> spilled = new HashMap<>();
+    private long memoryBytes;
+    private File spillFileName;
+    private RandomAccessFile spillFile;
+
+    private static final class SpilledMessage {
+        private final long offset;
+        private final int length;
+
+        SpilledMessage(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * @param maxMemoryBytes maximum size of the message data kept in memory
+     * @param spillDirectory directory of the temporary file, null for the default
+     *                       temporary directory
+     */
+    public SpillingMessageQueue(long maxMemoryBytes, File spillDirectory) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public synchronized void enqueue(int sequence, String messageData) {
+        remove(sequence);
+        final byte[] data = messageData.getBytes(CharsetSupport.getCharsetInstance());
+        if (memoryBytes + data.length > maxMemoryBytes && spill(sequence, data)) {
+            return;
+        }
+        memory.put(sequence, data);
+        memoryBytes += data.length;
+    }
+
+    private boolean spill(int sequence, byte[] data) {
+        try {
+            if (spillFile == null) {
+                spillFileName = File.createTempFile("qfj-queue-", ".tmp", spillDirectory);
+                spillFileName.deleteOnExit();
+                spillFile = new RandomAccessFile(spillFileName, "rw");
+            }
+            final long offset = spillFile.length();
+            spillFile.seek(offset);
+            spillFile.write(data);
+            spilled.put(sequence, new SpilledMessage(offset, data.length));
+            return true;
+        } catch (IOException e) {
+            LOG.error("Cannot write queued message {} to {}, keeping it in memory", sequence, spillFileName, e);
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized String dequeueMessageData(int sequence) {
+        final Charset charset = CharsetSupport.getCharsetInstance();
+        final byte[] data = memory.remove(sequence);
+        if (data != null) {
+            memoryBytes -= data.length;
+            return new String(data, charset);
+        }
+        final SpilledMessage message = spilled.remove(sequence);
+        if (message == null) {
+            return null;
+        }
+        try {
+            final byte[] spilledData = new byte[message.length];
+            spillFile.seek(message.offset);
+            spillFile.readFully(spilledData);
+            return new String(spilledData, charset);
+        } catch (IOException e) {
+            LOG.error("Cannot read queued message {} from {}", sequence, spillFileName, e);
+            return null;
+        } finally {
+            releaseSpillFileIfEmpty();
+        }
+    }
+
+    private void remove(int sequence) {
+        final byte[] data = memory.remove(sequence);
+        if (data != null) {
+            memoryBytes -= data.length;
+        }
+        if (spilled.remove(sequence) != null) {
+            releaseSpillFileIfEmpty();
+        }
+    }
+
+    @Override
+    public synchronized void dequeueMessagesUpTo(int seqnum) {
+        final Iterator<Map.Entry<Integer, byte[]>> entries = memory.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<Integer, byte[]> entry = entries.next();
+            if (entry.getKey() < seqnum) {
+                memoryBytes -= entry.getValue().length;
+                entries.remove();
+            }
+        }
+        spilled.keySet().removeIf(sequence -> sequence < seqnum);
+        releaseSpillFileIfEmpty();
+    }
+
+    @Override
+    public synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+        spilled.clear();
+        releaseSpillFileIfEmpty();
+    }
+
+    private void releaseSpillFileIfEmpty() {
+        if (spillFile == null || !spilled.isEmpty()) {
+            return;
+        }
+        try {
+            spillFile.close();
+        } catch (IOException e) {
+            LOG.warn("Cannot close {}", spillFileName, e);
+        }
+        if (!spillFileName.delete()) {
+            LOG.warn("Cannot delete {}", spillFileName);
+        }
+        spillFile = null;
+        spillFileName = null;
+    }
+
+    /**
+     * @return the size of the message data kept in memory
+     */
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * @return the number of queued messages
+     */
+    public synchronized int size() {
+        return memory.size() + spilled.size();
+    }
+
+    /**
+     * @return the number of queued messages in the temporary file
+     */
+    public synchronized int getSpilledCount() {
+        return spilled.size();
+    }
+}
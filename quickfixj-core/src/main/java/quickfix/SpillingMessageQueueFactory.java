@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.File;
+
+/**
+ * Creates message queues which keep the raw data of the queued messages in memory up to
+ * a limit and write the data of further messages to a temporary file.
+ *
+ * @see SpillingMessageQueue
+ */
+public class SpillingMessageQueueFactory implements MessageQueueFactory {
+
+    /**
+     * Maximum size in bytes of the queued message data kept in memory per session.
+     * Default is 8 MiB.
+     */
+    public static final String SETTING_MESSAGE_QUEUE_MAX_MEMORY = "MessageQueueMaxMemory";
+
+    /**
+     * Directory of the temporary files of the queues. Default is the directory of the
+     * java.io.tmpdir system property.
+     */
+    public static final String SETTING_MESSAGE_QUEUE_SPILL_PATH = "MessageQueueSpillPath";
+
+    public static final long DEFAULT_MAX_MEMORY = 8 * 1024 * 1024;
+
+    protected final SessionSettings settings;
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     */
+    public SpillingMessageQueueFactory(SessionSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public MessageQueue create(SessionID sessionID) {
+        try {
+            long maxMemory = DEFAULT_MAX_MEMORY;
+            if (settings.isSetting(sessionID, SETTING_MESSAGE_QUEUE_MAX_MEMORY)) {
+                maxMemory = settings.getLong(sessionID, SETTING_MESSAGE_QUEUE_MAX_MEMORY);
+            }
+            File spillDirectory = null;
+            if (settings.isSetting(sessionID, SETTING_MESSAGE_QUEUE_SPILL_PATH)) {
+                spillDirectory = new File(settings.getString(sessionID, SETTING_MESSAGE_QUEUE_SPILL_PATH));
+                spillDirectory.mkdirs();
+            }
+            return new SpillingMessageQueue(maxMemory, spillDirectory);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
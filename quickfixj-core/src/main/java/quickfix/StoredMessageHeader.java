@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+import quickfix.field.BeginString;
+import quickfix.field.BodyLength;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.MsgType;
+import quickfix.field.OrigSendingTime;
+import quickfix.field.PossDupFlag;
+import quickfix.field.SecureDataLen;
+import quickfix.field.SendingTime;
+import quickfix.field.XmlDataLen;
+
+import java.nio.charset.Charset;
+
+/**
+ * The standard header of a stored message as needed for a resend: the sequence number,
+ * the message type and where the header ends. It is read by scanning the header fields of
+ * the stored string, so admin messages can be skipped and application messages resent
+ * without parsing the whole message.
+ */
+final class StoredMessageHeader {
+
+    private static final char SOH = '\001';
+
+    private final String message;
+    private final int msgSeqNum;
+    private final String msgType;
+    private final boolean admin;
+    private final int headerEnd;
+    private final int bodyEnd;
+    private final String beginString;
+    private final String sendingTime;
+
+    private StoredMessageHeader(String message, int msgSeqNum, String msgType, int headerEnd, int bodyEnd,
+            String beginString, String sendingTime) {
+        this.message = message;
+        this.msgSeqNum = msgSeqNum;
+        this.msgType = msgType;
+        this.admin = MessageUtils.isAdminMessage(msgType);
+        this.headerEnd = headerEnd;
+        this.bodyEnd = bodyEnd;
+        this.beginString = beginString;
+        this.sendingTime = sendingTime;
+    }
+
+    /**
+     * Scans the standard header of a stored message.
+     *
+     * @return the header or null if the message has to be parsed, e.g. because the header
+     * is incomplete or contains data fields
+     */
+    static StoredMessageHeader scan(String message) {
+        String beginString = null;
+        String msgType = null;
+        String sendingTime = null;
+        int msgSeqNum = 0;
+        int fieldCount = 0;
+        int position = 0;
+        while (true) {
+            final int equals = message.indexOf('=', position);
+            final int end = equals < 0 ? -1 : message.indexOf(SOH, equals);
+            if (end < 0) {
+                return null;
+            }
+            final int tag = parseTag(message, position, equals);
+            if (tag <= 0) {
+                return null;
+            }
+            // 8, 9 and 35 must be the first fields
+            if (fieldCount < 3 && tag != (fieldCount == 0 ? BeginString.FIELD
+                    : fieldCount == 1 ? BodyLength.FIELD : MsgType.FIELD)) {
+                return null;
+            }
+            if (fieldCount >= 3 && !Message.isHeaderField(tag)) {
+                break;
+            }
+            final String value = message.substring(equals + 1, end);
+            switch (tag) {
+            case BeginString.FIELD:
+                beginString = value;
+                break;
+            case MsgType.FIELD:
+                msgType = value;
+                break;
+            case MsgSeqNum.FIELD:
+                try {
+                    msgSeqNum = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                break;
+            case SendingTime.FIELD:
+                sendingTime = value;
+                break;
+            case SecureDataLen.FIELD:
+            case XmlDataLen.FIELD:
+                // the data may contain SOH
+                return null;
+            default:
+                break;
+            }
+            fieldCount++;
+            position = end + 1;
+        }
+        final int bodyEnd = message.lastIndexOf(SOH + "10=");
+        if (msgSeqNum <= 0 || sendingTime == null || bodyEnd < position - 1) {
+            return null;
+        }
+        // fields to be replaced must not follow other fields, e.g. custom header fields
+        final String body = message.substring(position - 1, bodyEnd + 1);
+        if (body.contains(SOH + "43=") || body.contains(SOH + "52=") || body.contains(SOH + "122=")) {
+            return null;
+        }
+        return new StoredMessageHeader(message, msgSeqNum, msgType, position, bodyEnd + 1, beginString,
+                sendingTime);
+    }
+
+    private static int parseTag(String message, int start, int end) {
+        if (end <= start || end - start > 9) {
+            return -1;
+        }
+        int tag = 0;
+        for (int i = start; i < end; i++) {
+            final char c = message.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            tag = tag * 10 + c - '0';
+        }
+        return tag;
+    }
+
+    int getMsgSeqNum() {
+        return msgSeqNum;
+    }
+
+    String getMsgType() {
+        return msgType;
+    }
+
+    boolean isAdmin() {
+        return admin;
+    }
+
+    /**
+     * Builds the message to resend, like {@link Message#toString()} after the resend fields
+     * were set: PossDupFlag is set, OrigSendingTime is the stored SendingTime and SendingTime
+     * is replaced. BodyLength and CheckSum are computed again.
+     *
+     * @param newSendingTime the formatted SendingTime of the resend
+     */
+    String toResendMessage(String newSendingTime) {
+        final StringBuilder body = new StringBuilder(bodyEnd + 64);
+        appendField(body, MsgType.FIELD, msgType);
+        appendField(body, PossDupFlag.FIELD, "Y");
+        appendField(body, SendingTime.FIELD, newSendingTime);
+        appendField(body, OrigSendingTime.FIELD, sendingTime);
+        int position = message.indexOf(SOH, message.indexOf(SOH, message.indexOf(SOH) + 1) + 1) + 1;
+        while (position < headerEnd) {
+            final int end = message.indexOf(SOH, position) + 1;
+            final int tag = parseTag(message, position, message.indexOf('=', position));
+            if (tag != PossDupFlag.FIELD && tag != SendingTime.FIELD && tag != OrigSendingTime.FIELD) {
+                body.append(message, position, end);
+            }
+            position = end;
+        }
+        body.append(message, headerEnd, bodyEnd);
+
+        final Charset charset = CharsetSupport.getCharsetInstance();
+        final String bodyString = body.toString();
+        final StringBuilder resend = new StringBuilder(bodyString.length() + 32);
+        appendField(resend, BeginString.FIELD, beginString);
+        appendField(resend, BodyLength.FIELD, Integer.toString(MessageUtils.length(charset, bodyString)));
+        resend.append(bodyString);
+        final int checksum = MessageUtils.checksum(charset, resend.toString(), false);
+        resend.append("10=");
+        if (checksum < 100) {
+            resend.append('0');
+        }
+        if (checksum < 10) {
+            resend.append('0');
+        }
+        return resend.append(checksum).append(SOH).toString();
+    }
+
+    private static void appendField(StringBuilder sb, int tag, String value) {
+        sb.append(tag).append('=').append(value).append(SOH);
+    }
+}
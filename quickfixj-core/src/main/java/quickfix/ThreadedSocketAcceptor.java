@@ -109,6 +109,7 @@ public class ThreadedSocketAcceptor extends AbstractSocketAcceptor {
         stopAcceptingConnections();
         stopSessionTimer();
         eventHandlingStrategy.stopDispatcherThreads();
+        stopWriteFlushExecutor();
         Session.unregisterSessions(getSessions(), true);
         clearConnectorSessions();
     }
@@ -119,6 +119,7 @@ public class ThreadedSocketInitiator extends AbstractSocketInitiator {
         logoutAllSessions(forceDisconnect);
         stopInitiators();
         eventHandlingStrategy.stopDispatcherThreads();
+        stopWriteFlushExecutor();
         Session.unregisterSessions(getSessions(), true);
         clearConnectorSessions();
     }
@@ -0,0 +1,403 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Message store decorator which writes to another store in the background. Sequence
+ * numbers and the messages which have not been written yet are kept in memory, so the
+ * sending thread does not wait for the underlying store. Messages are passed to a
+ * flusher through a bounded queue and written in batches, either periodically or when
+ * the queue is half full. Sequence number changes are coalesced and written after the
+ * messages of a batch.
+ * <p>
+ * On a crash the writes of the last flush interval can be lost. {@link #flush()} writes
+ * everything queued so far and is called by the session on disconnect. {@link #reset()}
+ * discards the queued writes before resetting the underlying store.
+ *
+ * @see WriteBehindMessageStoreFactory
+ */
+public class WriteBehindMessageStore implements MessageStore, Closeable {
+
+    /**
+     * What {@link #set(int, String)} does when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until the flusher has made room in the queue.
+         */
+        BLOCK,
+        /**
+         * Fail with an IOException.
+         */
+        FAIL
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindMessageStore.class);
+
+    private static final long BLOCK_RECHECK_MILLIS = 100;
+
+    private static final class PendingMessage {
+        private final int sequence;
+        private final String message;
+
+        private PendingMessage(int sequence, String message) {
+            this.sequence = sequence;
+            this.message = message;
+        }
+    }
+
+    private final MessageStore delegate;
+    private final ScheduledExecutorService executor;
+    private final OverflowPolicy overflowPolicy;
+    private final int flushThreshold;
+    private final BlockingQueue<PendingMessage> queue;
+    private final NavigableMap<Integer, String> pendingMessages = new ConcurrentSkipListMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledFuture<?> flushTask;
+
+    // guards all access to the delegate
+    private final Object flushLock = new Object();
+    // @GuardedBy(flushLock)
+    private final List<PendingMessage> batch = new ArrayList<>();
+    // @GuardedBy(flushLock)
+    private long flushCount;
+
+    // @GuardedBy(this)
+    private int nextSenderMsgSeqNum;
+    // @GuardedBy(this)
+    private int nextTargetMsgSeqNum;
+    // @GuardedBy(this)
+    private boolean sequenceNumbersChanged;
+
+    private volatile IOException failure;
+
+    /**
+     * @param delegate the store to write to
+     * @param executor runs the periodic and requested flushes, may be shared by several stores
+     * @param flushIntervalMillis the interval between flushes
+     * @param queueSize the maximum number of messages waiting to be written
+     * @param overflowPolicy what to do when the queue is full
+     * @throws IOException if the sequence numbers cannot be read from the delegate
+     */
+    public WriteBehindMessageStore(MessageStore delegate, ScheduledExecutorService executor,
+            long flushIntervalMillis, int queueSize, OverflowPolicy overflowPolicy) throws IOException {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.flushThreshold = Math.max(1, queueSize / 2);
+        loadSequenceNumbers();
+        final long interval = Math.max(1, flushIntervalMillis);
+        flushTask = executor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void loadSequenceNumbers() throws IOException {
+        nextSenderMsgSeqNum = delegate.getNextSenderMsgSeqNum();
+        nextTargetMsgSeqNum = delegate.getNextTargetMsgSeqNum();
+        sequenceNumbersChanged = false;
+    }
+
+    public MessageStore getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean set(int sequence, String message) throws IOException {
+        checkFailure();
+        final PendingMessage pending = new PendingMessage(sequence, message);
+        pendingMessages.put(sequence, message);
+        if (!queue.offer(pending)) {
+            if (overflowPolicy == OverflowPolicy.FAIL) {
+                pendingMessages.remove(sequence, message);
+                throw new IOException("Write-behind queue is full (" + queue.size() + " messages)");
+            }
+            try {
+                do {
+                    requestFlush();
+                    if (failure != null) {
+                        pendingMessages.remove(sequence, message);
+                        checkFailure();
+                    }
+                } while (!queue.offer(pending, BLOCK_RECHECK_MILLIS, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                pendingMessages.remove(sequence, message);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for write-behind queue");
+            }
+        }
+        if (queue.size() >= flushThreshold) {
+            requestFlush();
+        }
+        return true;
+    }
+
+    /**
+     * Serves the pending messages from memory and reads every gap between them, and the range
+     * after the last of them, from the underlying store with a single call. An end sequence of
+     * 0 means the range has no upper bound.
+     */
+    @Override
+    public void get(int startSequence, int endSequence, Collection<String> messages) throws IOException {
+        synchronized (flushLock) {
+            // messages are removed from the pending map only while holding the flush lock
+            final NavigableMap<Integer, String> pending = endSequence == 0
+                    ? pendingMessages.tailMap(startSequence, true)
+                    : pendingMessages.subMap(startSequence, true, endSequence, true);
+            // a long so that it does not overflow after a message at Integer.MAX_VALUE
+            long next = startSequence;
+            for (Map.Entry<Integer, String> entry : pending.entrySet()) {
+                final int sequence = entry.getKey();
+                if (sequence > next) {
+                    delegate.get((int) next, sequence - 1, messages);
+                }
+                messages.add(entry.getValue());
+                next = sequence + 1L;
+            }
+            if (next <= Integer.MAX_VALUE && (endSequence == 0 || next <= endSequence)) {
+                delegate.get((int) next, endSequence, messages);
+            }
+        }
+    }
+
+    /**
+     * Writes the pending messages to the underlying store, which then streams the range.
+     */
+    @Override
+    public void get(int startSequence, int endSequence, int chunkSize, MessageHandler handler)
+            throws IOException {
+        flush();
+        delegate.get(startSequence, endSequence, chunkSize, handler);
+    }
+
+    @Override
+    public synchronized int getNextSenderMsgSeqNum() {
+        return nextSenderMsgSeqNum;
+    }
+
+    @Override
+    public synchronized int getNextTargetMsgSeqNum() {
+        return nextTargetMsgSeqNum;
+    }
+
+    @Override
+    public synchronized void setNextSenderMsgSeqNum(int next) {
+        nextSenderMsgSeqNum = next;
+        sequenceNumbersChanged = true;
+    }
+
+    @Override
+    public synchronized void setNextTargetMsgSeqNum(int next) {
+        nextTargetMsgSeqNum = next;
+        sequenceNumbersChanged = true;
+    }
+
+    @Override
+    public synchronized void incrNextSenderMsgSeqNum() {
+        setNextSenderMsgSeqNum(nextSenderMsgSeqNum + 1);
+    }
+
+    @Override
+    public synchronized void incrNextTargetMsgSeqNum() {
+        setNextTargetMsgSeqNum(nextTargetMsgSeqNum + 1);
+    }
+
+    @Override
+    public Date getCreationTime() throws IOException {
+        synchronized (flushLock) {
+            return delegate.getCreationTime();
+        }
+    }
+
+    @Override
+    public Calendar getCreationTimeCalendar() throws IOException {
+        synchronized (flushLock) {
+            return delegate.getCreationTimeCalendar();
+        }
+    }
+
+    /**
+     * Discards the queued writes and resets the underlying store.
+     */
+    @Override
+    public void reset() throws IOException {
+        synchronized (flushLock) {
+            queue.clear();
+            pendingMessages.clear();
+            failure = null;
+            delegate.reset();
+            loadSequenceNumbers();
+        }
+    }
+
+    /**
+     * Writes the queued changes and refreshes the state from the underlying store.
+     */
+    @Override
+    public void refresh() throws IOException {
+        synchronized (flushLock) {
+            flushPending();
+            checkFailure();
+            delegate.refresh();
+            loadSequenceNumbers();
+        }
+    }
+
+    /**
+     * Writes everything queued so far to the underlying store.
+     *
+     * @throws IOException if this or an earlier background write failed
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            flushPending();
+        }
+        checkFailure();
+    }
+
+    @Override
+    public void awaitDurable() throws IOException {
+        flush();
+        synchronized (flushLock) {
+            delegate.awaitDurable();
+        }
+    }
+
+    /**
+     * @return the number of messages which have not been written to the underlying store
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of batches written so far
+     */
+    public long getFlushCount() {
+        synchronized (flushLock) {
+            return flushCount;
+        }
+    }
+
+    /**
+     * Stops the background flushes, writes the queued changes and closes the underlying store
+     * if it is closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        flushTask.cancel(false);
+        try {
+            flush();
+        } finally {
+            if (delegate instanceof Closeable) {
+                ((Closeable) delegate).close();
+            }
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final IOException e = failure;
+        if (e != null) {
+            throw new IOException("Write-behind to the message store failed", e);
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        flushRequested.set(false);
+        synchronized (flushLock) {
+            flushPending();
+        }
+    }
+
+    // @GuardedBy(flushLock)
+    private void flushPending() {
+        if (failure != null) {
+            return;
+        }
+        final int sender;
+        final int target;
+        final boolean changed;
+        // sequence numbers are read before the queue is drained so they never get ahead of the messages
+        synchronized (this) {
+            sender = nextSenderMsgSeqNum;
+            target = nextTargetMsgSeqNum;
+            changed = sequenceNumbersChanged;
+            sequenceNumbersChanged = false;
+        }
+        queue.drainTo(batch);
+        if (batch.isEmpty() && !changed) {
+            return;
+        }
+        try {
+            for (PendingMessage pending : batch) {
+                delegate.set(pending.sequence, pending.message);
+            }
+            if (changed) {
+                delegate.setNextSenderMsgSeqNum(sender);
+                delegate.setNextTargetMsgSeqNum(target);
+            }
+            for (PendingMessage pending : batch) {
+                pendingMessages.remove(pending.sequence, pending.message);
+            }
+            flushCount++;
+        } catch (IOException | RuntimeException e) {
+            // the unwritten messages stay in memory until the store is reset
+            LOG.error("Write-behind to the message store failed", e);
+            failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            synchronized (this) {
+                sequenceNumbersChanged = true;
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Creates message stores which write to the stores of another factory in the background,
+ * for example <code>new WriteBehindMessageStoreFactory(settings, new FileStoreFactory(settings))</code>.
+ * The stores of all sessions are flushed by a single daemon thread, which is stopped by
+ * {@link #close()}.
+ *
+ * @see quickfix.WriteBehindMessageStore
+ */
+public class WriteBehindMessageStoreFactory implements MessageStoreFactory, Closeable {
+
+    /**
+     * Interval in milliseconds between background writes. Default is 10.
+     */
+    public static final String SETTING_WRITE_BEHIND_FLUSH_INTERVAL = "WriteBehindFlushInterval";
+
+    /**
+     * Maximum number of messages waiting to be written. Default is 10000.
+     */
+    public static final String SETTING_WRITE_BEHIND_QUEUE_SIZE = "WriteBehindQueueSize";
+
+    /**
+     * What happens when the queue is full, BLOCK (the default) or FAIL.
+     *
+     * @see WriteBehindMessageStore.OverflowPolicy
+     */
+    public static final String SETTING_WRITE_BEHIND_OVERFLOW_POLICY = "WriteBehindOverflowPolicy";
+
+    public static final long DEFAULT_FLUSH_INTERVAL = 10;
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    protected final SessionSettings settings;
+    private final MessageStoreFactory delegate;
+    private ScheduledExecutorService executor;
+    // the stores created so far, a store which is no longer used is garbage collected
+    // @GuardedBy(this)
+    private final Set<WriteBehindMessageStore> stores = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /**
+     * Create the factory with configuration in session settings.
+     *
+     * @param settings
+     * @param delegate the factory of the stores that are written to
+     */
+    public WriteBehindMessageStoreFactory(SessionSettings settings, MessageStoreFactory delegate) {
+        this.settings = settings;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates a write-behind store for the store created by the delegate factory.
+     *
+     * @param sessionID session ID for the message store.
+     */
+    public MessageStore create(SessionID sessionID) {
+        try {
+            long flushInterval = DEFAULT_FLUSH_INTERVAL;
+            if (settings.isSetting(sessionID, SETTING_WRITE_BEHIND_FLUSH_INTERVAL)) {
+                flushInterval = settings.getLong(sessionID, SETTING_WRITE_BEHIND_FLUSH_INTERVAL);
+            }
+            int queueSize = DEFAULT_QUEUE_SIZE;
+            if (settings.isSetting(sessionID, SETTING_WRITE_BEHIND_QUEUE_SIZE)) {
+                queueSize = (int) settings.getLong(sessionID, SETTING_WRITE_BEHIND_QUEUE_SIZE);
+            }
+            WriteBehindMessageStore.OverflowPolicy overflowPolicy = WriteBehindMessageStore.OverflowPolicy.BLOCK;
+            if (settings.isSetting(sessionID, SETTING_WRITE_BEHIND_OVERFLOW_POLICY)) {
+                overflowPolicy = WriteBehindMessageStore.OverflowPolicy.valueOf(settings.getString(sessionID,
+                        SETTING_WRITE_BEHIND_OVERFLOW_POLICY).trim().toUpperCase(Locale.ROOT));
+            }
+            synchronized (this) {
+                final WriteBehindMessageStore store = new WriteBehindMessageStore(delegate.create(sessionID),
+                        getExecutor(), flushInterval, queueSize, overflowPolicy);
+                stores.add(store);
+                return store;
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "QFJ Write-Behind Store");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * @return whether the background thread of the factory is running
+     */
+    synchronized boolean isRunning() {
+        return executor != null && !executor.isShutdown();
+    }
+
+    /**
+     * Writes the queued changes of the stores created by this factory, stops the background
+     * thread and closes the underlying factory if it is closeable. Stores created afterwards
+     * start a new thread.
+     *
+     * @throws IOException if the changes of a store could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        final List<WriteBehindMessageStore> openStores;
+        final ScheduledExecutorService stoppedExecutor;
+        synchronized (this) {
+            openStores = new ArrayList<>(stores);
+            stores.clear();
+            stoppedExecutor = executor;
+            executor = null;
+        }
+        IOException failure = null;
+        for (WriteBehindMessageStore store : openStores) {
+            try {
+                store.flush();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (stoppedExecutor != null) {
+            stoppedExecutor.shutdown();
+        }
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
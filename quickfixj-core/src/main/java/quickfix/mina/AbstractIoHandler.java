@@ -37,6 +37,7 @@ import quickfix.MessageUtils;
 import quickfix.Session;
 import quickfix.SessionID;
 import quickfix.SessionSettings;
+import quickfix.SystemTime;
 
 import static quickfix.MessageSessionUtils.parse;
 
@@ -49,6 +50,7 @@ public abstract class AbstractIoHandler extends IoHandlerAdapter {
     private final EventHandlingStrategy eventHandlingStrategy;
     private final SessionSettings sessionSettings;
     private boolean logMessageWhenSessionNotFound;
+    private boolean deferMessageParsing;
 
     public AbstractIoHandler(SessionSettings settings, NetworkingOptions options, EventHandlingStrategy eventHandlingStrategy) {
         sessionSettings = settings;
@@ -62,6 +64,26 @@ public abstract class AbstractIoHandler extends IoHandlerAdapter {
         } catch (ConfigError | FieldConvertError e) {
             // ignore
         }
+        try {
+            if (sessionSettings.isSetting(Session.SETTING_DEFER_MESSAGE_PARSING)) {
+                deferMessageParsing = sessionSettings.getBool(Session.SETTING_DEFER_MESSAGE_PARSING);
+            }
+        } catch (ConfigError | FieldConvertError e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Creates the responder which binds the QF session to the MINA session.
+     */
+    protected IoSessionResponder createResponder(IoSession protocolSession, Session quickfixSession) {
+        if (networkingOptions.getWriteCoalescing() && !networkingOptions.getSynchronousWrites()) {
+            return new CoalescingIoSessionResponder(protocolSession, quickfixSession.getMaxScheduledWriteRequests(),
+                    networkingOptions.getWriteCoalescingMaxBytes(), networkingOptions.getWriteCoalescingDelay(),
+                    eventHandlingStrategy.getSessionConnector().getWriteFlushExecutor());
+        }
+        return new IoSessionResponder(protocolSession, networkingOptions.getSynchronousWrites(),
+                networkingOptions.getSynchronousWriteTimeout(), quickfixSession.getMaxScheduledWriteRequests());
     }
 
     @Override
@@ -136,12 +158,22 @@ public abstract class AbstractIoHandler extends IoHandlerAdapter {
     @Override
     public void messageReceived(IoSession ioSession, Object message) throws Exception {
         String messageString = (String) message;
+        if (deferMessageParsing) {
+            Session boundSession = findQFSession(ioSession);
+            if (boundSession != null && !MessageUtils.isLogon(messageString)) {
+                eventHandlingStrategy.onMessage(boundSession,
+                        new UnparsedMessage(boundSession, messageString, SystemTime.currentTimeMillis()));
+                return;
+            }
+        }
         SessionID remoteSessionID = MessageUtils.getReverseSessionID(messageString);
         Session quickFixSession = findQFSession(ioSession, remoteSessionID);
         if (quickFixSession != null) {
             final boolean rejectGarbledMessage = quickFixSession.isRejectGarbledMessage();
             final Log sessionLog = quickFixSession.getLog();
-            sessionLog.onIncoming(messageString);
+            if (sessionLog.isIncomingEnabled()) {
+                sessionLog.onIncoming(messageString);
+            }
             try {
                 Message fixMessage = parse(quickFixSession, messageString);
                 processMessage(ioSession, fixMessage);
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix.mina;
+
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import quickfix.Responder;
+import quickfix.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Responder which gathers consecutive outbound messages of a session into a single
+ * IoSession write. The gathered messages are flushed when the batch reaches the configured
+ * size, when the message dispatcher has no more messages to process for the session, when
+ * the configured delay has elapsed after the first message of the batch, or before the
+ * connection is closed.
+ * <p>
+ * Note that MaxScheduledWriteRequests counts batches instead of messages when write
+ * coalescing is enabled.
+ *
+ * @see NetworkingOptions#SETTING_SOCKET_WRITE_COALESCING
+ */
+public class CoalescingIoSessionResponder extends IoSessionResponder {
+
+    private final int maxBatchSize;
+    private final long flushDelayMicros;
+    private final ScheduledExecutorService flushExecutor;
+
+    private final Object lock = new Object();
+    // @GuardedBy(lock)
+    private final StringBuilder batch = new StringBuilder();
+    // @GuardedBy(lock)
+    private int batchMessageCount;
+    // @GuardedBy(lock)
+    private List<CompletableFuture<Boolean>> batchWriteResults = new ArrayList<>();
+    // @GuardedBy(lock)
+    private boolean flushScheduled;
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushedMessageCount = new AtomicLong();
+    private final AtomicLong maxBatchMessageCount = new AtomicLong();
+
+    /**
+     * @param session the MINA session
+     * @param maxScheduledWriteRequests the maximum number of pending batch writes before the
+     *                                  session is disconnected as slow consumer, 0 for no limit
+     * @param maxBatchSize the number of characters that triggers a flush
+     * @param flushDelayMicros the maximum time in microseconds a message is held back
+     * @param flushExecutor the executor which runs the delayed flushes, usually the one of
+     *                      the session connector
+     */
+    public CoalescingIoSessionResponder(IoSession session, int maxScheduledWriteRequests, int maxBatchSize,
+            long flushDelayMicros, ScheduledExecutorService flushExecutor) {
+        super(session, false, 0, maxScheduledWriteRequests);
+        this.maxBatchSize = maxBatchSize;
+        this.flushDelayMicros = flushDelayMicros;
+        this.flushExecutor = flushExecutor;
+    }
+
+    @Override
+    public boolean send(String data) {
+        if (disconnectSlowConsumer()) {
+            return false;
+        }
+        append(data, null);
+        return true;
+    }
+
+    @Override
+    public CompletionStage<Boolean> sendAsync(String data) {
+        if (disconnectSlowConsumer()) {
+            return CompletableFuture.completedFuture(Boolean.FALSE);
+        }
+        final CompletableFuture<Boolean> written = new CompletableFuture<>();
+        append(data, written);
+        return written;
+    }
+
+    @Override
+    public void disconnect() {
+        flush();
+        super.disconnect();
+    }
+
+    /**
+     * Writes the gathered messages to the IoSession.
+     */
+    public void flush() {
+        synchronized (lock) {
+            flushScheduled = false;
+            if (batchMessageCount == 0) {
+                return;
+            }
+            final WriteFuture future = getIoSession().write(batch.toString());
+            if (!batchWriteResults.isEmpty()) {
+                final List<CompletableFuture<Boolean>> writeResults = batchWriteResults;
+                batchWriteResults = new ArrayList<>();
+                future.addListener((IoFutureListener<WriteFuture>) writeFuture -> {
+                    for (CompletableFuture<Boolean> written : writeResults) {
+                        written.complete(writeFuture.isWritten());
+                    }
+                });
+            }
+            flushCount.incrementAndGet();
+            flushedMessageCount.addAndGet(batchMessageCount);
+            maxBatchMessageCount.accumulateAndGet(batchMessageCount, Math::max);
+            batch.setLength(0);
+            batchMessageCount = 0;
+        }
+    }
+
+    private void append(String data, CompletableFuture<Boolean> written) {
+        synchronized (lock) {
+            batch.append(data);
+            batchMessageCount++;
+            if (written != null) {
+                batchWriteResults.add(written);
+            }
+            if (batch.length() >= maxBatchSize) {
+                flush();
+            } else if (!flushScheduled) {
+                try {
+                    flushExecutor.schedule(this::flush, flushDelayMicros, TimeUnit.MICROSECONDS);
+                    flushScheduled = true;
+                } catch (RejectedExecutionException e) {
+                    // the connector is stopping
+                    flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of writes issued to the IoSession
+     */
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * @return the number of messages written to the IoSession
+     */
+    public long getFlushedMessageCount() {
+        return flushedMessageCount.get();
+    }
+
+    /**
+     * @return the largest number of messages written with a single write
+     */
+    public long getMaxBatchMessageCount() {
+        return maxBatchMessageCount.get();
+    }
+
+    /**
+     * @return the average number of messages per write
+     */
+    public double getAverageBatchMessageCount() {
+        final long flushes = flushCount.get();
+        return flushes == 0 ? 0 : (double) flushedMessageCount.get() / flushes;
+    }
+
+    /**
+     * Flushes the responder of the session if write coalescing is enabled. Called by the
+     * EventHandlingStrategy at the end of a dispatch batch.
+     */
+    static void flushResponder(Session quickfixSession) {
+        final Responder responder = quickfixSession.getResponder();
+        if (responder instanceof CoalescingIoSessionResponder) {
+            ((CoalescingIoSessionResponder) responder).flush();
+        }
+    }
+}
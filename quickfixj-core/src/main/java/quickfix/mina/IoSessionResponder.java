@@ -19,6 +19,7 @@
 
 package quickfix.mina;
 
+import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.future.WriteFuture;
 import org.apache.mina.core.session.IoSession;
 import quickfix.LogUtil;
@@ -27,6 +28,8 @@ import quickfix.Session;
 
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * The class that partially integrates the QuickFIX/J Session to
@@ -47,12 +50,7 @@ public class IoSessionResponder implements Responder {
 
     @Override
     public boolean send(String data) {
-        // Check for and disconnect slow consumers.
-        if (maxScheduledWriteRequests > 0 && ioSession.getScheduledWriteMessages() >= maxScheduledWriteRequests) {
-            try {
-                getQFJSession().disconnect("Slow consumer", true);
-            } catch (IOException e) {
-            }
+        if (disconnectSlowConsumer()) {
             return false;
         }
 
@@ -72,6 +70,37 @@ public class IoSessionResponder implements Responder {
         return true;
     }
 
+    /**
+     * Writes the data without blocking, regardless of the SocketSynchronousWrites setting.
+     * The returned stage is completed by the MINA WriteFuture.
+     */
+    @Override
+    public CompletionStage<Boolean> sendAsync(String data) {
+        if (disconnectSlowConsumer()) {
+            return CompletableFuture.completedFuture(Boolean.FALSE);
+        }
+
+        final CompletableFuture<Boolean> written = new CompletableFuture<>();
+        ioSession.write(data).addListener((IoFutureListener<WriteFuture>) future -> written.complete(future.isWritten()));
+        return written;
+    }
+
+    /**
+     * Check for and disconnect slow consumers.
+     *
+     * @return true if the session was disconnected
+     */
+    boolean disconnectSlowConsumer() {
+        if (maxScheduledWriteRequests > 0 && ioSession.getScheduledWriteMessages() >= maxScheduledWriteRequests) {
+            try {
+                getQFJSession().disconnect("Slow consumer", true);
+            } catch (IOException e) {
+            }
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public void disconnect() {
         // We cannot call join() on the CloseFuture returned
@@ -47,6 +47,9 @@ public class NetworkingOptions {
     private final Integer trafficClass;
     private final Boolean synchronousWrites;
     private final Integer synchronousWriteTimeout;
+    private final Boolean writeCoalescing;
+    private final Integer writeCoalescingMaxBytes;
+    private final Integer writeCoalescingDelay;
 
     public static final String SETTING_SOCKET_KEEPALIVE = "SocketKeepAlive";
     public static final String SETTING_SOCKET_OOBINLINE = "SocketOobInline";
@@ -58,6 +61,9 @@ public class NetworkingOptions {
     public static final String SETTING_SOCKET_TRAFFIC_CLASS = "SocketTrafficClass";
     public static final String SETTING_SOCKET_SYNCHRONOUS_WRITES = "SocketSynchronousWrites";
     public static final String SETTING_SOCKET_SYNCHRONOUS_WRITE_TIMEOUT = "SocketSynchronousWriteTimeout";
+    public static final String SETTING_SOCKET_WRITE_COALESCING = "SocketWriteCoalescing";
+    public static final String SETTING_SOCKET_WRITE_COALESCING_MAX_BYTES = "SocketWriteCoalescingMaxBytes";
+    public static final String SETTING_SOCKET_WRITE_COALESCING_DELAY = "SocketWriteCoalescingDelay";
 
     public static final String IPTOC_LOWCOST = "IPTOS_LOWCOST";
     public static final String IPTOC_RELIABILITY = "IPTOS_RELIABILITY";
@@ -82,6 +88,9 @@ public class NetworkingOptions {
         tcpNoDelay = getBoolean(properties, SETTING_SOCKET_TCP_NODELAY, Boolean.TRUE);
         synchronousWrites = getBoolean(properties, SETTING_SOCKET_SYNCHRONOUS_WRITES, Boolean.FALSE);
         synchronousWriteTimeout = getInteger(properties, SETTING_SOCKET_SYNCHRONOUS_WRITE_TIMEOUT, 30000);
+        writeCoalescing = getBoolean(properties, SETTING_SOCKET_WRITE_COALESCING, Boolean.FALSE);
+        writeCoalescingMaxBytes = getInteger(properties, SETTING_SOCKET_WRITE_COALESCING_MAX_BYTES, 16384);
+        writeCoalescingDelay = getInteger(properties, SETTING_SOCKET_WRITE_COALESCING_DELAY, 100);
 
         Integer trafficClassSetting;
         try {
@@ -164,4 +173,19 @@ public class NetworkingOptions {
     public Integer getSynchronousWriteTimeout() {
         return synchronousWriteTimeout;
     }
+
+    public Boolean getWriteCoalescing() {
+        return writeCoalescing;
+    }
+
+    public Integer getWriteCoalescingMaxBytes() {
+        return writeCoalescingMaxBytes;
+    }
+
+    /**
+     * @return the maximum time in microseconds an outbound message is held back for coalescing
+     */
+    public Integer getWriteCoalescingDelay() {
+        return writeCoalescingDelay;
+    }
 }
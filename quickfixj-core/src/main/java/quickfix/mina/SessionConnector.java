@@ -38,20 +38,27 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.mina.core.future.CloseFuture;
 import org.apache.mina.core.service.IoService;
 
@@ -75,6 +82,8 @@ public abstract class SessionConnector implements Connector {
     private static final ScheduledExecutorService SCHEDULED_EXECUTOR = Executors
             .newSingleThreadScheduledExecutor(new QFTimerThreadFactory());
     private ScheduledFuture<?> sessionTimerFuture;
+    private volatile SessionTimerWheel sessionTimerWheel;
+    private ScheduledExecutorService writeFlushExecutor;
     private IoFilterChainBuilder ioFilterChainBuilder;
 
     protected Executor longLivedExecutor;
@@ -121,6 +130,10 @@ public abstract class SessionConnector implements Connector {
     protected void setSessions(Map<SessionID, Session> sessions) {
         clearConnectorSessions();
         this.sessions.putAll(sessions);
+        final SessionTimerWheel timerWheel = sessionTimerWheel;
+        if (timerWheel != null) {
+            sessions.values().forEach(timerWheel::add);
+        }
         propertyChangeSupport.firePropertyChange(SESSIONS_PROPERTY, null, sessions);
     }
 
@@ -131,6 +144,10 @@ public abstract class SessionConnector implements Connector {
      */
     protected void clearConnectorSessions() {
         this.sessions.clear();
+        final SessionTimerWheel timerWheel = sessionTimerWheel;
+        if (timerWheel != null) {
+            timerWheel.clear();
+        }
     }
 
     /**
@@ -165,12 +182,20 @@ public abstract class SessionConnector implements Connector {
 
     public void addDynamicSession(Session inSession) {
         sessions.put(inSession.getSessionID(), inSession);
+        final SessionTimerWheel timerWheel = sessionTimerWheel;
+        if (timerWheel != null) {
+            timerWheel.add(inSession);
+        }
         log.debug("adding session for {}", inSession.getSessionID());
         propertyChangeSupport.firePropertyChange(SESSIONS_PROPERTY, null, sessions);
     }
 
     public void removeDynamicSession(SessionID inSessionID) {
         sessions.remove(inSessionID);
+        final SessionTimerWheel timerWheel = sessionTimerWheel;
+        if (timerWheel != null) {
+            timerWheel.remove(inSessionID);
+        }
         log.debug("removing session for {}", inSessionID);
         propertyChangeSupport.firePropertyChange(SESSIONS_PROPERTY, null, sessions);
     }
@@ -183,6 +208,95 @@ public abstract class SessionConnector implements Connector {
         return sessionFactory.create(sessionID, settings);
     }
 
+    /**
+     * Starts creating the given sessions on SessionInitializationThreads threads. The
+     * sessions are picked up with {@link #createSession(SessionID, Map)} in the order
+     * required by the connector.
+     *
+     * @return the sessions being created, empty if the sessions are created sequentially
+     */
+    protected Map<SessionID, Future<Session>> createSessionsInParallel(Collection<SessionID> sessionIDs) {
+        int threads = 1;
+        try {
+            threads = (int) settings.getLongOrDefault(SessionFactory.SETTING_SESSION_INIT_THREADS, 1);
+        } catch (FieldConvertError | ConfigError e) {
+            log.warn("Invalid {} setting, creating sessions sequentially", SessionFactory.SETTING_SESSION_INIT_THREADS, e);
+        }
+        final Map<SessionID, Future<Session>> pendingSessions = new HashMap<>();
+        if (threads <= 1 || sessionIDs.size() <= 1) {
+            return pendingSessions;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, sessionIDs.size()),
+                new QFSessionInitializerThreadFactory());
+        try {
+            for (SessionID sessionID : sessionIDs) {
+                pendingSessions.put(sessionID, executor.submit(() -> createSession(sessionID)));
+            }
+        } finally {
+            // the threads terminate when all sessions are created
+            executor.shutdown();
+        }
+        return pendingSessions;
+    }
+
+    /**
+     * Returns the session started by {@link #createSessionsInParallel(Collection)} or
+     * creates the session now if it was not started.
+     */
+    protected Session createSession(SessionID sessionID, Map<SessionID, Future<Session>> pendingSessions)
+            throws ConfigError {
+        final Future<Session> pendingSession = pendingSessions.remove(sessionID);
+        if (pendingSession == null) {
+            return createSession(sessionID);
+        }
+        try {
+            return pendingSession.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConfigError("interrupted while creating session " + sessionID, e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ConfigError) {
+                throw (ConfigError) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ConfigError(cause);
+        }
+    }
+
+    /**
+     * Cancels the sessions which were started by {@link #createSessionsInParallel(Collection)}
+     * but are not needed anymore, e.g. after an initialization error. Sessions which were
+     * already created, or are being created, are unregistered and closed.
+     */
+    protected void cancelPendingSessions(Map<SessionID, Future<Session>> pendingSessions) {
+        for (Map.Entry<SessionID, Future<Session>> entry : pendingSessions.entrySet()) {
+            final Future<Session> pendingSession = entry.getValue();
+            if (pendingSession.cancel(false)) {
+                continue;
+            }
+            final Session session;
+            try {
+                session = pendingSession.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                continue;
+            } catch (ExecutionException | CancellationException e) {
+                continue;
+            }
+            try {
+                // also removes the session from the registry
+                session.close();
+            } catch (IOException e) {
+                log.error("Failed to close session resources of {}", entry.getKey(), e);
+            }
+        }
+        pendingSessions.clear();
+    }
+
     protected int getIntSetting(String key) throws ConfigError {
         try {
             return IntConverter.convert(settings.getString(key));
@@ -301,11 +415,21 @@ public abstract class SessionConnector implements Connector {
         if (checkSessionTimerRunning()) {
             return;
         }
-        Runnable timerTask = new SessionTimerTask();
+        Runnable timerTask;
+        long period = 1000L;
+        if (isSessionTimerWheelEnabled()) {
+            final SessionTimerWheel timerWheel = new SessionTimerWheel(getSessionTimerTick());
+            sessionTimerWheel = timerWheel;
+            sessions.values().forEach(timerWheel::add);
+            timerTask = timerWheel;
+            period = timerWheel.getTickMillis();
+        } else {
+            timerTask = new SessionTimerTask();
+        }
         if (shortLivedExecutor != null) {
             timerTask = new DelegatingTask(timerTask, shortLivedExecutor);
         }
-        sessionTimerFuture = SCHEDULED_EXECUTOR.scheduleAtFixedRate(timerTask, 0, 1000L,
+        sessionTimerFuture = SCHEDULED_EXECUTOR.scheduleAtFixedRate(timerTask, 0, period,
                 TimeUnit.MILLISECONDS);
         log.info("SessionTimer started");
     }
@@ -315,6 +439,38 @@ public abstract class SessionConnector implements Connector {
             if (sessionTimerFuture.cancel(true))
                 log.info("SessionTimer canceled");
         }
+        final SessionTimerWheel timerWheel = sessionTimerWheel;
+        if (timerWheel != null) {
+            sessionTimerWheel = null;
+            timerWheel.clear();
+        }
+    }
+
+    private boolean isSessionTimerWheelEnabled() {
+        try {
+            return settings.getBoolOrDefault(Session.SETTING_SESSION_TIMER_WHEEL, false);
+        } catch (ConfigError | FieldConvertError e) {
+            log.warn("Invalid {} setting, using default session timer", Session.SETTING_SESSION_TIMER_WHEEL, e);
+            return false;
+        }
+    }
+
+    private long getSessionTimerTick() {
+        try {
+            final long tickMillis = settings.getLongOrDefault(Session.SETTING_SESSION_TIMER_TICK,
+                    SessionTimerWheel.DEFAULT_TICK_MILLIS);
+            if (tickMillis > 0) {
+                return tickMillis;
+            }
+        } catch (ConfigError | FieldConvertError e) {
+            log.warn("Invalid {} setting", Session.SETTING_SESSION_TIMER_TICK, e);
+        }
+        return SessionTimerWheel.DEFAULT_TICK_MILLIS;
+    }
+
+    // visible for testing
+    SessionTimerWheel getSessionTimerWheel() {
+        return sessionTimerWheel;
     }
 
     // visible for testing
@@ -329,6 +485,24 @@ public abstract class SessionConnector implements Connector {
         return SCHEDULED_EXECUTOR;
     }
 
+    /**
+     * @return the executor which flushes the coalesced writes of this connector's sessions,
+     * created on first use
+     */
+    synchronized ScheduledExecutorService getWriteFlushExecutor() {
+        if (writeFlushExecutor == null) {
+            writeFlushExecutor = Executors.newSingleThreadScheduledExecutor(new QFWriteFlusherThreadFactory());
+        }
+        return writeFlushExecutor;
+    }
+
+    protected synchronized void stopWriteFlushExecutor() {
+        if (writeFlushExecutor != null) {
+            writeFlushExecutor.shutdownNow();
+            writeFlushExecutor = null;
+        }
+    }
+
     private class SessionTimerTask implements Runnable {
         @Override
         public void run() {
@@ -408,6 +582,28 @@ public abstract class SessionConnector implements Connector {
         }
     }
 
+    private static class QFWriteFlusherThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "QFJ Write Flusher");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class QFSessionInitializerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "QFJ Session Initializer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
     /**
      * Allows a custom IOFilterChainBuilder to be added to the session connector. This will allow modification of the
      * MINA filter chain. Modifying the filter chain can be useful for logging, encryption/SSL and other purposes. The
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix.mina;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.LogUtil;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SystemTime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hashed timing wheel which calls {@link Session#next()} only for sessions whose
+ * {@link Session#getNextTimerDeadline() timer deadline} has expired, instead of polling
+ * every session once per second.
+ * <p>
+ * Deadlines further away than one revolution of the wheel are kept in their bucket and
+ * skipped until the right round comes up. The wheel is advanced by calling {@link #run()}
+ * once per tick. The ticks may run on different threads, e.g. of a short-lived executor,
+ * but a tick which starts while another one is still running is skipped. Sessions may be
+ * added and removed, and they may request a wake-up, from any thread.
+ *
+ * @see Session#SETTING_SESSION_TIMER_WHEEL
+ */
+final class SessionTimerWheel implements Runnable {
+
+    static final long DEFAULT_TICK_MILLIS = 100L;
+    private static final int WHEEL_SIZE = 512;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final long tickMillis;
+    private final long startTime;
+    private final List<List<Timeout>> buckets = new ArrayList<>(WHEEL_SIZE);
+    private final Map<SessionID, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> wakeUps = new ConcurrentLinkedQueue<>();
+    // set while a tick runs, the buckets are only accessed by the running tick
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // only accessed by the running tick
+    private long currentTick;
+
+    SessionTimerWheel(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.startTime = SystemTime.currentTimeMillis();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Adds a session to the wheel. The session is processed on the next tick.
+     */
+    void add(Session session) {
+        final Entry entry = new Entry(session);
+        final Entry previous = entries.put(session.getSessionID(), entry);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        session.setTimerWakeUp(entry::wakeUp);
+        entry.wakeUp();
+    }
+
+    void remove(SessionID sessionID) {
+        final Entry entry = entries.remove(sessionID);
+        if (entry != null) {
+            entry.cancelled = true;
+            entry.session.setTimerWakeUp(null);
+        }
+    }
+
+    void clear() {
+        for (SessionID sessionID : new ArrayList<>(entries.keySet())) {
+            remove(sessionID);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            // the previous tick has not finished yet
+            return;
+        }
+        try {
+            final long now = SystemTime.currentTimeMillis();
+            final long nowTick = (now - startTime) / tickMillis;
+            final List<Entry> expired = new ArrayList<>();
+
+            Entry woken;
+            while ((woken = wakeUps.poll()) != null) {
+                woken.wakeUpPending.set(false);
+                addExpired(expired, woken, nowTick);
+            }
+
+            // after a long pause each bucket only needs to be visited once
+            final long firstTick = Math.max(currentTick + 1, nowTick - WHEEL_SIZE + 1);
+            for (long tick = firstTick; tick <= nowTick; tick++) {
+                final Iterator<Timeout> timeouts = buckets.get(bucketIndex(tick)).iterator();
+                while (timeouts.hasNext()) {
+                    final Timeout timeout = timeouts.next();
+                    final Entry entry = timeout.entry;
+                    if (entry.cancelled || entry.timeout != timeout) {
+                        timeouts.remove();
+                    } else if (timeout.tick <= nowTick) {
+                        timeouts.remove();
+                        addExpired(expired, entry, nowTick);
+                    }
+                }
+            }
+            currentTick = Math.max(currentTick, nowTick);
+
+            for (Entry entry : expired) {
+                process(entry);
+            }
+        } catch (Throwable e) {
+            log.error("Error during timer processing", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void addExpired(List<Entry> expired, Entry entry, long nowTick) {
+        if (!entry.cancelled && entry.lastProcessedTick != nowTick) {
+            entry.lastProcessedTick = nowTick;
+            expired.add(entry);
+        }
+    }
+
+    private void process(Entry entry) {
+        final Session session = entry.session;
+        try {
+            session.next();
+        } catch (IOException e) {
+            LogUtil.logThrowable(session.getLog(), "Error in session timer processing", e);
+        } catch (Throwable e) {
+            log.error("Error during timer processing", e);
+        } finally {
+            if (!entry.cancelled) {
+                schedule(entry, session.getNextTimerDeadline());
+            }
+        }
+    }
+
+    private void schedule(Entry entry, long deadline) {
+        // round up so that the deadline has passed when the bucket is processed
+        long tick = (deadline - startTime + tickMillis - 1) / tickMillis;
+        if (tick <= currentTick) {
+            tick = currentTick + 1;
+        }
+        final Timeout timeout = new Timeout(entry, tick);
+        entry.timeout = timeout;
+        buckets.get(bucketIndex(tick)).add(timeout);
+    }
+
+    private static int bucketIndex(long tick) {
+        return (int) (tick & (WHEEL_SIZE - 1));
+    }
+
+    private final class Entry {
+        private final Session session;
+        private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+        private volatile boolean cancelled;
+        // only accessed by the running tick
+        private Timeout timeout;
+        private long lastProcessedTick = -1;
+
+        private Entry(Session session) {
+            this.session = session;
+        }
+
+        private void wakeUp() {
+            if (!cancelled && wakeUpPending.compareAndSet(false, true)) {
+                wakeUps.add(this);
+            }
+        }
+    }
+
+    /**
+     * A scheduled deadline of an entry. It is stale once the entry has been rescheduled.
+     */
+    private static final class Timeout {
+        private final Entry entry;
+        private final long tick;
+
+        private Timeout(Entry entry, long tick) {
+            this.entry = entry;
+            this.tick = tick;
+        }
+    }
+}
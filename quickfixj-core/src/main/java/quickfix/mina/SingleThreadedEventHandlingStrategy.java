@@ -45,6 +45,8 @@ public class SingleThreadedEventHandlingStrategy implements EventHandlingStrateg
     private volatile boolean isStopped;
     private Executor executor;
     private long stopTime = 0L;
+    // only accessed by the message processor thread
+    private Session lastProcessedSession;
 
     public SingleThreadedEventHandlingStrategy(SessionConnector connector, int queueCapacity) {
         sessionConnector = connector;
@@ -110,7 +112,16 @@ public class SingleThreadedEventHandlingStrategy implements EventHandlingStrateg
             try {
                 SessionMessageEvent event = getMessage();
                 if (event != null) {
+                    if (lastProcessedSession != null && lastProcessedSession != event.quickfixSession) {
+                        CoalescingIoSessionResponder.flushResponder(lastProcessedSession);
+                    }
                     event.processMessage();
+                    lastProcessedSession = event.quickfixSession;
+                    if (eventQueue.isEmpty()) {
+                        // end of dispatch batch
+                        CoalescingIoSessionResponder.flushResponder(lastProcessedSession);
+                        lastProcessedSession = null;
+                    }
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -160,7 +171,7 @@ public class SingleThreadedEventHandlingStrategy implements EventHandlingStrateg
 
         public void processMessage() {
             try {
-                quickfixSession.next(message);
+                UnparsedMessage.dispatch(quickfixSession, message);
             } catch (Throwable e) {
                 LogUtil.logThrowable(quickfixSession.getSessionID(), e.getMessage(), e);
             }
@@ -220,7 +220,11 @@ public class ThreadPerSessionEventHandlingStrategy implements EventHandlingStrat
                         // no message available in polling interval
                         continue;
                     }
-                    quickfixSession.next(message);
+                    UnparsedMessage.dispatch(quickfixSession, message);
+                    if (messages.isEmpty()) {
+                        // end of dispatch batch
+                        CoalescingIoSessionResponder.flushResponder(quickfixSession);
+                    }
                     if (message == END_OF_STREAM) {
                         stopping = true;
                     }
@@ -239,7 +243,7 @@ public class ThreadPerSessionEventHandlingStrategy implements EventHandlingStrat
                 queueTracker.drainTo(tempList);
                 for (Message message : tempList) {
                     try {
-                        quickfixSession.next(message);
+                        UnparsedMessage.dispatch(quickfixSession, message);
                     } catch (final Throwable e) {
                         LogUtil.logThrowable(quickfixSession.getSessionID(),
                                 "Error during message processing", e);
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix.mina;
+
+import quickfix.FieldNotFound;
+import quickfix.IncorrectDataFormat;
+import quickfix.IncorrectTagValue;
+import quickfix.InvalidMessage;
+import quickfix.Log;
+import quickfix.Message;
+import quickfix.RejectLogon;
+import quickfix.Session;
+import quickfix.UnsupportedMessageType;
+
+import java.io.IOException;
+
+import static quickfix.MessageSessionUtils.parse;
+
+/**
+ * Placeholder for a framed but not yet parsed message. It is put to the queue of the
+ * EventHandlingStrategy when message parsing is deferred to the dispatching thread. The
+ * time at which the message was received is kept, so a backed-up dispatcher does not delay
+ * the last received time of the session.
+ *
+ * @see quickfix.Session#SETTING_DEFER_MESSAGE_PARSING
+ */
+final class UnparsedMessage extends Message {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Session quickfixSession;
+    private final String messageString;
+    private final long receivedTimestamp;
+
+    UnparsedMessage(Session quickfixSession, String messageString, long receivedTimestamp) {
+        this.quickfixSession = quickfixSession;
+        this.messageString = messageString;
+        this.receivedTimestamp = receivedTimestamp;
+    }
+
+    /**
+     * @return the time in milliseconds when the message was received by the IO processor
+     */
+    long getReceivedTimestamp() {
+        return receivedTimestamp;
+    }
+
+    /**
+     * Logs and parses the message. Invalid messages are logged as error events.
+     *
+     * @return the parsed message or null if the message should not be processed
+     */
+    Message parseMessage() {
+        final Log sessionLog = quickfixSession.getLog();
+        if (sessionLog.isIncomingEnabled()) {
+            sessionLog.onIncoming(messageString);
+        }
+        try {
+            return parse(quickfixSession, messageString);
+        } catch (InvalidMessage e) {
+            if (quickfixSession.isRejectGarbledMessage()) {
+                final Message fixMessage = e.getFixMessage();
+                if (fixMessage != null) {
+                    sessionLog.onErrorEvent("Processing garbled message: " + e.getMessage());
+                    return fixMessage;
+                }
+            }
+            sessionLog.onErrorEvent("Invalid message: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parses the given message if it is an UnparsedMessage.
+     *
+     * @param message a message taken from the queue of an EventHandlingStrategy
+     * @return the message ready for processing by the session or null if it should be dropped
+     */
+    static Message resolve(Message message) {
+        if (message instanceof UnparsedMessage) {
+            return ((UnparsedMessage) message).parseMessage();
+        }
+        return message;
+    }
+
+    /**
+     * Passes a message taken from the queue of an EventHandlingStrategy to the session. An
+     * UnparsedMessage is parsed first and processed with the time at which it was received.
+     */
+    static void dispatch(Session session, Message message) throws FieldNotFound, RejectLogon,
+            IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType, IOException, InvalidMessage {
+        if (message instanceof UnparsedMessage) {
+            final UnparsedMessage unparsedMessage = (UnparsedMessage) message;
+            final Message parsedMessage = unparsedMessage.parseMessage();
+            if (parsedMessage != null) {
+                session.next(parsedMessage, unparsedMessage.receivedTimestamp);
+            }
+        } else {
+            session.next(message);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return messageString;
+    }
+}
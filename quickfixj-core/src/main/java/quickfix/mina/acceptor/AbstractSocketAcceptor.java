@@ -54,20 +54,22 @@ import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
 
 /**
  * Abstract base class for socket acceptors.
  */
 public abstract class AbstractSocketAcceptor extends SessionConnector implements Acceptor {
     private final Map<SocketAddress, AcceptorSessionProvider> sessionProviders = new HashMap<>();
-    private final SessionFactory sessionFactory;
     private final Map<SocketAddress, AcceptorSocketDescriptor> socketDescriptorForAddress = new HashMap<>();
     private final ConcurrentMap<AcceptorSocketDescriptor, IoAcceptor> ioAcceptors = new ConcurrentHashMap<>();
 
@@ -76,7 +78,6 @@ public abstract class AbstractSocketAcceptor extends SessionConnector implements
         super(settings, sessionFactory);
         IoBuffer.setAllocator(new SimpleBufferAllocator());
         IoBuffer.setUseDirectBuffer(false);
-        this.sessionFactory = sessionFactory;
     }
 
     protected AbstractSocketAcceptor(Application application,
@@ -166,7 +167,8 @@ public abstract class AbstractSocketAcceptor extends SessionConnector implements
         return ioAcceptor;
     }
 
-    private void setupSession(SessionSettings settings, SessionID sessionID, boolean isTemplate, Map<SessionID, Session> allSessions)
+    private void setupSession(SessionSettings settings, SessionID sessionID, boolean isTemplate,
+            Map<SessionID, Session> allSessions, Map<SessionID, Future<Session>> pendingSessions)
             throws ConfigError, FieldConvertError {
         int acceptTransportType = ProtocolFactory.SOCKET;
         if (settings.isSetting(sessionID, Acceptor.SETTING_SOCKET_ACCEPT_PROTOCOL)) {
@@ -211,7 +213,7 @@ public abstract class AbstractSocketAcceptor extends SessionConnector implements
         }
 
         if (!isTemplate) {
-            Session session = sessionFactory.create(sessionID, settings);
+            Session session = createSession(sessionID, pendingSessions);
             descriptor.acceptSession(session);
             allSessions.put(sessionID, session);
         }
@@ -228,35 +230,25 @@ public abstract class AbstractSocketAcceptor extends SessionConnector implements
 
     private void createSessions(SessionSettings settings, boolean continueInitOnError) throws ConfigError {
         Map<SessionID, Session> allSessions = new HashMap<>();
-        for (Iterator<SessionID> i = settings.sectionIterator(); i.hasNext(); ) {
-            SessionID sessionID = i.next();
-            try {
-                String connectionType = null;
-                if (settings.isSetting(sessionID, SessionFactory.SETTING_CONNECTION_TYPE)) {
-                    connectionType = settings.getString(sessionID,
-                            SessionFactory.SETTING_CONNECTION_TYPE);
-                }
-
-                if (SessionFactory.ACCEPTOR_CONNECTION_TYPE.equals(connectionType)) {
-                    boolean isTemplate = false;
-                    if (settings.isSetting(sessionID, Acceptor.SETTING_ACCEPTOR_TEMPLATE)) {
-                        try {
-                            isTemplate = settings.getBool(sessionID, Acceptor.SETTING_ACCEPTOR_TEMPLATE);
-                        } catch (FieldConvertError | ConfigError ex) {
-                            // ignore and use default
-                        }
+        Map<SessionID, Future<Session>> pendingSessions = createSessionsInParallel(getAcceptorSessionIDs(settings));
+        try {
+            for (Iterator<SessionID> i = settings.sectionIterator(); i.hasNext(); ) {
+                SessionID sessionID = i.next();
+                try {
+                    if (isAcceptorSession(settings, sessionID)) {
+                        setupSession(settings, sessionID, isTemplate(settings, sessionID), allSessions, pendingSessions);
+                    }
+                } catch (Throwable t) {
+                    if (continueInitOnError) {
+                        LogUtil.logWarning(sessionID, "error during session initialization, continuing...", t);
+                    } else {
+                        throw t instanceof ConfigError ? (ConfigError) t : new ConfigError(
+                                "error during session initialization", t);
                     }
-
-                    setupSession(settings, sessionID, isTemplate, allSessions);
-                }
-            } catch (Throwable t) {
-                if (continueInitOnError) {
-                    LogUtil.logWarning(sessionID, "error during session initialization, continuing...", t);
-                } else {
-                    throw t instanceof ConfigError ? (ConfigError) t : new ConfigError(
-                            "error during session initialization", t);
                 }
             }
+        } finally {
+            cancelPendingSessions(pendingSessions);
         }
         setSessions(allSessions);
 
@@ -265,6 +257,43 @@ public abstract class AbstractSocketAcceptor extends SessionConnector implements
         }
     }
 
+    private List<SessionID> getAcceptorSessionIDs(SessionSettings settings) {
+        List<SessionID> sessionIDs = new ArrayList<>();
+        for (Iterator<SessionID> i = settings.sectionIterator(); i.hasNext(); ) {
+            SessionID sessionID = i.next();
+            try {
+                if (isAcceptorSession(settings, sessionID) && !isTemplate(settings, sessionID)) {
+                    sessionIDs.add(sessionID);
+                }
+            } catch (FieldConvertError | ConfigError e) {
+                // reported when the session is set up
+            }
+        }
+        return sessionIDs;
+    }
+
+    private boolean isAcceptorSession(SessionSettings settings, SessionID sessionID)
+            throws ConfigError, FieldConvertError {
+        String connectionType = null;
+        if (settings.isSetting(sessionID, SessionFactory.SETTING_CONNECTION_TYPE)) {
+            connectionType = settings.getString(sessionID,
+                    SessionFactory.SETTING_CONNECTION_TYPE);
+        }
+        return SessionFactory.ACCEPTOR_CONNECTION_TYPE.equals(connectionType);
+    }
+
+    private boolean isTemplate(SessionSettings settings, SessionID sessionID) {
+        boolean isTemplate = false;
+        if (settings.isSetting(sessionID, Acceptor.SETTING_ACCEPTOR_TEMPLATE)) {
+            try {
+                isTemplate = settings.getBool(sessionID, Acceptor.SETTING_ACCEPTOR_TEMPLATE);
+            } catch (FieldConvertError | ConfigError ex) {
+                // ignore and use default
+            }
+        }
+        return isTemplate;
+    }
+
     protected void stopAcceptingConnections() {
         Iterator<IoAcceptor> ioIt = getEndpoints().iterator();
         while (ioIt.hasNext()) {
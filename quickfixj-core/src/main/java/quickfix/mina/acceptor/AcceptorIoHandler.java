@@ -33,7 +33,6 @@ import quickfix.field.HeartBtInt;
 import quickfix.field.MsgType;
 import quickfix.mina.AbstractIoHandler;
 import quickfix.mina.EventHandlingStrategy;
-import quickfix.mina.IoSessionResponder;
 import quickfix.mina.NetworkingOptions;
 import quickfix.mina.SessionConnector;
 
@@ -87,10 +86,7 @@ class AcceptorIoHandler extends AbstractIoHandler {
                     sessionLog.onEvent("Acceptor heartbeat set to " + heartbeatInterval
                             + " seconds");
                     protocolSession.setAttribute(SessionConnector.QF_SESSION, qfSession);
-                    final NetworkingOptions networkingOptions = getNetworkingOptions();
-                    qfSession.setResponder(new IoSessionResponder(protocolSession,
-                            networkingOptions.getSynchronousWrites(), networkingOptions
-                                    .getSynchronousWriteTimeout(), qfSession.getMaxScheduledWriteRequests()));
+                    qfSession.setResponder(createResponder(protocolSession, qfSession));
                     if (sessionID.isFIXT()) { // QFJ-592
                         if (message.isSetField(DefaultApplVerID.FIELD)) {
                             final ApplVerID applVerID = new ApplVerID(
@@ -49,10 +49,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -216,13 +218,13 @@ public abstract class AbstractSocketInitiator extends SessionConnector implement
     private void createSessions(boolean continueInitOnError) throws ConfigError, FieldConvertError {
         final SessionSettings settings = getSettings();
         final Map<SessionID, Session> initiatorSessions = new HashMap<>();
+        final List<SessionID> sessionIDs = new ArrayList<>();
         for (final Iterator<SessionID> i = settings.sectionIterator(); i.hasNext(); ) {
             final SessionID sessionID = i.next();
             if (isInitiatorSession(sessionID)) {
                 try {
                     if (!settings.isSetting(sessionID, SETTING_DYNAMIC_SESSION) || !settings.getBool(sessionID, SETTING_DYNAMIC_SESSION)) {
-                        final Session quickfixSession = createSession(sessionID);
-                        initiatorSessions.put(sessionID, quickfixSession);
+                        sessionIDs.add(sessionID);
                     }
                 } catch (final Throwable e) {
                     if (continueInitOnError) {
@@ -234,6 +236,24 @@ public abstract class AbstractSocketInitiator extends SessionConnector implement
                 }
             }
         }
+        final Map<SessionID, Future<Session>> pendingSessions = createSessionsInParallel(sessionIDs);
+        try {
+            for (final SessionID sessionID : sessionIDs) {
+                try {
+                    final Session quickfixSession = createSession(sessionID, pendingSessions);
+                    initiatorSessions.put(sessionID, quickfixSession);
+                } catch (final Throwable e) {
+                    if (continueInitOnError) {
+                        LogUtil.logWarning(sessionID, "error during session initialization, continuing...", e);
+                    } else {
+                        throw e instanceof ConfigError ? (ConfigError) e : new ConfigError(
+                                "error during session initialization", e);
+                    }
+                }
+            }
+        } finally {
+            cancelPendingSessions(pendingSessions);
+        }
         setSessions(initiatorSessions);
     }
 
@@ -31,7 +31,6 @@ import quickfix.field.DefaultApplVerID;
 import quickfix.field.MsgType;
 import quickfix.mina.AbstractIoHandler;
 import quickfix.mina.EventHandlingStrategy;
-import quickfix.mina.IoSessionResponder;
 import quickfix.mina.NetworkingOptions;
 import quickfix.mina.SessionConnector;
 
@@ -52,11 +51,7 @@ class InitiatorIoHandler extends AbstractIoHandler {
     public void sessionCreated(IoSession session) throws Exception {
         super.sessionCreated(session);
         session.setAttribute(SessionConnector.QF_SESSION, quickfixSession);
-        NetworkingOptions networkingOptions = getNetworkingOptions();
-        quickfixSession.setResponder(new IoSessionResponder(session,
-                networkingOptions.getSynchronousWrites(),
-                networkingOptions.getSynchronousWriteTimeout(),
-                quickfixSession.getMaxScheduledWriteRequests()));
+        quickfixSession.setResponder(createResponder(session, quickfixSession));
         quickfixSession.getLog().onEvent("MINA session created: local="
                 + session.getLocalAddress() + ", " + session.getClass() + ", remote="
                 + session.getRemoteAddress());
@@ -133,6 +133,29 @@ public abstract class AbstractMessageStoreTest extends TestCase {
         assertEquals("wrong message", "message2", messages.get(1));
     }
 
+    public void testStreamingGet() throws Exception {
+        if (!testEnabled) {
+            return;
+        }
+        assertTrue("set failed", store.set(113, "message2"));
+        assertTrue("set failed", store.set(111, "message1"));
+        assertTrue("set failed", store.set(120, "message3"));
+        assertTrue("set failed", store.set(121, "message4"));
+        assertTrue("set failed", store.set(125, "message5"));
+
+        final ArrayList<String> messages = new ArrayList<>();
+        store.get(100, 130, 2, messages::add);
+        assertEquals("wrong # of messages", 5, messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals("wrong message", "message" + (i + 1), messages.get(i));
+        }
+
+        messages.clear();
+        store.get(112, 130, 2, message -> messages.add(message) && messages.size() < 3);
+        assertEquals("wrong # of messages", 3, messages.size());
+        assertEquals("wrong message", "message4", messages.get(2));
+    }
+
     public void testRefreshMessageStore() throws Exception {
         if (!testEnabled) {
             return;
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quickfixj.CharsetSupport;
+
+import quickfix.field.converter.UtcTimestampConverter;
+
+public class AsyncFileLogTest {
+
+    private AsyncFileLogFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        SystemTime.setTimeSource(new MockSystemTimeSource(System.currentTimeMillis()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SystemTime.setTimeSource(null);
+        if (factory != null) {
+            factory.close();
+        }
+    }
+
+    private AsyncFileLog createLog(SessionSettings settings, SessionID sessionID) throws IOException {
+        settings.setString(FileLogFactory.SETTING_FILE_LOG_PATH, getTempDirectory());
+        factory = new AsyncFileLogFactory(settings);
+        AsyncFileLog log = (AsyncFileLog) factory.create(sessionID);
+        log.clear();
+        return log;
+    }
+
+    @Test
+    public void testLog() throws Exception {
+        long systemTime = System.currentTimeMillis();
+        SystemTime.setTimeSource(new MockSystemTimeSource(systemTime));
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER" + systemTime, "TARGET" + systemTime);
+        AsyncFileLog log = createLog(new SessionSettings(), sessionID);
+
+        log.onIncoming("INTEST");
+        log.onOutgoing("OUTTEST äbcfödçé");
+        log.onEvent("EVENTTEST");
+        log.flush();
+
+        String formattedTime = UtcTimestampConverter.convert(new Date(systemTime), false);
+        assertEquals("INTEST\nOUTTEST äbcfödçé\n", readLog(log.getMessagesFileName()));
+        assertEquals(formattedTime + ": EVENTTEST\n", readLog(log.getEventFileName()));
+        assertEquals(3, factory.getWrittenCount());
+
+        log.clear();
+        assertEquals("", readLog(log.getMessagesFileName()));
+
+        // records logged after close are dropped
+        log.onIncoming("BEFORECLOSE");
+        log.close();
+        log.onIncoming("AFTERCLOSE");
+        log.flush();
+        assertEquals("BEFORECLOSE\n", readLog(log.getMessagesFileName()));
+    }
+
+    @Test
+    public void testClosedLogsAreReleased() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "RELEASE" + System.currentTimeMillis());
+        AsyncFileLog log = createLog(new SessionSettings(), sessionID);
+        assertEquals(1, factory.getLogCount());
+
+        AsyncFileLog other = (AsyncFileLog) factory.create(new SessionID("FIX.4.2", "SENDER", "OTHER"));
+        assertEquals(2, factory.getLogCount());
+        other.close();
+        log.close();
+        assertEquals(0, factory.getLogCount());
+
+        // the final drain of the writer does not open the files of closed logs again
+        factory.close();
+        factory = null;
+        log.onIncoming("AFTERSTOP");
+        assertEquals("", readLog(log.getMessagesFileName()));
+    }
+
+    @Test
+    public void testSpilledRecordsKeepTheirOrder() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "SPILL" + System.currentTimeMillis());
+        SessionSettings settings = new SessionSettings();
+        settings.setLong(AsyncFileLogFactory.SETTING_ASYNC_FILE_LOG_QUEUE_SIZE, 1);
+        settings.setString(AsyncFileLogFactory.SETTING_ASYNC_FILE_LOG_OVERFLOW_POLICY, "SPILL");
+        AsyncFileLog log = createLog(settings, sessionID);
+
+        for (int i = 0; i < 10000; i++) {
+            log.onIncoming("MESSAGE" + i);
+        }
+        log.flush();
+
+        List<String> lines = Files.readAllLines(new File(log.getMessagesFileName()).toPath());
+        assertEquals(10000, lines.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("MESSAGE" + i, lines.get(i));
+        }
+        assertEquals(0, factory.getDroppedCount());
+    }
+
+    @Test
+    public void testHeartbeatsAreDroppedWhenFull() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "DROP" + System.currentTimeMillis());
+        SessionSettings settings = new SessionSettings();
+        settings.setLong(AsyncFileLogFactory.SETTING_ASYNC_FILE_LOG_QUEUE_SIZE, 1);
+        settings.setString(AsyncFileLogFactory.SETTING_ASYNC_FILE_LOG_OVERFLOW_POLICY, "DROP_HEARTBEATS");
+        AsyncFileLog log = createLog(settings, sessionID);
+
+        for (int i = 0; i < 10000; i++) {
+            log.onIncoming("8=FIX.4.2\0019=5\00135=0\00134=" + i + "\00110=000\001");
+            log.onIncoming("8=FIX.4.2\0019=5\00135=D\00134=" + i + "\00110=000\001");
+        }
+        log.flush();
+
+        List<String> lines = Files.readAllLines(new File(log.getMessagesFileName()).toPath());
+        assertEquals(20000, lines.size() + factory.getDroppedCount());
+        assertEquals(10000, lines.stream().filter(line -> line.contains("\00135=D\001")).count());
+        assertTrue(factory.getQueueDepth() == 0);
+    }
+
+    private String getTempDirectory() throws IOException {
+        File path = File.createTempFile("test", "");
+        File tempdir = path.getParentFile();
+        return tempdir.getAbsolutePath();
+    }
+
+    private String readLog(String path) throws IOException {
+        return new String(Files.readAllBytes(new File(path).toPath()), CharsetSupport.getCharset());
+    }
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quickfixj.CharsetSupport;
+
+import quickfix.field.converter.UtcTimestampConverter;
+
+public class BinaryLogTest {
+
+    private static final long TIME = 1500000000000L;
+
+    private File directory;
+    private BinaryLogFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        SystemTime.setTimeSource(new MockSystemTimeSource(TIME));
+        directory = Files.createTempDirectory("binarylog").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SystemTime.setTimeSource(null);
+        if (factory != null) {
+            factory.close();
+        }
+        delete(directory);
+    }
+
+    private BinaryLogFactory createFactory(long segmentSize) {
+        SessionSettings settings = new SessionSettings();
+        settings.setString(BinaryLogFactory.SETTING_BINARY_LOG_PATH, new File(directory, "log").getPath());
+        settings.setLong(BinaryLogFactory.SETTING_BINARY_LOG_SEGMENT_SIZE, segmentSize);
+        factory = new BinaryLogFactory(settings);
+        return factory;
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        SessionID sessionID1 = new SessionID("FIX.4.2", "SENDER", "TARGET1");
+        SessionID sessionID2 = new SessionID("FIX.4.4", "SENDER", "TARGET2", "QUALIFIER");
+        createFactory(BinaryLogFactory.DEFAULT_SEGMENT_SIZE);
+        Log log1 = factory.create(sessionID1);
+        Log log2 = factory.create(sessionID2);
+
+        log1.onIncoming("INTEST");
+        log2.onIncoming("CLEARED");
+        log2.onEvent("CLEARED");
+        log2.clear();
+        log1.onOutgoing("OUTTEST äbcfödçé");
+        log2.onOutgoing("OUTTEST2");
+        log1.onEvent("EVENTTEST");
+        log1.onErrorEvent("ERRORTEST");
+        factory.close();
+
+        File output = new File(directory, "out");
+        assertEquals("Decoded 8 records of 2 sessions\n", decode(output, false));
+
+        String formattedTime = UtcTimestampConverter.convert(
+                LocalDateTime.ofEpochSecond(TIME / 1000, 0, ZoneOffset.UTC), UtcTimestampPrecision.SECONDS);
+        assertEquals("INTEST\nOUTTEST äbcfödçé\n", readLog(output, sessionID1, "messages.log"));
+        assertEquals(formattedTime + ": EVENTTEST\n" + formattedTime + ": ERRORTEST\n",
+                readLog(output, sessionID1, "event.log"));
+        assertEquals("OUTTEST2\n", readLog(output, sessionID2, "messages.log"));
+        assertEquals("", readLog(output, sessionID2, "event.log"));
+
+        decode(output, true);
+        assertEquals(formattedTime + ": INTEST\n" + formattedTime + ": OUTTEST äbcfödçé\n",
+                readLog(output, sessionID1, "messages.log"));
+    }
+
+    @Test
+    public void testRecordsAfterCloseAreDropped() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "TARGET");
+        createFactory(BinaryLogFactory.DEFAULT_SEGMENT_SIZE);
+        Log log = factory.create(sessionID);
+        log.onIncoming("BEFORECLOSE");
+        factory.close();
+
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream systemErr = System.err;
+        System.setErr(new PrintStream(err, true));
+        try {
+            log.onIncoming("AFTERCLOSE");
+            log.onEvent("AFTERCLOSE");
+        } finally {
+            System.setErr(systemErr);
+        }
+        assertEquals("", err.toString());
+
+        File output = new File(directory, "out");
+        assertEquals("Decoded 1 records of 1 sessions\n", decode(output, false));
+        assertEquals("BEFORECLOSE\n", readLog(output, sessionID, "messages.log"));
+    }
+
+    @Test
+    public void testSegmentsAreRolled() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "TARGET");
+        createFactory(256);
+        Log log = factory.create(sessionID);
+        for (int i = 0; i < 100; i++) {
+            log.onIncoming("MESSAGE" + i);
+        }
+        factory.close();
+
+        // a reopened log starts a new segment
+        log = createFactory(256).create(sessionID);
+        for (int i = 100; i < 200; i++) {
+            log.onIncoming("MESSAGE" + i);
+        }
+        // a record larger than a segment
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append("LARGE MESSAGE");
+        }
+        log.onIncoming(large.toString());
+        factory.close();
+
+        File output = new File(directory, "out");
+        decode(output, false);
+        List<String> lines = Files.readAllLines(
+                new File(output, FileUtil.sessionIdFileName(sessionID) + ".messages.log").toPath(),
+                CharsetSupport.getCharsetInstance());
+        assertEquals(201, lines.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals("MESSAGE" + i, lines.get(i));
+        }
+        assertEquals(large.toString(), lines.get(200));
+    }
+
+    @Test
+    public void testRolledSegmentsAreReleased() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "TARGET");
+        createFactory(256);
+        Log log = factory.create(sessionID);
+        for (int i = 0; i < 100; i++) {
+            log.onIncoming("MESSAGE" + i);
+        }
+        File[] segments = new File(directory, "log").listFiles();
+        assertTrue(segments.length > 2);
+        Arrays.sort(segments);
+
+        File mappings = new File("/proc/self/maps");
+        assumeTrue(mappings.canRead());
+        for (int i = 0; i < segments.length - 1; i++) {
+            assertFalse(segments[i] + " is still mapped", isMapped(mappings, segments[i]));
+        }
+        assertTrue(isMapped(mappings, segments[segments.length - 1]));
+        factory.close();
+        assertFalse(isMapped(mappings, segments[segments.length - 1]));
+
+        decode(new File(directory, "out"), false);
+        for (File segment : segments) {
+            assertFalse(segment + " is still mapped after decoding", isMapped(mappings, segment));
+        }
+    }
+
+    private static boolean isMapped(File mappings, File file) throws IOException {
+        String path = file.getCanonicalPath();
+        for (String line : Files.readAllLines(mappings.toPath())) {
+            if (line.endsWith(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String decode(File output, boolean includeTimestamps) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryLogDecoder.run(new File(directory, "log"), output, includeTimestamps, UtcTimestampPrecision.SECONDS,
+                new PrintStream(out, true));
+        return out.toString().replace(System.lineSeparator(), "\n");
+    }
+
+    private String readLog(File output, SessionID sessionID, String name) throws IOException {
+        File file = new File(output, FileUtil.sessionIdFileName(sessionID) + "." + name);
+        return new String(Files.readAllBytes(file.toPath()), CharsetSupport.getCharset());
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BoundedMemoryStoreTest extends AbstractMessageStoreTest {
+
+    protected MessageStoreFactory getMessageStoreFactory() {
+        return new BoundedMemoryStoreFactory(new SessionSettings());
+    }
+
+    protected Class<?> getMessageStoreClass() {
+        return BoundedMemoryStore.class;
+    }
+
+    @Override
+    public void testRefreshMessageStore() {
+        // messages are not persisted
+    }
+
+    public void testEvictionByMessageCount() throws Exception {
+        BoundedMemoryStore store = new BoundedMemoryStore(3, 1024, false);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(store.set(i, "MESSAGE" + i));
+        }
+
+        List<String> messages = new ArrayList<>();
+        store.get(1, 5, messages);
+        assertEquals(3, messages.size());
+        assertEquals("MESSAGE3", messages.get(0));
+        assertEquals("MESSAGE5", messages.get(2));
+        assertEquals(2, store.getEvictedCount());
+    }
+
+    public void testEvictionByBytes() throws Exception {
+        // room for two messages of 8 bytes
+        BoundedMemoryStore store = new BoundedMemoryStore(100, 20, true);
+        for (int i = 1; i <= 5; i++) {
+            store.set(i, "MESSAGE" + i);
+        }
+
+        List<String> messages = new ArrayList<>();
+        store.get(1, Integer.MAX_VALUE, messages);
+        assertEquals(2, messages.size());
+        assertEquals("MESSAGE4", messages.get(0));
+        assertEquals("MESSAGE5", messages.get(1));
+        assertEquals(2, store.getMessageCount());
+    }
+
+    public void testSetAgainReplacesMessage() throws Exception {
+        BoundedMemoryStore store = new BoundedMemoryStore(3, 1024, false);
+        assertTrue(store.set(1, "MESSAGE1"));
+        assertTrue(store.set(2, "MESSAGE2"));
+        assertFalse(store.set(1, "MESSAGE1B"));
+        // evicts the replaced message and message 2
+        store.set(3, "MESSAGE3");
+        store.set(4, "MESSAGE4");
+
+        List<String> messages = new ArrayList<>();
+        store.get(1, 4, messages);
+        assertEquals(3, messages.size());
+        assertEquals("MESSAGE1B", messages.get(0));
+        assertEquals("MESSAGE3", messages.get(1));
+        assertEquals("MESSAGE4", messages.get(2));
+    }
+
+    public void testMessageLargerThanArenaIsNotStored() throws Exception {
+        BoundedMemoryStore store = new BoundedMemoryStore(10, 8, false);
+        assertTrue(store.set(1, "MESSAGE1"));
+        assertFalse(store.set(1, "MESSAGE1B"));
+
+        List<String> messages = new ArrayList<>();
+        store.get(1, 1, messages);
+        assertEquals(0, messages.size());
+    }
+
+    public void testReset() throws Exception {
+        BoundedMemoryStore store = new BoundedMemoryStore(10, 1024, true);
+        store.set(1, "MESSAGE1");
+        store.reset();
+
+        List<String> messages = new ArrayList<>();
+        store.get(1, 1, messages);
+        assertEquals(0, messages.size());
+        assertEquals(0, store.getMessageCount());
+    }
+}
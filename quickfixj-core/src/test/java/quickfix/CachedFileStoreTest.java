@@ -20,7 +20,9 @@
 package quickfix;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 public class CachedFileStoreTest extends AbstractMessageStoreTest {
 
@@ -57,6 +59,24 @@ public class CachedFileStoreTest extends AbstractMessageStoreTest {
         assertEquals(321, store.getNextTargetMsgSeqNum());
     }
 
+    public void testIndexCheckpointOnClose() throws Exception {
+        CachedFileStore store = (CachedFileStore) getStore();
+        store.set(1, "MESSAGE1");
+        store.set(2, "MESSAGE2");
+        store.closeFiles();
+        assertTrue(store.getIndexCheckpoint().getFile().exists());
+
+        store.initialize(false);
+        store.set(3, "MESSAGE3");
+        List<String> messages = new ArrayList<>();
+        store.get(1, 3, messages);
+        assertEquals(3, messages.size());
+        assertEquals("MESSAGE3", messages.get(2));
+
+        store.reset();
+        assertFalse(store.getIndexCheckpoint().getFile().exists());
+    }
+
     protected void closeMessageStore(MessageStore store) throws IOException {
         ((CachedFileStore) store).closeFiles();
     }
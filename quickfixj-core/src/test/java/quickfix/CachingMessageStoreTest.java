@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CachingMessageStoreTest extends AbstractMessageStoreTest {
+
+    public void tearDown() throws Exception {
+        super.tearDown();
+        CharsetSupport.setDefaultCharset();
+        CachingMessageStore store = (CachingMessageStore) getStore();
+        try {
+            store.close();
+            ((FileStore) store.getDelegate()).closeAndDeleteFiles();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    @Override
+    protected MessageStoreFactory getMessageStoreFactory() throws ConfigError, FieldConvertError {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        // Initialize the session settings from the defaults
+        settings.setString(getSessionID(), FileStoreFactory.SETTING_FILE_STORE_PATH, settings
+                .getString(FileStoreFactory.SETTING_FILE_STORE_PATH));
+        settings.setLong(getSessionID(), CachingMessageStoreFactory.SETTING_MESSAGE_STORE_CACHE_MAX_MESSAGES, 3);
+        return new CachingMessageStoreFactory(settings, new FileStoreFactory(settings));
+    }
+
+    @Override
+    protected Class<?> getMessageStoreClass() {
+        return CachingMessageStore.class;
+    }
+
+    protected void closeMessageStore(MessageStore store) throws IOException {
+        ((CachingMessageStore) store).close();
+    }
+
+    public void testFactoryCloseClosesUnderlyingFactory() throws Exception {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        settings.setBool(FileStoreFactory.SETTING_FILE_STORE_GROUP_COMMIT, true);
+        FileStoreFactory fileStoreFactory = new FileStoreFactory(settings);
+        CachingMessageStoreFactory factory = new CachingMessageStoreFactory(settings, fileStoreFactory);
+        CachingMessageStore store = (CachingMessageStore) factory.create(getSessionID());
+        try {
+            store.set(1, "MESSAGE1");
+            assertTrue(fileStoreFactory.getGroupCommitter().isRunning());
+            factory.close();
+            assertFalse(fileStoreFactory.getGroupCommitter().isRunning());
+        } finally {
+            store.close();
+        }
+    }
+
+    public void testRecentMessagesAreReadFromMemory() throws Exception {
+        CachingMessageStore store = (CachingMessageStore) getStore();
+        for (int i = 1; i <= 5; i++) {
+            store.set(i, "MESSAGE" + i);
+        }
+
+        List<String> messages = new ArrayList<>();
+        store.get(3, 5, messages);
+        assertEquals(3, messages.size());
+        assertEquals(3, store.getHitCount());
+        assertEquals(0, store.getMissCount());
+
+        // messages 1 and 2 were evicted
+        messages.clear();
+        store.get(1, 5, messages);
+        assertEquals(5, messages.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("MESSAGE" + (i + 1), messages.get(i));
+        }
+        assertEquals(6, store.getHitCount());
+        assertEquals(2, store.getMissCount());
+        assertEquals(2, store.getEvictedCount());
+    }
+
+    public void testMessagesStoredBeforeCreationAreReadFromStore() throws Exception {
+        CachingMessageStore store = (CachingMessageStore) getStore();
+        store.set(1, "MESSAGE1");
+        store.incrNextSenderMsgSeqNum();
+        store.close();
+
+        CachingMessageStore reopened = (CachingMessageStore) createStore();
+        try {
+            reopened.set(2, "MESSAGE2");
+            List<String> messages = new ArrayList<>();
+            reopened.get(1, 2, messages);
+            assertEquals(2, messages.size());
+            assertEquals("MESSAGE1", messages.get(0));
+            assertEquals("MESSAGE2", messages.get(1));
+            assertEquals(1, reopened.getHitCount());
+            assertEquals(1, reopened.getMissCount());
+        } finally {
+            closeMessageStore(reopened);
+        }
+    }
+
+    public void testResetClearsCache() throws Exception {
+        CachingMessageStore store = (CachingMessageStore) getStore();
+        store.set(1, "MESSAGE1");
+        store.reset();
+
+        assertEquals(0, store.getCachedMessageCount());
+        List<String> messages = new ArrayList<>();
+        store.get(1, 1, messages);
+        assertEquals(0, messages.size());
+    }
+}
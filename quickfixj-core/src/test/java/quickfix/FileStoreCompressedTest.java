@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FileStoreCompressedTest extends FileStoreTest {
+
+    private String path;
+
+    @Override
+    protected MessageStoreFactory getMessageStoreFactory() throws ConfigError, FieldConvertError {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        // Initialize the session settings from the defaults
+        path = settings.getString(FileStoreFactory.SETTING_FILE_STORE_PATH);
+        settings.setString(getSessionID(), FileStoreFactory.SETTING_FILE_STORE_PATH, path);
+        settings.setBool(getSessionID(), FileStoreFactory.SETTING_FILE_STORE_COMPRESSION, true);
+        // a few messages per block
+        settings.setLong(getSessionID(), FileStoreFactory.SETTING_FILE_STORE_COMPRESSION_BLOCK_SIZE, 64);
+        return new FileStoreFactory(settings);
+    }
+
+    public void testMessagesInSealedAndOpenBlocks() throws Exception {
+        FileStore store = (FileStore) getStore();
+        for (int i = 1; i <= 50; i++) {
+            store.set(i, "8=FIX.4.2\0019=12\00135=D\00134=" + i + "\00110=000\001");
+        }
+        assertTrue(getFile("zbody").length() > 0);
+
+        store.close();
+        store.initialize(false);
+        List<String> messages = new ArrayList<>();
+        store.get(1, 50, messages);
+        assertEquals(50, messages.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("8=FIX.4.2\0019=12\00135=D\00134=" + (i + 1) + "\00110=000\001", messages.get(i));
+        }
+    }
+
+    public void testRecoveryOfBlockSealedBeforeCrash() throws Exception {
+        File body = File.createTempFile("compressed", ".body");
+        File tail = File.createTempFile("compressed", ".tail");
+        try {
+            CompressedBodyFile file = new CompressedBodyFile(body.getPath(), tail.getPath(), "rw", 16, false);
+            long position1 = file.append("MESSAGE1".getBytes());
+            long position2 = file.append("MESSAGE2".getBytes());
+            byte[] tailBeforeSeal = Files.readAllBytes(tail.toPath());
+            // seals the block of messages 1 and 2
+            long position3 = file.append("MESSAGE3".getBytes());
+            file.close();
+
+            // crash before the tail was truncated
+            Files.write(tail.toPath(), tailBeforeSeal);
+            file = new CompressedBodyFile(body.getPath(), tail.getPath(), "rw", 16, false);
+            assertEquals("MESSAGE1", new String(file.read(position1, 8)));
+            assertEquals("MESSAGE2", new String(file.read(position2, 8)));
+            assertEquals(position3, file.append("MESSAGE3".getBytes()));
+            file.close();
+
+            // crash while the block was written
+            Files.write(tail.toPath(), tailBeforeSeal);
+            try (RandomAccessFile raf = new RandomAccessFile(body, "rw")) {
+                raf.setLength(body.length() - 2);
+            }
+            file = new CompressedBodyFile(body.getPath(), tail.getPath(), "rw", 16, false);
+            assertEquals("MESSAGE1", new String(file.read(position1, 8)));
+            assertEquals("MESSAGE2", new String(file.read(position2, 8)));
+            assertEquals(0, body.length());
+            file.close();
+        } finally {
+            body.delete();
+            tail.delete();
+        }
+    }
+
+    private File getFile(String suffix) {
+        return new File(path, FileUtil.sessionIdFileName(getSessionID()) + "." + suffix);
+    }
+}
@@ -21,6 +21,8 @@ package quickfix;
 
 import org.quickfixj.CharsetSupport;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
@@ -81,6 +83,145 @@ public class FileStoreTest extends AbstractMessageStoreTest {
         ((FileStore) store).close();
     }
 
+    public void testMappedSequenceNumbers() throws Exception {
+        FileStore store = (FileStore) getStore();
+        store.setNextSenderMsgSeqNum(123);
+        store.setNextTargetMsgSeqNum(321);
+        store.close();
+
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        settings.setBool(FileStoreFactory.SETTING_FILE_STORE_MAPPED_SEQ_NUMS, true);
+        FileStore mappedStore = (FileStore) new FileStoreFactory(settings).create(getSessionID());
+        try {
+            // sequence numbers are taken over from the sequence number files
+            assertEquals(123, mappedStore.getNextSenderMsgSeqNum());
+            assertEquals(321, mappedStore.getNextTargetMsgSeqNum());
+            mappedStore.incrNextSenderMsgSeqNum();
+            mappedStore.incrNextTargetMsgSeqNum();
+            mappedStore.close();
+            mappedStore.initialize(false);
+            assertEquals(124, mappedStore.getNextSenderMsgSeqNum());
+            assertEquals(322, mappedStore.getNextTargetMsgSeqNum());
+
+            mappedStore.reset();
+            assertEquals(1, mappedStore.getNextSenderMsgSeqNum());
+        } finally {
+            mappedStore.closeAndDeleteFiles();
+        }
+    }
+
+    public void testGroupCommit() throws Exception {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        settings.setBool(FileStoreFactory.SETTING_FILE_STORE_GROUP_COMMIT, true);
+        settings.setLong(FileStoreFactory.SETTING_FILE_STORE_GROUP_COMMIT_INTERVAL, 10000);
+        settings.setLong(FileStoreFactory.SETTING_FILE_STORE_GROUP_COMMIT_BATCH_SIZE, 4);
+        FileStoreFactory factory = new FileStoreFactory(settings);
+        FileStore store = (FileStore) factory.create(getSessionID());
+        try {
+            // one commit for the message and one for the sequence number
+            store.set(1, "MESSAGE1");
+            store.incrNextSenderMsgSeqNum();
+            store.set(2, "MESSAGE2");
+            store.incrNextSenderMsgSeqNum();
+            store.awaitDurable();
+            assertEquals(1, factory.getGroupCommitter().getGroupCount());
+
+            store.close();
+            store.initialize(false);
+            List<String> messages = new ArrayList<>();
+            store.get(1, 2, messages);
+            assertEquals(2, messages.size());
+            assertEquals(3, store.getNextSenderMsgSeqNum());
+        } finally {
+            store.closeAndDeleteFiles();
+        }
+    }
+
+    public void testGroupCommitTicket() throws Exception {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        settings.setBool(FileStoreFactory.SETTING_FILE_STORE_GROUP_COMMIT, true);
+        settings.setLong(FileStoreFactory.SETTING_FILE_STORE_GROUP_COMMIT_INTERVAL, 1);
+        FileStoreFactory factory = new FileStoreFactory(settings);
+        FileStore store = (FileStore) factory.create(getSessionID());
+        try {
+            store.set(1, "MESSAGE1");
+            store.incrNextSenderMsgSeqNum();
+            long ticket = store.getDurableTicket();
+            assertTrue(ticket > 0);
+            store.awaitDurable(ticket);
+            assertTrue(factory.getGroupCommitter().getGroupCount() > 0);
+        } finally {
+            store.closeAndDeleteFiles();
+            factory.close();
+        }
+    }
+
+    public void testFactoryCloseStopsGroupCommitThread() throws Exception {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        settings.setBool(FileStoreFactory.SETTING_FILE_STORE_GROUP_COMMIT, true);
+        settings.setLong(FileStoreFactory.SETTING_FILE_STORE_GROUP_COMMIT_INTERVAL, 10000);
+        FileStoreFactory factory = new FileStoreFactory(settings);
+        FileStore store = (FileStore) factory.create(getSessionID());
+        try {
+            store.set(1, "MESSAGE1");
+            assertTrue(factory.getGroupCommitter().isRunning());
+
+            // pending commits are synced before the thread stops
+            factory.close();
+            assertFalse(factory.getGroupCommitter().isRunning());
+            assertEquals(1, factory.getGroupCommitter().getGroupCount());
+
+            // a later commit starts a new thread
+            store.set(2, "MESSAGE2");
+            assertTrue(factory.getGroupCommitter().isRunning());
+        } finally {
+            store.closeAndDeleteFiles();
+            factory.close();
+        }
+    }
+
+    public void testIndexCheckpoint() throws Exception {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        settings.setLong(FileStoreFactory.SETTING_FILE_STORE_INDEX_CHECKPOINT_INTERVAL, 3);
+        settings.setLong(FileStoreFactory.SETTING_FILE_STORE_MAX_CACHED_MSGS, 5);
+        FileStoreFactory factory = new FileStoreFactory(settings);
+        FileStore store = (FileStore) factory.create(getSessionID());
+        FileStore recoveredStore = null;
+        try {
+            store.reset();
+            for (int i = 1; i <= 7; i++) {
+                store.set(i, "MESSAGE" + i);
+            }
+            File checkpointFile = store.getIndexCheckpoint().getFile();
+            assertTrue(checkpointFile.exists());
+
+            // recovered from the checkpoint after message 6 and the header record of message 7
+            recoveredStore = (FileStore) factory.create(getSessionID());
+            List<String> messages = new ArrayList<>();
+            recoveredStore.get(1, 7, messages);
+            assertEquals(7, messages.size());
+            assertEquals("MESSAGE7", messages.get(6));
+            recoveredStore.close();
+
+            // a corrupt checkpoint is ignored
+            try (FileOutputStream out = new FileOutputStream(checkpointFile)) {
+                out.write(new byte[]{1, 2, 3});
+            }
+            store.initialize(false);
+            messages.clear();
+            store.get(1, 7, messages);
+            assertEquals(7, messages.size());
+
+            store.reset();
+            assertFalse(checkpointFile.exists());
+        } finally {
+            if (recoveredStore != null) {
+                recoveredStore.close();
+            }
+            store.closeAndDeleteFiles();
+        }
+    }
+
     public void testInitialSessionCreationTime() throws Exception {
         FileStore store = (FileStore) getStore();
         Date creationTime1 = store.getCreationTime();
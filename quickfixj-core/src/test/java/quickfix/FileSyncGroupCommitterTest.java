@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileSyncGroupCommitterTest {
+
+    private File directory;
+    private FileSyncGroupCommitter committer;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("groupcommit").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        if (committer != null) {
+            committer.close();
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testClosedFileFailsOnlyItsCommits() throws Exception {
+        committer = new FileSyncGroupCommitter(60000, 3);
+        try (RandomAccessFile open = openFile("open"); RandomAccessFile closed = openFile("closed")) {
+            long first = committer.commit(open.getFD());
+            long second = committer.commit(closed.getFD());
+            closed.close();
+            // the third commit completes the group
+            long third = committer.commit(open.getFD());
+
+            committer.await(first);
+            assertAwaitFails(second);
+            committer.await(third);
+            assertEquals(1, committer.getGroupCount());
+        }
+    }
+
+    @Test
+    public void testEarlierFailedGroupsAreKept() throws Exception {
+        committer = new FileSyncGroupCommitter(0, 1);
+        try (RandomAccessFile open = openFile("open"); RandomAccessFile closed = openFile("closed")) {
+            closed.close();
+            long first = committer.commit(closed.getFD());
+            committer.await(committer.commit(open.getFD()));
+            long third = committer.commit(closed.getFD());
+            long fourth = committer.commit(open.getFD());
+            committer.await(fourth);
+
+            // the failure of the later group does not hide the one of the earlier group
+            assertAwaitFails(first);
+            assertAwaitFails(third);
+        }
+    }
+
+    @Test
+    public void testWaitersFailWhenThreadIsInterrupted() throws Exception {
+        committer = new FileSyncGroupCommitter(60000, 100);
+        try (RandomAccessFile open = openFile("open")) {
+            long ticket = committer.commit(open.getFD());
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals("QFJ Store Group Commit")) {
+                    thread.interrupt();
+                }
+            }
+            try {
+                committer.await(ticket);
+                fail("the commit was not synced");
+            } catch (IOException e) {
+                assertTrue(e.getCause() instanceof InterruptedIOException);
+            }
+            assertFalse(committer.isRunning());
+
+            // a later commit starts a new thread
+            committer = new FileSyncGroupCommitter(0, 1);
+            committer.await(committer.commit(open.getFD()));
+        }
+    }
+
+    private RandomAccessFile openFile(String name) throws IOException {
+        return new RandomAccessFile(new File(directory, name), "rw");
+    }
+
+    private void assertAwaitFails(long ticket) {
+        try {
+            committer.await(ticket);
+            fail("commit " + ticket + " was reported as synced");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
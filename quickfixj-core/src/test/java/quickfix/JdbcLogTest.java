@@ -19,10 +19,14 @@
 
 package quickfix;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.sql.DataSource;
 
@@ -42,6 +46,9 @@ public class JdbcLogTest {
     @After
     public void tearDown() {
         Session.unregisterSession(sessionID, true);
+        if (logFactory != null) {
+            logFactory.close();
+        }
     }
 
     @Test
@@ -120,16 +127,148 @@ public class JdbcLogTest {
         }
     }
 
+    @Test
+    public void testBatchedLog() throws Exception {
+        setUpJdbcLog(false, null, batchSettings());
+
+        log.onIncoming("INCOMING");
+        log.onOutgoing("OUTGOING");
+        log.onEvent("EVENT");
+        log.flush();
+        assertEquals(2, getRowCount(connection, "messages_log"));
+        assertEquals(1, getRowCount(connection, "event_log"));
+        assertLogData(connection, 0, sessionID, "INCOMING", log.getIncomingMessagesTableName());
+        assertLogData(connection, 0, sessionID, "EVENT", "event_log");
+        assertEquals(0, log.getPendingCount());
+        assertEquals(3, log.getWrittenCount());
+
+        log.clear();
+        assertEquals(0, getRowCount(connection, "messages_log"));
+        assertEquals(0, getRowCount(connection, "event_log"));
+    }
+
+    @Test
+    public void testClosedBatchedLogIsUnregistered() throws Exception {
+        setUpJdbcLog(false, null, batchSettings());
+        assertEquals(1, logFactory.getLogCount());
+
+        log.onIncoming("INCOMING");
+        log.close();
+        assertEquals(0, logFactory.getLogCount());
+        assertEquals(0, log.getPendingCount());
+        assertEquals(1, getRowCount(connection, "messages_log"));
+
+        // records logged after close are inserted on the logging thread
+        log.onIncoming("AFTERCLOSE");
+        assertEquals(0, log.getPendingCount());
+        assertEquals(2, getRowCount(connection, "messages_log"));
+    }
+
+    @Test
+    public void testBatchedLogKeepsRecordsWhileDatabaseIsUnavailable() throws Exception {
+        AtomicBoolean unavailable = new AtomicBoolean();
+        setUpJdbcLog(false, getUnavailableDataSource(unavailable), batchSettings());
+        unavailable.set(true);
+        for (int i = 0; i < 5; i++) {
+            log.onIncoming("INCOMING" + i);
+        }
+        log.flush();
+        assertEquals(5, log.getPendingCount());
+        assertTrue(log.getFailedBatchCount() > 0);
+
+        unavailable.set(false);
+        log.flush();
+        assertEquals(0, log.getPendingCount());
+        assertEquals(5, getRowCount(connection, "messages_log"));
+        assertEquals(0, log.getDroppedCount());
+        assertEquals(0, log.getRejectedCount());
+    }
+
+    @Test
+    public void testBatchedLogDropsRecordsWhichAreRejected() throws Exception {
+        setUpJdbcLog(false, null, batchSettings());
+        dropTable("event_log");
+        try {
+            log.onIncoming("INCOMING");
+            log.onEvent("EVENT");
+            log.onOutgoing("OUTGOING");
+            log.flush();
+            assertEquals(0, log.getPendingCount());
+            assertEquals(2, log.getWrittenCount());
+            assertEquals(1, log.getRejectedCount());
+            assertEquals(1, logFactory.getRejectedCount());
+            assertEquals(0, log.getFailedBatchCount());
+            assertEquals(2, getRowCount(connection, "messages_log"));
+            assertLogData(connection, 0, sessionID, "OUTGOING", log.getOutgoingMessagesTableName());
+        } finally {
+            initializeTableDefinitions(connection);
+        }
+    }
+
+    @Test
+    public void testBatchedLogDropsRecordsWhenTooManyArePending() throws Exception {
+        SessionSettings settings = batchSettings();
+        settings.setLong(JdbcSetting.SETTING_JDBC_LOG_MAX_PENDING_RECORDS, 2);
+        setUpJdbcLog(false, null, settings);
+        dropTable(log.getIncomingMessagesTableName());
+        try {
+            for (int i = 0; i < 5; i++) {
+                log.onIncoming("INCOMING" + i);
+            }
+            assertEquals(2, log.getPendingCount());
+            assertEquals(3, log.getDroppedCount());
+            assertEquals(3, logFactory.getDroppedCount());
+        } finally {
+            initializeTableDefinitions(connection);
+        }
+
+        log.flush();
+        assertEquals(2, getRowCount(connection, "messages_log"));
+        assertLogData(connection, 0, sessionID, "INCOMING0", log.getIncomingMessagesTableName());
+    }
+
+    private SessionSettings batchSettings() {
+        SessionSettings settings = new SessionSettings();
+        settings.setBool(JdbcSetting.SETTING_JDBC_LOG_BATCH_MODE, true);
+        // the records are inserted by flush()
+        settings.setLong(JdbcSetting.SETTING_JDBC_LOG_BATCH_LINGER, 60000);
+        return settings;
+    }
+
+    /**
+     * @return a data source of the test database which fails to open connections while
+     * <code>unavailable</code> is set
+     */
+    private static DataSource getUnavailableDataSource(AtomicBoolean unavailable) {
+        DataSource dataSource = JdbcTestSupport.getTestDataSource(JdbcTestSupport.HSQL_DRIVER,
+                JdbcTestSupport.HSQL_CONNECTION_URL, JdbcTestSupport.HSQL_USER, "");
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection") && unavailable.get()) {
+                        throw new SQLTransientConnectionException("Database is unavailable");
+                    }
+                    try {
+                        return method.invoke(dataSource, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
     private void dropTable(String tableName) throws SQLException {
         connection.prepareStatement("DROP TABLE " + tableName + " IF EXISTS;")
                 .execute();
     }
 
     private void setUpJdbcLog(boolean filterHeartbeats, DataSource dataSource) throws ClassNotFoundException, SQLException, ConfigError {
+        setUpJdbcLog(filterHeartbeats, dataSource, new SessionSettings());
+    }
+
+    private void setUpJdbcLog(boolean filterHeartbeats, DataSource dataSource, SessionSettings settings)
+            throws ClassNotFoundException, SQLException, ConfigError {
         connection = JdbcTestSupport.getConnection();
         long now = System.currentTimeMillis();
         sessionID = new SessionID("FIX.4.2", "SENDER-" + now, "TARGET-" + now);
-        SessionSettings settings = new SessionSettings();
         if (filterHeartbeats) {
             settings.setBool(JdbcSetting.SETTING_JDBC_LOG_HEARTBEATS, false);
         }
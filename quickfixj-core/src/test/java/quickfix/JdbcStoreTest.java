@@ -31,13 +31,17 @@ import java.util.Date;
 import java.util.List;
 
 import static quickfix.JdbcSetting.SETTING_JDBC_DS_NAME;
+import static quickfix.JdbcSetting.SETTING_JDBC_STORE_BATCH_MODE;
+import static quickfix.JdbcSetting.SETTING_JDBC_STORE_BATCH_SIZE;
 import static quickfix.JdbcSetting.SETTING_JDBC_STORE_MESSAGES_TABLE_NAME;
 import static quickfix.JdbcSetting.SETTING_JDBC_STORE_SESSIONS_TABLE_NAME;
+import static quickfix.JdbcSetting.SETTING_JDBC_STORE_UPSERT_DIALECT;
 import static quickfix.JdbcTestSupport.HSQL_CONNECTION_URL;
 import static quickfix.JdbcTestSupport.HSQL_DRIVER;
 import static quickfix.JdbcTestSupport.HSQL_USER;
 import static quickfix.JdbcTestSupport.assertNoActiveConnections;
 import static quickfix.JdbcTestSupport.dropTable;
+import static quickfix.JdbcTestSupport.execSQL;
 import static quickfix.JdbcTestSupport.loadSQL;
 import static quickfix.JdbcUtil.close;
 
@@ -199,4 +203,140 @@ public class JdbcStoreTest extends AbstractMessageStoreTest {
         store.get(1, 1, messages);
         assertEquals("MESSAGE2", messages.get(0));
     }
+
+    public void testBatchMode() throws Exception {
+        JdbcStore store = createStore(true, "NONE");
+        try {
+            store.reset();
+            for (int i = 1; i <= 25; i++) {
+                assertTrue(store.set(i, "MESSAGE" + i));
+                store.incrNextSenderMsgSeqNum();
+            }
+            store.incrNextTargetMsgSeqNum();
+            // a message stored before is replaced by the fallback of the failed batch
+            assertTrue(store.set(3, "MESSAGE3B"));
+            store.flush();
+
+            JdbcStore otherStore = (JdbcStore) createStore();
+            assertEquals(26, otherStore.getNextSenderMsgSeqNum());
+            assertEquals(2, otherStore.getNextTargetMsgSeqNum());
+            List<String> messages = new ArrayList<>();
+            otherStore.get(1, 25, messages);
+            assertEquals(25, messages.size());
+            assertEquals("MESSAGE3B", messages.get(2));
+        } finally {
+            store.close();
+        }
+    }
+
+    public void testBatchModeDefersSequenceNumbers() throws Exception {
+        JdbcStore store = createStore(true, "NONE");
+        try {
+            store.reset();
+            store.set(1, "MESSAGE1");
+            store.incrNextSenderMsgSeqNum();
+            store.incrNextTargetMsgSeqNum();
+
+            JdbcStore otherStore = (JdbcStore) createStore();
+            assertEquals(1, otherStore.getNextSenderMsgSeqNum());
+            assertEquals(1, otherStore.getNextTargetMsgSeqNum());
+
+            store.awaitDurable();
+            otherStore.refresh();
+            assertEquals(2, otherStore.getNextSenderMsgSeqNum());
+            assertEquals(2, otherStore.getNextTargetMsgSeqNum());
+
+            // the batch is committed once it holds 10 messages and sequence number updates
+            for (int i = 2; i <= 5; i++) {
+                store.set(i, "MESSAGE" + i);
+                store.incrNextSenderMsgSeqNum();
+            }
+            store.incrNextTargetMsgSeqNum();
+            otherStore.refresh();
+            assertEquals(2, otherStore.getNextSenderMsgSeqNum());
+            store.incrNextTargetMsgSeqNum();
+            otherStore.refresh();
+            assertEquals(6, otherStore.getNextSenderMsgSeqNum());
+            assertEquals(4, otherStore.getNextTargetMsgSeqNum());
+        } finally {
+            store.close();
+        }
+    }
+
+    public void testBatchModeKeepsBatchUntilCommitted() throws Exception {
+        JdbcStore store = createStore(true, "NONE");
+        try {
+            store.reset();
+            store.set(1, "MESSAGE1");
+            store.incrNextSenderMsgSeqNum();
+
+            Connection connection = getTestDataSource().getConnection();
+            try {
+                execSQL(connection, "ALTER TABLE messages RENAME TO unavailable_messages");
+                try {
+                    store.flush();
+                    fail("the batch was committed without the messages table");
+                } catch (IOException e) {
+                    // expected
+                } finally {
+                    execSQL(connection, "ALTER TABLE unavailable_messages RENAME TO messages");
+                }
+            } finally {
+                close(null, connection);
+            }
+
+            store.flush();
+            JdbcStore otherStore = (JdbcStore) createStore();
+            assertEquals(2, otherStore.getNextSenderMsgSeqNum());
+            List<String> messages = new ArrayList<>();
+            otherStore.get(1, 1, messages);
+            assertEquals(1, messages.size());
+            assertEquals("MESSAGE1", messages.get(0));
+        } finally {
+            store.close();
+        }
+    }
+
+    public void testBatchModeResetDiscardsBatch() throws Exception {
+        JdbcStore store = createStore(true, "NONE");
+        try {
+            store.reset();
+            store.set(1, "MESSAGE1");
+            store.reset();
+
+            List<String> messages = new ArrayList<>();
+            store.get(1, 1, messages);
+            assertEquals(0, messages.size());
+        } finally {
+            store.close();
+        }
+    }
+
+    public void testUpsertMessageSql() {
+        // the embedded test database does not support these statements
+        assertEquals("MERGE INTO messages m USING (VALUES (?,?,?)) AS v (beginstring,msgseqnum,message) "
+                + "ON (m.beginstring=v.beginstring and m.msgseqnum=v.msgseqnum) "
+                + "WHEN MATCHED THEN UPDATE SET message=v.message "
+                + "WHEN NOT MATCHED THEN INSERT (beginstring,msgseqnum,message) "
+                + "VALUES (v.beginstring,v.msgseqnum,v.message)",
+                JdbcStore.getUpsertMessageSql(JdbcStore.UpsertDialect.MERGE, "messages", "beginstring", "?"));
+        assertEquals("INSERT INTO messages (beginstring, msgseqnum,message) VALUES (?,?,?) "
+                + "ON CONFLICT (beginstring,msgseqnum) DO UPDATE SET message=EXCLUDED.message",
+                JdbcStore.getUpsertMessageSql(JdbcStore.UpsertDialect.ON_CONFLICT, "messages", "beginstring", "?"));
+        assertEquals("INSERT INTO messages (beginstring, msgseqnum,message) VALUES (?,?,?) "
+                + "ON DUPLICATE KEY UPDATE message=VALUES(message)",
+                JdbcStore.getUpsertMessageSql(JdbcStore.UpsertDialect.ON_DUPLICATE_KEY, "messages", "beginstring", "?"));
+        assertEquals(JdbcStore.getInsertMessageSql("messages", "beginstring", "?"),
+                JdbcStore.getUpsertMessageSql(JdbcStore.UpsertDialect.NONE, "messages", "beginstring", "?"));
+    }
+
+    private JdbcStore createStore(boolean batchMode, String upsertDialect) throws Exception {
+        SessionSettings settings = new SessionSettings();
+        settings.setString(SETTING_JDBC_DS_NAME, "TestDataSource");
+        settings.setBool(SETTING_JDBC_STORE_BATCH_MODE, batchMode);
+        settings.setLong(SETTING_JDBC_STORE_BATCH_SIZE, 10);
+        settings.setString(SETTING_JDBC_STORE_UPSERT_DIALECT, upsertDialect);
+        initializeTableDefinitions(null, null);
+        return (JdbcStore) new JdbcStoreFactory(settings).create(getSessionID());
+    }
 }
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class JournalStoreTest extends AbstractMessageStoreTest {
+
+    public void tearDown() throws Exception {
+        super.tearDown();
+        CharsetSupport.setDefaultCharset();
+        ((JournalStore) getStore()).closeAndDeleteFiles();
+    }
+
+    @Override
+    protected MessageStoreFactory getMessageStoreFactory() throws ConfigError, FieldConvertError {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        // Initialize the session settings from the defaults
+        settings.setString(getSessionID(), FileStoreFactory.SETTING_FILE_STORE_PATH, settings
+                .getString(FileStoreFactory.SETTING_FILE_STORE_PATH));
+        // small segments to cover rolling
+        settings.setLong(getSessionID(), JournalStoreFactory.SETTING_JOURNAL_STORE_SEGMENT_SIZE, 256);
+        return new JournalStoreFactory(settings);
+    }
+
+    @Override
+    protected Class<?> getMessageStoreClass() {
+        return JournalStore.class;
+    }
+
+    protected void closeMessageStore(MessageStore store) throws IOException {
+        ((JournalStore) store).close();
+    }
+
+    public void testCloseAndOpen() throws Exception {
+        JournalStore store = (JournalStore) getStore();
+        Date creationTime = store.getCreationTime();
+        store.setNextSenderMsgSeqNum(123);
+        store.setNextTargetMsgSeqNum(321);
+        for (int i = 1; i <= 20; i++) {
+            store.set(i, "MESSAGE" + i);
+        }
+        store.set(2, "MESSAGE2B");
+        assertTrue(store.getJournal().getSegmentCount() > 1);
+        store.close();
+
+        MessageStore reopened = createStore();
+        try {
+            assertEquals(123, reopened.getNextSenderMsgSeqNum());
+            assertEquals(321, reopened.getNextTargetMsgSeqNum());
+            assertEquals(creationTime, reopened.getCreationTime());
+            List<String> messages = new ArrayList<>();
+            reopened.get(1, 20, messages);
+            assertEquals(20, messages.size());
+            assertEquals("MESSAGE2B", messages.get(1));
+            assertEquals("MESSAGE20", messages.get(19));
+        } finally {
+            closeMessageStore(reopened);
+        }
+    }
+
+    public void testSegmentsBeforeResetAreDeleted() throws Exception {
+        JournalStore store = (JournalStore) getStore();
+        for (int i = 1; i <= 20; i++) {
+            store.set(i, "MESSAGE" + i);
+            store.incrNextSenderMsgSeqNum();
+        }
+        store.reset();
+        store.set(1, "MESSAGE1B");
+        store.incrNextSenderMsgSeqNum();
+
+        assertTrue(store.getJournal().deleteObsoleteSegments(0) > 0);
+        assertEquals(1, store.getJournal().getSegmentCount());
+        store.close();
+
+        MessageStore reopened = createStore();
+        try {
+            assertEquals(2, reopened.getNextSenderMsgSeqNum());
+            List<String> messages = new ArrayList<>();
+            reopened.get(1, 20, messages);
+            assertEquals(Arrays.asList("MESSAGE1B"), messages);
+        } finally {
+            closeMessageStore(reopened);
+        }
+    }
+
+    public void testSegmentsWithMessagesAreKept() throws Exception {
+        JournalStore store = (JournalStore) getStore();
+        for (int i = 1; i <= 20; i++) {
+            store.set(i, "MESSAGE" + i);
+        }
+        int segmentCount = store.getJournal().getSegmentCount();
+
+        assertEquals(0, store.getJournal().deleteObsoleteSegments(0));
+        assertEquals(segmentCount, store.getJournal().getSegmentCount());
+    }
+
+    public void testTornRecordIsTruncated() throws Exception {
+        JournalStore store = (JournalStore) getStore();
+        store.set(1, "MESSAGE1");
+        store.incrNextSenderMsgSeqNum();
+        store.close();
+
+        File[] segments = new File(getJournalDirectory()).listFiles();
+        Arrays.sort(segments);
+        File lastSegment = segments[segments.length - 1];
+        long length = lastSegment.length();
+        try (RandomAccessFile file = new RandomAccessFile(lastSegment, "rw")) {
+            file.seek(length);
+            // record length of 100 but only a few bytes of the record
+            file.write(new byte[] { 0, 0, 0, 100, 1, 2, 3 });
+        }
+
+        MessageStore reopened = createStore();
+        try {
+            assertEquals(length, lastSegment.length());
+            assertEquals(2, reopened.getNextSenderMsgSeqNum());
+            reopened.set(2, "MESSAGE2");
+            List<String> messages = new ArrayList<>();
+            reopened.get(1, 2, messages);
+            assertEquals(Arrays.asList("MESSAGE1", "MESSAGE2"), messages);
+        } finally {
+            closeMessageStore(reopened);
+        }
+    }
+
+    public void testReplayReadsRecordsAcrossBufferBoundaries() throws Exception {
+        ((JournalStore) getStore()).close();
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        settings.setString(getSessionID(), FileStoreFactory.SETTING_FILE_STORE_PATH, settings
+                .getString(FileStoreFactory.SETTING_FILE_STORE_PATH));
+        settings.setLong(getSessionID(), JournalStoreFactory.SETTING_JOURNAL_STORE_SEGMENT_SIZE, 4 * 1024 * 1024);
+        JournalStoreFactory factory = new JournalStoreFactory(settings);
+        char[] padding = new char[1000];
+        Arrays.fill(padding, 'X');
+        char[] largeMessage = new char[200 * 1024];
+        Arrays.fill(largeMessage, 'Y');
+
+        JournalStore store = (JournalStore) factory.create(getSessionID());
+        try {
+            // records straddle the boundaries of the replay buffer and one is larger than it
+            for (int i = 1; i <= 200; i++) {
+                store.set(i, "MESSAGE" + i + new String(padding));
+                store.incrNextSenderMsgSeqNum();
+            }
+            store.set(201, new String(largeMessage));
+            store.set(202, "MESSAGE202");
+            store.incrNextSenderMsgSeqNum();
+            store.incrNextSenderMsgSeqNum();
+            assertEquals(1, store.getJournal().getSegmentCount());
+        } finally {
+            store.close();
+        }
+
+        JournalStore reopened = (JournalStore) factory.create(getSessionID());
+        try {
+            assertEquals(203, reopened.getNextSenderMsgSeqNum());
+            List<String> messages = new ArrayList<>();
+            reopened.get(1, 202, messages);
+            assertEquals(202, messages.size());
+            assertEquals("MESSAGE1" + new String(padding), messages.get(0));
+            assertEquals("MESSAGE200" + new String(padding), messages.get(199));
+            assertEquals(new String(largeMessage), messages.get(200));
+            assertEquals("MESSAGE202", messages.get(201));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    public void testFactoryCloseStopsCleanupThread() throws Exception {
+        JournalStoreFactory factory = (JournalStoreFactory) getMessageStoreFactory();
+        JournalStore store = (JournalStore) factory.create(getSessionID());
+        try {
+            ScheduledExecutorService cleanupExecutor = factory.getCleanupExecutor();
+            factory.close();
+            assertTrue(cleanupExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+            // a later factory use starts a new thread
+            assertNotSame(cleanupExecutor, factory.getCleanupExecutor());
+        } finally {
+            store.close();
+            factory.close();
+        }
+    }
+
+    private String getJournalDirectory() throws ConfigError {
+        String path = new SessionSettings(getConfigurationFileName()).getString(FileStoreFactory.SETTING_FILE_STORE_PATH);
+        return FileUtil.fileAppendPath(new File(path).getAbsolutePath(),
+                FileUtil.sessionIdFileName(getSessionID()) + ".journal");
+    }
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedFileStoreTest extends AbstractMessageStoreTest {
+
+    public void tearDown() throws Exception {
+        super.tearDown();
+        CharsetSupport.setDefaultCharset();
+        MappedFileStore fileStore = (MappedFileStore) getStore();
+        try {
+            fileStore.closeAndDeleteFiles();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    @Override
+    protected MessageStoreFactory getMessageStoreFactory() throws ConfigError, FieldConvertError {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        // Initialize the session settings from the defaults
+        settings.setString(getSessionID(), FileStoreFactory.SETTING_FILE_STORE_PATH, settings
+                .getString(FileStoreFactory.SETTING_FILE_STORE_PATH));
+        // small segments to cover messages spanning segment boundaries
+        settings.setLong(getSessionID(), MappedFileStoreFactory.SETTING_MAPPED_FILE_STORE_SEGMENT_SIZE, 64);
+        return new MappedFileStoreFactory(settings);
+    }
+
+    @Override
+    protected Class<?> getMessageStoreClass() {
+        return MappedFileStore.class;
+    }
+
+    protected void closeMessageStore(MessageStore store) throws IOException {
+        ((MappedFileStore) store).close();
+    }
+
+    public void testMessageIndexReset() throws Exception {
+        MappedFileStore store = (MappedFileStore) getStore();
+        store.set(1, "MESSAGE");
+        store.reset();
+
+        store.set(2, "MESSAGE");
+
+        List<String> messages = new ArrayList<>();
+        store.get(1, 1, messages);
+
+        assertEquals(0, messages.size());
+    }
+
+    public void testCloseAndOpen() throws Exception {
+        MappedFileStore store = (MappedFileStore) getStore();
+        store.setNextSenderMsgSeqNum(123);
+        store.setNextTargetMsgSeqNum(321);
+        store.set(1, "MESSAGE1");
+        store.set(2, "MESSAGE2");
+        store.close();
+        store.initialize();
+
+        assertEquals(123, store.getNextSenderMsgSeqNum());
+        assertEquals(321, store.getNextTargetMsgSeqNum());
+        List<String> messages = new ArrayList<>();
+        store.get(1, 2, messages);
+        assertEquals(2, messages.size());
+        assertEquals("MESSAGE2", messages.get(1));
+    }
+
+    public void testMessagesSpanningSegments() throws Exception {
+        MappedFileStore store = (MappedFileStore) getStore();
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            message.append((char) ('a' + i % 26));
+        }
+        for (int i = 1; i <= 10; i++) {
+            store.set(i, i + message.toString());
+        }
+        store.refresh();
+
+        List<String> messages = new ArrayList<>();
+        store.get(1, 10, messages);
+        assertEquals(10, messages.size());
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(i + message.toString(), messages.get(i - 1));
+        }
+    }
+
+    public void testSyncWritesSpanningSegments() throws Exception {
+        SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "MAPPED", "SYNC");
+        String path = new SessionSettings(getConfigurationFileName()).getString(FileStoreFactory.SETTING_FILE_STORE_PATH);
+        MappedFileStore store = new MappedFileStore(path, sessionID, true, 64);
+        try {
+            store.set(20, "MESSAGE20");
+            for (int i = 21; i <= 30; i++) {
+                store.set(i, i + "-MESSAGE-SPANNING-MORE-THAN-ONE-SEGMENT-OF-THE-BODY-FILE-" + i);
+            }
+            // moves the slots
+            store.set(10, "MESSAGE10");
+            store.close();
+            store.initialize();
+
+            List<String> messages = new ArrayList<>();
+            store.get(1, 30, messages);
+            assertEquals(12, messages.size());
+            assertEquals("MESSAGE10", messages.get(0));
+            assertEquals("MESSAGE20", messages.get(1));
+            assertEquals("30-MESSAGE-SPANNING-MORE-THAN-ONE-SEGMENT-OF-THE-BODY-FILE-30", messages.get(11));
+        } finally {
+            store.closeAndDeleteFiles();
+        }
+    }
+
+    public void testMappedRegionsAreReleased() throws Exception {
+        MappedFileStore store = (MappedFileStore) getStore();
+        for (int i = 1; i <= 10; i++) {
+            store.set(i, "MESSAGE" + i);
+        }
+        final int mappedRegions = store.getMappedRegionCount();
+        assertTrue(mappedRegions > 2);
+
+        // refresh keeps the mappings
+        store.refresh();
+        store.refresh();
+        assertEquals(mappedRegions, store.getMappedRegionCount());
+
+        // reset keeps the index and the first body segment
+        store.reset();
+        assertEquals(2, store.getMappedRegionCount());
+        store.set(1, "MESSAGE1");
+
+        store.close();
+        assertEquals(0, store.getMappedRegionCount());
+    }
+
+    public void testRefreshReadsChangesOfOtherStore() throws Exception {
+        MappedFileStore store = (MappedFileStore) getStore();
+        store.set(1, "MESSAGE1");
+        assertRefreshReadsChangesOfOtherStore(store, (MappedFileStore) createStore());
+    }
+
+    public void testRefreshReadsMappedSequenceNumbersOfOtherStore() throws Exception {
+        SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "MAPPED", "SEQNUMS");
+        String path = new SessionSettings(getConfigurationFileName()).getString(FileStoreFactory.SETTING_FILE_STORE_PATH);
+        MappedFileStore store = new MappedFileStore(path, sessionID, false, 64, true);
+        try {
+            store.set(1, "MESSAGE1");
+            assertRefreshReadsChangesOfOtherStore(store, new MappedFileStore(path, sessionID, false, 64, true));
+        } finally {
+            store.closeAndDeleteFiles();
+        }
+    }
+
+    /**
+     * @param store a store containing message 1
+     * @param otherStore a store opened on the same files
+     */
+    private void assertRefreshReadsChangesOfOtherStore(MappedFileStore store, MappedFileStore otherStore)
+            throws Exception {
+        try {
+            for (int i = 2; i <= 10; i++) {
+                otherStore.set(i, "MESSAGE" + i);
+            }
+            otherStore.setNextSenderMsgSeqNum(11);
+        } finally {
+            otherStore.close();
+        }
+
+        store.refresh();
+        assertEquals(11, store.getNextSenderMsgSeqNum());
+        List<String> messages = new ArrayList<>();
+        store.get(1, 10, messages);
+        assertEquals(10, messages.size());
+        assertEquals("MESSAGE10", messages.get(9));
+    }
+
+    public void testSequenceNumberBelowFirstStoredMessage() throws Exception {
+        MappedFileStore store = (MappedFileStore) getStore();
+        store.set(1000, "MESSAGE1000");
+        store.set(1001, "MESSAGE1001");
+        store.set(10, "MESSAGE10");
+        store.set(1000, "MESSAGE1000B");
+
+        List<String> messages = new ArrayList<>();
+        store.get(1, 2000, messages);
+        assertEquals(3, messages.size());
+        assertEquals("MESSAGE10", messages.get(0));
+        assertEquals("MESSAGE1000B", messages.get(1));
+        assertEquals("MESSAGE1001", messages.get(2));
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedSequenceNumbersTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("quickfixj", ".mappedseqnums");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testSetAndReopen() throws Exception {
+        try (MappedSequenceNumbers sequenceNumbers = new MappedSequenceNumbers(file.getPath())) {
+            assertFalse(sequenceNumbers.isInitialized());
+            sequenceNumbers.set(10, 20);
+            sequenceNumbers.set(11, 20);
+            sequenceNumbers.set(11, 21);
+            sequenceNumbers.force();
+        }
+        try (MappedSequenceNumbers sequenceNumbers = new MappedSequenceNumbers(file.getPath())) {
+            assertTrue(sequenceNumbers.isInitialized());
+            assertEquals(11, sequenceNumbers.getNextSenderMsgSeqNum());
+            assertEquals(21, sequenceNumbers.getNextTargetMsgSeqNum());
+        }
+    }
+
+    @Test
+    public void testTornWriteFallsBackToPreviousGeneration() throws Exception {
+        try (MappedSequenceNumbers sequenceNumbers = new MappedSequenceNumbers(file.getPath())) {
+            sequenceNumbers.set(10, 20);
+            sequenceNumbers.set(11, 20);
+        }
+        // the second update went to the first record, corrupt its sender slot
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(8);
+            raf.writeLong(999);
+        }
+        try (MappedSequenceNumbers sequenceNumbers = new MappedSequenceNumbers(file.getPath())) {
+            assertEquals(10, sequenceNumbers.getNextSenderMsgSeqNum());
+            assertEquals(20, sequenceNumbers.getNextTargetMsgSeqNum());
+            // the next update overwrites the corrupted record
+            sequenceNumbers.set(11, 20);
+        }
+        try (MappedSequenceNumbers sequenceNumbers = new MappedSequenceNumbers(file.getPath())) {
+            assertEquals(11, sequenceNumbers.getNextSenderMsgSeqNum());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MessageTypeFilterLogTest {
+
+    private static final String HEARTBEAT = "8=FIX.4.4\0019=5\00135=0\00110=000\001";
+    private static final String TEST_REQUEST = "8=FIX.4.4\0019=5\00135=1\00110=000\001";
+    private static final String ORDER = "8=FIX.4.4\0019=5\00135=D\00110=000\001";
+    private static final String EXECUTION_REPORT = "8=FIX.4.4\0019=5\00135=8\00110=000\001";
+
+    private final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "SENDER", "TARGET");
+
+    @Test
+    public void testExcludedMessageTypesAreNotLogged() throws Exception {
+        SessionSettings settings = new SessionSettings();
+        settings.setString(sessionID, MessageTypeFilterLogFactory.SETTING_LOG_EXCLUDED_MESSAGE_TYPES, "0, 1");
+        RecordingLog recordingLog = new RecordingLog();
+        Log log = new MessageTypeFilterLogFactory(settings, id -> recordingLog).create(sessionID);
+
+        log.onIncoming(HEARTBEAT);
+        log.onOutgoing(TEST_REQUEST);
+        log.onIncoming(ORDER);
+        log.onOutgoing(EXECUTION_REPORT);
+        log.onEvent("EVENT");
+
+        assertEquals(2, recordingLog.messages.size());
+        assertEquals(ORDER, recordingLog.messages.get(0));
+        assertEquals(EXECUTION_REPORT, recordingLog.messages.get(1));
+        assertEquals(1, recordingLog.events.size());
+    }
+
+    @Test
+    public void testOnlyIncludedMessageTypesAreLogged() throws Exception {
+        SessionSettings settings = new SessionSettings();
+        settings.setString(sessionID, MessageTypeFilterLogFactory.SETTING_LOG_MESSAGE_TYPES, "D");
+        RecordingLog recordingLog = new RecordingLog();
+        Log log = new MessageTypeFilterLogFactory(settings, id -> recordingLog).create(sessionID);
+
+        log.onIncoming(HEARTBEAT);
+        log.onIncoming(ORDER);
+        log.onOutgoing(EXECUTION_REPORT);
+        // messages without a message type are always logged
+        log.onIncoming("GARBLED");
+
+        assertEquals(2, recordingLog.messages.size());
+        assertEquals(ORDER, recordingLog.messages.get(0));
+        assertEquals("GARBLED", recordingLog.messages.get(1));
+    }
+
+    @Test
+    public void testGuardsOfUnderlyingLog() throws Exception {
+        SessionSettings settings = new SessionSettings();
+        settings.setBool(sessionID, ScreenLogFactory.SETTING_LOG_INCOMING, false);
+        settings.setBool(sessionID, ScreenLogFactory.SETTING_LOG_OUTGOING, true);
+        settings.setBool(sessionID, ScreenLogFactory.SETTING_LOG_EVENTS, false);
+        Log log = new MessageTypeFilterLogFactory(settings, new ScreenLogFactory(settings)).create(sessionID);
+
+        assertFalse(log.isIncomingEnabled());
+        assertTrue(log.isOutgoingEnabled());
+        assertFalse(log.isEventEnabled());
+    }
+
+    private static class RecordingLog implements Log {
+        private final List<String> messages = new ArrayList<>();
+        private final List<String> events = new ArrayList<>();
+
+        public void clear() {
+            messages.clear();
+            events.clear();
+        }
+
+        public void onIncoming(String message) {
+            messages.add(message);
+        }
+
+        public void onOutgoing(String message) {
+            messages.add(message);
+        }
+
+        public void onEvent(String text) {
+            events.add(text);
+        }
+
+        public void onErrorEvent(String text) {
+            events.add(text);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quickfixj.CharsetSupport;
+
+import quickfix.field.converter.UtcTimestampConverter;
+
+public class RollingFileLogTest {
+
+    // 2017-07-14 02:40:00 UTC
+    private static final long TIME = 1500000000000L;
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private MockSystemTimeSource timeSource;
+    private File directory;
+    private RollingFileLogFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        timeSource = new MockSystemTimeSource(TIME);
+        SystemTime.setTimeSource(timeSource);
+        directory = Files.createTempDirectory("rollinglog").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SystemTime.setTimeSource(null);
+        if (factory != null) {
+            factory.close();
+        }
+        delete(directory);
+    }
+
+    private RollingFileLog createLog(SessionSettings settings, SessionID sessionID) {
+        settings.setString(FileLogFactory.SETTING_FILE_LOG_PATH, directory.getPath());
+        factory = new RollingFileLogFactory(settings);
+        return (RollingFileLog) factory.create(sessionID);
+    }
+
+    @Test
+    public void testLog() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "TARGET");
+        SessionSettings settings = new SessionSettings();
+        settings.setBool(sessionID, FileLogFactory.SETTING_INCLUDE_MILLIS_IN_TIMESTAMP, true);
+        RollingFileLog log = createLog(settings, sessionID);
+
+        log.onIncoming("INTEST");
+        log.onOutgoing("OUTTEST äbcfödçé");
+        log.onEvent("EVENTTEST");
+        log.close();
+
+        String formattedTime = UtcTimestampConverter.convert(new Date(TIME), true);
+        assertEquals("INTEST\nOUTTEST äbcfödçé\n", readLog(new File(log.getMessagesFileName())));
+        assertEquals(formattedTime + ": EVENTTEST\n", readLog(new File(log.getEventFileName())));
+
+        // the files are opened again and appended to
+        log.onIncoming("AFTERCLOSE");
+        log.close();
+        assertEquals("INTEST\nOUTTEST äbcfödçé\nAFTERCLOSE\n", readLog(new File(log.getMessagesFileName())));
+
+        log.clear();
+        log.close();
+        assertEquals("", readLog(new File(log.getMessagesFileName())));
+    }
+
+    @Test
+    public void testRollsBySize() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "TARGET");
+        SessionSettings settings = new SessionSettings();
+        settings.setLong(sessionID, RollingFileLogFactory.SETTING_ROLLING_FILE_LOG_MAX_SIZE, 100);
+        RollingFileLog log = createLog(settings, sessionID);
+
+        for (int i = 0; i < 100; i++) {
+            log.onIncoming("MESSAGE" + i);
+        }
+        log.close();
+
+        List<File> rolled = log.getMessagesFile().getRolledFiles();
+        assertEquals(9, rolled.size());
+        StringBuilder content = new StringBuilder();
+        for (File file : rolled) {
+            assertTrue(file.length() <= 100);
+            content.append(readLog(file));
+        }
+        content.append(readLog(new File(log.getMessagesFileName())));
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append("MESSAGE").append(i).append('\n');
+        }
+        assertEquals(expected.toString(), content.toString());
+    }
+
+    @Test
+    public void testRollingReleasesMappedRegions() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "TARGET");
+        SessionSettings settings = new SessionSettings();
+        settings.setLong(sessionID, RollingFileLogFactory.SETTING_ROLLING_FILE_LOG_MAX_SIZE, 100);
+        RollingFileLog log = createLog(settings, sessionID);
+
+        // on Windows, rolling fails if the file is still mapped when it is truncated and renamed
+        for (int i = 0; i < 30; i++) {
+            log.onIncoming("MESSAGE" + i);
+        }
+        List<File> rolled = log.getMessagesFile().getRolledFiles();
+        assertEquals(2, rolled.size());
+
+        File mappings = new File("/proc/self/maps");
+        assumeTrue(mappings.canRead());
+        for (File file : rolled) {
+            assertFalse(file + " is still mapped", isMapped(mappings, file));
+        }
+        log.close();
+        assertFalse(isMapped(mappings, new File(log.getMessagesFileName())));
+    }
+
+    private static boolean isMapped(File mappings, File file) throws IOException {
+        String path = file.getCanonicalPath();
+        for (String line : Files.readAllLines(mappings.toPath())) {
+            if (line.endsWith(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testRollsDailyAndCompresses() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "TARGET");
+        SessionSettings settings = new SessionSettings();
+        settings.setBool(sessionID, RollingFileLogFactory.SETTING_ROLLING_FILE_LOG_COMPRESS, true);
+        settings.setLong(sessionID, RollingFileLogFactory.SETTING_ROLLING_FILE_LOG_MAX_BACKUPS, 2);
+        RollingFileLog log = createLog(settings, sessionID);
+
+        for (int day = 0; day < 4; day++) {
+            log.onIncoming("DAY" + day + " MESSAGE1");
+            timeSource.increment(12 * HOUR);
+            log.onIncoming("DAY" + day + " MESSAGE2");
+            timeSource.increment(12 * HOUR);
+        }
+        factory.close();
+        log.close();
+
+        List<File> rolled = log.getMessagesFile().getRolledFiles();
+        assertEquals(2, rolled.size());
+        assertEquals(new File(directory, "FIX.4.2-SENDER-TARGET.messages.20170715-024000-000.log.gz"),
+                rolled.get(0));
+        assertEquals("DAY1 MESSAGE1\nDAY1 MESSAGE2\n", readCompressedLog(rolled.get(0)));
+        assertEquals("DAY2 MESSAGE1\nDAY2 MESSAGE2\n", readCompressedLog(rolled.get(1)));
+        assertEquals("DAY3 MESSAGE1\nDAY3 MESSAGE2\n", readLog(new File(log.getMessagesFileName())));
+    }
+
+    @Test
+    public void testRollsAtSessionStart() throws Exception {
+        SessionID sessionID = new SessionID("FIX.4.2", "SENDER", "TARGET");
+        SessionSettings settings = new SessionSettings();
+        settings.setString(sessionID, RollingFileLogFactory.SETTING_ROLLING_FILE_LOG_TIME_ROTATION, "session");
+        settings.setString(sessionID, Session.SETTING_START_TIME, "08:00:00");
+        settings.setString(sessionID, Session.SETTING_END_TIME, "06:00:00");
+        RollingFileLog log = createLog(settings, sessionID);
+
+        // 02:40, in the session which started the day before
+        log.onIncoming("MESSAGE1");
+        // 06:40, after the end of the session
+        timeSource.increment(4 * HOUR);
+        log.onIncoming("MESSAGE2");
+        // 08:40, in the next session
+        timeSource.increment(2 * HOUR);
+        log.onIncoming("MESSAGE3");
+        // midnight does not roll
+        timeSource.increment(18 * HOUR);
+        log.onIncoming("MESSAGE4");
+        log.close();
+
+        List<File> rolled = log.getMessagesFile().getRolledFiles();
+        assertEquals(1, rolled.size());
+        assertEquals("MESSAGE1\nMESSAGE2\n", readLog(rolled.get(0)));
+        assertEquals("MESSAGE3\nMESSAGE4\n", readLog(new File(log.getMessagesFileName())));
+    }
+
+    private String readLog(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), CharsetSupport.getCharset());
+    }
+
+    private String readCompressedLog(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                out.write(buffer, 0, length);
+            }
+        }
+        return new String(out.toByteArray(), CharsetSupport.getCharset());
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
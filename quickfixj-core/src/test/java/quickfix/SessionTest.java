@@ -44,6 +44,7 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Field;
 import java.time.Duration;
 import java.time.Instant;
@@ -56,7 +57,12 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -729,6 +735,239 @@ public class SessionTest {
         }
     }
 
+    @Test
+    public void testSendAsync() throws Exception {
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "SENDER", "TARGET");
+        final UnitTestResponder responder = new UnitTestResponder();
+        try (Session session = SessionFactoryTestSupport.createSession(sessionID, new UnitTestApplication(), false)) {
+            session.setResponder(responder);
+
+            // not logged on: the sequence number is used but the message is not written
+            SendResult result = session.sendAsync(new News(new Headline("Headline"))).toCompletableFuture().get();
+            assertEquals(1, result.getMsgSeqNum());
+            assertFalse(result.isPersisted());
+            assertFalse(result.isWritten());
+            assertNull(responder.sentMessageData);
+
+            logonTo(session);
+            result = session.sendAsync(new News(new Headline("Headline"))).toCompletableFuture().get();
+            assertEquals(3, result.getMsgSeqNum());
+            assertTrue(result.isWritten());
+            final Message sentMessage = new Message(responder.sentMessageData);
+            assertEquals(News.MSGTYPE, sentMessage.getHeader().getString(MsgType.FIELD));
+            assertEquals(3, sentMessage.getHeader().getInt(MsgSeqNum.FIELD));
+        }
+    }
+
+    @Test
+    public void testConcurrentSend() throws Exception {
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "SENDER", "TARGET");
+        final UnitTestResponder responder = new UnitTestResponder();
+        try (Session session = SessionFactoryTestSupport.createSession(sessionID, new UnitTestApplication(), false)) {
+            session.setConcurrentSend(true);
+            session.setResponder(responder);
+            logonTo(session);
+
+            assertTrue(session.send(new News(new Headline("Headline"))));
+            Message sentMessage = new Message(responder.sentMessageData);
+            assertEquals(News.MSGTYPE, sentMessage.getHeader().getString(MsgType.FIELD));
+            assertEquals(2, sentMessage.getHeader().getInt(MsgSeqNum.FIELD));
+            assertEquals("Headline", sentMessage.getString(Headline.FIELD));
+
+            final int threads = 4;
+            final int messagesPerThread = 50;
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                final List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    futures.add(executor.submit(() -> {
+                        for (int j = 0; j < messagesPerThread; j++) {
+                            session.send(new News(new Headline("Headline")));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(3 + threads * messagesPerThread, session.getExpectedSenderNum());
+        }
+    }
+
+    @Test
+    public void testSendSequencer() throws Exception {
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "SENDER", "TARGET");
+        final UnitTestResponder responder = new UnitTestResponder();
+        try (Session session = SessionFactoryTestSupport.createSession(sessionID, new UnitTestApplication(), false)) {
+            session.setSendSequencer(true);
+            assertTrue(session.isSendSequencer());
+            session.setResponder(responder);
+            logonTo(session);
+
+            final SendResult result = session.sendAsync(new News(new Headline("Headline"))).toCompletableFuture()
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(2, result.getMsgSeqNum());
+            assertTrue(result.isWritten());
+            final Message sentMessage = new Message(responder.sentMessageData);
+            assertEquals(2, sentMessage.getHeader().getInt(MsgSeqNum.FIELD));
+            assertEquals(3, session.getExpectedSenderNum());
+
+            session.setSendSequencer(false);
+            assertFalse(session.isSendSequencer());
+        }
+    }
+
+    @Test
+    public void testDurableBeforeSend() throws Exception {
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "SENDER", "TARGET");
+        final UnitTestResponder responder = new UnitTestResponder();
+        final List<String> sentBeforeDurable = new ArrayList<>();
+        final MessageStoreFactory messageStoreFactory = id -> {
+            try {
+                return new MemoryStore(id) {
+                    @Override
+                    public void awaitDurable() {
+                        sentBeforeDurable.add(responder.sentMessageData);
+                    }
+                };
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        try (Session session = new SessionFactoryTestSupport.Builder().setSessionId(sessionID)
+                .setApplication(new UnitTestApplication()).setIsInitiator(false)
+                .setMessageStoreFactory(messageStoreFactory).setPersistMessages(true).build()) {
+            session.setDurableBeforeSend(true);
+            session.setResponder(responder);
+            logonTo(session);
+            assertEquals(1, sentBeforeDurable.size());
+            assertNull(sentBeforeDurable.get(0));
+            final String logonResponse = responder.sentMessageData;
+
+            session.send(new News(new Headline("Headline")));
+            assertEquals(2, sentBeforeDurable.size());
+            // the store was synced before the message was written
+            assertEquals(logonResponse, sentBeforeDurable.get(1));
+            assertNotEquals(logonResponse, responder.sentMessageData);
+        }
+    }
+
+    @Test
+    public void testDurableBeforeSendReleasesSenderSequenceNumberLock() throws Exception {
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "SENDER", "TARGET");
+        final FailingResponder responder = new FailingResponder(Integer.MAX_VALUE);
+        final AtomicLong blockedTicket = new AtomicLong(-1);
+        final CountDownLatch firstWaiting = new CountDownLatch(1);
+        final CountDownLatch releaseFirst = new CountDownLatch(1);
+        final MessageStoreFactory messageStoreFactory = id -> {
+            try {
+                return new MemoryStore(id) {
+                    private long ticket;
+
+                    @Override
+                    public synchronized void incrNextSenderMsgSeqNum() throws IOException {
+                        super.incrNextSenderMsgSeqNum();
+                        ticket++;
+                    }
+
+                    @Override
+                    public synchronized long getDurableTicket() {
+                        return ticket;
+                    }
+
+                    @Override
+                    public void awaitDurable(long durableTicket) throws IOException {
+                        if (durableTicket == blockedTicket.get()) {
+                            firstWaiting.countDown();
+                            try {
+                                releaseFirst.await();
+                            } catch (InterruptedException e) {
+                                throw new InterruptedIOException();
+                            }
+                        }
+                    }
+                };
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        try (Session session = new SessionFactoryTestSupport.Builder().setSessionId(sessionID)
+                .setApplication(new UnitTestApplication()).setIsInitiator(false)
+                .setMessageStoreFactory(messageStoreFactory).setPersistMessages(true).build()) {
+            session.setDurableBeforeSend(true);
+            session.setResponder(responder);
+            logonTo(session);
+            final int firstSeqNum = session.getExpectedSenderNum();
+            blockedTicket.set(session.getStore().getDurableTicket() + 1);
+
+            final ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                final Future<Boolean> first = executor.submit(() -> session.send(new News(new Headline("first"))));
+                assertTrue(firstWaiting.await(5, TimeUnit.SECONDS));
+                final Future<Boolean> second = executor.submit(() -> session.send(new News(new Headline("second"))));
+
+                // the second message is stored while the first one waits for stable storage
+                final long deadline = System.currentTimeMillis() + 5000;
+                while (session.getExpectedSenderNum() != firstSeqNum + 2 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                }
+                assertEquals(firstSeqNum + 2, session.getExpectedSenderNum());
+                // but it is not written before the first one
+                assertFalse(second.isDone());
+
+                releaseFirst.countDown();
+                assertTrue(first.get(5, TimeUnit.SECONDS));
+                assertTrue(second.get(5, TimeUnit.SECONDS));
+            } finally {
+                executor.shutdownNow();
+            }
+            final List<String> sentMessages = responder.sentMessages;
+            final Message firstSent = new Message(sentMessages.get(sentMessages.size() - 2));
+            final Message secondSent = new Message(sentMessages.get(sentMessages.size() - 1));
+            assertEquals(firstSeqNum, firstSent.getHeader().getInt(MsgSeqNum.FIELD));
+            assertEquals("first", firstSent.getString(Headline.FIELD));
+            assertEquals(firstSeqNum + 1, secondSent.getHeader().getInt(MsgSeqNum.FIELD));
+            assertEquals("second", secondSent.getString(Headline.FIELD));
+        }
+    }
+
+    @Test
+    public void testNextTimerDeadline() throws Exception {
+        final MockSystemTimeSource systemTimeSource = new MockSystemTimeSource();
+        SystemTime.setTimeSource(systemTimeSource);
+        final long start = systemTimeSource.getTime();
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "SENDER", "TARGET");
+        try (Session session = SessionFactoryTestSupport.createSession(sessionID, new UnitTestApplication(), false)) {
+            // sessions which are not logged on are polled once per second
+            assertEquals(start + 1000L, session.getNextTimerDeadline());
+
+            session.setResponder(new UnitTestResponder());
+            logonTo(session);
+            assertTrue(session.isLoggedOn());
+            // heartbeat due (with 10 ms leeway)
+            assertEquals(start + 29991L, session.getNextTimerDeadline());
+
+            systemTimeSource.increment(30000L);
+            session.next();
+            assertEquals(start + 59991L, session.getNextTimerDeadline());
+
+            systemTimeSource.increment(30000L);
+            session.next();
+            // test request due since nothing was received for 1.5 * HeartBtInt
+            assertEquals(start + 75000L, session.getNextTimerDeadline());
+
+            systemTimeSource.increment(15000L);
+            session.next();
+            // heartbeat timeout is due before the second test request
+            assertEquals(start + 105000L, session.getNextTimerDeadline());
+
+            session.logout();
+            assertEquals(systemTimeSource.getTime() + 1000L, session.getNextTimerDeadline());
+        }
+    }
+
     @Test
     // QFJ-716
     public void testStartOfInitiatorOutsideOfSessionTime() throws Exception {
@@ -3463,4 +3702,82 @@ public class SessionTest {
             assertEquals("Only 2 messages should succeed", 2, responder.sentMessages.size());
         }
     }
+
+    @Test
+    public void testResendReadsStoreInChunks() throws Exception {
+        final UnitTestApplication application = new UnitTestApplication();
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "SENDER", "TARGET");
+        try (Session session = SessionFactoryTestSupport.createSession(sessionID, application, false, false, true, true, null)) {
+            session.setResendReadChunkSize(2);
+            session.setResponder(new FailingResponder(Integer.MAX_VALUE));
+
+            final Logon logon = new Logon();
+            setUpHeader(session.getSessionID(), logon, true, 1);
+            logon.setInt(HeartBtInt.FIELD, 30);
+            logon.setInt(EncryptMethod.FIELD, EncryptMethod.NONE_OTHER);
+            logon.toString(); // calculate length/checksum
+            session.next(logon);
+
+            for (int i = 2; i <= 6; i++) {
+                session.send(createAppMessage(i));
+            }
+
+            final FailingResponder responder = new FailingResponder(Integer.MAX_VALUE);
+            session.setResponder(responder);
+            Message resendRequest = createResendRequest(2, 2);
+            resendRequest.toString(); // calculate length/checksum
+            processMessage(session, resendRequest);
+
+            // the messages of the three chunks are resent in order
+            assertEquals(5, responder.sentMessages.size());
+            for (int i = 0; i < 5; i++) {
+                final Message resent = new Message(responder.sentMessages.get(i));
+                assertEquals(i + 2, resent.getHeader().getInt(MsgSeqNum.FIELD));
+                assertTrue(resent.getHeader().getBoolean(PossDupFlag.FIELD));
+            }
+        }
+    }
+
+    @Test
+    public void testResendWithoutToApp() throws Exception {
+        final UnitTestApplication application = new UnitTestApplication();
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, "SENDER", "TARGET");
+        try (Session session = SessionFactoryTestSupport.createSession(sessionID, application, false, false, true, true, null)) {
+            session.setToAppOnResend(false);
+            session.setResponder(new FailingResponder(Integer.MAX_VALUE));
+
+            final Logon logon = new Logon();
+            setUpHeader(session.getSessionID(), logon, true, 1);
+            logon.setInt(HeartBtInt.FIELD, 30);
+            logon.setInt(EncryptMethod.FIELD, EncryptMethod.NONE_OTHER);
+            logon.toString(); // calculate length/checksum
+            session.next(logon);
+
+            for (int i = 2; i <= 4; i++) {
+                session.send(createAppMessage(i));
+            }
+            application.toAppMessages.clear();
+
+            final FailingResponder responder = new FailingResponder(Integer.MAX_VALUE);
+            session.setResponder(responder);
+            Message resendRequest = createResendRequest(2, 1);
+            resendRequest.toString(); // calculate length/checksum
+            processMessage(session, resendRequest);
+
+            // the Logon is gap filled, the application messages are resent as stored
+            assertEquals(4, responder.sentMessages.size());
+            final Message sequenceReset = new Message(responder.sentMessages.get(0));
+            assertEquals(MsgType.SEQUENCE_RESET, sequenceReset.getHeader().getString(MsgType.FIELD));
+            assertEquals(2, sequenceReset.getInt(NewSeqNo.FIELD));
+            for (int i = 1; i < 4; i++) {
+                final Message resent = new Message(responder.sentMessages.get(i));
+                assertEquals(MsgType.NEWS, resent.getHeader().getString(MsgType.FIELD));
+                assertEquals(i + 1, resent.getHeader().getInt(MsgSeqNum.FIELD));
+                assertTrue(resent.getHeader().getBoolean(PossDupFlag.FIELD));
+                assertTrue(resent.getHeader().isSetField(OrigSendingTime.FIELD));
+                assertEquals("Headline", resent.getString(Headline.FIELD));
+            }
+            assertEquals(0, application.toAppMessages.size());
+        }
+    }
 }
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SharedJournalStoreTest extends AbstractMessageStoreTest {
+
+    private SessionSettings settings;
+
+    public void tearDown() throws Exception {
+        super.tearDown();
+        CharsetSupport.setDefaultCharset();
+        ((JournalStore) getStore()).closeAndDeleteFiles();
+    }
+
+    @Override
+    protected MessageStoreFactory getMessageStoreFactory() throws ConfigError {
+        settings = new SessionSettings(getConfigurationFileName());
+        // small segments to cover rolling
+        settings.setLong(JournalStoreFactory.SETTING_JOURNAL_STORE_SEGMENT_SIZE, 512);
+        return new SharedJournalStoreFactory(settings);
+    }
+
+    @Override
+    protected Class<?> getMessageStoreClass() {
+        return JournalStore.class;
+    }
+
+    public void testSessionsShareJournal() throws Exception {
+        SharedJournalStoreFactory factory = (SharedJournalStoreFactory) getMessageStoreFactory();
+        try {
+            List<MessageStore> stores = createStores(factory, 3);
+            for (int i = 1; i <= 20; i++) {
+                for (MessageStore store : stores) {
+                    store.set(i, store.getNextSenderMsgSeqNum() + "-" + stores.indexOf(store));
+                    store.incrNextSenderMsgSeqNum();
+                }
+            }
+            stores.get(1).reset();
+            stores.get(1).set(1, "NEW");
+            stores.get(1).incrNextSenderMsgSeqNum();
+            factory.close();
+
+            factory = (SharedJournalStoreFactory) getMessageStoreFactory();
+            stores = createStores(factory, 3);
+            assertEquals(21, stores.get(0).getNextSenderMsgSeqNum());
+            assertEquals(2, stores.get(1).getNextSenderMsgSeqNum());
+            assertEquals(21, stores.get(2).getNextSenderMsgSeqNum());
+            List<String> messages = new ArrayList<>();
+            stores.get(1).get(1, 20, messages);
+            assertEquals(Arrays.asList("NEW"), messages);
+            messages.clear();
+            stores.get(2).get(1, 20, messages);
+            assertEquals(20, messages.size());
+            assertEquals("20-2", messages.get(19));
+        } finally {
+            factory.getJournal().closeAndDeleteFiles();
+        }
+    }
+
+    public void testCompact() throws Exception {
+        SharedJournalStoreFactory factory = (SharedJournalStoreFactory) getMessageStoreFactory();
+        try {
+            List<MessageStore> stores = createStores(factory, 2);
+            for (int i = 1; i <= 20; i++) {
+                for (MessageStore store : stores) {
+                    store.set(i, "MESSAGE" + i);
+                }
+            }
+            stores.get(0).reset();
+            int segmentCount = factory.getJournal().getSegmentCount();
+
+            assertEquals(20, factory.compact());
+            assertTrue(factory.getJournal().getSegmentCount() < segmentCount);
+            List<String> messages = new ArrayList<>();
+            stores.get(1).get(1, 20, messages);
+            assertEquals(20, messages.size());
+            assertEquals("MESSAGE20", messages.get(19));
+            messages.clear();
+            stores.get(0).get(1, 20, messages);
+            assertEquals(0, messages.size());
+        } finally {
+            factory.getJournal().closeAndDeleteFiles();
+        }
+    }
+
+    public void testCompactorTool() throws Exception {
+        SharedJournalStoreFactory factory = (SharedJournalStoreFactory) getMessageStoreFactory();
+        File directory = new File(new File(settings.getString(FileStoreFactory.SETTING_FILE_STORE_PATH))
+                .getAbsoluteFile(), SharedJournalStoreFactory.SHARED_JOURNAL_DIRECTORY);
+        try {
+            MessageStore store = createStores(factory, 1).get(0);
+            store.set(1, "MESSAGE1");
+            store.incrNextSenderMsgSeqNum();
+            factory.close();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            JournalCompactor.run(directory, false, new PrintStream(output, true));
+            assertTrue(output.toString(), output.toString().contains("next sender 2, next target 1, messages 1"));
+            assertTrue(output.toString(), output.toString().contains("Copied 1 messages, segments: 1"));
+
+            factory = (SharedJournalStoreFactory) getMessageStoreFactory();
+            store = createStores(factory, 1).get(0);
+            List<String> messages = new ArrayList<>();
+            store.get(1, 1, messages);
+            assertEquals(Arrays.asList("MESSAGE1"), messages);
+        } finally {
+            factory.getJournal().closeAndDeleteFiles();
+        }
+    }
+
+    public void testRefreshDoesNotReplayUnchangedJournal() throws Exception {
+        SharedJournalStoreFactory factory = (SharedJournalStoreFactory) getMessageStoreFactory();
+        try {
+            List<MessageStore> stores = createStores(factory, 2);
+            stores.get(0).set(1, "MESSAGE1");
+            stores.get(0).incrNextSenderMsgSeqNum();
+            stores.get(1).incrNextTargetMsgSeqNum();
+            long recoveryCount = factory.getJournal().getRecoveryCount();
+
+            stores.get(1).refresh();
+
+            assertEquals(recoveryCount, factory.getJournal().getRecoveryCount());
+            assertEquals(2, stores.get(0).getNextSenderMsgSeqNum());
+            assertEquals(2, stores.get(1).getNextTargetMsgSeqNum());
+            List<String> messages = new ArrayList<>();
+            stores.get(0).get(1, 1, messages);
+            assertEquals(Arrays.asList("MESSAGE1"), messages);
+        } finally {
+            factory.getJournal().closeAndDeleteFiles();
+        }
+    }
+
+    private List<MessageStore> createStores(MessageStoreFactory factory, int count) {
+        List<MessageStore> stores = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            stores.add(factory.create(new SessionID("FIX.4.4", getSessionID().getSenderCompID() + "-" + i,
+                    getSessionID().getTargetCompID())));
+        }
+        return stores;
+    }
+}
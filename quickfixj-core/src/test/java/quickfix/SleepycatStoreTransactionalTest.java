@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SleepycatStoreTransactionalTest extends SleepycatStoreTest {
+
+    protected MessageStoreFactory getMessageStoreFactory() throws ConfigError {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        settings.setString(getSessionID(), SleepycatStoreFactory.SETTING_SLEEPYCAT_DATABASE_DIR,
+                getDatabaseDir("qfj-sleepycat-tx").getPath());
+        settings.setLong(getSessionID(), SleepycatStoreFactory.SETTING_SLEEPYCAT_COMMIT_BATCH_SIZE, 10);
+        settings.setLong(getSessionID(), SleepycatStoreFactory.SETTING_SLEEPYCAT_CACHE_SIZE, 4 * 1024 * 1024);
+        return new SleepycatStoreFactory(settings);
+    }
+
+    private File getDatabaseDir(String name) throws ConfigError {
+        File dir;
+        try {
+            File tmpfile = File.createTempFile("test", "txt");
+            dir = new File(tmpfile.getParentFile(), name);
+            tmpfile.delete();
+        } catch (IOException e) {
+            throw new ConfigError(e);
+        }
+        dir.mkdirs();
+        return dir;
+    }
+
+    public void testPendingWritesAreReadAndCommittedOnClose() throws Exception {
+        SleepycatStore store = (SleepycatStore) getStore();
+        store.reset();
+        store.set(1, "MESSAGE1");
+        store.incrNextSenderMsgSeqNum();
+
+        List<String> messages = new ArrayList<>();
+        store.get(1, 1, messages);
+        assertEquals(1, messages.size());
+
+        store.close();
+        store.open();
+        messages.clear();
+        store.get(1, 1, messages);
+        assertEquals("MESSAGE1", messages.get(0));
+        assertEquals(2, store.getNextSenderMsgSeqNum());
+    }
+
+    public void testDeferredWrite() throws Exception {
+        // a separate environment, it cannot be shared with the transactional one
+        SleepycatStore store = new SleepycatStore(getSessionID(), getDatabaseDir("qfj-sleepycat-dw").getPath(),
+                "seq", "msg",
+                0, true, 0, 0, null);
+        try {
+            store.reset();
+            store.set(1, "MESSAGE1");
+            store.setNextSenderMsgSeqNum(2);
+            store.flush();
+        } finally {
+            store.close();
+        }
+        store.open();
+        try {
+            List<String> messages = new ArrayList<>();
+            store.get(1, 1, messages);
+            assertEquals("MESSAGE1", messages.get(0));
+            assertEquals(2, store.getNextSenderMsgSeqNum());
+        } finally {
+            store.close();
+        }
+    }
+}
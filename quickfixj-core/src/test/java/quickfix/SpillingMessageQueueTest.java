@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import quickfix.field.MsgSeqNum;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SpillingMessageQueueTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("qfj-queue-test").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        directory.delete();
+    }
+
+    private static String message(int sequence) {
+        return "8=FIX.4.4\0019=20\00135=0\00134=" + sequence + "\00110=000\001";
+    }
+
+    @Test
+    public void testMessagesOverTheLimitAreSpilled() {
+        // room for two messages
+        SpillingMessageQueue queue = new SpillingMessageQueue(2 * message(10).length(), directory);
+        for (int i = 10; i < 15; i++) {
+            queue.enqueue(i, message(i));
+        }
+        assertEquals(5, queue.size());
+        assertEquals(3, queue.getSpilledCount());
+        assertEquals(1, directory.list().length);
+
+        for (int i = 10; i < 15; i++) {
+            assertEquals(message(i), queue.dequeueMessageData(i));
+        }
+        assertNull(queue.dequeueMessageData(10));
+        assertEquals(0, queue.getMemoryBytes());
+        // the file is deleted once all spilled messages are dequeued
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testEnqueueReplacesMessage() {
+        SpillingMessageQueue queue = new SpillingMessageQueue(0, directory);
+        queue.enqueue(10, message(10));
+        queue.enqueue(10, message(11));
+        assertEquals(1, queue.size());
+        assertEquals(message(11), queue.dequeueMessageData(10));
+    }
+
+    @Test
+    public void testDequeueMessagesUpTo() {
+        SpillingMessageQueue queue = new SpillingMessageQueue(message(10).length(), directory);
+        for (int i = 10; i < 15; i++) {
+            queue.enqueue(i, message(i));
+        }
+        queue.dequeueMessagesUpTo(14);
+        assertEquals(1, queue.size());
+        assertEquals(message(14), queue.dequeueMessageData(14));
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testClear() {
+        SpillingMessageQueue queue = new SpillingMessageQueue(0, directory);
+        queue.enqueue(10, message(10));
+        queue.clear();
+        assertEquals(0, queue.size());
+        assertNull(queue.dequeue(10));
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testEnqueueParsedMessage() throws Exception {
+        SpillingMessageQueue queue = new SpillingMessageQueue(0, directory);
+        queue.enqueue(10, new Message(message(10), false));
+        Message message = queue.dequeue(10);
+        assertEquals(10, message.getHeader().getInt(MsgSeqNum.FIELD));
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.junit.Test;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.OrigSendingTime;
+import quickfix.field.PossDupFlag;
+import quickfix.field.SendingTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StoredMessageHeaderTest {
+
+    private static final String NEW_SENDING_TIME = "20261019-12:00:00.000";
+
+    @Test
+    public void testScanApplicationMessage() {
+        StoredMessageHeader header = StoredMessageHeader.scan(
+                "8=FIX.4.4\0019=72\00135=D\00134=7\00149=S\00152=20260101-10:00:00.123\00156=T\00111=ID\00155=X\00110=000\001");
+        assertEquals(7, header.getMsgSeqNum());
+        assertEquals("D", header.getMsgType());
+        assertFalse(header.isAdmin());
+    }
+
+    @Test
+    public void testScanAdminMessage() {
+        StoredMessageHeader header = StoredMessageHeader.scan(
+                "8=FIX.4.4\0019=50\00135=0\00134=8\00149=S\00152=20260101-10:00:00.123\00156=T\00110=000\001");
+        assertEquals(8, header.getMsgSeqNum());
+        assertTrue(header.isAdmin());
+    }
+
+    @Test
+    public void testResendMessageIsValid() throws Exception {
+        StoredMessageHeader header = StoredMessageHeader.scan(
+                "8=FIX.4.4\0019=92\00135=D\00134=7\00143=N\00149=S\00152=20260101-10:00:00.123\00156=T"
+                        + "\001122=20250101-00:00:00\00111=ID\00155=X\00110=000\001");
+        String resend = header.toResendMessage(NEW_SENDING_TIME);
+
+        // the constructor validates BodyLength and CheckSum
+        Message message = new Message(resend);
+        assertEquals(7, message.getHeader().getInt(MsgSeqNum.FIELD));
+        assertTrue(message.getHeader().getBoolean(PossDupFlag.FIELD));
+        assertEquals(NEW_SENDING_TIME, message.getHeader().getString(SendingTime.FIELD));
+        assertEquals("20260101-10:00:00.123", message.getHeader().getString(OrigSendingTime.FIELD));
+        assertEquals("ID", message.getString(11));
+        assertEquals(1, count(resend, "\00143="));
+        assertEquals(1, count(resend, "\001122="));
+    }
+
+    @Test
+    public void testMessagesWhichMustBeParsed() {
+        // no SendingTime
+        assertNull(StoredMessageHeader.scan("8=FIX.4.4\0019=20\00135=D\00134=7\00111=ID\00110=000\001"));
+        // data field in the header
+        assertNull(StoredMessageHeader.scan(
+                "8=FIX.4.4\0019=43\00135=D\00134=7\00152=20260101-10:00:00\00190=3\00191=a\001b\00110=000\001"));
+        // header field after a custom header field
+        assertNull(StoredMessageHeader.scan(
+                "8=FIX.4.4\0019=46\00135=D\00134=7\00152=20260101-10:00:00\0015000=a\00143=Y\00110=000\001"));
+        assertNull(StoredMessageHeader.scan("35=D\0018=FIX.4.4\0019=5\00110=000\001"));
+        assertNull(StoredMessageHeader.scan("garbage"));
+    }
+
+    private static int count(String s, String part) {
+        int count = 0;
+        for (int i = s.indexOf(part); i >= 0; i = s.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix;
+
+import org.quickfixj.CharsetSupport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class WriteBehindMessageStoreTest extends AbstractMessageStoreTest {
+
+    public void tearDown() throws Exception {
+        super.tearDown();
+        CharsetSupport.setDefaultCharset();
+        WriteBehindMessageStore store = (WriteBehindMessageStore) getStore();
+        try {
+            store.close();
+            ((FileStore) store.getDelegate()).closeAndDeleteFiles();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    @Override
+    protected MessageStoreFactory getMessageStoreFactory() throws ConfigError, FieldConvertError {
+        SessionSettings settings = new SessionSettings(getConfigurationFileName());
+        // Initialize the session settings from the defaults
+        settings.setString(getSessionID(), FileStoreFactory.SETTING_FILE_STORE_PATH, settings
+                .getString(FileStoreFactory.SETTING_FILE_STORE_PATH));
+        // long interval so that the tests control when the writes happen
+        settings.setLong(getSessionID(), WriteBehindMessageStoreFactory.SETTING_WRITE_BEHIND_FLUSH_INTERVAL, 60000);
+        return new WriteBehindMessageStoreFactory(settings, new FileStoreFactory(settings));
+    }
+
+    @Override
+    protected Class<?> getMessageStoreClass() {
+        return WriteBehindMessageStore.class;
+    }
+
+    protected void closeMessageStore(MessageStore store) throws IOException {
+        ((WriteBehindMessageStore) store).close();
+    }
+
+    public void testWritesAreDeferredUntilFlush() throws Exception {
+        WriteBehindMessageStore store = (WriteBehindMessageStore) getStore();
+        MessageStore fileStore = store.getDelegate();
+        store.set(1, "MESSAGE1");
+        store.set(2, "MESSAGE2");
+        store.incrNextSenderMsgSeqNum();
+        store.incrNextSenderMsgSeqNum();
+
+        assertEquals(3, store.getNextSenderMsgSeqNum());
+        assertEquals(1, fileStore.getNextSenderMsgSeqNum());
+        assertEquals(2, store.getQueueSize());
+        List<String> messages = new ArrayList<>();
+        fileStore.get(1, 2, messages);
+        assertEquals(0, messages.size());
+        // pending messages are served from memory
+        store.get(1, 2, messages);
+        assertEquals(2, messages.size());
+
+        store.flush();
+        assertEquals(0, store.getQueueSize());
+        assertEquals(1, store.getFlushCount());
+        assertEquals(3, fileStore.getNextSenderMsgSeqNum());
+        messages.clear();
+        fileStore.get(1, 2, messages);
+        assertEquals(2, messages.size());
+    }
+
+    public void testGetMergesPendingAndWrittenMessages() throws Exception {
+        WriteBehindMessageStore store = (WriteBehindMessageStore) getStore();
+        store.set(1, "MESSAGE1");
+        store.set(2, "MESSAGE2");
+        store.flush();
+        store.set(3, "MESSAGE3");
+        store.set(2, "MESSAGE2B");
+
+        List<String> messages = new ArrayList<>();
+        store.get(1, 4, messages);
+        assertEquals(3, messages.size());
+        assertEquals("MESSAGE1", messages.get(0));
+        assertEquals("MESSAGE2B", messages.get(1));
+        assertEquals("MESSAGE3", messages.get(2));
+    }
+
+    public void testGetReadsGapsWithOneCallEach() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            final List<String> ranges = new ArrayList<>();
+            MemoryStore memoryStore = new MemoryStore() {
+                @Override
+                public void get(int startSequence, int endSequence, Collection<String> messages)
+                        throws IOException {
+                    ranges.add(startSequence + "-" + endSequence);
+                    super.get(startSequence, endSequence, messages);
+                }
+            };
+            // the queue is large enough that nothing gets flushed in the background
+            WriteBehindMessageStore store = new WriteBehindMessageStore(memoryStore, executor, 60000, 1000,
+                    WriteBehindMessageStore.OverflowPolicy.BLOCK);
+            for (int i = 1; i <= 100; i++) {
+                store.set(i, "MESSAGE" + i);
+            }
+            store.flush();
+            store.set(10, "MESSAGE10B");
+            store.set(50, "MESSAGE50B");
+
+            List<String> messages = new ArrayList<>();
+            store.get(1, 100, messages);
+            assertEquals(100, messages.size());
+            assertEquals("MESSAGE10B", messages.get(9));
+            assertEquals("MESSAGE50B", messages.get(49));
+            assertEquals("[1-9, 11-49, 51-100]", ranges.toString());
+
+            // an end of 0 has no upper bound
+            ranges.clear();
+            messages.clear();
+            store.set(101, "MESSAGE101");
+            store.get(45, 0, messages);
+            assertEquals(57, messages.size());
+            assertEquals("MESSAGE101", messages.get(56));
+            assertEquals("[45-49, 51-100, 102-0]", ranges.toString());
+
+            // no overflow after the largest sequence number
+            ranges.clear();
+            messages.clear();
+            store.set(Integer.MAX_VALUE, "LAST");
+            store.get(Integer.MAX_VALUE, Integer.MAX_VALUE, messages);
+            assertEquals("[LAST]", messages.toString());
+            assertTrue(ranges.isEmpty());
+            store.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testResetDiscardsPendingWrites() throws Exception {
+        WriteBehindMessageStore store = (WriteBehindMessageStore) getStore();
+        store.set(1, "MESSAGE1");
+        store.setNextSenderMsgSeqNum(10);
+        store.reset();
+
+        assertEquals(0, store.getQueueSize());
+        assertEquals(1, store.getNextSenderMsgSeqNum());
+        store.flush();
+        List<String> messages = new ArrayList<>();
+        store.getDelegate().get(1, 1, messages);
+        assertEquals(0, messages.size());
+    }
+
+    public void testCloseFlushes() throws Exception {
+        WriteBehindMessageStore store = (WriteBehindMessageStore) getStore();
+        store.set(1, "MESSAGE1");
+        store.setNextTargetMsgSeqNum(5);
+        store.close();
+
+        MessageStore reopened = createStore();
+        try {
+            assertEquals(5, reopened.getNextTargetMsgSeqNum());
+            List<String> messages = new ArrayList<>();
+            reopened.get(1, 1, messages);
+            assertEquals(1, messages.size());
+        } finally {
+            closeMessageStore(reopened);
+        }
+    }
+
+    public void testFactoryCloseFlushesStoresAndStopsThread() throws Exception {
+        WriteBehindMessageStoreFactory factory = (WriteBehindMessageStoreFactory) getMessageStoreFactory();
+        WriteBehindMessageStore store = (WriteBehindMessageStore) factory.create(getSessionID());
+        try {
+            assertTrue(factory.isRunning());
+            store.set(1, "MESSAGE1");
+            store.setNextSenderMsgSeqNum(2);
+            factory.close();
+            assertFalse(factory.isRunning());
+            assertEquals(0, store.getQueueSize());
+
+            MessageStore written = store.getDelegate();
+            written.refresh();
+            assertEquals(2, written.getNextSenderMsgSeqNum());
+            List<String> messages = new ArrayList<>();
+            written.get(1, 1, messages);
+            assertEquals(1, messages.size());
+        } finally {
+            store.close();
+        }
+    }
+
+    public void testBackgroundFlush() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            MemoryStore memoryStore = new MemoryStore();
+            WriteBehindMessageStore store = new WriteBehindMessageStore(memoryStore, executor, 1, 100,
+                    WriteBehindMessageStore.OverflowPolicy.BLOCK);
+            for (int i = 1; i <= 1000; i++) {
+                store.set(i, "MESSAGE" + i);
+                store.incrNextSenderMsgSeqNum();
+            }
+            long timeout = System.currentTimeMillis() + 5000;
+            while (memoryStore.getNextSenderMsgSeqNum() != 1001 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(1);
+            }
+            assertEquals(1001, memoryStore.getNextSenderMsgSeqNum());
+            List<String> messages = new ArrayList<>();
+            memoryStore.get(1, 1000, messages);
+            assertEquals(1000, messages.size());
+            store.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testOverflowPolicyFail() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            MemoryStore memoryStore = new MemoryStore();
+            // the executor is blocked so nothing gets flushed in the background
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            WriteBehindMessageStore store = new WriteBehindMessageStore(memoryStore, executor, 60000, 2,
+                    WriteBehindMessageStore.OverflowPolicy.FAIL);
+            assertTrue(store.set(1, "MESSAGE1"));
+            assertTrue(store.set(2, "MESSAGE2"));
+            try {
+                store.set(3, "MESSAGE3");
+                fail("expected IOException");
+            } catch (IOException e) {
+                // expected
+            }
+            List<String> messages = new ArrayList<>();
+            store.get(1, 3, messages);
+            assertEquals(2, messages.size());
+
+            store.flush();
+            assertTrue(store.set(3, "MESSAGE3"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix.mina;
+
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CoalescingIoSessionResponderTest {
+
+    private ScheduledExecutorService flushExecutor;
+
+    @Before
+    public void setUp() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        flushExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testFlushWritesBatch() {
+        IoSession mockIoSession = mock(IoSession.class);
+        when(mockIoSession.write(any())).thenReturn(mock(WriteFuture.class));
+        CoalescingIoSessionResponder responder = new CoalescingIoSessionResponder(mockIoSession, 0, 1024, 10000000L, flushExecutor);
+
+        assertTrue(responder.send("abc"));
+        assertTrue(responder.send("def"));
+        verify(mockIoSession, never()).write(any());
+
+        responder.flush();
+        verify(mockIoSession).write("abcdef");
+        assertEquals(1, responder.getFlushCount());
+        assertEquals(2, responder.getFlushedMessageCount());
+        assertEquals(2, responder.getMaxBatchMessageCount());
+
+        // nothing to flush
+        responder.flush();
+        assertEquals(1, responder.getFlushCount());
+    }
+
+    @Test
+    public void testFlushOnSizeThreshold() {
+        IoSession mockIoSession = mock(IoSession.class);
+        when(mockIoSession.write(any())).thenReturn(mock(WriteFuture.class));
+        CoalescingIoSessionResponder responder = new CoalescingIoSessionResponder(mockIoSession, 0, 6, 10000000L, flushExecutor);
+
+        responder.send("abc");
+        verify(mockIoSession, never()).write(any());
+        responder.send("def");
+        verify(mockIoSession).write("abcdef");
+        responder.send("ghi");
+        responder.send("j");
+        responder.flush();
+        verify(mockIoSession).write("ghij");
+        assertEquals(2, responder.getFlushCount());
+        assertEquals(2.0, responder.getAverageBatchMessageCount(), 0);
+    }
+
+    @Test
+    public void testFlushAfterDelay() {
+        IoSession mockIoSession = mock(IoSession.class);
+        when(mockIoSession.write(any())).thenReturn(mock(WriteFuture.class));
+        CoalescingIoSessionResponder responder = new CoalescingIoSessionResponder(mockIoSession, 0, 1024, 100L, flushExecutor);
+
+        responder.send("abc");
+        responder.send("def");
+        verify(mockIoSession, timeout(5000)).write("abcdef");
+    }
+
+    @Test
+    public void testFlushImmediatelyWhenExecutorIsStopped() {
+        IoSession mockIoSession = mock(IoSession.class);
+        when(mockIoSession.write(any())).thenReturn(mock(WriteFuture.class));
+        CoalescingIoSessionResponder responder = new CoalescingIoSessionResponder(mockIoSession, 0, 1024, 10000000L, flushExecutor);
+        flushExecutor.shutdown();
+
+        responder.send("abc");
+        verify(mockIoSession).write("abc");
+    }
+
+    @Test
+    public void testDisconnectFlushesBatch() {
+        IoSession mockIoSession = mock(IoSession.class);
+        when(mockIoSession.write(any())).thenReturn(mock(WriteFuture.class));
+        CoalescingIoSessionResponder responder = new CoalescingIoSessionResponder(mockIoSession, 0, 1024, 10000000L, flushExecutor);
+
+        responder.send("logout");
+        responder.disconnect();
+        InOrder inOrder = inOrder(mockIoSession);
+        inOrder.verify(mockIoSession).write("logout");
+        inOrder.verify(mockIoSession).closeOnFlush();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSendAsyncCompletedByBatchWrite() throws Exception {
+        IoSession mockIoSession = mock(IoSession.class);
+        WriteFuture mockWriteFuture = mock(WriteFuture.class);
+        when(mockWriteFuture.isWritten()).thenReturn(true);
+        when(mockIoSession.write("abcdef")).thenReturn(mockWriteFuture);
+        CoalescingIoSessionResponder responder = new CoalescingIoSessionResponder(mockIoSession, 0, 1024, 10000000L, flushExecutor);
+
+        CompletableFuture<Boolean> first = responder.sendAsync("abc").toCompletableFuture();
+        CompletableFuture<Boolean> second = responder.sendAsync("def").toCompletableFuture();
+        responder.flush();
+        assertFalse(first.isDone());
+
+        ArgumentCaptor<IoFutureListener<WriteFuture>> listener = ArgumentCaptor.forClass(IoFutureListener.class);
+        verify(mockWriteFuture).addListener(listener.capture());
+        listener.getValue().operationComplete(mockWriteFuture);
+        assertTrue(first.get());
+        assertTrue(second.get());
+    }
+}
@@ -20,6 +20,8 @@
 package quickfix.mina;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.future.WriteFuture;
 import org.apache.mina.core.session.IoSession;
 
@@ -27,9 +29,12 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -58,6 +63,41 @@ public class IoSessionResponderTest {
         verifyNoMoreInteractions(mockIoSession);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSendAsync() throws Exception {
+        IoSession mockIoSession = mock(IoSession.class);
+        WriteFuture mockWriteFuture = mock(WriteFuture.class);
+        when(mockWriteFuture.isWritten()).thenReturn(true);
+        when(mockIoSession.write("abcd")).thenReturn(mockWriteFuture);
+        // synchronous writes are ignored by sendAsync
+        IoSessionResponder responder = new IoSessionResponder(mockIoSession, true, 123, 0);
+
+        CompletableFuture<Boolean> result = responder.sendAsync("abcd").toCompletableFuture();
+
+        assertFalse(result.isDone());
+        ArgumentCaptor<IoFutureListener<WriteFuture>> listener = ArgumentCaptor.forClass(IoFutureListener.class);
+        verify(mockWriteFuture).addListener(listener.capture());
+        listener.getValue().operationComplete(mockWriteFuture);
+        assertTrue(result.get());
+        verify(mockIoSession).write("abcd");
+    }
+
+    @Test
+    public void testSendAsyncToSlowConsumer() throws Exception {
+        IoSession mockIoSession = mock(IoSession.class);
+        Session mockSession = mock(Session.class);
+        when(mockIoSession.getAttribute(SessionConnector.QF_SESSION)).thenReturn(mockSession);
+        when(mockIoSession.getScheduledWriteMessages()).thenReturn(10);
+        IoSessionResponder responder = new IoSessionResponder(mockIoSession, false, 0, 10);
+
+        CompletableFuture<Boolean> result = responder.sendAsync("abcd").toCompletableFuture();
+
+        assertFalse(result.get());
+        verify(mockSession).disconnect("Slow consumer", true);
+        verify(mockIoSession, never()).write(any());
+    }
+
     @Test
     public void testSynchronousSend() throws Exception {
         int timeout = 123;
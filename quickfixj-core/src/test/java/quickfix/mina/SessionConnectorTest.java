@@ -43,6 +43,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -52,10 +53,14 @@ import java.util.Random;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
@@ -111,6 +116,83 @@ public class SessionConnectorTest {
         }
     }
 
+    @Test
+    public void testCreateSessionsInParallel() throws Exception {
+        SessionID sessionID1 = new SessionID(FixVersions.BEGINSTRING_FIX40, "TW", "ISLD");
+        SessionID sessionID2 = new SessionID(FixVersions.BEGINSTRING_FIX40, "TW", "ISLD2");
+        SessionSettings settings = setUpSessionSettings(sessionID1);
+        settings.setString(sessionID2, SessionFactory.SETTING_CONNECTION_TYPE,
+                SessionFactory.ACCEPTOR_CONNECTION_TYPE);
+        settings.setLong(SessionFactory.SETTING_SESSION_INIT_THREADS, 2);
+        DefaultSessionFactory sessionFactory = new DefaultSessionFactory(new UnitTestApplication(),
+                new MemoryStoreFactory(), new SLF4JLogFactory(new SessionSettings()));
+
+        SessionConnector connector = new SessionConnectorUnderTest(settings, sessionFactory);
+        Map<SessionID, Future<Session>> pendingSessions = connector.createSessionsInParallel(
+                Arrays.asList(sessionID1, sessionID2));
+        assertEquals(2, pendingSessions.size());
+        try (Session session1 = connector.createSession(sessionID1, pendingSessions);
+             Session session2 = connector.createSession(sessionID2, pendingSessions)) {
+            assertEquals(sessionID1, session1.getSessionID());
+            assertEquals(sessionID2, session2.getSessionID());
+            assertTrue(pendingSessions.isEmpty());
+        } finally {
+            connector.stop(true);
+        }
+    }
+
+    @Test
+    public void testCancelPendingSessionsClosesCreatedSessions() throws Exception {
+        SessionID sessionID1 = new SessionID(FixVersions.BEGINSTRING_FIX40, "TW", "ISLD");
+        SessionID sessionID2 = new SessionID(FixVersions.BEGINSTRING_FIX40, "TW", "ISLD2");
+        SessionSettings settings = setUpSessionSettings(sessionID1);
+        settings.setString(sessionID2, SessionFactory.SETTING_CONNECTION_TYPE,
+                SessionFactory.ACCEPTOR_CONNECTION_TYPE);
+        settings.setLong(SessionFactory.SETTING_SESSION_INIT_THREADS, 2);
+        DefaultSessionFactory sessionFactory = new DefaultSessionFactory(new UnitTestApplication(),
+                new MemoryStoreFactory(), new SLF4JLogFactory(new SessionSettings()));
+
+        SessionConnector connector = new SessionConnectorUnderTest(settings, sessionFactory);
+        try {
+            Map<SessionID, Future<Session>> pendingSessions = connector.createSessionsInParallel(
+                    Arrays.asList(sessionID1, sessionID2));
+            for (Future<Session> pendingSession : pendingSessions.values()) {
+                pendingSession.get();
+            }
+            assertTrue(Session.doesSessionExist(sessionID1));
+            assertTrue(Session.doesSessionExist(sessionID2));
+
+            connector.cancelPendingSessions(pendingSessions);
+
+            assertTrue(pendingSessions.isEmpty());
+            assertFalse(Session.doesSessionExist(sessionID1));
+            assertFalse(Session.doesSessionExist(sessionID2));
+        } finally {
+            connector.stop(true);
+        }
+    }
+
+    @Test
+    public void testWriteFlushExecutorIsStoppedWithConnector() throws Exception {
+        SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX40, "TW", "ISLD");
+        SessionSettings settings = setUpSessionSettings(sessionID);
+        DefaultSessionFactory sessionFactory = new DefaultSessionFactory(new UnitTestApplication(),
+                new MemoryStoreFactory(), new SLF4JLogFactory(new SessionSettings()));
+
+        SessionConnector connector = new SessionConnectorUnderTest(settings, sessionFactory);
+        SessionConnector connector2 = new SessionConnectorUnderTest(settings, sessionFactory);
+        ScheduledExecutorService flushExecutor = connector.getWriteFlushExecutor();
+        assertSame(flushExecutor, connector.getWriteFlushExecutor());
+        assertNotSame(flushExecutor, connector2.getWriteFlushExecutor());
+
+        connector.stop(true);
+        connector2.stop(true);
+        assertTrue(flushExecutor.isShutdown());
+        // a restarted connector gets a new executor
+        assertFalse(connector.getWriteFlushExecutor().isShutdown());
+        connector.stop(true);
+    }
+
     @Test
     public void testOneSessionLoggedOnOneSessionNotLoggedOne() throws Exception {
         SessionID sessionID1 = new SessionID(FixVersions.BEGINSTRING_FIX40, "TW", "ISLD");
@@ -439,6 +521,7 @@ public class SessionConnectorTest {
 
         public void stop(boolean force) {
             super.stopSessionTimer();
+            super.stopWriteFlushExecutor();
         }
     }
 
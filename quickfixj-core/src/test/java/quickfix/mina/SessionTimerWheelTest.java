@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix.mina;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import quickfix.Log;
+import quickfix.MockSystemTimeSource;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SystemTime;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SessionTimerWheelTest {
+
+    private MockSystemTimeSource timeSource;
+    private long start;
+
+    @Before
+    public void setUp() {
+        timeSource = new MockSystemTimeSource();
+        SystemTime.setTimeSource(timeSource);
+        start = timeSource.getTime();
+    }
+
+    @After
+    public void tearDown() {
+        SystemTime.setTimeSource(null);
+    }
+
+    @Test
+    public void testOnlyExpiredSessionsAreProcessed() throws Exception {
+        final SessionTimerWheel wheel = new SessionTimerWheel(100L);
+        final Session fast = mockSession("FAST", start + 250L);
+        final Session slow = mockSession("SLOW", start + 30000L);
+        wheel.add(fast);
+        wheel.add(slow);
+
+        // newly added sessions are processed on the next tick
+        wheel.run();
+        verify(fast, times(1)).next();
+        verify(slow, times(1)).next();
+
+        advance(wheel, 200L);
+        verify(fast, times(1)).next();
+
+        when(fast.getNextTimerDeadline()).thenReturn(start + 100000L);
+        advance(wheel, 100L);
+        verify(fast, times(2)).next();
+        verify(slow, times(1)).next();
+
+        advance(wheel, 29700L);
+        verify(fast, times(2)).next();
+        verify(slow, times(2)).next();
+    }
+
+    @Test
+    public void testDeadlineBeyondOneRevolution() throws Exception {
+        final SessionTimerWheel wheel = new SessionTimerWheel(10L);
+        final Session session = mockSession("SESSION", start + 60000L);
+        wheel.add(session);
+        wheel.run();
+        verify(session, times(1)).next();
+
+        for (int i = 0; i < 5999; i++) {
+            advance(wheel, 10L);
+        }
+        verify(session, times(1)).next();
+        advance(wheel, 10L);
+        verify(session, times(2)).next();
+    }
+
+    @Test
+    public void testWakeUp() throws Exception {
+        final SessionTimerWheel wheel = new SessionTimerWheel(100L);
+        final Session session = mockSession("SESSION", start + 30000L);
+        final ArgumentCaptor<Runnable> wakeUp = ArgumentCaptor.forClass(Runnable.class);
+        wheel.add(session);
+        verify(session).setTimerWakeUp(wakeUp.capture());
+        wheel.run();
+        verify(session, times(1)).next();
+
+        wakeUp.getValue().run();
+        wakeUp.getValue().run();
+        advance(wheel, 100L);
+        verify(session, times(2)).next();
+        advance(wheel, 100L);
+        verify(session, times(2)).next();
+    }
+
+    @Test
+    public void testRemovedSessionIsNotProcessed() throws Exception {
+        final SessionTimerWheel wheel = new SessionTimerWheel(100L);
+        final Session session = mockSession("SESSION", start + 100L);
+        wheel.add(session);
+        wheel.run();
+        verify(session, times(1)).next();
+
+        wheel.remove(session.getSessionID());
+        assertEquals(0, wheel.size());
+        verify(session).setTimerWakeUp(null);
+        advance(wheel, 1000L);
+        verify(session, times(1)).next();
+    }
+
+    @Test
+    public void testSessionIsRescheduledAfterError() throws Exception {
+        final SessionTimerWheel wheel = new SessionTimerWheel(100L);
+        final Session session = mockSession("SESSION", start + 100L);
+        doThrow(new IOException("test")).doThrow(new RuntimeException("test")).when(session).next();
+        wheel.add(session);
+        wheel.run();
+        advance(wheel, 100L);
+        advance(wheel, 100L);
+        verify(session, times(3)).next();
+    }
+
+    @Test
+    public void testOverlappingTickIsSkipped() throws Exception {
+        final SessionTimerWheel wheel = new SessionTimerWheel(100L);
+        final Session first = mockSession("FIRST", start + 100L);
+        final Session second = mockSession("SECOND", start + 200L);
+        wheel.add(first);
+        wheel.add(second);
+        wheel.run();
+
+        // the next tick starts on another thread while the first session is processed
+        doAnswer(invocation -> {
+            timeSource.increment(100L);
+            final Thread tick = new Thread(wheel);
+            tick.start();
+            tick.join();
+            return null;
+        }).when(first).next();
+        advance(wheel, 100L);
+        verify(second, times(1)).next();
+
+        advance(wheel, 0L);
+        verify(second, times(2)).next();
+    }
+
+    private Session mockSession(String senderCompID, long deadline) {
+        final Session session = mock(Session.class);
+        when(session.getSessionID()).thenReturn(new SessionID("FIX.4.4", senderCompID, "TARGET"));
+        when(session.getNextTimerDeadline()).thenReturn(deadline);
+        when(session.getLog()).thenReturn(mock(Log.class));
+        return session;
+    }
+
+    private void advance(SessionTimerWheel wheel, long millis) {
+        timeSource.increment(millis);
+        wheel.run();
+    }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) quickfixengine.org  All rights reserved.
+ *
+ * This file is part of the QuickFIX FIX Engine
+ *
+ * This file may be distributed under the terms of the quickfixengine.org
+ * license as defined by quickfixengine.org and appearing in the file
+ * LICENSE included in the packaging of this file.
+ *
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING
+ * THE WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ *
+ * See http://www.quickfixengine.org/LICENSE for licensing information.
+ *
+ * Contact ask@quickfixengine.org if any conditions of this licensing
+ * are not clear to you.
+ ******************************************************************************/
+
+package quickfix.mina;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import quickfix.FixVersions;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionFactoryTestSupport;
+import quickfix.SessionID;
+import quickfix.UnitTestApplication;
+import quickfix.field.BeginString;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.MsgType;
+import quickfix.field.SenderCompID;
+import quickfix.field.SendingTime;
+import quickfix.field.TargetCompID;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public class UnparsedMessageTest {
+
+    @Test
+    public void testResolveParsesMessage() throws Exception {
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX42, "SENDER", "TARGET");
+        try (Session session = SessionFactoryTestSupport.createSession(sessionID, new UnitTestApplication(), false)) {
+            final String messageString = createHeartbeat(sessionID).toString();
+            final UnparsedMessage unparsedMessage = new UnparsedMessage(session, messageString, 1000L);
+            assertEquals(messageString, unparsedMessage.toString());
+            assertEquals(1000L, unparsedMessage.getReceivedTimestamp());
+
+            final Message message = UnparsedMessage.resolve(unparsedMessage);
+            assertEquals(MsgType.HEARTBEAT, message.getHeader().getString(MsgType.FIELD));
+            assertEquals(2, message.getHeader().getInt(MsgSeqNum.FIELD));
+        }
+    }
+
+    @Test
+    public void testResolveDropsInvalidMessage() throws Exception {
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX42, "SENDER", "TARGET");
+        try (Session session = SessionFactoryTestSupport.createSession(sessionID, new UnitTestApplication(), false)) {
+            final UnparsedMessage unparsedMessage = new UnparsedMessage(session, "8=FIX.4.29=garbled", 0L);
+            assertNull(UnparsedMessage.resolve(unparsedMessage));
+        }
+    }
+
+    @Test
+    public void testDispatchPassesReceivedTimestamp() throws Exception {
+        final SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX42, "SENDER", "TARGET");
+        try (Session session = SessionFactoryTestSupport.createSession(sessionID, new UnitTestApplication(), false)) {
+            final Session target = spy(session);
+            doNothing().when(target).next(any(Message.class), anyLong());
+            doNothing().when(target).next(any(Message.class));
+
+            UnparsedMessage.dispatch(target, new UnparsedMessage(session, createHeartbeat(sessionID).toString(), 1000L));
+            final ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+            verify(target).next(message.capture(), eq(1000L));
+            assertEquals(MsgType.HEARTBEAT, message.getValue().getHeader().getString(MsgType.FIELD));
+
+            // parsed messages are processed with the current time
+            final Message parsedMessage = new Message();
+            UnparsedMessage.dispatch(target, parsedMessage);
+            verify(target).next(parsedMessage);
+        }
+    }
+
+    @Test
+    public void testResolveKeepsParsedMessage() {
+        final Message message = new Message();
+        assertSame(message, UnparsedMessage.resolve(message));
+        assertSame(EventHandlingStrategy.END_OF_STREAM, UnparsedMessage.resolve(EventHandlingStrategy.END_OF_STREAM));
+    }
+
+    private static Message createHeartbeat(SessionID sessionID) {
+        final Message message = new Message();
+        message.getHeader().setString(BeginString.FIELD, sessionID.getBeginString());
+        message.getHeader().setString(MsgType.FIELD, MsgType.HEARTBEAT);
+        message.getHeader().setString(SenderCompID.FIELD, sessionID.getTargetCompID());
+        message.getHeader().setString(TargetCompID.FIELD, sessionID.getSenderCompID());
+        message.getHeader().setField(new SendingTime(LocalDateTime.now(ZoneOffset.UTC)));
+        message.getHeader().setInt(MsgSeqNum.FIELD, 2);
+        return message;
+    }
+}
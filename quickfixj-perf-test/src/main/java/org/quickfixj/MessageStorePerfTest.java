@@ -0,0 +1,101 @@
+package org.quickfixj;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import quickfix.FileStoreFactory;
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.SleepycatStoreFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Compares the throughput of storing a message and incrementing the sender sequence
+ * number with the durability modes of FileStore and SleepycatStore.
+ */
+public class MessageStorePerfTest extends AbstractPerfTest {
+
+    @Param({"FileStore", "FileStoreSync", "Sleepycat", "SleepycatDeferredWrite", "SleepycatBatched",
+            "SleepycatSync"})
+    private String store;
+
+    private Path directory;
+    private MessageStore messageStore;
+    private String message;
+    private int sequence;
+
+    @Setup
+    public void prepare() throws IOException {
+        message = "8=FIX.4.4\0019=309\00135=8\00149=ASX\00156=CL1_FIX44\00134=4\001" +
+                "52=20060324-01:05:58\00117=X-B-WOW-1494E9A0:58BD3F9D-1109\001150=D\001" +
+                "39=0\00111=184271\00138=200\001198=1494E9A0:58BD3F9D\001526=4324\001" +
+                "37=B-WOW-1494E9A0:58BD3F9D\00155=WOW\00154=1\001151=200\00114=0\00140=2\001" +
+                "44=15\00159=1\0016=0\001453=3\001448=AAA35791\001447=D\001452=3\001448=8\001" +
+                "447=D\001452=4\001448=FIX11\001447=D\001452=36\00160=20060320-03:34:29\00110=169\001";
+
+        directory = Files.createTempDirectory("qfj-store-perf");
+        SessionID sessionID = new SessionID("FIX.4.4", "SENDER", "TARGET");
+        SessionSettings settings = new SessionSettings();
+        MessageStoreFactory factory;
+        switch (store) {
+            case "FileStore":
+            case "FileStoreSync":
+                settings.setString(sessionID, FileStoreFactory.SETTING_FILE_STORE_PATH, directory.toString());
+                settings.setBool(sessionID, FileStoreFactory.SETTING_FILE_STORE_SYNC, store.equals("FileStoreSync"));
+                factory = new FileStoreFactory(settings);
+                break;
+            default:
+                settings.setString(sessionID, SleepycatStoreFactory.SETTING_SLEEPYCAT_DATABASE_DIR,
+                        directory.toString());
+                if (store.equals("SleepycatDeferredWrite")) {
+                    settings.setBool(sessionID, SleepycatStoreFactory.SETTING_SLEEPYCAT_DEFERRED_WRITE, true);
+                } else if (store.equals("SleepycatBatched")) {
+                    settings.setLong(sessionID, SleepycatStoreFactory.SETTING_SLEEPYCAT_COMMIT_BATCH_SIZE, 100);
+                } else if (store.equals("SleepycatSync")) {
+                    settings.setLong(sessionID, SleepycatStoreFactory.SETTING_SLEEPYCAT_COMMIT_BATCH_SIZE, 1);
+                }
+                factory = new SleepycatStoreFactory(settings);
+                break;
+        }
+        messageStore = factory.create(sessionID);
+        messageStore.reset();
+        sequence = 1;
+    }
+
+    @TearDown
+    public void close() throws IOException {
+        ((Closeable) messageStore).close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void storeAndIncrement() throws IOException {
+        messageStore.set(sequence++, message);
+        messageStore.incrNextSenderMsgSeqNum();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + MessageStorePerfTest.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,327 @@
+package quickfix;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJJJ_Result;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Stresses the batch mode of the {@link JdbcStore}, where the sender and target sequence
+ * numbers and the message batch share one connection.
+ */
+@SuppressWarnings("unused")
+public class JdbcStoreBatchStressTest {
+
+    private static final SessionID SESSION_ID = new SessionID(FixVersions.BEGINSTRING_FIX44, "JDBC_INITIATOR", "JDBC_ACCEPTOR");
+
+    private static JdbcStoreWrapper createWrapper() throws Exception {
+        ResultSet columnsResultSet = mock(ResultSet.class);
+        doReturn(true).when(columnsResultSet).next();
+
+        SessionSettings settings = new SessionSettings();
+        settings.setBool(JdbcSetting.SETTING_JDBC_STORE_BATCH_MODE, true);
+        String sessionTableName = JdbcStore.getSessionTableName(settings, SESSION_ID);
+        String messageTableName = JdbcStore.getMessageTableName(settings, SESSION_ID);
+
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        doReturn(columnsResultSet).when(metaData).getColumns(null, null, sessionTableName.toUpperCase(), "SENDERSUBID");
+
+        Connection connection = mock(Connection.class);
+        doReturn(metaData).when(connection).getMetaData();
+
+        DataSource dataSource = mock(DataSource.class);
+        doReturn(connection).when(dataSource).getConnection();
+
+        boolean extendedSessionIdSupport = JdbcUtil.determineSessionIdSupport(dataSource, sessionTableName);
+        String idColumns = JdbcUtil.getIDColumns(extendedSessionIdSupport);
+        String idPlaceholders = JdbcUtil.getIDPlaceholders(extendedSessionIdSupport);
+        String idWhereClause = JdbcUtil.getIDWhereClause(extendedSessionIdSupport);
+
+        // GET SEQUENCE NUMS
+        ResultSet getSequenceResult = mock(ResultSet.class);
+        doReturn(false).when(getSequenceResult).next();
+
+        PreparedStatement getSequenceNumsQuery = mock(PreparedStatement.class);
+        doReturn(getSequenceResult).when(getSequenceNumsQuery).executeQuery();
+
+        String sequenceNumsSql = JdbcStore.getSequenceNumsSql(sessionTableName, idWhereClause);
+        doReturn(getSequenceNumsQuery).when(connection).prepareStatement(sequenceNumsSql);
+
+        // INSERT SESSION
+        PreparedStatement insertSessionQuery = mock(PreparedStatement.class);
+
+        String insertSessionSql = JdbcStore.getInsertSessionSql(sessionTableName, idColumns, idPlaceholders);
+        doReturn(insertSessionQuery).when(connection).prepareStatement(insertSessionSql);
+
+        Database database = new Database();
+
+        // INSERT MESSAGE BATCH
+        String insertMessageSql = JdbcStore.getUpsertMessageSql(JdbcStore.UpsertDialect.NONE, messageTableName,
+                idColumns, idPlaceholders);
+        doReturn(createInsertMessageStatement(database)).when(connection).prepareStatement(insertMessageSql);
+
+        // UPDATE SEQUENCE NUMS
+        String updateIncomingSequenceNumberSql = JdbcStore.getUpdateIncomingSequenceNumberSql(sessionTableName, idWhereClause);
+        doReturn(createUpdateSequenceStatement(database::updateTargetSequence))
+                .when(connection)
+                .prepareStatement(updateIncomingSequenceNumberSql);
+
+        String updateOutgoingSequenceNumberSql = JdbcStore.getUpdateOutgoingSequenceNumberSql(sessionTableName, idWhereClause);
+        doReturn(createUpdateSequenceStatement(database::updateSenderSequence))
+                .when(connection)
+                .prepareStatement(updateOutgoingSequenceNumberSql);
+
+        JdbcStore jdbcStore = new JdbcStore(settings, SESSION_ID, dataSource);
+
+        if (jdbcStore.getNextSenderMsgSeqNum() != 1) {
+            throw new IllegalStateException("Invalid next sender sequence: " + jdbcStore.getNextSenderMsgSeqNum());
+        }
+
+        if (jdbcStore.getNextTargetMsgSeqNum() != 1) {
+            throw new IllegalStateException("Invalid next target sequence: " + jdbcStore.getNextTargetMsgSeqNum());
+        }
+
+        return new JdbcStoreWrapper(jdbcStore, database);
+    }
+
+    private static PreparedStatement createInsertMessageStatement(Database database) throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        doAnswer(invocationOnMock -> {
+            database.batchedMessages.incrementAndGet();
+            return null;
+        }).when(statement).addBatch();
+        doAnswer(invocationOnMock -> new int[database.storeBatchedMessages()]).when(statement).executeBatch();
+        return statement;
+    }
+
+    private static PreparedStatement createUpdateSequenceStatement(IntConsumer dbUpdater) throws Exception {
+        // statements are cached by the store, the parameter is kept until the update is executed
+        AtomicInteger sequence = new AtomicInteger(-1);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        doAnswer(invocationOnMock -> {
+            if (invocationOnMock.<Integer>getArgument(0) == 1) {
+                sequence.set(invocationOnMock.getArgument(1));
+            }
+            return null;
+        }).when(statement).setInt(anyInt(), anyInt());
+        doAnswer(invocationOnMock -> {
+            dbUpdater.accept(sequence.get());
+            return true;
+        }).when(statement).execute();
+        return statement;
+    }
+
+    /**
+     * The message stored by the sender must be written in the same transaction as the
+     * sender sequence number, regardless of the concurrent target sequence number update.
+     */
+    @State
+    @JCStressTest
+    @Outcome(id = "2, 2, 2, 1", expect = Expect.ACCEPTABLE)
+    @Outcome(expect = Expect.FORBIDDEN)
+    public static class StoreAndIncrementTest {
+
+        private final JdbcStoreWrapper underTest;
+
+        public StoreAndIncrementTest() {
+            try {
+                this.underTest = createWrapper();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        // application thread
+        @Actor
+        public void sendMessage() {
+            underTest.storeAndIncrementSenderSequence("MESSAGE");
+        }
+
+        // QFJ Message Processor
+        @Actor
+        public void incrementTarget() {
+            underTest.incrementTargetSequence();
+        }
+
+        @Arbiter
+        public void captureResult(JJJJ_Result result) {
+            result.r1 = underTest.getCacheSenderSequence();
+            result.r2 = underTest.getDbSenderSequence();
+            result.r3 = underTest.getDbTargetSequence();
+            result.r4 = underTest.getDbMessageCount();
+        }
+    }
+
+    /**
+     * Both messages of two senders end up in the database with the final sender sequence number.
+     */
+    @State
+    @JCStressTest
+    @Outcome(id = "3, 3, 2, 2", expect = Expect.ACCEPTABLE)
+    @Outcome(expect = Expect.FORBIDDEN)
+    public static class TwoSendersTest {
+
+        private final JdbcStoreWrapper underTest;
+
+        public TwoSendersTest() {
+            try {
+                this.underTest = createWrapper();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        // application thread
+        @Actor
+        public void sendMessage1() {
+            underTest.storeAndIncrementSenderSequence("MESSAGE1");
+        }
+
+        // application thread
+        @Actor
+        public void sendMessage2() {
+            underTest.storeAndIncrementSenderSequence("MESSAGE2");
+        }
+
+        // QFJ Message Processor
+        @Actor
+        public void incrementTarget() {
+            underTest.incrementTargetSequence();
+        }
+
+        @Arbiter
+        public void captureResult(JJJJ_Result result) {
+            result.r1 = underTest.getCacheSenderSequence();
+            result.r2 = underTest.getDbSenderSequence();
+            result.r3 = underTest.getDbTargetSequence();
+            result.r4 = underTest.getDbMessageCount();
+        }
+    }
+
+    private static final class JdbcStoreWrapper {
+
+        private final JdbcStore store;
+        private final Database database;
+        private final Lock senderSequenceLock;
+        private final Lock targetSequenceLock;
+
+        public JdbcStoreWrapper(JdbcStore store, Database database) {
+            this.store = store;
+            this.database = database;
+            this.senderSequenceLock = new ReentrantLock();
+            this.targetSequenceLock = new ReentrantLock();
+        }
+
+        public void storeAndIncrementSenderSequence(String message) {
+            senderSequenceLock.lock();
+
+            try {
+                store.set(store.getNextSenderMsgSeqNum(), message);
+                store.incrNextSenderMsgSeqNum();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                senderSequenceLock.unlock();
+            }
+        }
+
+        public void incrementTargetSequence() {
+            targetSequenceLock.lock();
+
+            try {
+                store.incrNextTargetMsgSeqNum();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                targetSequenceLock.unlock();
+            }
+        }
+
+        public int getCacheSenderSequence() {
+            try {
+                return store.getNextSenderMsgSeqNum();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public int getDbSenderSequence() {
+            return database.senderSequence;
+        }
+
+        public int getDbTargetSequence() {
+            return database.targetSequence;
+        }
+
+        public int getDbMessageCount() {
+            return database.storedMessages;
+        }
+    }
+
+    private static final class Database {
+
+        private final Lock lock;
+        private final AtomicInteger batchedMessages;
+        private int senderSequence;
+        private int targetSequence;
+        private int storedMessages;
+
+        public Database() {
+            this.lock = new ReentrantLock();
+            this.batchedMessages = new AtomicInteger();
+            this.senderSequence = -1;
+            this.targetSequence = -1;
+        }
+
+        public int storeBatchedMessages() {
+            lock.lock();
+
+            try {
+                int count = batchedMessages.getAndSet(0);
+                storedMessages += count;
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void updateSenderSequence(int senderSequence) {
+            lock.lock();
+
+            try {
+                this.senderSequence = senderSequence;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void updateTargetSequence(int targetSequence) {
+            lock.lock();
+
+            try {
+                this.targetSequence = targetSequence;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}